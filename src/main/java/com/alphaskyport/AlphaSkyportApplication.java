@@ -3,9 +3,11 @@ package com.alphaskyport;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableCaching
+@EnableScheduling
 @org.springframework.boot.autoconfigure.domain.EntityScan(basePackages = "com.alphaskyport")
 @org.springframework.data.jpa.repository.config.EnableJpaRepositories(basePackages = "com.alphaskyport")
 public class AlphaSkyportApplication {
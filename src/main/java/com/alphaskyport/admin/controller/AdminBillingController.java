@@ -0,0 +1,50 @@
+package com.alphaskyport.admin.controller;
+
+import com.alphaskyport.admin.dto.BillingDTOs.BillingRunResponse;
+import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.security.CurrentAdmin;
+import com.alphaskyport.admin.security.RequiresPermission;
+import com.alphaskyport.admin.service.BillingRunService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+
+@RestController
+@RequestMapping("/api/admin/billing")
+@RequiredArgsConstructor
+@Tag(name = "Admin Billing", description = "Month-end billing run endpoints")
+public class AdminBillingController {
+
+    private final BillingRunService billingRunService;
+
+    @PostMapping("/runs")
+    @RequiresPermission("invoices:write")
+    @Operation(summary = "Start billing run", description = "Invoice all delivered, uninvoiced shipments of a month (yyyy-MM)")
+    public ResponseEntity<BillingRunResponse> startRun(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth period,
+            @CurrentAdmin AdminUser admin) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(billingRunService.startRun(period, admin));
+    }
+
+    @GetMapping("/runs/{runId}")
+    @RequiresPermission("invoices:read")
+    @Operation(summary = "Get billing run", description = "Get chunk progress and totals of a billing run")
+    public ResponseEntity<BillingRunResponse> getRun(@PathVariable long runId) {
+        return ResponseEntity.ok(billingRunService.getRun(runId));
+    }
+
+    @PostMapping("/runs/{runId}/resume")
+    @RequiresPermission("invoices:write")
+    @Operation(summary = "Resume billing run", description = "Retry failed chunks and continue an interrupted billing run")
+    public ResponseEntity<BillingRunResponse> resumeRun(
+            @PathVariable long runId,
+            @CurrentAdmin AdminUser admin) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(billingRunService.resumeRun(runId, admin));
+    }
+}
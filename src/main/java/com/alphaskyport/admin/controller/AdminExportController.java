@@ -0,0 +1,86 @@
+package com.alphaskyport.admin.controller;
+
+import com.alphaskyport.admin.dto.ExportDTOs.ExportRequest;
+import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.security.CurrentAdmin;
+import com.alphaskyport.admin.security.RequiresPermission;
+import com.alphaskyport.admin.service.ExportService;
+import com.alphaskyport.admin.service.ExportService.Dataset;
+import com.alphaskyport.admin.service.ExportService.ExportStream;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/exports")
+@RequiredArgsConstructor
+@Tag(name = "Admin Exports", description = "Streaming CSV / JSON Lines exports")
+public class AdminExportController {
+
+    private final ExportService exportService;
+
+    @GetMapping("/invoices")
+    @RequiresPermission("reports:export")
+    @Operation(summary = "Export invoices", description = "Stream invoices issued in a date range as csv or jsonl, optionally gzipped")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @CurrentAdmin AdminUser admin) {
+        return stream(Dataset.INVOICES, status, from, to, format, gzip, admin);
+    }
+
+    @GetMapping("/payments")
+    @RequiresPermission("reports:export")
+    @Operation(summary = "Export payments", description = "Stream payments made in a date range as csv or jsonl, optionally gzipped")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @CurrentAdmin AdminUser admin) {
+        return stream(Dataset.PAYMENTS, status, from, to, format, gzip, admin);
+    }
+
+    @GetMapping("/shipments")
+    @RequiresPermission("reports:export")
+    @Operation(summary = "Export shipments", description = "Stream shipments created in a date range as csv or jsonl, optionally gzipped")
+    public ResponseEntity<StreamingResponseBody> exportShipments(
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @CurrentAdmin AdminUser admin) {
+        return stream(Dataset.SHIPMENTS, status, from, to, format, gzip, admin);
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(Dataset dataset, List<String> status, LocalDate from,
+            LocalDate to, String format, boolean gzip, AdminUser admin) {
+        ExportStream export = exportService.export(dataset, ExportRequest.builder()
+                .statuses(status)
+                .from(from)
+                .to(to)
+                .format(format)
+                .gzip(gzip)
+                .build(), admin);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(export.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + export.filename() + "\"")
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(export.body());
+    }
+}
@@ -1,26 +1,39 @@
 package com.alphaskyport.admin.controller;
 
+import com.alphaskyport.admin.dto.InvoiceDTOs.BalanceVerificationResult;
+import com.alphaskyport.admin.dto.InvoiceDTOs.DocumentRerenderResponse;
+import com.alphaskyport.admin.dto.InvoiceDTOs.InvoiceDocumentResponse;
 import com.alphaskyport.admin.dto.InvoiceDTOs.InvoiceListResponse;
 import com.alphaskyport.admin.dto.InvoiceDTOs.InvoiceResponse;
 import com.alphaskyport.admin.dto.InvoiceDTOs.CreateInvoiceRequest;
+import com.alphaskyport.admin.dto.InvoiceDTOs.OverdueStats;
+import com.alphaskyport.admin.dto.InvoiceDTOs.OverdueTransitionResult;
 import com.alphaskyport.admin.dto.InvoiceDTOs.RecordPaymentRequest;
 
 import com.alphaskyport.admin.model.AdminUser;
 import com.alphaskyport.admin.model.InvoiceStatus;
+import com.alphaskyport.admin.service.InvoiceBalanceVerificationService;
+import com.alphaskyport.admin.service.InvoiceDocumentService;
+import com.alphaskyport.admin.service.InvoiceOverdueService;
 import com.alphaskyport.admin.service.InvoiceService;
 import com.alphaskyport.admin.security.CurrentAdmin;
 import com.alphaskyport.admin.security.RequiresPermission;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.List;
+import java.time.YearMonth;
 import java.util.UUID;
 
 @RestController
@@ -30,6 +43,9 @@ import java.util.UUID;
 public class AdminInvoiceController {
 
     private final InvoiceService invoiceService;
+    private final InvoiceBalanceVerificationService balanceVerificationService;
+    private final InvoiceDocumentService documentService;
+    private final InvoiceOverdueService overdueService;
 
     @GetMapping
     @RequiresPermission("invoices:read")
@@ -65,9 +81,24 @@ public class AdminInvoiceController {
 
     @GetMapping("/overdue")
     @RequiresPermission("invoices:read")
-    @Operation(summary = "Get overdue invoices", description = "Get all overdue invoices")
-    public ResponseEntity<List<InvoiceResponse>> getOverdueInvoices() {
-        return ResponseEntity.ok(invoiceService.getOverdueInvoices());
+    @Operation(summary = "Get overdue invoices", description = "Get paginated list of overdue invoices, oldest due first")
+    public ResponseEntity<InvoiceListResponse> getOverdueInvoices(
+            @PageableDefault(size = 20, sort = "dueDate") Pageable pageable) {
+        return ResponseEntity.ok(invoiceService.getOverdueInvoices(pageable));
+    }
+
+    @GetMapping("/overdue/stats")
+    @RequiresPermission("invoices:read")
+    @Operation(summary = "Get overdue totals", description = "Get the number of overdue invoices and their outstanding amount per currency")
+    public ResponseEntity<OverdueStats> getOverdueStats() {
+        return ResponseEntity.ok(overdueService.getStats());
+    }
+
+    @PostMapping("/overdue/refresh")
+    @RequiresPermission("invoices:write")
+    @Operation(summary = "Mark overdue invoices", description = "Move sent invoices past their due date to overdue now")
+    public ResponseEntity<OverdueTransitionResult> refreshOverdue() {
+        return ResponseEntity.ok(overdueService.markOverdue());
     }
 
     @GetMapping("/outstanding-total")
@@ -95,6 +126,32 @@ public class AdminInvoiceController {
         return ResponseEntity.ok(invoiceService.sendInvoice(invoiceId, admin));
     }
 
+    @GetMapping("/{invoiceId}/pdf")
+    @RequiresPermission("invoices:read")
+    @Operation(summary = "Download invoice PDF", description = "Stream the latest invoice document; a stale one is served while a re-render is queued, a missing one is rendered first")
+    public void downloadInvoicePdf(
+            @PathVariable UUID invoiceId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        documentService.sendDocument(invoiceId, request, response);
+    }
+
+    @PostMapping("/{invoiceId}/pdf")
+    @RequiresPermission("invoices:write")
+    @Operation(summary = "Render invoice PDF", description = "Re-render the invoice document now")
+    public ResponseEntity<InvoiceDocumentResponse> renderInvoicePdf(@PathVariable UUID invoiceId) {
+        return ResponseEntity.ok(documentService.render(invoiceId));
+    }
+
+    @PostMapping("/documents/rerender")
+    @RequiresPermission("invoices:write")
+    @Operation(summary = "Re-render month", description = "Re-render all invoice documents issued in a month (yyyy-MM) in the background")
+    public ResponseEntity<DocumentRerenderResponse> rerenderDocuments(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth period,
+            @CurrentAdmin AdminUser admin) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(documentService.rerenderPeriod(period, admin));
+    }
+
     @PostMapping("/payments")
     @RequiresPermission("payments:write")
     @Operation(summary = "Record payment", description = "Record a payment against an invoice")
@@ -104,6 +161,13 @@ public class AdminInvoiceController {
         return ResponseEntity.ok(invoiceService.recordPayment(request, admin));
     }
 
+    @PostMapping("/balances/verify")
+    @RequiresPermission("payments:reconcile")
+    @Operation(summary = "Verify invoice balances", description = "Check paid amounts against recorded payments and repair drift")
+    public ResponseEntity<BalanceVerificationResult> verifyBalances() {
+        return ResponseEntity.ok(balanceVerificationService.verify());
+    }
+
     @PostMapping("/{invoiceId}/cancel")
     @RequiresPermission("invoices:void")
     @Operation(summary = "Cancel invoice", description = "Cancel an invoice")
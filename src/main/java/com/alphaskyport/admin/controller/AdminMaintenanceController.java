@@ -0,0 +1,54 @@
+package com.alphaskyport.admin.controller;
+
+import com.alphaskyport.admin.dto.MaintenanceDTOs.PartitionMaintenanceResult;
+import com.alphaskyport.admin.dto.MaintenanceDTOs.PartitionStats;
+import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.security.CurrentAdmin;
+import com.alphaskyport.admin.security.RequiresPermission;
+import com.alphaskyport.admin.service.AdminActivityService;
+import com.alphaskyport.admin.service.PartitionMaintenanceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/maintenance")
+@RequiredArgsConstructor
+@Tag(name = "Admin Maintenance", description = "Database maintenance and monitoring endpoints")
+public class AdminMaintenanceController {
+
+    private final PartitionMaintenanceService partitionService;
+    private final AdminActivityService activityService;
+
+    @GetMapping("/partitions")
+    @RequiresPermission("admin:read")
+    @Operation(summary = "List managed tables", description = "Get partitioned tables handled by the maintenance job")
+    public ResponseEntity<List<String>> getManagedTables() {
+        return ResponseEntity.ok(partitionService.getManagedTables());
+    }
+
+    @GetMapping("/partitions/{table}")
+    @RequiresPermission("admin:read")
+    @Operation(summary = "Get partition stats", description = "Get size, row estimates and index health per partition")
+    public ResponseEntity<PartitionStats> getPartitionStats(@PathVariable String table) {
+        return ResponseEntity.ok(partitionService.getStats(table));
+    }
+
+    @PostMapping("/partitions/{table}/run")
+    @RequiresPermission("admin:write")
+    @Operation(summary = "Run partition maintenance", description = "Create upcoming partitions, repair indexes and apply retention now")
+    public ResponseEntity<PartitionMaintenanceResult> runMaintenance(
+            @PathVariable String table,
+            @CurrentAdmin AdminUser admin) {
+        PartitionMaintenanceResult result = partitionService.maintain(table);
+        activityService.logActivity(admin, "PARTITION_MAINTENANCE", "Partition", table,
+                "Ran partition maintenance (created " + result.getCreatedPartitions().size()
+                        + ", retired " + result.getRetiredPartitions().size() + ")",
+                null, null);
+        return ResponseEntity.ok(result);
+    }
+}
@@ -0,0 +1,63 @@
+package com.alphaskyport.admin.controller;
+
+import com.alphaskyport.admin.dto.PagingDTOs.CursorPage;
+import com.alphaskyport.admin.dto.ReconciliationDTOs.DiscrepancyResponse;
+import com.alphaskyport.admin.dto.ReconciliationDTOs.ReconciliationRunResponse;
+import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.security.CurrentAdmin;
+import com.alphaskyport.admin.security.RequiresPermission;
+import com.alphaskyport.admin.service.AdminActivityService;
+import com.alphaskyport.admin.service.PaymentReconciliationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/reconciliation")
+@RequiredArgsConstructor
+@Tag(name = "Admin Reconciliation", description = "Payment ledger reconciliation endpoints")
+public class AdminReconciliationController {
+
+    private final PaymentReconciliationService reconciliationService;
+    private final AdminActivityService activityService;
+
+    @PostMapping("/runs")
+    @RequiresPermission("payments:reconcile")
+    @Operation(summary = "Start reconciliation", description = "Reconcile payment transactions against invoice payments in the background")
+    public ResponseEntity<ReconciliationRunResponse> startRun(@CurrentAdmin AdminUser admin) {
+        ReconciliationRunResponse run = reconciliationService.startAsync(admin.getEmail());
+        activityService.logActivity(admin, "START_RECONCILIATION", "ReconciliationRun",
+                String.valueOf(run.getRunId()), "Started payment reconciliation run " + run.getRunId(), null, null);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(run);
+    }
+
+    @GetMapping("/runs")
+    @RequiresPermission("payments:reconcile")
+    @Operation(summary = "List reconciliation runs", description = "Get the most recent reconciliation runs")
+    public ResponseEntity<List<ReconciliationRunResponse>> getRuns(@RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(reconciliationService.getRecentRuns(limit));
+    }
+
+    @GetMapping("/runs/{runId}")
+    @RequiresPermission("payments:reconcile")
+    @Operation(summary = "Get reconciliation run", description = "Get progress and discrepancy counts of a run")
+    public ResponseEntity<ReconciliationRunResponse> getRun(@PathVariable long runId) {
+        return ResponseEntity.ok(reconciliationService.getRun(runId));
+    }
+
+    @GetMapping("/runs/{runId}/discrepancies")
+    @RequiresPermission("payments:reconcile")
+    @Operation(summary = "List discrepancies", description = "Get discrepancies found by a run, optionally filtered by type")
+    public ResponseEntity<CursorPage<DiscrepancyResponse>> getDiscrepancies(
+            @PathVariable long runId,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(reconciliationService.getDiscrepancies(runId, type, cursor, limit));
+    }
+}
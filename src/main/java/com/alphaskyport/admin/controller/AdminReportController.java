@@ -0,0 +1,48 @@
+package com.alphaskyport.admin.controller;
+
+import com.alphaskyport.admin.dto.PagingDTOs.CursorPage;
+import com.alphaskyport.admin.dto.ReportDTOs.AgingRebucketResult;
+import com.alphaskyport.admin.dto.ReportDTOs.AgingSummary;
+import com.alphaskyport.admin.dto.ReportDTOs.CustomerAging;
+import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.security.CurrentAdmin;
+import com.alphaskyport.admin.security.RequiresPermission;
+import com.alphaskyport.admin.service.ArAgingService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/reports")
+@RequiredArgsConstructor
+@Tag(name = "Admin Reports", description = "Financial reports served from precomputed aggregates")
+public class AdminReportController {
+
+    private final ArAgingService arAgingService;
+
+    @GetMapping("/ar-aging")
+    @RequiresPermission("reports:view")
+    @Operation(summary = "Get AR aging totals", description = "Outstanding receivables by days past due, per currency")
+    public ResponseEntity<AgingSummary> getArAging() {
+        return ResponseEntity.ok(arAgingService.getSummary());
+    }
+
+    @GetMapping("/ar-aging/customers")
+    @RequiresPermission("reports:view")
+    @Operation(summary = "Get AR aging by customer", description = "Customers with open balances, largest first; pass nextCursor to page")
+    public ResponseEntity<CursorPage<CustomerAging>> getArAgingByCustomer(
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(arAgingService.getCustomers(currency, cursor, limit));
+    }
+
+    @PostMapping("/ar-aging/rebucket")
+    @RequiresPermission("reports:manage")
+    @Operation(summary = "Rebucket AR aging", description = "Recompute aging buckets as of today")
+    public ResponseEntity<AgingRebucketResult> rebucketArAging(@CurrentAdmin AdminUser admin) {
+        return ResponseEntity.ok(arAgingService.rebucket(admin));
+    }
+}
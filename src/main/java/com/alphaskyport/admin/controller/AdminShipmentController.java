@@ -1,11 +1,13 @@
 package com.alphaskyport.admin.controller;
 
+import com.alphaskyport.admin.dto.PagingDTOs.CursorPage;
 import com.alphaskyport.admin.model.AdminUser;
 import com.alphaskyport.admin.service.AdminShipmentService;
 import com.alphaskyport.admin.security.CurrentAdmin;
 import com.alphaskyport.admin.security.RequiresPermission;
 import com.alphaskyport.logistics.model.Shipment;
 import com.alphaskyport.logistics.model.ShipmentTrackingEvent;
+import com.alphaskyport.logistics.service.RouteSimplificationService.SimplifiedRoute;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -42,6 +44,16 @@ public class AdminShipmentController {
         return ResponseEntity.ok(shipmentService.getAllShipments(pageable));
     }
 
+    @GetMapping("/scroll")
+    @RequiresPermission("shipments:read")
+    @Operation(summary = "Scroll shipments", description = "Keyset-paginated list of shipments, newest first")
+    public ResponseEntity<CursorPage<Shipment>> scrollShipments(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(shipmentService.getShipmentsPage(status, cursor, limit));
+    }
+
     @GetMapping("/{shipmentId}")
     @RequiresPermission("shipments:read")
     @Operation(summary = "Get shipment", description = "Get shipment details by ID")
@@ -91,6 +103,25 @@ public class AdminShipmentController {
         return ResponseEntity.ok(shipmentService.getTrackingHistory(shipmentId));
     }
 
+    @GetMapping("/{shipmentId}/tracking/scroll")
+    @RequiresPermission("shipments:read")
+    @Operation(summary = "Scroll tracking history", description = "Keyset-paginated tracking events, newest first")
+    public ResponseEntity<CursorPage<ShipmentTrackingEvent>> scrollTrackingHistory(
+            @PathVariable UUID shipmentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(shipmentService.getTrackingHistoryPage(shipmentId, cursor, limit));
+    }
+
+    @GetMapping("/{shipmentId}/route")
+    @RequiresPermission("shipments:read")
+    @Operation(summary = "Get simplified route", description = "Get the GPS trail simplified to the given tolerance in metres")
+    public ResponseEntity<SimplifiedRoute> getSimplifiedRoute(
+            @PathVariable UUID shipmentId,
+            @RequestParam(required = false) Double toleranceMeters) {
+        return ResponseEntity.ok(shipmentService.getSimplifiedRoute(shipmentId, toleranceMeters));
+    }
+
     @GetMapping("/stats")
     @RequiresPermission("shipments:read")
     @Operation(summary = "Get shipment stats", description = "Get shipment statistics")
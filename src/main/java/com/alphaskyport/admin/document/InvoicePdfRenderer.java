@@ -0,0 +1,231 @@
+package com.alphaskyport.admin.document;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Renders invoices through a compiled {@link InvoiceTemplate}.
+ *
+ * Line items are pushed one at a time into a {@link Session}; each page's
+ * content stream is deflated straight into the output as rows arrive, so
+ * memory use is independent of the number of line items. The line count is
+ * needed up front to print "Page X of Y" without a second pass.
+ */
+public class InvoicePdfRenderer {
+
+    private static final String FONTS = "<< /F1 %d 0 R /F2 %d 0 R >>";
+
+    private final InvoiceTemplate template;
+    private final int pageWidth;
+    private final int pageHeight;
+    private final int firstRow;
+    private final int rowHeight;
+    private final int rowsPerPage;
+    private final int totalsRows;
+    private final int descriptionChars;
+
+    public InvoicePdfRenderer(InvoiceTemplate template) {
+        for (String section : List.of("page", "item", "totals")) {
+            if (!template.hasSection(section)) {
+                throw new IllegalArgumentException("Invoice template is missing section '" + section + "'");
+            }
+        }
+        this.template = template;
+        this.pageWidth = template.layout("page-width");
+        this.pageHeight = template.layout("page-height");
+        this.firstRow = template.layout("first-row");
+        this.rowHeight = template.layout("row-height");
+        this.rowsPerPage = template.layout("rows-per-page");
+        this.totalsRows = template.layout("totals-rows");
+        this.descriptionChars = template.layout("description-chars");
+        if (totalsRows > rowsPerPage) {
+            throw new IllegalArgumentException("Invoice totals do not fit on a page");
+        }
+    }
+
+    public int pageCount(int lineCount) {
+        return Math.max(1, (lineCount + totalsRows + rowsPerPage - 1) / rowsPerPage);
+    }
+
+    public Session open(Header header, int lineCount, OutputStream out) throws IOException {
+        return new Session(header, lineCount, out);
+    }
+
+    public record Header(String invoiceNumber, String status, LocalDate issueDate, LocalDate dueDate,
+            String customerName, String customerEmail, String currency, BigDecimal subtotal,
+            BigDecimal taxAmount, BigDecimal totalAmount, BigDecimal paidAmount) {
+    }
+
+    public record Line(String description, BigDecimal quantity, BigDecimal unitPrice, BigDecimal lineTotal) {
+    }
+
+    /** One document being written. Not thread-safe. */
+    public final class Session implements Closeable {
+
+        private final Header header;
+        private final int lineCount;
+        private final int pageCount;
+        private final PdfWriter pdf;
+        private final int catalogNumber;
+        private final int pagesNumber;
+        private final int infoNumber;
+        private final String pageResources;
+        private final List<Integer> pageNumbers = new ArrayList<>();
+        private final Map<String, String> pageValues;
+        private final Map<String, String> row = new HashMap<>();
+
+        private OutputStream content;
+        private int contentNumber;
+        private int rowsOnPage;
+        private int linesAdded;
+        private boolean finished;
+
+        private Session(Header header, int lineCount, OutputStream out) throws IOException {
+            this.header = header;
+            this.lineCount = lineCount;
+            this.pageCount = pageCount(lineCount);
+            this.pdf = new PdfWriter(out);
+
+            catalogNumber = pdf.reserve();
+            pagesNumber = pdf.reserve();
+            int regular = pdf.reserve();
+            int bold = pdf.reserve();
+            infoNumber = pdf.reserve();
+            pdf.writeObject(regular, font("Helvetica"));
+            pdf.writeObject(bold, font("Helvetica-Bold"));
+            pdf.writeObject(infoNumber, "<< /Title (Invoice " + PdfWriter.escapeText(header.invoiceNumber())
+                    + ") /Producer (Alpha Skyport) >>");
+            pageResources = "<< /Font " + FONTS.formatted(regular, bold) + " >>";
+
+            pageValues = new HashMap<>();
+            pageValues.put("invoiceNumber", header.invoiceNumber());
+            pageValues.put("status", nullToEmpty(header.status()));
+            pageValues.put("issueDate", String.valueOf(header.issueDate()));
+            pageValues.put("dueDate", String.valueOf(header.dueDate()));
+            pageValues.put("customerName", nullToEmpty(header.customerName()));
+            pageValues.put("customerEmail", nullToEmpty(header.customerEmail()));
+            pageValues.put("pageCount", Integer.toString(pageCount));
+
+            startPage();
+        }
+
+        public void addLine(Line line) throws IOException {
+            if (linesAdded == lineCount) {
+                throw new IllegalStateException("More line items than the " + lineCount + " announced");
+            }
+            if (rowsOnPage == rowsPerPage) {
+                endPage();
+                startPage();
+            }
+            row.put("description", truncate(line.description()));
+            row.put("quantity", quantity(line.quantity()));
+            row.put("unitPrice", money(line.unitPrice()));
+            row.put("lineTotal", money(line.lineTotal()));
+            writeAtRow("item", row);
+            rowsOnPage++;
+            linesAdded++;
+        }
+
+        /** Writes totals and the document trailer; the output stream is left open. */
+        public void finish() throws IOException {
+            if (linesAdded != lineCount) {
+                throw new IllegalStateException("Expected " + lineCount + " line items but got " + linesAdded);
+            }
+            if (rowsOnPage + totalsRows > rowsPerPage) {
+                throw new IllegalStateException("Invoice totals overflow the last page");
+            }
+            Map<String, String> totals = new HashMap<>();
+            totals.put("subtotal", money(header.subtotal()));
+            totals.put("taxAmount", money(header.taxAmount()));
+            totals.put("totalAmount", money(header.totalAmount()));
+            totals.put("paidAmount", money(header.paidAmount()));
+            totals.put("balanceDue", money(nullToZero(header.totalAmount()).subtract(nullToZero(header.paidAmount()))));
+            totals.put("currency", nullToEmpty(header.currency()));
+            writeAtRow("totals", totals);
+            endPage();
+
+            String kids = pageNumbers.stream().map(n -> n + " 0 R").collect(Collectors.joining(" "));
+            pdf.writeObject(pagesNumber, "<< /Type /Pages /Kids [" + kids + "] /Count " + pageNumbers.size() + " >>");
+            pdf.writeObject(catalogNumber, "<< /Type /Catalog /Pages " + pagesNumber + " 0 R >>");
+            pdf.finish(catalogNumber, infoNumber);
+            finished = true;
+        }
+
+        public long getBytesWritten() {
+            return pdf.getBytesWritten();
+        }
+
+        /** Closes the underlying output; does not finish the document. */
+        @Override
+        public void close() throws IOException {
+            if (!finished && content != null) {
+                content.close();
+                content = null;
+            }
+            pdf.close();
+        }
+
+        private void startPage() throws IOException {
+            contentNumber = pdf.reserve();
+            content = pdf.beginStream(contentNumber);
+            pageValues.put("pageNumber", Integer.toString(pageNumbers.size() + 1));
+            template.write("page", pageValues, content);
+            rowsOnPage = 0;
+        }
+
+        private void endPage() throws IOException {
+            content.close();
+            content = null;
+            int pageNumber = pdf.reserve();
+            pdf.writeObject(pageNumber, "<< /Type /Page /Parent " + pagesNumber + " 0 R /MediaBox [0 0 "
+                    + pageWidth + " " + pageHeight + "] /Resources " + pageResources
+                    + " /Contents " + contentNumber + " 0 R >>");
+            pageNumbers.add(pageNumber);
+        }
+
+        private void writeAtRow(String section, Map<String, String> values) throws IOException {
+            int y = firstRow - rowsOnPage * rowHeight;
+            content.write(("q 1 0 0 1 0 " + y + " cm\n").getBytes(StandardCharsets.ISO_8859_1));
+            template.write(section, values, content);
+            content.write("Q\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    // ==================== Formatting ====================
+
+    private static String font(String baseFont) {
+        return "<< /Type /Font /Subtype /Type1 /BaseFont /" + baseFont + " /Encoding /WinAnsiEncoding >>";
+    }
+
+    private String truncate(String description) {
+        String text = nullToEmpty(description);
+        return text.length() <= descriptionChars ? text : text.substring(0, descriptionChars - 3) + "...";
+    }
+
+    private static String money(BigDecimal amount) {
+        return String.format(Locale.ROOT, "%,.2f", nullToZero(amount));
+    }
+
+    private static String quantity(BigDecimal quantity) {
+        BigDecimal value = nullToZero(quantity).stripTrailingZeros();
+        return value.scale() < 0 ? value.setScale(0).toPlainString() : value.toPlainString();
+    }
+
+    private static BigDecimal nullToZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
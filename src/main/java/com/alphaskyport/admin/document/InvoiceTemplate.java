@@ -0,0 +1,140 @@
+package com.alphaskyport.admin.document;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Invoice page layout compiled from template source.
+ *
+ * The source is PDF content-stream operators split into named sections
+ * ({{#page}}...{{/page}}) with {{field}} placeholders inside string
+ * operands, plus "%% key value" layout directives. Compiling substitutes the
+ * constants (company details and the like) and splits every section into
+ * pre-encoded byte runs and field references, so rendering only has to encode
+ * per-document values. Instances are immutable and shared across threads.
+ */
+public class InvoiceTemplate {
+
+    private static final Pattern SECTION = Pattern.compile("\\{\\{#([a-z]+)}}\\n?(.*?)\\{\\{/\\1}}\\n?",
+            Pattern.DOTALL);
+    private static final Pattern FIELD = Pattern.compile("\\{\\{([A-Za-z]+)}}");
+    private static final Pattern DIRECTIVE = Pattern.compile("^%%\\s*([a-z-]+)\\s+(\\d+)\\s*$", Pattern.MULTILINE);
+
+    private final Map<String, List<Segment>> sections;
+    private final Map<String, Integer> layout;
+    private final String version;
+
+    private InvoiceTemplate(Map<String, List<Segment>> sections, Map<String, Integer> layout, String version) {
+        this.sections = sections;
+        this.layout = layout;
+        this.version = version;
+    }
+
+    public static InvoiceTemplate compile(String source, Map<String, String> constants) {
+        Map<String, Integer> layout = new HashMap<>();
+        Matcher directives = DIRECTIVE.matcher(source);
+        while (directives.find()) {
+            layout.put(directives.group(1), Integer.parseInt(directives.group(2)));
+        }
+
+        Map<String, List<Segment>> sections = new HashMap<>();
+        Matcher matcher = SECTION.matcher(source);
+        while (matcher.find()) {
+            sections.put(matcher.group(1), compileSection(matcher.group(2), constants));
+        }
+        if (sections.isEmpty()) {
+            throw new IllegalArgumentException("Invoice template has no sections");
+        }
+        return new InvoiceTemplate(Map.copyOf(sections), Map.copyOf(layout), fingerprint(source, constants));
+    }
+
+    public boolean hasSection(String name) {
+        return sections.containsKey(name);
+    }
+
+    public int layout(String key) {
+        Integer value = layout.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Invoice template does not define layout '" + key + "'");
+        }
+        return value;
+    }
+
+    /** Short digest of the source and constants, recorded with rendered documents. */
+    public String getVersion() {
+        return version;
+    }
+
+    public void write(String section, Map<String, String> values, OutputStream out) throws IOException {
+        List<Segment> segments = sections.get(section);
+        if (segments == null) {
+            throw new IllegalArgumentException("Invoice template has no section '" + section + "'");
+        }
+        for (Segment segment : segments) {
+            if (segment.bytes != null) {
+                out.write(segment.bytes);
+            } else {
+                String value = values.get(segment.field);
+                if (value == null) {
+                    throw new IllegalArgumentException("No value for template field '" + segment.field + "'");
+                }
+                out.write(PdfWriter.escapeText(value).getBytes(StandardCharsets.ISO_8859_1));
+            }
+        }
+    }
+
+    // ==================== Internals ====================
+
+    private static List<Segment> compileSection(String body, Map<String, String> constants) {
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        Matcher fields = FIELD.matcher(body);
+        int last = 0;
+        while (fields.find()) {
+            text.append(body, last, fields.start());
+            String name = fields.group(1);
+            if (constants.containsKey(name)) {
+                text.append(PdfWriter.escapeText(constants.get(name)));
+            } else {
+                flush(text, segments);
+                segments.add(new Segment(null, name));
+            }
+            last = fields.end();
+        }
+        text.append(body, last, body.length());
+        flush(text, segments);
+        return List.copyOf(segments);
+    }
+
+    private static void flush(StringBuilder text, List<Segment> segments) {
+        if (!text.isEmpty()) {
+            segments.add(new Segment(text.toString().getBytes(StandardCharsets.ISO_8859_1), null));
+            text.setLength(0);
+        }
+    }
+
+    private static String fingerprint(String source, Map<String, String> constants) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            constants.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e -> digest.update(
+                    (e.getKey() + "=" + e.getValue() + "\n").getBytes(StandardCharsets.UTF_8)));
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Segment(byte[] bytes, String field) {
+    }
+}
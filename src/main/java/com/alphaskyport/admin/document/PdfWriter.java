@@ -0,0 +1,190 @@
+package com.alphaskyport.admin.document;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal streaming PDF 1.4 writer.
+ *
+ * Objects are written straight to the underlying stream as they are
+ * produced; only their byte offsets are kept for the cross-reference table.
+ * Content streams are deflated on the fly and declare their length through
+ * an indirect object written after the stream, so no page is ever buffered.
+ */
+public class PdfWriter implements Closeable {
+
+    private final CountingOutputStream out;
+    private final List<Long> offsets = new ArrayList<>();
+    private boolean streamOpen;
+
+    public PdfWriter(OutputStream out) throws IOException {
+        this.out = new CountingOutputStream(out);
+        // Binary marker so transfer tools treat the file as binary
+        write("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+    }
+
+    /** Allocates an object number to be written later. */
+    public int reserve() {
+        offsets.add(-1L);
+        return offsets.size();
+    }
+
+    public void writeObject(int number, String body) throws IOException {
+        checkNoOpenStream();
+        beginObject(number);
+        write(body);
+        write("\nendobj\n");
+    }
+
+    /**
+     * Starts a deflated stream object. Bytes written to the returned stream
+     * are compressed directly into the output; closing it ends the object.
+     */
+    public OutputStream beginStream(int number) throws IOException {
+        checkNoOpenStream();
+        int lengthNumber = reserve();
+        beginObject(number);
+        write("<< /Length " + lengthNumber + " 0 R /Filter /FlateDecode >>\nstream\n");
+        long start = out.count;
+        streamOpen = true;
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        return new DeflaterOutputStream(new NonClosingOutputStream(out), deflater, 8192) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                finish();
+                deflater.end();
+                // Inside this class "out" and "write" are the deflater's own
+                long length = PdfWriter.this.out.count - start;
+                streamOpen = false;
+                PdfWriter.this.write("\nendstream\nendobj\n");
+                PdfWriter.this.writeObject(lengthNumber, Long.toString(length));
+            }
+        };
+    }
+
+    /** Writes the cross-reference table and trailer. */
+    public void finish(int rootNumber, int infoNumber) throws IOException {
+        checkNoOpenStream();
+        long xref = out.count;
+        StringBuilder table = new StringBuilder("xref\n0 ").append(offsets.size() + 1).append('\n');
+        table.append("0000000000 65535 f \n");
+        for (int i = 0; i < offsets.size(); i++) {
+            long offset = offsets.get(i);
+            if (offset < 0) {
+                throw new IllegalStateException("PDF object " + (i + 1) + " was reserved but never written");
+            }
+            table.append(String.format("%010d 00000 n \n", offset));
+        }
+        write(table.toString());
+        write("trailer\n<< /Size " + (offsets.size() + 1) + " /Root " + rootNumber + " 0 R /Info " + infoNumber
+                + " 0 R >>\nstartxref\n" + xref + "\n%%EOF\n");
+        out.flush();
+    }
+
+    public long getBytesWritten() {
+        return out.count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Encodes text as the body of a PDF literal string for the standard
+     * WinAnsi fonts: delimiters are escaped, control characters become spaces
+     * and characters outside Latin-1 become '?'.
+     */
+    public static String escapeText(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '(', ')', '\\' -> sb.append('\\').append(c);
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(' ');
+                    } else if (c > 0xFF) {
+                        sb.append('?');
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    // ==================== Internals ====================
+
+    private void beginObject(int number) throws IOException {
+        if (offsets.get(number - 1) >= 0) {
+            throw new IllegalStateException("PDF object " + number + " written twice");
+        }
+        offsets.set(number - 1, out.count);
+        write(number + " 0 obj\n");
+    }
+
+    private void write(String s) throws IOException {
+        out.write(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void checkNoOpenStream() {
+        if (streamOpen) {
+            throw new IllegalStateException("A PDF content stream is still open");
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.alphaskyport.admin.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public class BillingDTOs {
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BillingRunResponse {
+        private long runId;
+        private LocalDate periodStart;
+        private LocalDate periodEnd;
+        private String status;
+        private int chunkCount;
+        private int pendingChunks;
+        private int completedChunks;
+        private int failedChunks;
+        private int plannedShipments;
+        private int invoicesCreated;
+        private int shipmentsBilled;
+        private BigDecimal totalAmount;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+    }
+}
@@ -29,6 +29,8 @@ public class DashboardDTOs {
         private BigDecimal monthRevenue;
         
         private BigDecimal outstandingReceivables;
+        private long overdueInvoices;
+        private Map<String, BigDecimal> overdueAmounts;
         
         private TrendIndicator shipmentsTrend;
         private TrendIndicator revenueTrend;
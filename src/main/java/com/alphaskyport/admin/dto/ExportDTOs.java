@@ -0,0 +1,24 @@
+package com.alphaskyport.admin.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class ExportDTOs {
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ExportRequest {
+        private List<String> statuses;
+        private LocalDate from;
+        private LocalDate to;
+        private String format;
+        private boolean gzip;
+    }
+}
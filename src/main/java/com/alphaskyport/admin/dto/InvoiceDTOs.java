@@ -12,6 +12,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class InvoiceDTOs {
@@ -172,4 +173,62 @@ public class InvoiceDTOs {
         private LocalDate dueDate;
         private boolean overdue;
     }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BalanceVerificationResult {
+        private long invoicesChecked;
+        private long driftFound;
+        private long repaired;
+        private List<UUID> driftedInvoiceIds;
+        private LocalDateTime executedAt;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OverdueStats {
+        private long overdueCount;
+        // Outstanding amount per currency; amounts in different currencies are not added up
+        private Map<String, BigDecimal> overdueAmounts;
+        private LocalDateTime updatedAt;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OverdueTransitionResult {
+        private long invoicesMarked;
+        private OverdueStats stats;
+        private LocalDateTime executedAt;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class InvoiceDocumentResponse {
+        private UUID invoiceId;
+        private String invoiceNumber;
+        private long fileSize;
+        private String sha256;
+        private int pageCount;
+        private LocalDateTime renderedAt;
+        // Rendered from an older invoice version or template; a re-render is queued
+        private boolean stale;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DocumentRerenderResponse {
+        private String period;
+        private long invoices;
+        private LocalDateTime startedAt;
+    }
 }
@@ -0,0 +1,58 @@
+package com.alphaskyport.admin.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class MaintenanceDTOs {
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PartitionInfo {
+        private String partitionName;
+        private LocalDate rangeStart;
+        private LocalDate rangeEnd;
+        private long estimatedRows;
+        private long totalBytes;
+        private String totalSize;
+        private int attachedIndexes;
+        private int expectedIndexes;
+        private boolean indexesComplete;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PartitionStats {
+        private String parentTable;
+        private int partitionCount;
+        private long estimatedRows;
+        private long totalBytes;
+        private LocalDate coveredUntil;
+        private List<String> detachedPartitions;
+        private List<PartitionInfo> partitions;
+        private LocalDateTime generatedAt;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PartitionMaintenanceResult {
+        private String parentTable;
+        private boolean lockAcquired;
+        private List<String> createdPartitions;
+        private List<String> repairedIndexes;
+        private List<String> retiredPartitions;
+        private String retentionAction;
+        private LocalDateTime executedAt;
+    }
+}
@@ -0,0 +1,26 @@
+package com.alphaskyport.admin.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+public class PagingDTOs {
+
+    /**
+     * One page of a keyset-paginated listing. Pass nextCursor back to fetch
+     * the following page; it is null once the listing is exhausted.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CursorPage<T> {
+        private List<T> items;
+        private String nextCursor;
+        private boolean hasMore;
+        private int limit;
+    }
+}
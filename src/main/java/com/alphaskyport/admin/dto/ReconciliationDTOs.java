@@ -0,0 +1,49 @@
+package com.alphaskyport.admin.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+public class ReconciliationDTOs {
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReconciliationRunResponse {
+        private long runId;
+        private String status;
+        private String triggeredBy;
+        private long shipmentsScanned;
+        private long transactionRows;
+        private long invoicePaymentRows;
+        private long discrepancyCount;
+        private long discrepanciesStored;
+        private Map<String, Long> discrepancyCounts;
+        private String errorMessage;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DiscrepancyResponse {
+        private long discrepancyId;
+        private String type;
+        private UUID shipmentId;
+        private UUID invoiceId;
+        private int invoiceCount;
+        private BigDecimal amountPaid;
+        private BigDecimal transactionTotal;
+        private BigDecimal invoicePaymentTotal;
+        private BigDecimal difference;
+    }
+}
@@ -0,0 +1,76 @@
+package com.alphaskyport.admin.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public class ReportDTOs {
+
+    /** Outstanding amount by days past due as of the report date. */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AgingBuckets {
+        private BigDecimal current;
+        private BigDecimal days1To30;
+        private BigDecimal days31To60;
+        private BigDecimal days61To90;
+        private BigDecimal over90;
+        private BigDecimal total;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AgingTotal {
+        private String currency;
+        private long customers;
+        private long openInvoices;
+        private AgingBuckets buckets;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AgingSummary {
+        private LocalDate asOf;
+        private boolean stale;
+        private LocalDateTime rebucketedAt;
+        private List<AgingTotal> totals;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CustomerAging {
+        private UUID userId;
+        private String customerName;
+        private String email;
+        private String currency;
+        private int openInvoices;
+        private AgingBuckets buckets;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AgingRebucketResult {
+        private LocalDate asOf;
+        private long customers;
+        private long openInvoices;
+        private long durationMs;
+        private LocalDateTime executedAt;
+    }
+}
@@ -0,0 +1,90 @@
+package com.alphaskyport.admin.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV with a header row. Text that a spreadsheet would evaluate as
+ * a formula (leading =, +, -, @) is prefixed with a quote character, since
+ * references and notes in exports come from user input.
+ */
+class CsvRowWriter implements RowWriter {
+
+    private final Writer out;
+    private final int columns;
+
+    CsvRowWriter(Writer out, List<String> columns) throws IOException {
+        this.out = out;
+        this.columns = columns.size();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeText(columns.get(i), false);
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        for (int i = 0; i < columns; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof BigDecimal decimal) {
+                out.write(decimal.toPlainString());
+            } else if (value instanceof Number || value instanceof Boolean) {
+                out.write(value.toString());
+            } else if (value instanceof Timestamp timestamp) {
+                out.write(timestamp.toLocalDateTime().toString());
+            } else if (value instanceof String text) {
+                writeText(text, true);
+            } else {
+                writeText(value.toString(), false);
+            }
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeText(String text, boolean guardFormula) throws IOException {
+        boolean formula = guardFormula && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0;
+        boolean quote = formula;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        if (formula) {
+            out.write('\'');
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
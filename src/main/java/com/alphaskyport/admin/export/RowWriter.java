@@ -0,0 +1,18 @@
+package com.alphaskyport.admin.export;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes export rows one at a time to a character stream.
+ *
+ * Values arrive as the JDBC driver returns them (String, Number, Boolean,
+ * java.sql date/time types, UUID or null) in the column order given when
+ * the writer was opened. Implementations keep no per-row state, so the
+ * caller may reuse the values array.
+ */
+public interface RowWriter extends Flushable, Closeable {
+
+    void writeRow(Object[] values) throws IOException;
+}
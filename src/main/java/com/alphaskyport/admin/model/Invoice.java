@@ -103,9 +103,7 @@ public class Invoice {
     }
 
     public boolean isOverdue() {
-        return status != InvoiceStatus.PAID 
-            && status != InvoiceStatus.CANCELLED 
-            && LocalDate.now().isAfter(dueDate);
+        return status == InvoiceStatus.OVERDUE;
     }
 
     public void addLineItem(InvoiceLineItem item) {
@@ -47,6 +47,9 @@ public class InvoiceLineItem {
     @Builder.Default
     private Integer sortOrder = 0;
 
+    @Column(name = "shipment_id")
+    private UUID shipmentId;
+
     @PrePersist
     @PreUpdate
     public void calculateLineTotal() {
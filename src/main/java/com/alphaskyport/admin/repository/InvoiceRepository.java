@@ -1,11 +1,13 @@
 package com.alphaskyport.admin.repository;
 
+import com.alphaskyport.admin.dto.InvoiceDTOs.InvoiceSummary;
 import com.alphaskyport.admin.model.Invoice;
 import com.alphaskyport.admin.model.InvoiceStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,18 +21,36 @@ import java.util.UUID;
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, UUID>, JpaSpecificationExecutor<Invoice> {
 
+    /**
+     * List rows built in the query itself, joined to the customer, so a page
+     * of summaries costs one select plus the count instead of a lazy user
+     * load per row.
+     */
+    String SUMMARY_SELECT = "SELECT new com.alphaskyport.admin.dto.InvoiceDTOs$InvoiceSummary(" +
+            "i.invoiceId, i.invoiceNumber, " +
+            "TRIM(CONCAT(COALESCE(u.firstName, ''), ' ', COALESCE(u.lastName, ''))), " +
+            "i.status, i.totalAmount, i.totalAmount - COALESCE(i.paidAmount, 0), i.issueDate, i.dueDate, " +
+            "CASE WHEN i.status = 'OVERDUE' THEN true ELSE false END) " +
+            "FROM Invoice i JOIN i.user u";
+
     Optional<Invoice> findByInvoiceNumber(String invoiceNumber);
 
     List<Invoice> findByUser_UserId(UUID userId);
 
     Page<Invoice> findByUser_UserId(UUID userId, Pageable pageable);
 
-    List<Invoice> findByStatus(InvoiceStatus status);
-
     Page<Invoice> findByStatus(InvoiceStatus status, Pageable pageable);
 
-    @Query("SELECT i FROM Invoice i WHERE i.status NOT IN ('PAID', 'CANCELLED', 'REFUNDED') AND i.dueDate < :today")
-    List<Invoice> findOverdueInvoices(@Param("today") LocalDate today);
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(i) FROM Invoice i")
+    Page<InvoiceSummary> findSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + " WHERE i.status = :status",
+            countQuery = "SELECT COUNT(i) FROM Invoice i WHERE i.status = :status")
+    Page<InvoiceSummary> findSummariesByStatus(@Param("status") InvoiceStatus status, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + " WHERE u.userId = :userId",
+            countQuery = "SELECT COUNT(i) FROM Invoice i WHERE i.user.userId = :userId")
+    Page<InvoiceSummary> findSummariesByUser(@Param("userId") UUID userId, Pageable pageable);
 
     @Query("SELECT i FROM Invoice i WHERE i.shipment.shipmentId = :shipmentId")
     List<Invoice> findByShipmentId(@Param("shipmentId") UUID shipmentId);
@@ -52,4 +72,32 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID>, JpaSpec
 
     @Query("SELECT i FROM Invoice i LEFT JOIN FETCH i.payments WHERE i.invoiceId = :id")
     Optional<Invoice> findByIdWithPayments(@Param("id") UUID id);
+
+    /**
+     * Applies one completed payment as a delta on paid_amount and moves the
+     * status in the same statement, so the row lock serializes concurrent
+     * payments without re-summing them. Returns 0 when the invoice does not
+     * exist or no longer accepts payments.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            UPDATE invoices
+            SET paid_amount = COALESCE(paid_amount, 0) + :amount,
+                status = CASE
+                    WHEN COALESCE(paid_amount, 0) + :amount >= total_amount THEN 'PAID'
+                    WHEN status = 'OVERDUE' THEN 'OVERDUE'
+                    WHEN COALESCE(paid_amount, 0) + :amount > 0 THEN 'PARTIAL'
+                    ELSE status
+                END,
+                paid_date = CASE
+                    WHEN COALESCE(paid_amount, 0) + :amount >= total_amount THEN :paymentDate
+                    ELSE paid_date
+                END,
+                version = COALESCE(version, 0) + 1,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE invoice_id = :invoiceId
+              AND status NOT IN ('CANCELLED', 'REFUNDED')
+            """, nativeQuery = true)
+    int applyPaymentDelta(@Param("invoiceId") UUID invoiceId, @Param("amount") BigDecimal amount,
+            @Param("paymentDate") LocalDate paymentDate);
 }
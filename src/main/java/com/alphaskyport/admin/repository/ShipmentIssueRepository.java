@@ -1,5 +1,6 @@
 package com.alphaskyport.admin.repository;
 
+import com.alphaskyport.admin.dto.IssueDTOs.IssueSummary;
 import com.alphaskyport.admin.model.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,6 +17,20 @@ import java.util.UUID;
 @Repository
 public interface ShipmentIssueRepository extends JpaRepository<ShipmentIssue, UUID>, JpaSpecificationExecutor<ShipmentIssue> {
 
+    /**
+     * List rows built in the query itself: the shipment's tracking number and
+     * the assignee's name come from joins instead of lazy loads per row.
+     */
+    String SUMMARY_SELECT = "SELECT new com.alphaskyport.admin.dto.IssueDTOs$IssueSummary(" +
+            "si.issueId, s.trackingNumber, si.issueType, si.severity, si.title, si.status, " +
+            "CASE WHEN a.adminId IS NULL THEN NULL ELSE CONCAT(a.firstName, ' ', a.lastName) END, " +
+            "si.createdAt) " +
+            "FROM ShipmentIssue si JOIN si.shipment s LEFT JOIN si.assignedTo a";
+
+    String OPEN_BY_SEVERITY_ORDER = " ORDER BY " +
+            "CASE si.severity WHEN 'CRITICAL' THEN 1 WHEN 'HIGH' THEN 2 WHEN 'MEDIUM' THEN 3 ELSE 4 END, " +
+            "si.createdAt ASC";
+
     List<ShipmentIssue> findByShipment_ShipmentId(UUID shipmentId);
 
     Page<ShipmentIssue> findByStatus(IssueStatus status, Pageable pageable);
@@ -31,6 +46,26 @@ public interface ShipmentIssueRepository extends JpaRepository<ShipmentIssue, UU
            "si.createdAt ASC")
     Page<ShipmentIssue> findOpenIssuesBySeverity(Pageable pageable);
 
+    @Query(value = SUMMARY_SELECT + " WHERE si.status = :status",
+           countQuery = "SELECT COUNT(si) FROM ShipmentIssue si WHERE si.status = :status")
+    Page<IssueSummary> findSummariesByStatus(@Param("status") IssueStatus status, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + " WHERE si.status <> :status",
+           countQuery = "SELECT COUNT(si) FROM ShipmentIssue si WHERE si.status <> :status")
+    Page<IssueSummary> findSummariesByStatusNot(@Param("status") IssueStatus status, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " WHERE s.shipmentId = :shipmentId")
+    List<IssueSummary> findSummariesByShipment(@Param("shipmentId") UUID shipmentId);
+
+    @Query(value = SUMMARY_SELECT + " WHERE a.adminId = :adminId AND si.status <> :status",
+           countQuery = "SELECT COUNT(si) FROM ShipmentIssue si WHERE si.assignedTo.adminId = :adminId AND si.status <> :status")
+    Page<IssueSummary> findSummariesByAssigneeAndStatusNot(@Param("adminId") UUID adminId,
+            @Param("status") IssueStatus status, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + " WHERE si.status NOT IN ('RESOLVED', 'CLOSED')" + OPEN_BY_SEVERITY_ORDER,
+           countQuery = "SELECT COUNT(si) FROM ShipmentIssue si WHERE si.status NOT IN ('RESOLVED', 'CLOSED')")
+    Page<IssueSummary> findOpenSummariesBySeverity(Pageable pageable);
+
     @Query("SELECT si FROM ShipmentIssue si WHERE si.severity = :severity AND si.status NOT IN ('RESOLVED', 'CLOSED')")
     List<ShipmentIssue> findOpenIssuesBySeverity(@Param("severity") IssueSeverity severity);
 
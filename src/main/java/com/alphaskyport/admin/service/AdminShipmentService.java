@@ -1,22 +1,34 @@
 package com.alphaskyport.admin.service;
 
 import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.dto.PagingDTOs.CursorPage;
 import com.alphaskyport.admin.exception.AdminException;
+import com.alphaskyport.logistics.event.ShipmentTrackingChangedEvent;
 import com.alphaskyport.logistics.model.Shipment;
 import com.alphaskyport.logistics.model.ShipmentTrackingEvent;
 import com.alphaskyport.logistics.repository.ShipmentRepository;
 import com.alphaskyport.logistics.repository.ShipmentTrackingEventRepository;
+import com.alphaskyport.logistics.service.NotificationService;
+import com.alphaskyport.logistics.service.RouteSimplificationService;
+import com.alphaskyport.logistics.service.RouteSimplificationService.SimplifiedRoute;
+import com.alphaskyport.logistics.service.TrackingArchiveService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -28,6 +40,10 @@ public class AdminShipmentService {
     private final ShipmentTrackingEventRepository trackingEventRepository;
     private final JdbcTemplate jdbcTemplate;
     private final AdminActivityService activityService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RouteSimplificationService routeSimplificationService;
+    private final TrackingArchiveService trackingArchiveService;
+    private final NotificationService notificationService;
 
     // Valid status transitions
     private static final Map<String, Set<String>> VALID_TRANSITIONS = Map.of(
@@ -42,6 +58,9 @@ public class AdminShipmentService {
             "failed_delivery", Set.of("out_for_delivery", "returned"),
             "delayed", Set.of("in_transit", "rescheduled"));
 
+    private static final int DEFAULT_PAGE_LIMIT = 50;
+    private static final int MAX_PAGE_LIMIT = 200;
+
     @Transactional(readOnly = true)
     public Page<Shipment> getAllShipments(Pageable pageable) {
         return shipmentRepository.findAll(pageable);
@@ -52,6 +71,59 @@ public class AdminShipmentService {
         return shipmentRepository.findByShipmentStatus(status, pageable);
     }
 
+    /**
+     * Keyset-paginated shipment listing, newest first. Seeks on
+     * (created_at, shipment_id) instead of using OFFSET and never counts the
+     * table, so every page costs the same regardless of depth.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Shipment> getShipmentsPage(String status, String cursor, Integer limit) {
+        int pageSize = resolvePageLimit(limit);
+        String scope = status != null ? "shipments:" + status : "shipments";
+        String[] position = CursorCodec.decode(cursor, scope, 2);
+
+        StringBuilder sql = new StringBuilder("SELECT shipment_id, created_at FROM shipments WHERE TRUE");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND shipment_status = ?");
+            args.add(status);
+        }
+        if (position != null) {
+            sql.append(" AND (created_at, shipment_id) < (?, ?)");
+            args.add(Timestamp.valueOf(parseCursorTimestamp(position[0])));
+            args.add(parseCursorUuid(position[1]));
+        }
+        sql.append(" ORDER BY created_at DESC, shipment_id DESC LIMIT ?");
+        args.add(pageSize + 1);
+
+        List<Object[]> keys = jdbcTemplate.query(sql.toString(), (rs, i) -> new Object[] {
+                rs.getObject("shipment_id", UUID.class), rs.getTimestamp("created_at").toLocalDateTime() },
+                args.toArray());
+
+        boolean hasMore = keys.size() > pageSize;
+        if (hasMore) {
+            keys = keys.subList(0, pageSize);
+        }
+
+        // Fetch only the rows on this page, then restore the keyset order
+        List<UUID> ids = keys.stream().map(k -> (UUID) k[0]).toList();
+        Map<UUID, Shipment> byId = shipmentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Shipment::getShipmentId, Function.identity()));
+        List<Shipment> items = ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+
+        String nextCursor = null;
+        if (hasMore) {
+            Object[] last = keys.get(keys.size() - 1);
+            nextCursor = CursorCodec.encode(scope, last[1], last[0]);
+        }
+        return CursorPage.<Shipment>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .limit(pageSize)
+                .build();
+    }
+
     @Transactional(readOnly = true)
     public Shipment getShipmentById(UUID shipmentId) {
         return shipmentRepository.findById(shipmentId)
@@ -119,12 +191,19 @@ public class AdminShipmentService {
                 .eventSource("admin")
                 .build();
         trackingEventRepository.save(event);
+        publishTrackingChanged(shipment);
 
         activityService.logActivity(updatedBy, "UPDATE_SHIPMENT_STATUS", "Shipment", shipmentId.toString(),
                 "Updated status from " + oldStatus + " to " + newStatus, null, null);
 
         if (notifyCustomer) {
-            log.info("Customer notification requested for shipment status update: {}", shipment.getTrackingNumber());
+            notificationService.enqueueNotification(
+                    shipment.getUser(),
+                    shipment,
+                    "Shipment Update: " + newStatus,
+                    "Your shipment " + shipment.getTrackingNumber() + " is now " + newStatus + ".",
+                    "SHIPMENT_STATUS_UPDATE",
+                    newStatus + ":" + event.getEventTimestamp());
         }
 
         log.info("Shipment {} status updated from {} to {} by {}",
@@ -147,6 +226,7 @@ public class AdminShipmentService {
                 .eventSource("admin_manual")
                 .build();
         trackingEventRepository.save(event);
+        publishTrackingChanged(shipment);
 
         activityService.logActivity(addedBy, "ADD_TRACKING_EVENT", "Shipment", shipmentId.toString(),
                 "Added tracking event: " + status + " at " + location, null, null);
@@ -171,6 +251,7 @@ public class AdminShipmentService {
                 .eventSource("admin")
                 .build();
         trackingEventRepository.save(event);
+        publishTrackingChanged(shipment);
 
         activityService.logActivity(updatedBy, "UPDATE_EXPECTED_DELIVERY", "Shipment", shipmentId.toString(),
                 "Updated expected delivery from " + oldDate + " to " + newDate + ": " + reason, null, null);
@@ -197,7 +278,78 @@ public class AdminShipmentService {
 
     @Transactional(readOnly = true)
     public List<ShipmentTrackingEvent> getTrackingHistory(UUID shipmentId) {
-        return trackingEventRepository.findByShipment_ShipmentIdOrderByEventTimestampDesc(shipmentId);
+        List<ShipmentTrackingEvent> events = new ArrayList<>(
+                trackingEventRepository.findByShipment_ShipmentIdOrderByEventTimestampDesc(shipmentId));
+
+        // Months older than the retention window live in archive files
+        List<ShipmentTrackingEvent> archived = findArchivedEvents(shipmentId);
+        if (!archived.isEmpty()) {
+            events.addAll(archived);
+            events.sort(Comparator.comparing(ShipmentTrackingEvent::getEventTimestamp).reversed());
+        }
+        return events;
+    }
+
+    /**
+     * Keyset-paginated tracking history, newest first, ordered by
+     * (event_timestamp, event_id). Archived months are older than anything
+     * still in the database, so archive files are only read once the live
+     * partitions are exhausted.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ShipmentTrackingEvent> getTrackingHistoryPage(UUID shipmentId, String cursor, Integer limit) {
+        int pageSize = resolvePageLimit(limit);
+        String scope = "tracking:" + shipmentId;
+        String[] position = CursorCodec.decode(cursor, scope, 2);
+
+        LocalDateTime afterTimestamp = position != null ? parseCursorTimestamp(position[0]) : null;
+        long afterEventId = position != null ? parseCursorLong(position[1]) : 0;
+
+        List<ShipmentTrackingEvent> events = new ArrayList<>(position == null
+                ? trackingEventRepository.findLatestByShipment(shipmentId, Limit.of(pageSize + 1))
+                : trackingEventRepository.findByShipmentBefore(shipmentId, afterTimestamp, afterEventId,
+                        Limit.of(pageSize + 1)));
+
+        if (events.size() <= pageSize) {
+            Comparator<ShipmentTrackingEvent> newestFirst = Comparator
+                    .comparing(ShipmentTrackingEvent::getEventTimestamp)
+                    .thenComparing(ShipmentTrackingEvent::getEventId)
+                    .reversed();
+            findArchivedEvents(shipmentId).stream()
+                    .filter(e -> afterTimestamp == null
+                            || e.getEventTimestamp().isBefore(afterTimestamp)
+                            || (e.getEventTimestamp().isEqual(afterTimestamp) && e.getEventId() < afterEventId))
+                    .sorted(newestFirst)
+                    .limit(pageSize + 1 - events.size())
+                    .forEach(events::add);
+        }
+
+        boolean hasMore = events.size() > pageSize;
+        if (hasMore) {
+            events = events.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            ShipmentTrackingEvent last = events.get(events.size() - 1);
+            nextCursor = CursorCodec.encode(scope, last.getEventTimestamp(), last.getEventId());
+        }
+        return CursorPage.<ShipmentTrackingEvent>builder()
+                .items(events)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .limit(pageSize)
+                .build();
+    }
+
+    public SimplifiedRoute getSimplifiedRoute(UUID shipmentId, Double toleranceMeters) {
+        if (!shipmentRepository.existsById(shipmentId)) {
+            throw new AdminException.NotFoundException("Shipment not found: " + shipmentId);
+        }
+        if (toleranceMeters != null && (toleranceMeters < 1 || toleranceMeters > 100_000)) {
+            throw new AdminException.ValidationException("Tolerance must be between 1 and 100000 metres");
+        }
+        return routeSimplificationService.getSimplifiedRoute(shipmentId, toleranceMeters);
     }
 
     @Transactional(readOnly = true)
@@ -232,4 +384,51 @@ public class AdminShipmentService {
         });
         return result;
     }
+
+    private void publishTrackingChanged(Shipment shipment) {
+        eventPublisher.publishEvent(new ShipmentTrackingChangedEvent(shipment.getShipmentId(),
+                shipment.getTrackingNumber(), shipment.getUser().getUserId(), shipment.getShipmentStatus()));
+    }
+
+    private List<ShipmentTrackingEvent> findArchivedEvents(UUID shipmentId) {
+        List<LocalDateTime> createdAt = jdbcTemplate.queryForList(
+                "SELECT created_at FROM shipments WHERE shipment_id = ?", LocalDateTime.class, shipmentId);
+        return createdAt.isEmpty()
+                ? List.of()
+                : trackingArchiveService.findArchivedEvents(shipmentId, createdAt.get(0));
+    }
+
+    private int resolvePageLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new AdminException.ValidationException("Limit must be between 1 and " + MAX_PAGE_LIMIT);
+        }
+        return limit;
+    }
+
+    private LocalDateTime parseCursorTimestamp(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new AdminException.ValidationException("Invalid cursor");
+        }
+    }
+
+    private UUID parseCursorUuid(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new AdminException.ValidationException("Invalid cursor");
+        }
+    }
+
+    private long parseCursorLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new AdminException.ValidationException("Invalid cursor");
+        }
+    }
 }
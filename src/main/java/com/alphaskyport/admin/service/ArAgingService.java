@@ -0,0 +1,244 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.PagingDTOs.CursorPage;
+import com.alphaskyport.admin.dto.ReportDTOs.AgingBuckets;
+import com.alphaskyport.admin.dto.ReportDTOs.AgingRebucketResult;
+import com.alphaskyport.admin.dto.ReportDTOs.AgingSummary;
+import com.alphaskyport.admin.dto.ReportDTOs.AgingTotal;
+import com.alphaskyport.admin.dto.ReportDTOs.CustomerAging;
+import com.alphaskyport.admin.exception.AdminException;
+import com.alphaskyport.admin.model.AdminUser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accounts-receivable aging served from ar_aging_buckets.
+ *
+ * Statement triggers on invoices (V81) keep the per-customer buckets current
+ * as invoices are issued, paid or cancelled, bucketing against the as_of date
+ * in ar_aging_state. Buckets only go stale by the passing of days, so a
+ * nightly pass moves as_of to today and recomputes them from the open
+ * invoices in one transaction; reports read a few thousand small rows at
+ * most, however many invoices are open. "Today" is always the database's
+ * CURRENT_DATE, the clock V81 seeded as_of with, so a JVM in another time
+ * zone neither skips nor repeats a day.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class ArAgingService {
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+
+    private static final String TOTALS_SQL = """
+            SELECT currency, COUNT(*) AS customers, SUM(open_invoices) AS open_invoices,
+                   SUM(current_amount) AS current_amount, SUM(days_1_30) AS days_1_30,
+                   SUM(days_31_60) AS days_31_60, SUM(days_61_90) AS days_61_90,
+                   SUM(days_over_90) AS days_over_90, SUM(total_amount) AS total_amount
+            FROM ar_aging_buckets
+            WHERE open_invoices > 0
+            GROUP BY currency
+            ORDER BY currency
+            """;
+
+    private static final String CUSTOMERS_SQL = """
+            SELECT b.user_id, b.currency, b.open_invoices, b.current_amount, b.days_1_30, b.days_31_60,
+                   b.days_61_90, b.days_over_90, b.total_amount,
+                   COALESCE(NULLIF(u.company_name, ''),
+                            TRIM(CONCAT(COALESCE(u.first_name, ''), ' ', COALESCE(u.last_name, '')))) AS customer_name,
+                   u.email
+            FROM ar_aging_buckets b
+            JOIN users u ON u.user_id = b.user_id
+            WHERE b.open_invoices > 0
+            """;
+
+    // Waits for in-flight trigger deltas (they read as_of FOR SHARE) and holds new ones back until commit
+    private static final String ADVANCE_SQL = """
+            UPDATE ar_aging_state
+            SET as_of = ?, rebucketed_at = CURRENT_TIMESTAMP
+            WHERE id
+            """;
+
+    private static final String REFILL_SQL = """
+            INSERT INTO ar_aging_buckets (user_id, currency, open_invoices, current_amount,
+                                          days_1_30, days_31_60, days_61_90, days_over_90)
+            SELECT * FROM ar_aging_rows(?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AdminActivityService activityService;
+
+    public ArAgingService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            AdminActivityService activityService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.activityService = activityService;
+    }
+
+    @Scheduled(cron = "${admin.reports.ar-aging.rebucket-cron:0 1 0 * * *}")
+    public void runScheduledRebucket() {
+        try {
+            State state = getState();
+            if (!state.today().isAfter(state.asOf())) {
+                return;
+            }
+            rebucketAsOf(state.today());
+        } catch (Exception e) {
+            log.error("AR aging rebucket failed", e);
+        }
+    }
+
+    /** Rebuckets as of today on demand, also repairing any drift in the aggregate. */
+    public AgingRebucketResult rebucket(AdminUser admin) {
+        AgingRebucketResult result = rebucketAsOf(getState().today());
+        activityService.logActivity(admin, "REBUCKET_AR_AGING", "Report", "ar-aging",
+                "Rebucketed AR aging as of " + result.getAsOf() + ": " + result.getOpenInvoices()
+                        + " open invoices across " + result.getCustomers() + " customers",
+                null, null);
+        return result;
+    }
+
+    public AgingSummary getSummary() {
+        State state = getState();
+        List<AgingTotal> totals = jdbcTemplate.query(TOTALS_SQL, (rs, i) -> AgingTotal.builder()
+                .currency(rs.getString("currency"))
+                .customers(rs.getLong("customers"))
+                .openInvoices(rs.getLong("open_invoices"))
+                .buckets(mapBuckets(rs))
+                .build());
+        return AgingSummary.builder()
+                .asOf(state.asOf())
+                .stale(state.asOf().isBefore(state.today()))
+                .rebucketedAt(state.rebucketedAt())
+                .totals(totals)
+                .build();
+    }
+
+    /**
+     * Customers with open balances, largest total first, keyset-paginated on
+     * (total, customer, currency).
+     */
+    public CursorPage<CustomerAging> getCustomers(String currency, String cursor, Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_LIMIT;
+        if (pageSize < 1 || pageSize > MAX_LIMIT) {
+            throw new AdminException.ValidationException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        String normalizedCurrency = currency != null && !currency.isBlank()
+                ? currency.trim().toUpperCase(Locale.ROOT)
+                : null;
+        String scope = "ar-aging" + (normalizedCurrency != null ? ":" + normalizedCurrency : "");
+        String[] position = CursorCodec.decode(cursor, scope, 3);
+
+        StringBuilder sql = new StringBuilder(CUSTOMERS_SQL);
+        List<Object> args = new ArrayList<>();
+        if (normalizedCurrency != null) {
+            sql.append("  AND b.currency = ?\n");
+            args.add(normalizedCurrency);
+        }
+        if (position != null) {
+            sql.append("  AND (b.total_amount, b.user_id, b.currency) < (?, ?, ?)\n");
+            try {
+                args.add(new BigDecimal(position[0]));
+                args.add(UUID.fromString(position[1]));
+            } catch (IllegalArgumentException e) {
+                throw new AdminException.ValidationException("Invalid cursor");
+            }
+            args.add(position[2]);
+        }
+        sql.append("ORDER BY b.total_amount DESC, b.user_id DESC, b.currency DESC LIMIT ?");
+        args.add(pageSize + 1);
+
+        List<CustomerAging> items = jdbcTemplate.query(sql.toString(), (rs, i) -> CustomerAging.builder()
+                .userId(rs.getObject("user_id", UUID.class))
+                .customerName(rs.getString("customer_name"))
+                .email(rs.getString("email"))
+                .currency(rs.getString("currency"))
+                .openInvoices(rs.getInt("open_invoices"))
+                .buckets(mapBuckets(rs))
+                .build(), args.toArray());
+
+        boolean hasMore = items.size() > pageSize;
+        if (hasMore) {
+            items = items.subList(0, pageSize);
+        }
+        CustomerAging last = hasMore ? items.get(items.size() - 1) : null;
+        String nextCursor = last != null
+                ? CursorCodec.encode(scope, last.getBuckets().getTotal().toPlainString(), last.getUserId(),
+                        last.getCurrency())
+                : null;
+        return CursorPage.<CustomerAging>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .limit(pageSize)
+                .build();
+    }
+
+    // ==================== Internals ====================
+
+    private record State(LocalDate asOf, LocalDateTime rebucketedAt, LocalDate today) {
+    }
+
+    private State getState() {
+        return jdbcTemplate.queryForObject("SELECT as_of, rebucketed_at, CURRENT_DATE AS today FROM ar_aging_state",
+                (rs, i) -> {
+                    Timestamp rebucketedAt = rs.getTimestamp("rebucketed_at");
+                    return new State(rs.getDate("as_of").toLocalDate(),
+                            rebucketedAt != null ? rebucketedAt.toLocalDateTime() : null,
+                            rs.getDate("today").toLocalDate());
+                });
+    }
+
+    private AgingRebucketResult rebucketAsOf(LocalDate asOf) {
+        long started = System.nanoTime();
+        Map<String, Object> counts = transactionTemplate.execute(status -> {
+            jdbcTemplate.update(ADVANCE_SQL, asOf);
+            jdbcTemplate.update("DELETE FROM ar_aging_buckets");
+            jdbcTemplate.update(REFILL_SQL, asOf);
+            return jdbcTemplate.queryForMap(
+                    "SELECT COUNT(*) AS customers, COALESCE(SUM(open_invoices), 0) AS open_invoices"
+                            + " FROM ar_aging_buckets");
+        });
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        long customers = ((Number) counts.get("customers")).longValue();
+        long openInvoices = ((Number) counts.get("open_invoices")).longValue();
+        log.info("Rebucketed AR aging as of {}: {} open invoices across {} customers in {} ms",
+                asOf, openInvoices, customers, millis);
+        return AgingRebucketResult.builder()
+                .asOf(asOf)
+                .customers(customers)
+                .openInvoices(openInvoices)
+                .durationMs(millis)
+                .executedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static AgingBuckets mapBuckets(ResultSet rs) throws SQLException {
+        return AgingBuckets.builder()
+                .current(rs.getBigDecimal("current_amount"))
+                .days1To30(rs.getBigDecimal("days_1_30"))
+                .days31To60(rs.getBigDecimal("days_31_60"))
+                .days61To90(rs.getBigDecimal("days_61_90"))
+                .over90(rs.getBigDecimal("days_over_90"))
+                .total(rs.getBigDecimal("total_amount"))
+                .build();
+    }
+}
@@ -0,0 +1,492 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.BillingDTOs.BillingRunResponse;
+import com.alphaskyport.admin.exception.AdminException;
+import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.model.InvoiceStatus;
+import com.alphaskyport.admin.repository.AdminUserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Month-end billing: turns delivered, not yet invoiced shipments into one
+ * invoice per customer and currency.
+ *
+ * Starting a run plans it in one transaction: billable customers are split
+ * into chunks of roughly admin.billing.chunk-size shipments, stored in
+ * billing_run_chunks. Workers then claim chunks with SKIP LOCKED and a
+ * lease, and each chunk is billed in its own transaction: a single query
+ * loads its shipments, invoice numbers come from one block allocation, and
+ * invoices and line items are written with batched inserts. A chunk's status
+ * commits with its invoices, so a crashed run resumes from the chunks that
+ * never completed, and the unique shipment_id on line items makes
+ * double-billing a shipment impossible.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class BillingRunService {
+
+    // Delivered in the period, priced, and not billed by a run or a manual per-shipment invoice
+    private static final String BILLABLE = """
+            s.shipment_status = 'delivered'
+              AND s.deleted_at IS NULL
+              AND s.actual_delivery_date BETWEEN ? AND ?
+              AND s.total_cost > 0
+              AND NOT EXISTS (SELECT 1 FROM invoice_line_items li WHERE li.shipment_id = s.shipment_id)
+              AND NOT EXISTS (SELECT 1 FROM invoices i
+                              WHERE i.shipment_id = s.shipment_id AND i.status <> 'CANCELLED')
+            """;
+
+    private static final String PLAN_SQL = """
+            INSERT INTO billing_run_chunks (run_id, chunk_no, user_ids, planned_shipments)
+            SELECT ?, bucket, array_agg(user_id ORDER BY user_id), SUM(shipments)
+            FROM (
+                SELECT user_id, shipments,
+                       floor((SUM(shipments) OVER (ORDER BY user_id) - shipments) / ?)::int AS bucket
+                FROM (
+                    SELECT s.user_id, COUNT(*) AS shipments
+                    FROM shipments s
+                    WHERE %s
+                    GROUP BY s.user_id
+                ) per_user
+            ) planned
+            GROUP BY bucket
+            """.formatted(BILLABLE);
+
+    private static final String CLAIM_SQL = """
+            UPDATE billing_run_chunks c
+            SET status = 'processing',
+                attempts = c.attempts + 1,
+                lease_until = CURRENT_TIMESTAMP + make_interval(secs => ?),
+                updated_at = CURRENT_TIMESTAMP
+            WHERE c.chunk_id = (
+                SELECT chunk_id
+                FROM billing_run_chunks
+                WHERE run_id = ?
+                  AND (status = 'pending' OR (status = 'processing' AND lease_until < CURRENT_TIMESTAMP))
+                ORDER BY chunk_no
+                LIMIT 1
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING c.chunk_id, c.chunk_no, c.user_ids, c.attempts
+            """;
+
+    private static final String LOAD_SHIPMENTS_SQL = """
+            SELECT s.shipment_id, s.user_id, s.tracking_number, s.total_cost, COALESCE(s.currency, 'USD') AS currency,
+                   s.actual_delivery_date
+            FROM shipments s
+            WHERE s.user_id = ANY(?)
+              AND %s
+            ORDER BY s.user_id, currency, s.actual_delivery_date, s.shipment_id
+            """.formatted(BILLABLE);
+
+    private static final String INSERT_INVOICE_SQL = """
+            INSERT INTO invoices
+                (invoice_id, invoice_number, user_id, shipment_id, status, subtotal, tax_amount, total_amount,
+                 currency, issue_date, due_date, paid_amount, notes, created_by, version, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?, 0, ?, ?, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            """;
+
+    private static final String INSERT_LINE_SQL = """
+            INSERT INTO invoice_line_items
+                (line_item_id, invoice_id, description, quantity, unit_price, tax_rate, line_total, sort_order,
+                 shipment_id)
+            VALUES (?, ?, ?, 1, ?, 0, ?, ?, ?)
+            """;
+
+    // Fenced on attempts so a worker whose lease was taken over cannot complete the chunk
+    private static final String COMPLETE_CHUNK_SQL = """
+            UPDATE billing_run_chunks
+            SET status = 'completed', lease_until = NULL, invoices_created = ?, shipments_billed = ?,
+                total_amount = ?, last_error = NULL, updated_at = CURRENT_TIMESTAMP
+            WHERE chunk_id = ? AND status = 'processing' AND attempts = ?
+            """;
+
+    private static final String FAIL_CHUNK_SQL = """
+            UPDATE billing_run_chunks
+            SET status = CASE WHEN attempts >= ? THEN 'failed' ELSE 'pending' END,
+                lease_until = NULL, last_error = ?, updated_at = CURRENT_TIMESTAMP
+            WHERE chunk_id = ? AND status = 'processing' AND attempts = ?
+            """;
+
+    private static final String FINISH_RUN_SQL = """
+            UPDATE billing_runs r
+            SET status = CASE WHEN agg.open > 0 THEN r.status
+                              WHEN agg.failed > 0 THEN 'failed'
+                              ELSE 'completed' END,
+                invoices_created = agg.invoices,
+                shipments_billed = agg.shipments,
+                total_amount = agg.total,
+                finished_at = CASE WHEN agg.open > 0 THEN NULL ELSE CURRENT_TIMESTAMP END
+            FROM (
+                SELECT COUNT(*) FILTER (WHERE status IN ('pending', 'processing')) AS open,
+                       COUNT(*) FILTER (WHERE status = 'failed') AS failed,
+                       COALESCE(SUM(invoices_created), 0) AS invoices,
+                       COALESCE(SUM(shipments_billed), 0) AS shipments,
+                       COALESCE(SUM(total_amount), 0) AS total
+                FROM billing_run_chunks
+                WHERE run_id = ?
+            ) agg
+            WHERE r.run_id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AdminUserRepository adminUserRepository;
+    private final AdminActivityService activityService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Long> activeRuns = ConcurrentHashMap.newKeySet();
+
+    @Value("${admin.billing.parallelism:4}")
+    private int parallelism;
+
+    @Value("${admin.billing.chunk-size:2000}")
+    private int chunkSize;
+
+    @Value("${admin.billing.lease-seconds:600}")
+    private int leaseSeconds;
+
+    @Value("${admin.billing.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${admin.billing.payment-terms-days:30}")
+    private int paymentTermsDays;
+
+    public BillingRunService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            AdminUserRepository adminUserRepository, AdminActivityService activityService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.adminUserRepository = adminUserRepository;
+        this.activityService = activityService;
+    }
+
+    /**
+     * Plans a billing run for the month and starts billing it in the
+     * background. A period can be billed once; use {@link #resumeRun} to
+     * continue a run that was interrupted or had failing chunks.
+     */
+    public BillingRunResponse startRun(YearMonth period, AdminUser admin) {
+        if (period.isAfter(YearMonth.now())) {
+            throw new AdminException.ValidationException("Cannot bill a future period: " + period);
+        }
+        LocalDate periodStart = period.atDay(1);
+        LocalDate periodEnd = period.atEndOfMonth();
+
+        Long runId;
+        try {
+            runId = transactionTemplate.execute(status -> {
+                Long id = jdbcTemplate.queryForObject("""
+                        INSERT INTO billing_runs (period_start, period_end, created_by)
+                        VALUES (?, ?, ?)
+                        RETURNING run_id
+                        """, Long.class, Date.valueOf(periodStart), Date.valueOf(periodEnd), admin.getAdminId());
+                int chunks = jdbcTemplate.update(PLAN_SQL, id, chunkSize, Date.valueOf(periodStart),
+                        Date.valueOf(periodEnd));
+                jdbcTemplate.update("""
+                        UPDATE billing_runs
+                        SET chunk_count = ?,
+                            planned_shipments = (SELECT COALESCE(SUM(planned_shipments), 0)
+                                                 FROM billing_run_chunks WHERE run_id = ?)
+                        WHERE run_id = ?
+                        """, chunks, id, id);
+                return id;
+            });
+        } catch (DuplicateKeyException e) {
+            throw new AdminException.InvalidStateException("A billing run already exists for " + period);
+        }
+
+        BillingRunResponse run = getRun(runId);
+        log.info("Planned billing run {} for {}: {} shipments in {} chunks", runId, period,
+                run.getPlannedShipments(), run.getChunkCount());
+        activityService.logActivity(admin, "START_BILLING_RUN", "BillingRun", String.valueOf(runId),
+                "Started billing run for " + period + " (" + run.getPlannedShipments() + " shipments in "
+                        + run.getChunkCount() + " chunks)",
+                null, null);
+        launch(runId);
+        return run;
+    }
+
+    /**
+     * Gives failed chunks of a run a fresh set of attempts and continues it.
+     */
+    public BillingRunResponse resumeRun(long runId, AdminUser admin) {
+        BillingRunResponse run = getRun(runId);
+        if ("completed".equals(run.getStatus())) {
+            throw new AdminException.InvalidStateException("Billing run " + runId + " is already completed");
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("""
+                    UPDATE billing_run_chunks
+                    SET status = 'pending', attempts = 0, updated_at = CURRENT_TIMESTAMP
+                    WHERE run_id = ? AND status = 'failed'
+                    """, runId);
+            jdbcTemplate.update("""
+                    UPDATE billing_runs SET status = 'running', finished_at = NULL WHERE run_id = ?
+                    """, runId);
+        });
+        activityService.logActivity(admin, "RESUME_BILLING_RUN", "BillingRun", String.valueOf(runId),
+                "Resumed billing run " + runId, null, null);
+        launch(runId);
+        return getRun(runId);
+    }
+
+    public BillingRunResponse getRun(long runId) {
+        List<BillingRunResponse> runs = jdbcTemplate.query("""
+                SELECT r.*,
+                       COUNT(c.chunk_id) FILTER (WHERE c.status IN ('pending', 'processing')) AS pending_chunks,
+                       COUNT(c.chunk_id) FILTER (WHERE c.status = 'completed') AS completed_chunks,
+                       COUNT(c.chunk_id) FILTER (WHERE c.status = 'failed') AS failed_chunks
+                FROM billing_runs r
+                LEFT JOIN billing_run_chunks c ON c.run_id = r.run_id
+                WHERE r.run_id = ?
+                GROUP BY r.run_id
+                """, this::mapRun, runId);
+        if (runs.isEmpty()) {
+            throw new AdminException.NotFoundException("Billing run not found: " + runId);
+        }
+        return runs.get(0);
+    }
+
+    /**
+     * Picks up runs left behind by a restart: chunks still pending or whose
+     * lease ran out are claimed again.
+     */
+    @Scheduled(fixedDelayString = "${admin.billing.resume-interval-ms:300000}")
+    public void resumeInterruptedRuns() {
+        List<Long> runIds = jdbcTemplate.queryForList("""
+                SELECT r.run_id
+                FROM billing_runs r
+                WHERE r.status = 'running'
+                  AND EXISTS (SELECT 1 FROM billing_run_chunks c
+                              WHERE c.run_id = r.run_id
+                                AND (c.status = 'pending'
+                                     OR (c.status = 'processing' AND c.lease_until < CURRENT_TIMESTAMP)))
+                """, Long.class);
+        runIds.forEach(this::launch);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ==================== Internals ====================
+
+    private void launch(long runId) {
+        if (activeRuns.add(runId)) {
+            executor.execute(() -> {
+                try {
+                    execute(runId);
+                } catch (RuntimeException e) {
+                    log.error("Billing run {} stopped: {}", runId, e.getMessage(), e);
+                } finally {
+                    activeRuns.remove(runId);
+                }
+            });
+        }
+    }
+
+    private void execute(long runId) {
+        UUID creatorId = jdbcTemplate.queryForObject("SELECT created_by FROM billing_runs WHERE run_id = ?",
+                UUID.class, runId);
+        AdminUser admin = adminUserRepository.findById(creatorId).orElse(null);
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(executor.submit(() -> drain(runId, admin)));
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("Billing run {} worker failed: {}", runId, e.getCause().getMessage());
+            }
+        }
+        jdbcTemplate.update(FINISH_RUN_SQL, runId, runId);
+
+        BillingRunResponse run = getRun(runId);
+        log.info("Billing run {} is {}: {} invoices for {} shipments totalling {}", runId, run.getStatus(),
+                run.getInvoicesCreated(), run.getShipmentsBilled(), run.getTotalAmount());
+    }
+
+    private void drain(long runId, AdminUser admin) {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<ClaimedChunk> claimed = jdbcTemplate.query(CLAIM_SQL, (rs, i) -> new ClaimedChunk(
+                    rs.getLong("chunk_id"), rs.getInt("chunk_no"), toUuids(rs.getArray("user_ids")),
+                    rs.getInt("attempts")), leaseSeconds, runId);
+            if (claimed.isEmpty()) {
+                return;
+            }
+            ClaimedChunk chunk = claimed.get(0);
+            try {
+                ChunkResult result = transactionTemplate.execute(status -> billChunk(runId, chunk, admin));
+                if (admin != null && result.invoices > 0) {
+                    activityService.logActivity(admin, "BILLING_RUN_CHUNK", "BillingRun", String.valueOf(runId),
+                            "Billing run " + runId + " chunk " + chunk.chunkNo + ": " + result.invoices
+                                    + " invoices for " + result.shipments + " shipments totalling "
+                                    + result.total,
+                            null, null);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Billing run {} chunk {} attempt {} failed: {}", runId, chunk.chunkNo, chunk.attempts,
+                        e.getMessage());
+                jdbcTemplate.update(FAIL_CHUNK_SQL, maxAttempts, String.valueOf(e.getMessage()), chunk.chunkId,
+                        chunk.attempts);
+            }
+        }
+    }
+
+    private ChunkResult billChunk(long runId, ClaimedChunk chunk, AdminUser admin) {
+        LocalDate[] period = jdbcTemplate.queryForObject(
+                "SELECT period_start, period_end FROM billing_runs WHERE run_id = ?",
+                (rs, i) -> new LocalDate[] { rs.getDate("period_start").toLocalDate(),
+                        rs.getDate("period_end").toLocalDate() },
+                runId);
+
+        List<DraftInvoice> invoices = new ArrayList<>();
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(LOAD_SHIPMENTS_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", chunk.userIds.toArray()));
+            ps.setDate(2, Date.valueOf(period[0]));
+            ps.setDate(3, Date.valueOf(period[1]));
+            return ps;
+        }, rs -> {
+            UUID userId = rs.getObject("user_id", UUID.class);
+            String currency = rs.getString("currency");
+            DraftInvoice current = invoices.isEmpty() ? null : invoices.get(invoices.size() - 1);
+            if (current == null || !current.userId.equals(userId) || !current.currency.equals(currency)) {
+                current = new DraftInvoice(userId, currency);
+                invoices.add(current);
+            }
+            current.add(new DraftLine(rs.getObject("shipment_id", UUID.class), rs.getString("tracking_number"),
+                    rs.getDate("actual_delivery_date").toLocalDate(), rs.getBigDecimal("total_cost")));
+        });
+
+        ChunkResult result = new ChunkResult();
+        if (!invoices.isEmpty()) {
+            List<String> numbers = jdbcTemplate.queryForList("SELECT generate_invoice_numbers(?)", String.class,
+                    invoices.size());
+            List<Object[]> invoiceRows = new ArrayList<>(invoices.size());
+            List<Object[]> lineRows = new ArrayList<>();
+            LocalDate issueDate = LocalDate.now();
+            Date issue = Date.valueOf(issueDate);
+            Date due = Date.valueOf(issueDate.plusDays(paymentTermsDays));
+            String notes = "Billing run " + runId + " for " + YearMonth.from(period[0]);
+            UUID createdBy = admin != null ? admin.getAdminId() : null;
+
+            for (int i = 0; i < invoices.size(); i++) {
+                DraftInvoice invoice = invoices.get(i);
+                UUID invoiceId = UUID.randomUUID();
+                // Single-shipment invoices keep the per-shipment link; reconciliation reads the line items
+                UUID shipmentId = invoice.lines.size() == 1 ? invoice.lines.get(0).shipmentId : null;
+                invoiceRows.add(new Object[] { invoiceId, numbers.get(i), invoice.userId, shipmentId,
+                        InvoiceStatus.DRAFT.name(), invoice.total, invoice.total, invoice.currency, issue, due,
+                        notes, createdBy });
+                int sortOrder = 0;
+                for (DraftLine line : invoice.lines) {
+                    lineRows.add(new Object[] { UUID.randomUUID(), invoiceId,
+                            "Shipment " + line.trackingNumber + " delivered " + line.deliveredOn,
+                            line.amount, line.amount, sortOrder++, line.shipmentId });
+                }
+                result.invoices++;
+                result.shipments += invoice.lines.size();
+                result.total = result.total.add(invoice.total);
+            }
+            jdbcTemplate.batchUpdate(INSERT_INVOICE_SQL, invoiceRows);
+            jdbcTemplate.batchUpdate(INSERT_LINE_SQL, lineRows);
+        }
+
+        int completed = jdbcTemplate.update(COMPLETE_CHUNK_SQL, result.invoices, result.shipments, result.total,
+                chunk.chunkId, chunk.attempts);
+        if (completed == 0) {
+            throw new IllegalStateException("Lost the lease on billing chunk " + chunk.chunkNo);
+        }
+        return result;
+    }
+
+    private BillingRunResponse mapRun(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp finishedAt = rs.getTimestamp("finished_at");
+        return BillingRunResponse.builder()
+                .runId(rs.getLong("run_id"))
+                .periodStart(rs.getDate("period_start").toLocalDate())
+                .periodEnd(rs.getDate("period_end").toLocalDate())
+                .status(rs.getString("status"))
+                .chunkCount(rs.getInt("chunk_count"))
+                .pendingChunks(rs.getInt("pending_chunks"))
+                .completedChunks(rs.getInt("completed_chunks"))
+                .failedChunks(rs.getInt("failed_chunks"))
+                .plannedShipments(rs.getInt("planned_shipments"))
+                .invoicesCreated(rs.getInt("invoices_created"))
+                .shipmentsBilled(rs.getInt("shipments_billed"))
+                .totalAmount(rs.getBigDecimal("total_amount"))
+                .startedAt(rs.getTimestamp("started_at").toLocalDateTime())
+                .finishedAt(finishedAt != null ? finishedAt.toLocalDateTime() : null)
+                .build();
+    }
+
+    private static List<UUID> toUuids(Array array) throws SQLException {
+        List<UUID> ids = new ArrayList<>();
+        for (Object id : (Object[]) array.getArray()) {
+            ids.add(id instanceof UUID uuid ? uuid : UUID.fromString(Objects.toString(id)));
+        }
+        return ids;
+    }
+
+    private record ClaimedChunk(long chunkId, int chunkNo, List<UUID> userIds, int attempts) {
+    }
+
+    private record DraftLine(UUID shipmentId, String trackingNumber, LocalDate deliveredOn, BigDecimal amount) {
+    }
+
+    private static final class DraftInvoice {
+        final UUID userId;
+        final String currency;
+        final List<DraftLine> lines = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+
+        DraftInvoice(UUID userId, String currency) {
+            this.userId = userId;
+            this.currency = currency;
+        }
+
+        void add(DraftLine line) {
+            lines.add(line);
+            total = total.add(line.amount());
+        }
+    }
+
+    private static final class ChunkResult {
+        int invoices;
+        int shipments;
+        BigDecimal total = BigDecimal.ZERO;
+    }
+}
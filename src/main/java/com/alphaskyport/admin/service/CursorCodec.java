@@ -0,0 +1,53 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.exception.AdminException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes keyset positions as opaque, URL-safe cursor tokens.
+ *
+ * A token carries a format version and a scope (the listing and its filters)
+ * so a cursor issued for one listing is rejected by another instead of
+ * silently seeking to the wrong position.
+ */
+public final class CursorCodec {
+
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "\u001f";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(String scope, Object... values) {
+        StringBuilder sb = new StringBuilder(VERSION).append(SEPARATOR).append(scope);
+        for (Object value : values) {
+            sb.append(SEPARATOR).append(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the key values of a cursor, or null when no cursor was given.
+     * Throws a validation error when the token is malformed or was issued for
+     * a different scope.
+     */
+    public static String[] decode(String cursor, String scope, int valueCount) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new AdminException.ValidationException("Invalid cursor");
+        }
+        if (parts.length != valueCount + 2 || !VERSION.equals(parts[0]) || !scope.equals(parts[1])) {
+            throw new AdminException.ValidationException("Invalid cursor");
+        }
+        String[] values = new String[valueCount];
+        System.arraycopy(parts, 2, values, 0, valueCount);
+        return values;
+    }
+}
@@ -5,6 +5,7 @@ import com.alphaskyport.admin.dto.DashboardDTOs.DashboardAlerts;
 import com.alphaskyport.admin.dto.DashboardDTOs.ShipmentsByStatus;
 import com.alphaskyport.admin.dto.DashboardDTOs.TrendIndicator;
 import com.alphaskyport.admin.dto.DashboardDTOs.AlertItem;
+import com.alphaskyport.admin.dto.InvoiceDTOs.OverdueStats;
 import com.alphaskyport.admin.dto.IssueDTOs;
 import com.alphaskyport.admin.model.IssueSeverity;
 import com.alphaskyport.admin.repository.ShipmentIssueRepository;
@@ -23,6 +24,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -31,6 +34,7 @@ public class DashboardService {
 
     private final InvoiceRepository invoiceRepository;
     private final ShipmentIssueRepository issueRepository;
+    private final InvoiceOverdueService overdueService;
     private final JdbcTemplate jdbcTemplate;
 
     @Transactional(readOnly = true)
@@ -56,6 +60,7 @@ public class DashboardService {
         BigDecimal lastMonthRevenue = invoiceRepository.sumPaidAmountBetweenDates(lastMonthStart,
                 monthStart.minusDays(1));
         BigDecimal outstandingReceivables = invoiceRepository.sumOutstandingAmount();
+        OverdueStats overdue = overdueService.getStats();
 
         // Calculate trends
         TrendIndicator revenueTrend = calculateRevenueTrend(monthRevenue, lastMonthRevenue);
@@ -71,6 +76,8 @@ public class DashboardService {
                 .weekRevenue(weekRevenue != null ? weekRevenue : BigDecimal.ZERO)
                 .monthRevenue(monthRevenue != null ? monthRevenue : BigDecimal.ZERO)
                 .outstandingReceivables(outstandingReceivables != null ? outstandingReceivables : BigDecimal.ZERO)
+                .overdueInvoices(overdue.getOverdueCount())
+                .overdueAmounts(overdue.getOverdueAmounts())
                 .revenueTrend(revenueTrend)
                 .lastUpdated(LocalDateTime.now())
                 .build();
@@ -95,14 +102,15 @@ public class DashboardService {
                     .build());
         }
 
-        // Warning: Overdue invoices
-        List<?> overdueInvoices = invoiceRepository.findOverdueInvoices(LocalDate.now());
-        if (!overdueInvoices.isEmpty()) {
+        // Warning: Overdue invoices (maintained by InvoiceOverdueService)
+        OverdueStats overdue = overdueService.getStats();
+        if (overdue.getOverdueCount() > 0) {
             warnings.add(AlertItem.builder()
                     .type("warning")
                     .category("payment")
                     .title("Overdue Invoices")
-                    .message(overdueInvoices.size() + " invoice(s) are overdue")
+                    .message(overdue.getOverdueCount() + " invoice(s) are overdue; outstanding: "
+                            + formatAmounts(overdue.getOverdueAmounts()))
                     .actionUrl("/admin/invoices?status=overdue")
                     .createdAt(LocalDateTime.now())
                     .build());
@@ -245,4 +253,11 @@ public class DashboardService {
                 .comparisonPeriod("vs last month")
                 .build();
     }
+
+    // One figure per currency, e.g. "1200.00 USD, 300.00 EUR"
+    private String formatAmounts(Map<String, BigDecimal> amounts) {
+        return amounts.entrySet().stream()
+                .map(e -> e.getValue().toPlainString() + " " + e.getKey())
+                .collect(Collectors.joining(", "));
+    }
 }
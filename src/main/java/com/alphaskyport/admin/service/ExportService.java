@@ -0,0 +1,280 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.ExportDTOs.ExportRequest;
+import com.alphaskyport.admin.exception.AdminException;
+import com.alphaskyport.admin.export.ExportFormat;
+import com.alphaskyport.admin.export.RowWriter;
+import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.model.InvoiceStatus;
+import com.alphaskyport.admin.model.PaymentStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams invoices, payments and shipments as CSV or JSON Lines.
+ *
+ * Each export runs one forward-only query inside a read-only transaction,
+ * so the PostgreSQL driver fetches through a server-side cursor in
+ * fetch-size batches. Rows go straight from the result set to the response
+ * writer (optionally gzipped) and the header is flushed before the first
+ * batch is read, so heap use is constant and the download starts at once.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class ExportService {
+
+    public enum Dataset {
+        INVOICES("""
+                SELECT i.invoice_id, i.invoice_number, i.status, i.user_id, u.email AS customer_email,
+                       i.shipment_id, i.currency, i.subtotal, i.tax_amount, i.total_amount, i.paid_amount,
+                       i.total_amount - COALESCE(i.paid_amount, 0) AS outstanding_amount,
+                       i.issue_date, i.due_date, i.paid_date, i.created_at
+                FROM invoices i
+                JOIN users u ON u.user_id = i.user_id
+                WHERE TRUE
+                """, "i.status", "i.issue_date", "i.issue_date, i.invoice_id",
+                Arrays.stream(InvoiceStatus.values()).map(Enum::name).collect(Collectors.toSet()), false),
+
+        PAYMENTS("""
+                SELECT p.payment_id, p.invoice_id, i.invoice_number, p.amount, p.currency, p.payment_method,
+                       p.payment_reference, p.payment_date, p.status, p.recorded_by, p.created_at
+                FROM payments p
+                JOIN invoices i ON i.invoice_id = p.invoice_id
+                WHERE TRUE
+                """, "p.status", "p.payment_date", "p.payment_date, p.payment_id",
+                Arrays.stream(PaymentStatus.values()).map(Enum::name).collect(Collectors.toSet()), false),
+
+        SHIPMENTS("""
+                SELECT s.shipment_id, s.tracking_number, s.user_id, s.shipment_status, s.payment_status,
+                       oc.country_code AS origin_country, dc.country_code AS destination_country,
+                       s.cargo_weight, s.cargo_volume, s.declared_value, s.total_cost, s.currency,
+                       s.estimated_delivery_date, s.actual_delivery_date, s.created_at
+                FROM shipments s
+                JOIN countries oc ON oc.country_id = s.origin_country_id
+                JOIN countries dc ON dc.country_id = s.destination_country_id
+                WHERE s.deleted_at IS NULL
+                """, "s.shipment_status", "s.created_at", "s.created_at, s.shipment_id",
+                Set.of("pending", "confirmed", "picked_up", "in_transit", "customs_clearance",
+                        "out_for_delivery", "delivered", "cancelled", "returned", "exception"), true);
+
+        private final String sql;
+        private final String statusColumn;
+        private final String dateColumn;
+        private final String orderBy;
+        private final Set<String> statuses;
+        private final boolean lowerCaseStatus;
+
+        Dataset(String sql, String statusColumn, String dateColumn, String orderBy, Set<String> statuses,
+                boolean lowerCaseStatus) {
+            this.sql = sql;
+            this.statusColumn = statusColumn;
+            this.dateColumn = dateColumn;
+            this.orderBy = orderBy;
+            this.statuses = statuses;
+            this.lowerCaseStatus = lowerCaseStatus;
+        }
+
+        public String fileStem() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** A validated export ready to be written to the response. */
+    public record ExportStream(String filename, String contentType, StreamingResponseBody body) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate cursorTemplate;
+    private final AdminActivityService activityService;
+
+    @Value("${admin.exports.fetch-size:5000}")
+    private int fetchSize;
+
+    @Value("${admin.exports.flush-rows:5000}")
+    private int flushRows;
+
+    public ExportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            AdminActivityService activityService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.activityService = activityService;
+
+        // The driver only streams with a cursor when autocommit is off
+        this.cursorTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.cursorTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Validates the filters and returns a body that runs the query when the
+     * response is written. Invalid input fails here, before any byte is sent.
+     */
+    public ExportStream export(Dataset dataset, ExportRequest request, AdminUser admin) {
+        ExportFormat format;
+        try {
+            format = ExportFormat.fromValue(request.getFormat() != null ? request.getFormat() : "csv");
+        } catch (IllegalArgumentException e) {
+            throw new AdminException.ValidationException(e.getMessage());
+        }
+        if (request.getFrom() != null && request.getTo() != null && request.getFrom().isAfter(request.getTo())) {
+            throw new AdminException.ValidationException("'from' must not be after 'to'");
+        }
+
+        StringBuilder sql = new StringBuilder(dataset.sql);
+        List<Object> args = new ArrayList<>();
+        List<String> statuses = normalizeStatuses(dataset, request.getStatuses());
+        if (!statuses.isEmpty()) {
+            sql.append("  AND ").append(dataset.statusColumn).append(" IN (")
+                    .append(String.join(", ", statuses.stream().map(s -> "?").toList())).append(")\n");
+            args.addAll(statuses);
+        }
+        if (request.getFrom() != null) {
+            sql.append("  AND ").append(dataset.dateColumn).append(" >= ?\n");
+            args.add(request.getFrom());
+        }
+        if (request.getTo() != null) {
+            sql.append("  AND ").append(dataset.dateColumn).append(" < ?\n");
+            args.add(request.getTo().plusDays(1));
+        }
+        sql.append("ORDER BY ").append(dataset.orderBy);
+
+        String filename = dataset.fileStem() + "-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE)
+                + "." + format.getExtension() + (request.isGzip() ? ".gz" : "");
+        String contentType = request.isGzip() ? "application/gzip" : format.getContentType() + ";charset=UTF-8";
+
+        StreamingResponseBody body = out -> {
+            long started = System.nanoTime();
+            long rows = stream(sql.toString(), args, format, request.isGzip(), out);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            log.info("Exported {} {} rows as {} in {} ms", rows, dataset.fileStem(), format, millis);
+            activityService.logActivity(admin, "EXPORT_DATA", "Export", dataset.name(),
+                    "Exported " + rows + " " + dataset.fileStem() + " as " + format.getExtension()
+                            + describeFilters(statuses, request),
+                    null, null);
+        };
+        return new ExportStream(filename, contentType, body);
+    }
+
+    // ==================== Internals ====================
+
+    private long stream(String sql, List<Object> args, ExportFormat format, boolean gzip, OutputStream response)
+            throws IOException {
+        OutputStream target = StreamUtils.nonClosing(response);
+        if (gzip) {
+            // syncFlush so periodic flushes reach the client instead of sitting in the deflater
+            target = new GZIPOutputStream(target, 1 << 16, true);
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 1 << 16);
+
+        try {
+            Long rows = cursorTemplate.execute(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                for (int i = 0; i < args.size(); i++) {
+                    ps.setObject(i + 1, args.get(i));
+                }
+                return ps;
+            }, rs -> {
+                try {
+                    return writeRows(rs, format, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            return rows != null ? rows : 0;
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the transaction has already rolled back
+            throw e.getCause();
+        }
+    }
+
+    private long writeRows(ResultSet rs, ExportFormat format, Writer writer) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        List<String> columns = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            columns.add(meta.getColumnLabel(i));
+        }
+
+        long rows = 0;
+        try (RowWriter rowWriter = format.open(writer, columns)) {
+            rowWriter.flush();
+            Object[] values = new Object[columnCount];
+            while (rs.next()) {
+                for (int i = 0; i < columnCount; i++) {
+                    values[i] = rs.getObject(i + 1);
+                }
+                rowWriter.writeRow(values);
+                if (++rows % flushRows == 0) {
+                    rowWriter.flush();
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static List<String> normalizeStatuses(Dataset dataset, List<String> requested) {
+        if (requested == null || requested.isEmpty()) {
+            return List.of();
+        }
+        List<String> statuses = new ArrayList<>();
+        for (String raw : requested) {
+            for (String part : raw.split(",")) {
+                String value = part.trim();
+                if (value.isEmpty()) {
+                    continue;
+                }
+                value = dataset.lowerCaseStatus ? value.toLowerCase(Locale.ROOT) : value.toUpperCase(Locale.ROOT);
+                if (!dataset.statuses.contains(value)) {
+                    throw new AdminException.ValidationException(
+                            "Unknown " + dataset.fileStem() + " status: " + part.trim());
+                }
+                if (!statuses.contains(value)) {
+                    statuses.add(value);
+                }
+            }
+        }
+        return statuses;
+    }
+
+    private static String describeFilters(List<String> statuses, ExportRequest request) {
+        StringBuilder sb = new StringBuilder();
+        if (!statuses.isEmpty()) {
+            sb.append(" status=").append(String.join(",", statuses));
+        }
+        if (request.getFrom() != null) {
+            sb.append(" from=").append(request.getFrom());
+        }
+        if (request.getTo() != null) {
+            sb.append(" to=").append(request.getTo());
+        }
+        return sb.isEmpty() ? "" : " (" + sb.toString().trim() + ")";
+    }
+}
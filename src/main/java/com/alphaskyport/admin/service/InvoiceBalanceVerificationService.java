@@ -0,0 +1,161 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.InvoiceDTOs.BalanceVerificationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Verifies the running invoices.paid_amount maintained by
+ * {@link InvoiceService#recordPayment} against the completed payments it
+ * stands for.
+ *
+ * Invoices are walked in invoice_id ranges so a run never sums the whole
+ * payments table in one statement. A drifted invoice is repaired under its
+ * row lock with a freshly computed total, so a payment committing at the same
+ * time is never overwritten by a stale sum.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class InvoiceBalanceVerificationService {
+
+    private static final int MAX_REPORTED = 100;
+
+    private static final String BATCH_SQL = """
+            SELECT invoice_id, COUNT(*) OVER () AS invoices
+            FROM (
+                SELECT invoice_id FROM invoices WHERE invoice_id > ? ORDER BY invoice_id LIMIT ?
+            ) batch
+            ORDER BY invoice_id DESC
+            LIMIT 1
+            """;
+
+    private static final String DRIFT_SQL = """
+            SELECT i.invoice_id
+            FROM invoices i
+            LEFT JOIN payments p ON p.invoice_id = i.invoice_id AND p.status = 'COMPLETED'
+            WHERE i.invoice_id > ? AND i.invoice_id <= ?
+            GROUP BY i.invoice_id, i.paid_amount
+            HAVING COALESCE(i.paid_amount, 0) <> COALESCE(SUM(p.amount), 0)
+            """;
+
+    private static final String REPAIR_SQL = """
+            UPDATE invoices i
+            SET paid_amount = s.total,
+                status = CASE
+                    WHEN i.status IN ('CANCELLED', 'REFUNDED') THEN i.status
+                    WHEN s.total > 0 AND s.total >= i.total_amount THEN 'PAID'
+                    WHEN i.status = 'OVERDUE' THEN i.status
+                    WHEN s.total > 0 THEN 'PARTIAL'
+                    ELSE i.status
+                END,
+                paid_date = CASE
+                    WHEN i.status NOT IN ('CANCELLED', 'REFUNDED') AND s.total > 0 AND s.total >= i.total_amount
+                        THEN COALESCE(i.paid_date, CURRENT_DATE)
+                    ELSE i.paid_date
+                END,
+                version = COALESCE(i.version, 0) + 1,
+                updated_at = CURRENT_TIMESTAMP
+            FROM (
+                SELECT COALESCE(SUM(amount), 0) AS total
+                FROM payments
+                WHERE invoice_id = ? AND status = 'COMPLETED'
+            ) s
+            WHERE i.invoice_id = ?
+              AND COALESCE(i.paid_amount, 0) <> s.total
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${admin.invoices.balance-verification.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${admin.invoices.balance-verification.repair:true}")
+    private boolean repair;
+
+    public InvoiceBalanceVerificationService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(cron = "${admin.invoices.balance-verification.cron:0 0 4 * * *}")
+    public void runScheduledVerification() {
+        try {
+            verify();
+        } catch (Exception e) {
+            log.error("Invoice balance verification failed: {}", e.getMessage());
+        }
+    }
+
+    public BalanceVerificationResult verify() {
+        UUID after = new UUID(0, 0);
+        long checked = 0;
+        long drift = 0;
+        long repaired = 0;
+        List<UUID> reported = new ArrayList<>();
+
+        while (true) {
+            List<Map<String, Object>> batch = jdbcTemplate.queryForList(BATCH_SQL, after, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            UUID last = (UUID) batch.get(0).get("invoice_id");
+            long size = ((Number) batch.get(0).get("invoices")).longValue();
+            checked += size;
+
+            for (UUID invoiceId : jdbcTemplate.queryForList(DRIFT_SQL, UUID.class, after, last)) {
+                drift++;
+                if (reported.size() < MAX_REPORTED) {
+                    reported.add(invoiceId);
+                }
+                if (repair && repairInvoice(invoiceId)) {
+                    repaired++;
+                }
+            }
+            after = last;
+            if (size < batchSize) {
+                break;
+            }
+        }
+
+        if (drift > 0) {
+            log.warn("Invoice balance verification: {} of {} invoices drifted from their payments, {} repaired",
+                    drift, checked, repaired);
+        } else {
+            log.info("Invoice balance verification: {} invoices match their payments", checked);
+        }
+        return BalanceVerificationResult.builder()
+                .invoicesChecked(checked)
+                .driftFound(drift)
+                .repaired(repaired)
+                .driftedInvoiceIds(reported)
+                .executedAt(LocalDateTime.now())
+                .build();
+    }
+
+    // ==================== Internals ====================
+
+    private boolean repairInvoice(UUID invoiceId) {
+        Integer updated = transactionTemplate.execute(status -> {
+            // Wait for in-flight payments on this invoice, then sum in a new statement that sees them
+            jdbcTemplate.queryForList("SELECT 1 FROM invoices WHERE invoice_id = ? FOR UPDATE", invoiceId);
+            return jdbcTemplate.update(REPAIR_SQL, invoiceId, invoiceId);
+        });
+        if (updated != null && updated > 0) {
+            log.warn("Repaired paid_amount of invoice {}", invoiceId);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,548 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.document.FileTransfer;
+import com.alphaskyport.admin.document.InvoicePdfRenderer;
+import com.alphaskyport.admin.document.InvoiceTemplate;
+import com.alphaskyport.admin.dto.InvoiceDTOs.DocumentRerenderResponse;
+import com.alphaskyport.admin.dto.InvoiceDTOs.InvoiceDocumentResponse;
+import com.alphaskyport.admin.exception.AdminException;
+import com.alphaskyport.admin.model.AdminUser;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders invoice PDFs into the upload storage area and serves them.
+ *
+ * The template is compiled once at startup. Rendering runs on a bounded
+ * platform-thread pool sized to the CPU count: line items stream from a
+ * server-side cursor through the renderer and a digesting file stream, so
+ * no document is ever held in memory. A file is written to a temp name,
+ * fsynced and moved to a name carrying its content hash, then recorded in
+ * invoice_documents together with the invoice version it reflects. A file
+ * is never replaced under a reader: a re-render writes a new name, and the
+ * superseded one is deleted only after a grace period, so downloads in
+ * flight finish on the version they started with. A download of a stale
+ * document serves the last rendered version and queues a re-render.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class InvoiceDocumentService {
+
+    private static final String HEADER_SQL = """
+            SELECT i.invoice_number, i.status, i.issue_date, i.due_date, i.currency, i.subtotal,
+                   i.tax_amount, i.total_amount, i.paid_amount, COALESCE(i.version, 0) AS version,
+                   u.email, u.company_name, u.first_name, u.last_name,
+                   (SELECT COUNT(*) FROM invoice_line_items li WHERE li.invoice_id = i.invoice_id) AS line_count
+            FROM invoices i
+            JOIN users u ON u.user_id = i.user_id
+            WHERE i.invoice_id = ?
+            """;
+
+    private static final String LINES_SQL = """
+            SELECT description, quantity, unit_price, line_total
+            FROM invoice_line_items
+            WHERE invoice_id = ?
+            ORDER BY sort_order, line_item_id
+            """;
+
+    private static final String UPSERT_DOCUMENT_SQL = """
+            INSERT INTO invoice_documents (invoice_id, file_path, file_size, sha256, page_count,
+                                           invoice_version, template_version, rendered_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (invoice_id) DO UPDATE SET
+                file_path = EXCLUDED.file_path,
+                file_size = EXCLUDED.file_size,
+                sha256 = EXCLUDED.sha256,
+                page_count = EXCLUDED.page_count,
+                invoice_version = EXCLUDED.invoice_version,
+                template_version = EXCLUDED.template_version,
+                rendered_at = EXCLUDED.rendered_at
+            WHERE invoice_documents.invoice_version <= EXCLUDED.invoice_version
+            """;
+
+    private static final String LATEST_DOCUMENT_SQL = """
+            SELECT i.invoice_number, d.file_path, d.file_size, d.sha256, d.page_count, d.rendered_at,
+                   (d.invoice_version = COALESCE(i.version, 0) AND d.template_version = ?) AS is_current
+            FROM invoices i
+            JOIN invoice_documents d ON d.invoice_id = i.invoice_id
+            WHERE i.invoice_id = ?
+            """;
+
+    // Files retired before the grace period, unless a later render of identical content adopted them again
+    private static final String EXPIRE_RETIRED_SQL = """
+            DELETE FROM invoice_documents_retired r
+            WHERE r.retired_id IN (
+                SELECT retired_id
+                FROM invoice_documents_retired
+                WHERE retired_at < CURRENT_TIMESTAMP - make_interval(secs => ?)
+                ORDER BY retired_id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING r.file_path,
+                      EXISTS (SELECT 1 FROM invoice_documents d
+                              WHERE d.invoice_id = r.invoice_id AND d.file_path = r.file_path) AS in_use
+            """;
+
+    private static final String PERIOD_BATCH_SQL = """
+            SELECT invoice_id, issue_date
+            FROM invoices
+            WHERE issue_date BETWEEN ? AND ?
+              AND (issue_date, invoice_id) > (?, ?)
+            ORDER BY issue_date, invoice_id
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final AdminActivityService activityService;
+    private final InvoiceTemplate template;
+    private final InvoicePdfRenderer renderer;
+    private final ThreadPoolExecutor renderPool;
+    private final ExecutorService coordinator = Executors.newVirtualThreadPerTaskExecutor();
+    private final Path storageRoot;
+    // Invoices with a render waiting in the pool; a render that has started leaves the set
+    private final Set<UUID> queuedRenders = ConcurrentHashMap.newKeySet();
+
+    @Value("${admin.documents.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${admin.documents.rerender-batch-size:500}")
+    private int rerenderBatchSize;
+
+    @Value("${admin.documents.retired-grace-seconds:3600}")
+    private long retiredGraceSeconds;
+
+    public InvoiceDocumentService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            AdminActivityService activityService, ResourceLoader resourceLoader,
+            @Value("${admin.upload.storage-path:/var/alphaskyport/uploads}") String storagePath,
+            @Value("${admin.documents.template:classpath:documents/invoice.pdft}") String templateLocation,
+            @Value("${admin.documents.render-threads:0}") int renderThreads,
+            @Value("${admin.documents.queue-capacity:256}") int queueCapacity,
+            @Value("${admin.documents.company.name:Alpha Skyport}") String companyName,
+            @Value("${admin.documents.company.address:}") String companyAddress,
+            @Value("${admin.documents.company.contact:}") String companyContact) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.activityService = activityService;
+        this.storageRoot = Paths.get(storagePath, "invoices");
+
+        this.snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTemplate.setReadOnly(true);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        Resource resource = resourceLoader.getResource(templateLocation);
+        try (InputStream in = resource.getInputStream()) {
+            String source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            this.template = InvoiceTemplate.compile(source, Map.of(
+                    "companyName", companyName,
+                    "companyAddress", companyAddress,
+                    "companyContact", companyContact));
+        }
+        this.renderer = new InvoicePdfRenderer(template);
+
+        // Rendering is CPU-bound (deflate, formatting); more threads than cores only adds contention
+        int threads = renderThreads > 0 ? renderThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIds = new AtomicInteger();
+        this.renderPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "invoice-render-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        log.info("Invoice template {} compiled; rendering on {} threads", template.getVersion(), threads);
+    }
+
+    /**
+     * Renders the invoice once the surrounding transaction commits. Dropped
+     * with a warning when the pool is saturated; the next download queues it
+     * again, or renders it on demand if no version exists yet.
+     */
+    public void renderAfterCommit(UUID invoiceId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    queueRender(invoiceId);
+                }
+            });
+        } else {
+            queueRender(invoiceId);
+        }
+    }
+
+    public InvoiceDocumentResponse getDocument(UUID invoiceId) {
+        return currentDocument(invoiceId).info();
+    }
+
+    /**
+     * Streams the latest PDF for the invoice. A stale one is served as is
+     * while a re-render is queued; only a missing one is rendered first.
+     */
+    public void sendDocument(UUID invoiceId, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        StoredDocument document = currentDocument(invoiceId);
+        InvoiceDocumentResponse info = document.info();
+        FileTransfer.send(document.file(), info.getFileSize(), "application/pdf",
+                info.getInvoiceNumber() + ".pdf", info.getSha256(), request, response);
+    }
+
+    /**
+     * Re-renders every invoice issued in the month in the background. A
+     * coordinator walks the invoices in key order and feeds the render pool;
+     * when the queue is full it renders on its own thread, which keeps every
+     * core busy without queueing the whole month.
+     */
+    public DocumentRerenderResponse rerenderPeriod(YearMonth period, AdminUser admin) {
+        LocalDate from = period.atDay(1);
+        LocalDate to = period.atEndOfMonth();
+        Long invoices = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM invoices WHERE issue_date BETWEEN ? AND ?",
+                Long.class, Date.valueOf(from), Date.valueOf(to));
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        coordinator.execute(() -> rerender(period, admin));
+
+        return DocumentRerenderResponse.builder()
+                .period(period.toString())
+                .invoices(invoices != null ? invoices : 0)
+                .startedAt(startedAt)
+                .build();
+    }
+
+    /** Renders one invoice on the calling thread and records the result. */
+    public InvoiceDocumentResponse render(UUID invoiceId) {
+        return store(invoiceId).info();
+    }
+
+    /**
+     * Deletes document files superseded longer than the grace period ago,
+     * long enough for any download that opened them to have finished.
+     */
+    @Scheduled(fixedDelayString = "${admin.documents.cleanup-interval-ms:600000}")
+    public void deleteRetiredFiles() {
+        int deleted = 0;
+        List<Object[]> expired;
+        do {
+            expired = jdbcTemplate.query(EXPIRE_RETIRED_SQL,
+                    (rs, i) -> new Object[] { rs.getString("file_path"), rs.getBoolean("in_use") },
+                    retiredGraceSeconds, rerenderBatchSize);
+            for (Object[] file : expired) {
+                if ((Boolean) file[1]) {
+                    continue;
+                }
+                try {
+                    if (Files.deleteIfExists(Paths.get((String) file[0]))) {
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not delete retired invoice document {}: {}", file[0], e.getMessage());
+                }
+            }
+        } while (expired.size() == rerenderBatchSize);
+        if (deleted > 0) {
+            log.info("Deleted {} retired invoice documents", deleted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        renderPool.shutdown();
+    }
+
+    // ==================== Internals ====================
+
+    private StoredDocument store(UUID invoiceId) {
+        Rendered rendered = snapshotTemplate.execute(status -> {
+            try {
+                return renderSnapshot(invoiceId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        LocalDateTime renderedAt = LocalDateTime.now();
+        String path = rendered.file().toString();
+        transactionTemplate.executeWithoutResult(status -> {
+            // Serialises renders of one invoice, including its first, so no superseded path goes unrecorded
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(?))",
+                    "invoice-document:" + invoiceId);
+            List<String> previous = jdbcTemplate.queryForList(
+                    "SELECT file_path FROM invoice_documents WHERE invoice_id = ?", String.class, invoiceId);
+            int stored = jdbcTemplate.update(UPSERT_DOCUMENT_SQL, invoiceId, path, rendered.size(),
+                    rendered.sha256(), rendered.pageCount(), rendered.invoiceVersion(), template.getVersion(),
+                    Timestamp.valueOf(renderedAt));
+
+            // Either the old file was superseded, or a newer version was already stored and ours is unused
+            String live = stored > 0 ? path : previous.get(0);
+            String retired = stored > 0 ? (previous.isEmpty() ? null : previous.get(0)) : path;
+            if (retired != null && !retired.equals(live)) {
+                jdbcTemplate.update("INSERT INTO invoice_documents_retired (invoice_id, file_path) VALUES (?, ?)",
+                        invoiceId, retired);
+            }
+            jdbcTemplate.update("DELETE FROM invoice_documents_retired WHERE invoice_id = ? AND file_path = ?",
+                    invoiceId, live);
+        });
+
+        return new StoredDocument(rendered.file(), InvoiceDocumentResponse.builder()
+                .invoiceId(invoiceId)
+                .invoiceNumber(rendered.invoiceNumber())
+                .fileSize(rendered.size())
+                .sha256(rendered.sha256())
+                .pageCount(rendered.pageCount())
+                .renderedAt(renderedAt)
+                .stale(false)
+                .build());
+    }
+
+    private StoredDocument currentDocument(UUID invoiceId) {
+        List<StoredDocument> latest = jdbcTemplate.query(LATEST_DOCUMENT_SQL, (rs, i) -> new StoredDocument(
+                Paths.get(rs.getString("file_path")),
+                InvoiceDocumentResponse.builder()
+                        .invoiceId(invoiceId)
+                        .invoiceNumber(rs.getString("invoice_number"))
+                        .fileSize(rs.getLong("file_size"))
+                        .sha256(rs.getString("sha256"))
+                        .pageCount(rs.getInt("page_count"))
+                        .renderedAt(rs.getTimestamp("rendered_at").toLocalDateTime())
+                        .stale(!rs.getBoolean("is_current"))
+                        .build()),
+                template.getVersion(), invoiceId);
+
+        if (latest.isEmpty() || !Files.isRegularFile(latest.get(0).file())) {
+            // Nothing to serve yet, so this request has to wait for the first render
+            return store(invoiceId);
+        }
+        StoredDocument document = latest.get(0);
+        if (document.info().isStale()) {
+            queueRender(invoiceId);
+        }
+        return document;
+    }
+
+    private void queueRender(UUID invoiceId) {
+        if (!queuedRenders.add(invoiceId)) {
+            return;
+        }
+        try {
+            renderPool.execute(() -> {
+                // Leave the set before reading, so a change made during the render queues another one
+                queuedRenders.remove(invoiceId);
+                renderQuietly(invoiceId);
+            });
+        } catch (RejectedExecutionException e) {
+            queuedRenders.remove(invoiceId);
+            log.warn("Invoice render queue full; {} will be queued again on next download", invoiceId);
+        }
+    }
+
+    private Rendered renderSnapshot(UUID invoiceId) throws IOException {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(HEADER_SQL, invoiceId);
+        if (rows.isEmpty()) {
+            throw new AdminException.NotFoundException("Invoice not found: " + invoiceId);
+        }
+        Map<String, Object> row = rows.get(0);
+        String invoiceNumber = (String) row.get("invoice_number");
+        LocalDate issueDate = ((Date) row.get("issue_date")).toLocalDate();
+        int lineCount = ((Number) row.get("line_count")).intValue();
+
+        InvoicePdfRenderer.Header header = new InvoicePdfRenderer.Header(
+                invoiceNumber,
+                (String) row.get("status"),
+                issueDate,
+                ((Date) row.get("due_date")).toLocalDate(),
+                customerName(row),
+                (String) row.get("email"),
+                (String) row.get("currency"),
+                (BigDecimal) row.get("subtotal"),
+                (BigDecimal) row.get("tax_amount"),
+                (BigDecimal) row.get("total_amount"),
+                (BigDecimal) row.get("paid_amount"));
+
+        Path directory = storageRoot.resolve(documentDirectory(issueDate));
+        Files.createDirectories(directory);
+        // Unique temp name: an on-demand render may race the after-commit one
+        Path temp = Files.createTempFile(directory, invoiceNumber + "-", ".pdf.tmp");
+
+        MessageDigest digest = sha256();
+        long size;
+        try (InvoicePdfRenderer.Session session = renderer.open(header, lineCount,
+                new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16), digest))) {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(LINES_SQL);
+                ps.setFetchSize(fetchSize);
+                ps.setObject(1, invoiceId);
+                return ps;
+            }, rs -> {
+                try {
+                    session.addLine(new InvoicePdfRenderer.Line(rs.getString("description"),
+                            rs.getBigDecimal("quantity"), rs.getBigDecimal("unit_price"),
+                            rs.getBigDecimal("line_total")));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            session.finish();
+            size = session.getBytesWritten();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        // Named by content: a name only ever holds these bytes, so replacing it cannot change what a reader sees
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        Path target = directory.resolve(documentName(invoiceNumber, sha256));
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        return new Rendered(invoiceNumber, target, size, sha256, renderer.pageCount(lineCount),
+                ((Number) row.get("version")).intValue());
+    }
+
+    private void rerender(YearMonth period, AdminUser admin) {
+        LocalDate from = period.atDay(1);
+        LocalDate to = period.atEndOfMonth();
+        AtomicLong rendered = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long started = System.nanoTime();
+
+        LocalDate lastDate = from.minusDays(1);
+        UUID lastId = new UUID(0, 0);
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Object[]> batch = jdbcTemplate.query(PERIOD_BATCH_SQL,
+                    (rs, i) -> new Object[] { rs.getObject("invoice_id", UUID.class), rs.getDate("issue_date") },
+                    Date.valueOf(from), Date.valueOf(to), Date.valueOf(lastDate), lastId, rerenderBatchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<CompletableFuture<Void>> pending = new ArrayList<>(batch.size());
+            for (Object[] entry : batch) {
+                UUID invoiceId = (UUID) entry[0];
+                Runnable task = () -> {
+                    if (renderQuietly(invoiceId)) {
+                        rendered.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                };
+                try {
+                    pending.add(CompletableFuture.runAsync(task, renderPool));
+                } catch (RejectedExecutionException e) {
+                    task.run();
+                }
+            }
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+
+            Object[] last = batch.get(batch.size() - 1);
+            lastId = (UUID) last[0];
+            lastDate = ((Date) last[1]).toLocalDate();
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("Re-rendered {} invoices for {} in {} ms ({} failed)", rendered.get(), period, millis, failed.get());
+        activityService.logActivity(admin, "RERENDER_INVOICES", "Invoice", period.toString(),
+                "Re-rendered " + rendered.get() + " invoice documents for " + period
+                        + (failed.get() > 0 ? " (" + failed.get() + " failed)" : ""),
+                null, null);
+    }
+
+    private boolean renderQuietly(UUID invoiceId) {
+        try {
+            render(invoiceId);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Failed to render invoice {}: {}", invoiceId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private static Path documentDirectory(LocalDate issueDate) {
+        return Paths.get(String.valueOf(issueDate.getYear()), "%02d".formatted(issueDate.getMonthValue()));
+    }
+
+    private static String documentName(String invoiceNumber, String sha256) {
+        return invoiceNumber.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + sha256.substring(0, 16) + ".pdf";
+    }
+
+    private static String customerName(Map<String, Object> row) {
+        String company = (String) row.get("company_name");
+        if (company != null && !company.isBlank()) {
+            return company;
+        }
+        String first = (String) row.get("first_name");
+        String last = (String) row.get("last_name");
+        String name = ((first != null ? first : "") + " " + (last != null ? last : "")).trim();
+        return name.isEmpty() ? (String) row.get("email") : name;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record StoredDocument(Path file, InvoiceDocumentResponse info) {
+    }
+
+    private record Rendered(String invoiceNumber, Path file, long size, String sha256, int pageCount,
+            int invoiceVersion) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.InvoiceDTOs.OverdueStats;
+import com.alphaskyport.admin.dto.InvoiceDTOs.OverdueTransitionResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Moves sent and partially paid invoices past their due date to OVERDUE.
+ *
+ * The transition is one set-based update per batch over the partial
+ * candidates index, so reads never have to derive overdue-ness from
+ * due_date. The count and outstanding amount of OVERDUE invoices live in
+ * invoice_overdue_stats, kept current by statement triggers on invoices
+ * (V80). The aggregate is split over a few slots so concurrent writers do
+ * not queue on one row (V85), and keyed by currency so amounts in different
+ * currencies are never added together (V86); reads sum the slots per currency.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class InvoiceOverdueService {
+
+    // Drafts are never marked: they have not been sent and sendInvoice expects DRAFT
+    private static final String MARK_OVERDUE_SQL = """
+            UPDATE invoices
+            SET status = 'OVERDUE',
+                version = COALESCE(version, 0) + 1,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE invoice_id IN (
+                SELECT invoice_id
+                FROM invoices
+                WHERE status IN ('SENT', 'PARTIAL')
+                  AND due_date < CURRENT_DATE
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            """;
+
+    // Currencies whose overdue invoices have all been settled leave zero rows behind
+    private static final String STATS_SQL = """
+            SELECT currency,
+                   SUM(overdue_count) AS overdue_count,
+                   SUM(overdue_amount) AS overdue_amount,
+                   MAX(updated_at) AS updated_at
+            FROM invoice_overdue_stats
+            GROUP BY currency
+            HAVING SUM(overdue_count) <> 0 OR SUM(overdue_amount) <> 0
+            ORDER BY currency
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${admin.invoices.overdue.batch-size:5000}")
+    private int batchSize;
+
+    public InvoiceOverdueService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(cron = "${admin.invoices.overdue.cron:0 5 * * * *}")
+    public void runScheduledTransition() {
+        try {
+            markOverdue();
+        } catch (Exception e) {
+            log.error("Overdue invoice transition failed", e);
+        }
+    }
+
+    public OverdueTransitionResult markOverdue() {
+        long marked = 0;
+        while (true) {
+            // Each batch commits on its own; rows locked by a concurrent payment are picked up next run
+            // Compared against the database date, the same clock the AR aging buckets use
+            int updated = jdbcTemplate.update(MARK_OVERDUE_SQL, batchSize);
+            marked += updated;
+            if (updated < batchSize) {
+                break;
+            }
+        }
+
+        OverdueStats stats = getStats();
+        if (marked > 0) {
+            log.info("Marked {} invoices overdue; {} overdue totalling {}", marked, stats.getOverdueCount(),
+                    stats.getOverdueAmounts());
+        }
+        return OverdueTransitionResult.builder()
+                .invoicesMarked(marked)
+                .stats(stats)
+                .executedAt(LocalDateTime.now())
+                .build();
+    }
+
+    public OverdueStats getStats() {
+        return jdbcTemplate.query(STATS_SQL, rs -> {
+            long count = 0;
+            Map<String, BigDecimal> amounts = new LinkedHashMap<>();
+            LocalDateTime updatedAt = null;
+            while (rs.next()) {
+                count += rs.getLong("overdue_count");
+                amounts.put(rs.getString("currency"), rs.getBigDecimal("overdue_amount"));
+                LocalDateTime slotUpdatedAt = rs.getTimestamp("updated_at").toLocalDateTime();
+                if (updatedAt == null || slotUpdatedAt.isAfter(updatedAt)) {
+                    updatedAt = slotUpdatedAt;
+                }
+            }
+            return OverdueStats.builder()
+                    .overdueCount(count)
+                    .overdueAmounts(amounts)
+                    .updatedAt(updatedAt)
+                    .build();
+        });
+    }
+}
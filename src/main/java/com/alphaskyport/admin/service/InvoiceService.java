@@ -23,7 +23,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -39,6 +38,7 @@ public class InvoiceService {
         private final UserRepository userRepository;
         private final ShipmentRepository shipmentRepository;
         private final AdminActivityService activityService;
+        private final InvoiceDocumentService documentService;
 
         @Transactional(readOnly = true)
         public InvoiceResponse getInvoiceById(UUID invoiceId) {
@@ -58,19 +58,15 @@ public class InvoiceService {
 
         @Transactional(readOnly = true)
         public InvoiceListResponse getInvoices(InvoiceStatus status, Pageable pageable) {
-                Page<Invoice> page;
+                Page<InvoiceSummary> page;
                 if (status != null) {
-                        page = invoiceRepository.findByStatus(status, pageable);
+                        page = invoiceRepository.findSummariesByStatus(status, pageable);
                 } else {
-                        page = invoiceRepository.findAll(pageable);
+                        page = invoiceRepository.findSummaries(pageable);
                 }
 
-                List<InvoiceSummary> summaries = page.getContent().stream()
-                                .map(this::mapToSummary)
-                                .collect(Collectors.toList());
-
                 return InvoiceListResponse.builder()
-                                .invoices(summaries)
+                                .invoices(page.getContent())
                                 .page(page.getNumber())
                                 .size(page.getSize())
                                 .totalElements(page.getTotalElements())
@@ -80,14 +76,10 @@ public class InvoiceService {
 
         @Transactional(readOnly = true)
         public InvoiceListResponse getInvoicesByUser(UUID userId, Pageable pageable) {
-                Page<Invoice> page = invoiceRepository.findByUser_UserId(userId, pageable);
-
-                List<InvoiceSummary> summaries = page.getContent().stream()
-                                .map(this::mapToSummary)
-                                .collect(Collectors.toList());
+                Page<InvoiceSummary> page = invoiceRepository.findSummariesByUser(userId, pageable);
 
                 return InvoiceListResponse.builder()
-                                .invoices(summaries)
+                                .invoices(page.getContent())
                                 .page(page.getNumber())
                                 .size(page.getSize())
                                 .totalElements(page.getTotalElements())
@@ -95,11 +87,10 @@ public class InvoiceService {
                                 .build();
         }
 
+        /** One page of overdue invoice summaries; see {@link InvoiceOverdueService} for the totals. */
         @Transactional(readOnly = true)
-        public List<InvoiceResponse> getOverdueInvoices() {
-                return invoiceRepository.findOverdueInvoices(LocalDate.now()).stream()
-                                .map(this::mapToResponse)
-                                .collect(Collectors.toList());
+        public InvoiceListResponse getOverdueInvoices(Pageable pageable) {
+                return getInvoices(InvoiceStatus.OVERDUE, pageable);
         }
 
         @Transactional
@@ -168,7 +159,7 @@ public class InvoiceService {
                 invoice.setStatus(InvoiceStatus.SENT);
                 invoice = invoiceRepository.save(invoice);
 
-                log.info("Invoice sent. Email notification would be sent to customer here.");
+                documentService.renderAfterCommit(invoice.getInvoiceId());
 
                 activityService.logActivity(sentBy, "SEND_INVOICE", "Invoice", invoice.getInvoiceId().toString(),
                                 "Sent invoice: " + invoice.getInvoiceNumber(), null, null);
@@ -176,19 +167,29 @@ public class InvoiceService {
                 return mapToResponse(invoice);
         }
 
+        /**
+         * Records a payment without re-summing the invoice's earlier payments:
+         * paid_amount and status move by an atomic delta, and the response
+         * carries the recorded payment alongside the invoice's running totals
+         * rather than its full payment history, which getInvoiceById returns.
+         * InvoiceBalanceVerificationService checks the running totals against
+         * the payments table periodically.
+         */
         @Transactional
         public InvoiceResponse recordPayment(RecordPaymentRequest request, AdminUser recordedBy) {
-                Invoice invoice = invoiceRepository.findByIdWithPayments(request.getInvoiceId())
-                                .orElseThrow(() -> new AdminException.NotFoundException(
-                                                "Invoice not found: " + request.getInvoiceId()));
-
-                if (invoice.getStatus() == InvoiceStatus.CANCELLED || invoice.getStatus() == InvoiceStatus.REFUNDED) {
+                UUID invoiceId = request.getInvoiceId();
+                int updated = invoiceRepository.applyPaymentDelta(invoiceId, request.getAmount(),
+                                request.getPaymentDate());
+                if (updated == 0) {
+                        if (!invoiceRepository.existsById(invoiceId)) {
+                                throw new AdminException.NotFoundException("Invoice not found: " + invoiceId);
+                        }
                         throw new AdminException.InvalidStateException(
                                         "Cannot record payment for cancelled/refunded invoice");
                 }
 
                 Payment payment = Payment.builder()
-                                .invoice(invoice)
+                                .invoice(invoiceRepository.getReferenceById(invoiceId))
                                 .amount(request.getAmount())
                                 .paymentMethod(request.getPaymentMethod())
                                 .paymentReference(request.getPaymentReference())
@@ -198,28 +199,18 @@ public class InvoiceService {
                                 .recordedBy(recordedBy)
                                 .build();
 
-                paymentRepository.save(payment);
-
-                // Update invoice paid amount
-                BigDecimal totalPaid = paymentRepository.sumCompletedPaymentsForInvoice(invoice.getInvoiceId());
-                invoice.setPaidAmount(totalPaid != null ? totalPaid : BigDecimal.ZERO);
+                payment = paymentRepository.save(payment);
 
-                // Update invoice status
-                if (invoice.getPaidAmount().compareTo(invoice.getTotalAmount()) >= 0) {
-                        invoice.setStatus(InvoiceStatus.PAID);
-                        invoice.setPaidDate(request.getPaymentDate());
-                } else if (invoice.getPaidAmount().compareTo(BigDecimal.ZERO) > 0) {
-                        invoice.setStatus(InvoiceStatus.PARTIAL);
-                }
-
-                invoice = invoiceRepository.save(invoice);
+                Invoice invoice = invoiceRepository.findByIdWithLineItems(invoiceId)
+                                .orElseThrow(() -> new AdminException.NotFoundException(
+                                                "Invoice not found: " + invoiceId));
 
                 activityService.logActivity(recordedBy, "RECORD_PAYMENT", "Invoice", invoice.getInvoiceId().toString(),
                                 "Recorded payment of " + request.getAmount() + " for invoice: "
                                                 + invoice.getInvoiceNumber(),
                                 null, null);
 
-                return mapToResponse(invoice);
+                return mapToResponse(invoice, List.of(payment));
         }
 
         @Transactional
@@ -250,6 +241,10 @@ public class InvoiceService {
         }
 
         private InvoiceResponse mapToResponse(Invoice invoice) {
+                return mapToResponse(invoice, invoice.getPayments());
+        }
+
+        private InvoiceResponse mapToResponse(Invoice invoice, List<Payment> invoicePayments) {
                 List<LineItemResponse> lineItems = invoice.getLineItems().stream()
                                 .map(item -> LineItemResponse.builder()
                                                 .lineItemId(item.getLineItemId())
@@ -261,7 +256,7 @@ public class InvoiceService {
                                                 .build())
                                 .collect(Collectors.toList());
 
-                List<PaymentSummary> payments = invoice.getPayments().stream()
+                List<PaymentSummary> payments = invoicePayments.stream()
                                 .map(p -> PaymentSummary.builder()
                                                 .paymentId(p.getPaymentId())
                                                 .amount(p.getAmount())
@@ -299,18 +294,4 @@ public class InvoiceService {
                                 .payments(payments)
                                 .build();
         }
-
-        private InvoiceSummary mapToSummary(Invoice invoice) {
-                return InvoiceSummary.builder()
-                                .invoiceId(invoice.getInvoiceId())
-                                .invoiceNumber(invoice.getInvoiceNumber())
-                                .customerName(invoice.getUser().getFirstName() + " " + invoice.getUser().getLastName())
-                                .status(invoice.getStatus())
-                                .totalAmount(invoice.getTotalAmount())
-                                .outstandingAmount(invoice.getOutstandingAmount())
-                                .issueDate(invoice.getIssueDate())
-                                .dueDate(invoice.getDueDate())
-                                .overdue(invoice.isOverdue())
-                                .build();
-        }
 }
@@ -0,0 +1,347 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.MaintenanceDTOs.PartitionInfo;
+import com.alphaskyport.admin.dto.MaintenanceDTOs.PartitionMaintenanceResult;
+import com.alphaskyport.admin.dto.MaintenanceDTOs.PartitionStats;
+import com.alphaskyport.admin.exception.AdminException;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps monthly range-partitioned tables healthy: creates partitions ahead of
+ * time, makes sure every partition carries the parent's indexes and retires
+ * partitions that fall outside the retention window. Each run takes a
+ * transaction-scoped advisory lock so only one node performs DDL at a time.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class PartitionMaintenanceService {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("^[a-z_][a-z0-9_]*$");
+    private static final Pattern BOUND_DATES = Pattern.compile("'(\\d{4}-\\d{2}-\\d{2})");
+    private static final Pattern INDEX_DEF = Pattern.compile(
+            "^CREATE (UNIQUE )?INDEX \\S+ ON ONLY \\S+ (USING .*)$", Pattern.DOTALL);
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    public static final String TRACKING_EVENTS = "shipment_tracking_events";
+    public static final String NOTIFICATION_HISTORY = "notification_history";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, ManagedTable> managedTables = new LinkedHashMap<>();
+
+    public PartitionMaintenanceService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${admin.partitions.tracking-events.months-ahead:3}") int trackingMonthsAhead,
+            @Value("${admin.partitions.tracking-events.retention-months:24}") int trackingRetentionMonths,
+            @Value("${admin.partitions.tracking-events.retention-action:detach}") String trackingRetentionAction,
+            @Value("${admin.partitions.notification-history.months-ahead:3}") int notificationMonthsAhead,
+            @Value("${admin.partitions.notification-history.retention-months:6}") int notificationRetentionMonths,
+            @Value("${admin.partitions.notification-history.retention-action:drop}") String notificationRetentionAction) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        register(new ManagedTable(TRACKING_EVENTS, trackingMonthsAhead, trackingRetentionMonths,
+                trackingRetentionAction));
+        register(new ManagedTable(NOTIFICATION_HISTORY, notificationMonthsAhead, notificationRetentionMonths,
+                notificationRetentionAction));
+    }
+
+    @Value("${admin.partitions.lock-timeout:5s}")
+    private String lockTimeout;
+
+    @Value("${admin.partitions.run-on-startup:true}")
+    private boolean runOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (runOnStartup) {
+            runScheduledMaintenance();
+        }
+    }
+
+    @Scheduled(cron = "${admin.partitions.cron:0 15 2 * * *}")
+    public void runScheduledMaintenance() {
+        for (String table : managedTables.keySet()) {
+            try {
+                PartitionMaintenanceResult result = maintain(table);
+                if (!result.isLockAcquired()) {
+                    log.debug("Partition maintenance for {} skipped, another node holds the lock", table);
+                }
+            } catch (Exception e) {
+                log.error("Partition maintenance failed for {}: {}", table, e.getMessage());
+            }
+        }
+    }
+
+    public List<String> getManagedTables() {
+        return new ArrayList<>(managedTables.keySet());
+    }
+
+    public PartitionMaintenanceResult maintain(String parentTable) {
+        ManagedTable table = resolve(parentTable);
+        PartitionMaintenanceResult result = transactionTemplate.execute(status -> runLocked(table));
+        if (result != null && result.isLockAcquired()) {
+            log.info("Partition maintenance for {}: created={}, repairedIndexes={}, retired={} ({})",
+                    table.name(), result.getCreatedPartitions(), result.getRepairedIndexes(),
+                    result.getRetiredPartitions(), table.retentionAction());
+        }
+        return result;
+    }
+
+    public PartitionStats getStats(String parentTable) {
+        ManagedTable table = resolve(parentTable);
+        List<PartitionInfo> partitions = listPartitions(table.name());
+
+        long rows = 0;
+        long bytes = 0;
+        LocalDate coveredUntil = null;
+        for (PartitionInfo partition : partitions) {
+            rows += partition.getEstimatedRows();
+            bytes += partition.getTotalBytes();
+            if (coveredUntil == null || partition.getRangeEnd().isAfter(coveredUntil)) {
+                coveredUntil = partition.getRangeEnd();
+            }
+        }
+
+        return PartitionStats.builder()
+                .parentTable(table.name())
+                .partitionCount(partitions.size())
+                .estimatedRows(rows)
+                .totalBytes(bytes)
+                .coveredUntil(coveredUntil)
+                .detachedPartitions(listDetachedPartitions(table.name()))
+                .partitions(partitions)
+                .generatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Lists tables that follow the partition naming scheme of the given parent
+     * but are no longer attached to it, i.e. partitions retired with the
+     * "detach" retention action.
+     */
+    public List<String> listDetachedPartitions(String parentTable) {
+        String sql = """
+                SELECT c.relname
+                FROM pg_class c
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = current_schema()
+                  AND c.relkind = 'r'
+                  AND NOT c.relispartition
+                  AND c.relname ~ ('^' || ? || '_[0-9]{4}_[0-9]{2}$')
+                ORDER BY c.relname
+                """;
+        return jdbcTemplate.queryForList(sql, String.class, resolve(parentTable).name());
+    }
+
+    // ==================== Internals ====================
+
+    private PartitionMaintenanceResult runLocked(ManagedTable table) {
+        Boolean locked = jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext(?))", Boolean.class,
+                "partition-maintenance:" + table.name());
+
+        PartitionMaintenanceResult.PartitionMaintenanceResultBuilder result = PartitionMaintenanceResult.builder()
+                .parentTable(table.name())
+                .retentionAction(table.retentionAction())
+                .executedAt(LocalDateTime.now());
+
+        if (!Boolean.TRUE.equals(locked)) {
+            return result.lockAcquired(false)
+                    .createdPartitions(List.of())
+                    .repairedIndexes(List.of())
+                    .retiredPartitions(List.of())
+                    .build();
+        }
+
+        // Fail fast instead of queueing behind long-running readers of the parent
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeout.replace("'", "") + "'");
+
+        List<String> created = createAheadPartitions(table);
+        List<String> repaired = repairPartitionIndexes(table);
+        List<String> retired = retireExpiredPartitions(table);
+
+        return result.lockAcquired(true)
+                .createdPartitions(created)
+                .repairedIndexes(repaired)
+                .retiredPartitions(retired)
+                .build();
+    }
+
+    private List<String> createAheadPartitions(ManagedTable table) {
+        List<PartitionInfo> existing = listPartitions(table.name());
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        LocalDate last = month.plusMonths(table.monthsAhead());
+        List<String> created = new ArrayList<>();
+
+        for (; !month.isAfter(last); month = month.plusMonths(1)) {
+            if (isCovered(existing, month)) {
+                continue;
+            }
+            String partition = table.name() + "_" + month.format(SUFFIX);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + table.name()
+                    + " FOR VALUES FROM ('" + month + "') TO ('" + month.plusMonths(1) + "')");
+            created.add(partition);
+        }
+        return created;
+    }
+
+    private List<String> repairPartitionIndexes(ManagedTable table) {
+        String parentIndexSql = """
+                SELECT c.relname AS index_name, pg_get_indexdef(i.indexrelid) AS definition
+                FROM pg_index i
+                JOIN pg_class c ON c.oid = i.indexrelid
+                WHERE i.indrelid = ?::regclass
+                """;
+        String attachedSql = """
+                SELECT EXISTS (
+                    SELECT 1
+                    FROM pg_inherits inh
+                    JOIN pg_index ci ON ci.indexrelid = inh.inhrelid
+                    WHERE inh.inhparent = ?::regclass AND ci.indrelid = ?::regclass
+                )
+                """;
+
+        List<Map<String, Object>> parentIndexes = jdbcTemplate.queryForList(parentIndexSql, table.name());
+        List<String> repaired = new ArrayList<>();
+
+        for (PartitionInfo partition : listPartitions(table.name())) {
+            for (Map<String, Object> index : parentIndexes) {
+                String indexName = (String) index.get("index_name");
+                Boolean attached = jdbcTemplate.queryForObject(attachedSql, Boolean.class,
+                        indexName, partition.getPartitionName());
+                if (Boolean.TRUE.equals(attached)) {
+                    continue;
+                }
+
+                Matcher def = INDEX_DEF.matcher((String) index.get("definition"));
+                if (!def.matches()) {
+                    log.warn("Cannot rebuild index {} on {}: unrecognised definition", indexName,
+                            partition.getPartitionName());
+                    continue;
+                }
+                String childIndex = truncateIdentifier(partition.getPartitionName() + "_" + indexName);
+                jdbcTemplate.execute("CREATE " + (def.group(1) != null ? "UNIQUE " : "") + "INDEX IF NOT EXISTS "
+                        + childIndex + " ON " + partition.getPartitionName() + " " + def.group(2));
+                jdbcTemplate.execute("ALTER INDEX " + indexName + " ATTACH PARTITION " + childIndex);
+                repaired.add(childIndex);
+            }
+        }
+        return repaired;
+    }
+
+    private List<String> retireExpiredPartitions(ManagedTable table) {
+        LocalDate cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(table.retentionMonths());
+        boolean drop = "drop".equals(table.retentionAction());
+        List<String> retired = new ArrayList<>();
+
+        for (PartitionInfo partition : listPartitions(table.name())) {
+            if (partition.getRangeEnd().isAfter(cutoff)) {
+                continue;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table.name() + " DETACH PARTITION " + partition.getPartitionName());
+            if (drop) {
+                jdbcTemplate.execute("DROP TABLE " + partition.getPartitionName());
+            }
+            retired.add(partition.getPartitionName());
+        }
+        return retired;
+    }
+
+    private List<PartitionInfo> listPartitions(String parentTable) {
+        String sql = """
+                SELECT c.relname AS partition_name,
+                       pg_get_expr(c.relpartbound, c.oid) AS bound,
+                       GREATEST(c.reltuples, 0)::bigint AS estimated_rows,
+                       pg_total_relation_size(c.oid) AS total_bytes,
+                       pg_size_pretty(pg_total_relation_size(c.oid)) AS total_size,
+                       (SELECT COUNT(*) FROM pg_index pi WHERE pi.indrelid = p.oid) AS expected_indexes,
+                       (SELECT COUNT(*)
+                        FROM pg_index ci
+                        JOIN pg_inherits ii ON ii.inhrelid = ci.indexrelid
+                        WHERE ci.indrelid = c.oid) AS attached_indexes
+                FROM pg_inherits inh
+                JOIN pg_class c ON c.oid = inh.inhrelid
+                JOIN pg_class p ON p.oid = inh.inhparent
+                WHERE inh.inhparent = ?::regclass
+                ORDER BY c.relname
+                """;
+
+        List<PartitionInfo> partitions = new ArrayList<>();
+        jdbcTemplate.query(sql, rs -> {
+            Matcher dates = BOUND_DATES.matcher(rs.getString("bound"));
+            if (!dates.find()) {
+                return; // DEFAULT partition, not part of the monthly scheme
+            }
+            LocalDate start = LocalDate.parse(dates.group(1));
+            LocalDate end = dates.find() ? LocalDate.parse(dates.group(1)) : start.plusMonths(1);
+            int expected = rs.getInt("expected_indexes");
+            int attached = rs.getInt("attached_indexes");
+
+            partitions.add(PartitionInfo.builder()
+                    .partitionName(rs.getString("partition_name"))
+                    .rangeStart(start)
+                    .rangeEnd(end)
+                    .estimatedRows(rs.getLong("estimated_rows"))
+                    .totalBytes(rs.getLong("total_bytes"))
+                    .totalSize(rs.getString("total_size"))
+                    .expectedIndexes(expected)
+                    .attachedIndexes(attached)
+                    .indexesComplete(attached >= expected)
+                    .build());
+        }, parentTable);
+        return partitions;
+    }
+
+    private boolean isCovered(List<PartitionInfo> partitions, LocalDate monthStart) {
+        return partitions.stream().anyMatch(p -> !p.getRangeStart().isAfter(monthStart)
+                && p.getRangeEnd().isAfter(monthStart));
+    }
+
+    private String truncateIdentifier(String identifier) {
+        return identifier.length() > 63 ? identifier.substring(0, 63) : identifier;
+    }
+
+    private ManagedTable resolve(String parentTable) {
+        ManagedTable table = managedTables.get(parentTable);
+        if (table == null) {
+            throw new AdminException.NotFoundException("Partitioned table is not managed: " + parentTable);
+        }
+        return table;
+    }
+
+    private void register(ManagedTable table) {
+        if (!IDENTIFIER.matcher(table.name()).matches()) {
+            throw new IllegalArgumentException("Invalid table name: " + table.name());
+        }
+        if (table.retentionMonths() < 1) {
+            throw new IllegalArgumentException("Retention for " + table.name() + " must be at least one month");
+        }
+        if (!"detach".equals(table.retentionAction()) && !"drop".equals(table.retentionAction())) {
+            throw new IllegalArgumentException("Retention action must be 'detach' or 'drop'");
+        }
+        managedTables.put(table.name(), table);
+    }
+
+    private record ManagedTable(String name, int monthsAhead, int retentionMonths, String retentionAction) {
+    }
+}
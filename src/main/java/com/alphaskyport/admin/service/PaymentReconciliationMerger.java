@@ -0,0 +1,227 @@
+package com.alphaskyport.admin.service;
+
+import lombok.Data;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Merge-joins the shipment ledger (shipments.amount_paid and completed
+ * payment_transactions) with the invoice ledger (invoices and their completed
+ * payments) and reports where they disagree.
+ *
+ * All three inputs must be sorted by shipment_id in PostgreSQL uuid order
+ * (unsigned byte order, see {@link #compareKeys}); invoice payments must also
+ * be grouped by invoice within a shipment. Only the current shipment's totals
+ * are held, so memory stays constant however many rows are streamed. An input
+ * that goes backwards fails the merge instead of producing false
+ * discrepancies.
+ */
+public class PaymentReconciliationMerger {
+
+    public enum DiscrepancyType {
+        /** Both ledgers have money for the shipment but the totals differ. */
+        AMOUNT_MISMATCH,
+        /** Transactions moved money but the shipment was never invoiced. */
+        MISSING_INVOICE,
+        /** Invoice payments exist without any completed transaction. */
+        MISSING_TRANSACTIONS,
+        /** shipments.amount_paid differs from the net transaction total. */
+        AMOUNT_PAID_MISMATCH,
+        /** Ledger rows reference a shipment absent from the shipment stream. */
+        UNKNOWN_SHIPMENT
+    }
+
+    private final BigDecimal tolerance;
+
+    public PaymentReconciliationMerger(BigDecimal tolerance) {
+        this.tolerance = tolerance.abs();
+    }
+
+    public Summary merge(Iterator<ShipmentBalance> shipments, Iterator<LedgerEntry> transactions,
+            Iterator<LedgerEntry> invoicePayments, Consumer<Discrepancy> sink) {
+        Cursor<ShipmentBalance> shipmentCursor = new Cursor<>("shipments", shipments,
+                ShipmentBalance::getShipmentId);
+        Cursor<LedgerEntry> transactionCursor = new Cursor<>("transactions", transactions,
+                LedgerEntry::getShipmentId);
+        Cursor<LedgerEntry> invoiceCursor = new Cursor<>("invoice payments", invoicePayments,
+                LedgerEntry::getShipmentId);
+        Summary summary = new Summary();
+
+        while (shipmentCursor.head != null || transactionCursor.head != null || invoiceCursor.head != null) {
+            UUID key = min(min(shipmentCursor.key(), transactionCursor.key()), invoiceCursor.key());
+
+            ShipmentBalance shipment = null;
+            if (key.equals(shipmentCursor.key())) {
+                shipment = shipmentCursor.head;
+                shipmentCursor.advance();
+                summary.shipmentsScanned++;
+            }
+
+            BigDecimal transactionTotal = BigDecimal.ZERO;
+            long transactionCount = 0;
+            while (key.equals(transactionCursor.key())) {
+                transactionTotal = transactionTotal.add(transactionCursor.head.getAmount());
+                transactionCount++;
+                transactionCursor.advance();
+            }
+
+            BigDecimal invoiceTotal = BigDecimal.ZERO;
+            int invoiceCount = 0;
+            UUID firstInvoice = null;
+            UUID currentInvoice = null;
+            while (key.equals(invoiceCursor.key())) {
+                LedgerEntry entry = invoiceCursor.head;
+                if (!entry.getInvoiceId().equals(currentInvoice)) {
+                    currentInvoice = entry.getInvoiceId();
+                    invoiceCount++;
+                    if (firstInvoice == null) {
+                        firstInvoice = currentInvoice;
+                    }
+                }
+                // Invoices without payments still arrive, with no amount, so the shipment counts as invoiced
+                if (entry.getAmount() != null) {
+                    invoiceTotal = invoiceTotal.add(entry.getAmount());
+                    summary.invoicePaymentRows++;
+                }
+                invoiceCursor.advance();
+            }
+            summary.transactionRows += transactionCount;
+
+            Totals totals = new Totals(key, firstInvoice, invoiceCount, transactionTotal, invoiceTotal);
+            if (shipment == null) {
+                emit(summary, sink, DiscrepancyType.UNKNOWN_SHIPMENT, totals, null,
+                        transactionTotal.subtract(invoiceTotal));
+                continue;
+            }
+
+            if (invoiceCount == 0) {
+                if (differs(transactionTotal, BigDecimal.ZERO)) {
+                    emit(summary, sink, DiscrepancyType.MISSING_INVOICE, totals, shipment.getAmountPaid(),
+                            transactionTotal);
+                }
+            } else if (transactionCount == 0 && differs(invoiceTotal, BigDecimal.ZERO)) {
+                emit(summary, sink, DiscrepancyType.MISSING_TRANSACTIONS, totals, shipment.getAmountPaid(),
+                        invoiceTotal.negate());
+            } else if (differs(transactionTotal, invoiceTotal)) {
+                emit(summary, sink, DiscrepancyType.AMOUNT_MISMATCH, totals, shipment.getAmountPaid(),
+                        transactionTotal.subtract(invoiceTotal));
+            }
+
+            BigDecimal amountPaid = shipment.getAmountPaid() != null ? shipment.getAmountPaid() : BigDecimal.ZERO;
+            if (differs(amountPaid, transactionTotal)) {
+                emit(summary, sink, DiscrepancyType.AMOUNT_PAID_MISMATCH, totals, amountPaid,
+                        amountPaid.subtract(transactionTotal));
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Orders uuids the way PostgreSQL does: byte by byte, unsigned. UUID's own
+     * compareTo uses signed halves and would disagree with ORDER BY for about
+     * half of all keys.
+     */
+    public static int compareKeys(UUID a, UUID b) {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    // ==================== Internals ====================
+
+    private boolean differs(BigDecimal a, BigDecimal b) {
+        return a.subtract(b).abs().compareTo(tolerance) > 0;
+    }
+
+    private void emit(Summary summary, Consumer<Discrepancy> sink, DiscrepancyType type, Totals totals,
+            BigDecimal amountPaid, BigDecimal difference) {
+        summary.discrepancies.merge(type, 1L, Long::sum);
+        sink.accept(new Discrepancy(type, totals.shipmentId, totals.invoiceId, totals.invoiceCount, amountPaid,
+                totals.transactionTotal, totals.invoiceTotal, difference));
+    }
+
+    private static UUID min(UUID a, UUID b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return compareKeys(a, b) <= 0 ? a : b;
+    }
+
+    private record Totals(UUID shipmentId, UUID invoiceId, int invoiceCount, BigDecimal transactionTotal,
+            BigDecimal invoiceTotal) {
+    }
+
+    private static final class Cursor<T> {
+        private final String name;
+        private final Iterator<T> source;
+        private final Function<T, UUID> keyOf;
+        private T head;
+
+        Cursor(String name, Iterator<T> source, Function<T, UUID> keyOf) {
+            this.name = name;
+            this.source = source;
+            this.keyOf = keyOf;
+            this.head = source.hasNext() ? source.next() : null;
+        }
+
+        UUID key() {
+            return head != null ? keyOf.apply(head) : null;
+        }
+
+        void advance() {
+            UUID previous = key();
+            head = source.hasNext() ? source.next() : null;
+            if (head != null && compareKeys(keyOf.apply(head), previous) < 0) {
+                throw new IllegalStateException("Reconciliation input " + name + " is not sorted by shipment_id at "
+                        + keyOf.apply(head));
+            }
+        }
+    }
+
+    @Value
+    public static class ShipmentBalance {
+        UUID shipmentId;
+        BigDecimal amountPaid;
+    }
+
+    /** One ledger row; amount is signed (refunds negative) and null for an invoice without payments. */
+    @Value
+    public static class LedgerEntry {
+        UUID shipmentId;
+        UUID invoiceId;
+        BigDecimal amount;
+    }
+
+    @Value
+    public static class Discrepancy {
+        DiscrepancyType type;
+        UUID shipmentId;
+        UUID invoiceId;
+        int invoiceCount;
+        BigDecimal amountPaid;
+        BigDecimal transactionTotal;
+        BigDecimal invoicePaymentTotal;
+        BigDecimal difference;
+    }
+
+    @Data
+    public static class Summary {
+        private long shipmentsScanned;
+        private long transactionRows;
+        private long invoicePaymentRows;
+        private final Map<DiscrepancyType, Long> discrepancies = new EnumMap<>(DiscrepancyType.class);
+
+        public long getDiscrepancyCount() {
+            return discrepancies.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+}
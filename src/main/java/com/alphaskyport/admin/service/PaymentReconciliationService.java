@@ -0,0 +1,455 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.PagingDTOs.CursorPage;
+import com.alphaskyport.admin.dto.ReconciliationDTOs.DiscrepancyResponse;
+import com.alphaskyport.admin.dto.ReconciliationDTOs.ReconciliationRunResponse;
+import com.alphaskyport.admin.exception.AdminException;
+import com.alphaskyport.admin.service.PaymentReconciliationMerger.Discrepancy;
+import com.alphaskyport.admin.service.PaymentReconciliationMerger.DiscrepancyType;
+import com.alphaskyport.admin.service.PaymentReconciliationMerger.LedgerEntry;
+import com.alphaskyport.admin.service.PaymentReconciliationMerger.ShipmentBalance;
+import com.alphaskyport.admin.service.PaymentReconciliationMerger.Summary;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Reconciles shipment-level payment_transactions against invoice-level
+ * payments.
+ *
+ * A run opens three server-side cursors in one read-only REPEATABLE READ
+ * transaction (shipments, completed transactions, invoices with their
+ * completed payments), all ordered by shipment_id, and feeds them through
+ * {@link PaymentReconciliationMerger}. Rows are fetched in batches of
+ * admin.reconciliation.fetch-size, so memory stays flat and every stream is
+ * read once from a consistent snapshot. Discrepancies are written in batches
+ * on a separate connection; past admin.reconciliation.max-stored-discrepancies
+ * they are only counted. Currencies are not converted: amounts are compared
+ * as recorded.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class PaymentReconciliationService {
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+
+    private static final String SHIPMENTS_SQL = """
+            SELECT shipment_id, amount_paid
+            FROM shipments
+            ORDER BY shipment_id
+            """;
+
+    private static final String TRANSACTIONS_SQL = """
+            SELECT shipment_id,
+                   CASE WHEN transaction_type IN ('refund', 'chargeback') THEN -amount ELSE amount END AS amount
+            FROM payment_transactions
+            WHERE transaction_status = 'completed'
+            ORDER BY shipment_id
+            """;
+
+    // Consolidated billing-run invoices leave invoices.shipment_id empty and bill each shipment on its own line;
+    // their payments are attributed to the shipments in proportion to the line totals. Invoices without completed
+    // payments still yield one row (amount NULL) so the shipment counts as invoiced
+    private static final String INVOICE_PAYMENTS_SQL = """
+            WITH billed AS (
+                SELECT i.shipment_id, i.invoice_id, 1 AS share
+                FROM invoices i
+                WHERE i.shipment_id IS NOT NULL
+                UNION ALL
+                SELECT li.shipment_id, li.invoice_id, li.line_total / NULLIF(i.total_amount, 0)
+                FROM invoice_line_items li
+                JOIN invoices i ON i.invoice_id = li.invoice_id
+                WHERE li.shipment_id IS NOT NULL AND i.shipment_id IS NULL
+            )
+            SELECT b.shipment_id, b.invoice_id, ROUND(p.amount * b.share, 2) AS amount
+            FROM billed b
+            LEFT JOIN payments p ON p.invoice_id = b.invoice_id AND p.status = 'COMPLETED'
+            ORDER BY b.shipment_id, b.invoice_id
+            """;
+
+    private static final String INSERT_DISCREPANCY_SQL = """
+            INSERT INTO payment_reconciliation_discrepancies
+                (run_id, discrepancy_type, shipment_id, invoice_id, invoice_count, amount_paid,
+                 transaction_total, invoice_payment_total, difference)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String RUN_COLUMNS = """
+            run_id, status, triggered_by, shipments_scanned, transaction_rows, invoice_payment_rows,
+            discrepancy_count, discrepancies_stored, discrepancy_counts::text AS discrepancy_counts,
+            error_message, started_at, finished_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate streamTemplate;
+    private final TransactionTemplate writeTemplate;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService runExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${admin.reconciliation.fetch-size:10000}")
+    private int fetchSize;
+
+    @Value("${admin.reconciliation.write-batch-size:1000}")
+    private int writeBatchSize;
+
+    @Value("${admin.reconciliation.max-stored-discrepancies:100000}")
+    private long maxStoredDiscrepancies;
+
+    @Value("${admin.reconciliation.tolerance:0.00}")
+    private BigDecimal tolerance;
+
+    @Value("${admin.reconciliation.stale-after:6h}")
+    private Duration staleAfter;
+
+    public PaymentReconciliationService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+
+        this.streamTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.streamTemplate.setReadOnly(true);
+        this.streamTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        this.writeTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(cron = "${admin.reconciliation.cron:0 30 3 * * *}")
+    public void runScheduledReconciliation() {
+        try {
+            execute(startRun("scheduler"));
+        } catch (AdminException.InvalidStateException e) {
+            log.info("Skipping scheduled reconciliation: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Registers a run and executes it in the background. Fails when another
+     * run is still in progress.
+     */
+    public ReconciliationRunResponse startAsync(String triggeredBy) {
+        long runId = startRun(triggeredBy);
+        runExecutor.execute(() -> execute(runId));
+        return getRun(runId);
+    }
+
+    public ReconciliationRunResponse getRun(long runId) {
+        List<ReconciliationRunResponse> runs = jdbcTemplate.query(
+                "SELECT " + RUN_COLUMNS + " FROM payment_reconciliation_runs WHERE run_id = ?",
+                this::mapRun, runId);
+        if (runs.isEmpty()) {
+            throw new AdminException.NotFoundException("Reconciliation run not found: " + runId);
+        }
+        return runs.get(0);
+    }
+
+    public List<ReconciliationRunResponse> getRecentRuns(Integer limit) {
+        int pageSize = resolveLimit(limit);
+        return jdbcTemplate.query("SELECT " + RUN_COLUMNS
+                + " FROM payment_reconciliation_runs ORDER BY started_at DESC LIMIT ?", this::mapRun, pageSize);
+    }
+
+    /**
+     * Keyset-paginated discrepancies of one run, optionally filtered by type.
+     */
+    public CursorPage<DiscrepancyResponse> getDiscrepancies(long runId, String type, String cursor, Integer limit) {
+        int pageSize = resolveLimit(limit);
+        if (type != null) {
+            try {
+                DiscrepancyType.valueOf(type);
+            } catch (IllegalArgumentException e) {
+                throw new AdminException.ValidationException("Unknown discrepancy type: " + type);
+            }
+        }
+        String scope = "reconciliation:" + runId + (type != null ? ":" + type : "");
+        String[] position = CursorCodec.decode(cursor, scope, 1);
+
+        StringBuilder sql = new StringBuilder("""
+                SELECT discrepancy_id, discrepancy_type, shipment_id, invoice_id, invoice_count, amount_paid,
+                       transaction_total, invoice_payment_total, difference
+                FROM payment_reconciliation_discrepancies
+                WHERE run_id = ?
+                """);
+        List<Object> args = new ArrayList<>(List.of(runId));
+        if (type != null) {
+            sql.append(" AND discrepancy_type = ?");
+            args.add(type);
+        }
+        if (position != null) {
+            sql.append(" AND discrepancy_id > ?");
+            try {
+                args.add(Long.parseLong(position[0]));
+            } catch (NumberFormatException e) {
+                throw new AdminException.ValidationException("Invalid cursor");
+            }
+        }
+        sql.append(" ORDER BY discrepancy_id LIMIT ?");
+        args.add(pageSize + 1);
+
+        List<DiscrepancyResponse> items = jdbcTemplate.query(sql.toString(), (rs, i) -> DiscrepancyResponse.builder()
+                .discrepancyId(rs.getLong("discrepancy_id"))
+                .type(rs.getString("discrepancy_type"))
+                .shipmentId(rs.getObject("shipment_id", UUID.class))
+                .invoiceId(rs.getObject("invoice_id", UUID.class))
+                .invoiceCount(rs.getInt("invoice_count"))
+                .amountPaid(rs.getBigDecimal("amount_paid"))
+                .transactionTotal(rs.getBigDecimal("transaction_total"))
+                .invoicePaymentTotal(rs.getBigDecimal("invoice_payment_total"))
+                .difference(rs.getBigDecimal("difference"))
+                .build(), args.toArray());
+
+        boolean hasMore = items.size() > pageSize;
+        if (hasMore) {
+            items = items.subList(0, pageSize);
+        }
+        String nextCursor = hasMore ? CursorCodec.encode(scope, items.get(items.size() - 1).getDiscrepancyId())
+                : null;
+        return CursorPage.<DiscrepancyResponse>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .limit(pageSize)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runExecutor.shutdownNow();
+    }
+
+    // ==================== Internals ====================
+
+    private long startRun(String triggeredBy) {
+        // A run whose node died never finishes; free the single-run slot after a while
+        int abandoned = jdbcTemplate.update("""
+                UPDATE payment_reconciliation_runs
+                SET status = 'failed', error_message = 'Abandoned', finished_at = CURRENT_TIMESTAMP
+                WHERE status = 'running' AND started_at < ?
+                """, Timestamp.valueOf(LocalDateTime.now().minus(staleAfter)));
+        if (abandoned > 0) {
+            log.warn("Marked {} stale reconciliation run(s) as failed", abandoned);
+        }
+        try {
+            Long runId = jdbcTemplate.queryForObject("""
+                    INSERT INTO payment_reconciliation_runs (triggered_by) VALUES (?) RETURNING run_id
+                    """, Long.class, triggeredBy);
+            return runId;
+        } catch (DuplicateKeyException e) {
+            throw new AdminException.InvalidStateException("A reconciliation run is already in progress");
+        }
+    }
+
+    private void execute(long runId) {
+        long started = System.nanoTime();
+        DiscrepancyWriter writer = new DiscrepancyWriter(runId);
+        try {
+            Summary summary = streamTemplate.execute(status -> jdbcTemplate.execute(
+                    (ConnectionCallback<Summary>) con -> merge(con, writer)));
+            writer.flush();
+            jdbcTemplate.update("""
+                    UPDATE payment_reconciliation_runs
+                    SET status = 'completed', shipments_scanned = ?, transaction_rows = ?, invoice_payment_rows = ?,
+                        discrepancy_count = ?, discrepancies_stored = ?, discrepancy_counts = ?::jsonb,
+                        finished_at = CURRENT_TIMESTAMP
+                    WHERE run_id = ?
+                    """, summary.getShipmentsScanned(), summary.getTransactionRows(),
+                    summary.getInvoicePaymentRows(), summary.getDiscrepancyCount(), writer.stored,
+                    toJson(summary.getDiscrepancies()), runId);
+            log.info("Reconciliation run {} scanned {} shipments, {} transactions and {} invoice payments in {} ms: "
+                    + "{} discrepancies", runId, summary.getShipmentsScanned(), summary.getTransactionRows(),
+                    summary.getInvoicePaymentRows(), (System.nanoTime() - started) / 1_000_000,
+                    summary.getDiscrepancyCount());
+        } catch (RuntimeException e) {
+            log.error("Reconciliation run {} failed: {}", runId, e.getMessage(), e);
+            jdbcTemplate.update("""
+                    UPDATE payment_reconciliation_runs
+                    SET status = 'failed', discrepancies_stored = ?, error_message = ?, finished_at = CURRENT_TIMESTAMP
+                    WHERE run_id = ?
+                    """, writer.stored, String.valueOf(e.getMessage()), runId);
+        }
+    }
+
+    private Summary merge(Connection con, Consumer<Discrepancy> sink) throws SQLException {
+        // Each statement keeps its own portal open, so the three cursors can be read interleaved
+        try (PreparedStatement shipments = open(con, SHIPMENTS_SQL);
+                PreparedStatement transactions = open(con, TRANSACTIONS_SQL);
+                PreparedStatement invoicePayments = open(con, INVOICE_PAYMENTS_SQL);
+                ResultSet shipmentRows = shipments.executeQuery();
+                ResultSet transactionRows = transactions.executeQuery();
+                ResultSet invoicePaymentRows = invoicePayments.executeQuery()) {
+            return new PaymentReconciliationMerger(tolerance).merge(
+                    new ResultSetIterator<>(shipmentRows, (rs, i) -> new ShipmentBalance(
+                            rs.getObject("shipment_id", UUID.class), rs.getBigDecimal("amount_paid"))),
+                    new ResultSetIterator<>(transactionRows, (rs, i) -> new LedgerEntry(
+                            rs.getObject("shipment_id", UUID.class), null, rs.getBigDecimal("amount"))),
+                    new ResultSetIterator<>(invoicePaymentRows, (rs, i) -> new LedgerEntry(
+                            rs.getObject("shipment_id", UUID.class), rs.getObject("invoice_id", UUID.class),
+                            rs.getBigDecimal("amount"))),
+                    sink);
+        }
+    }
+
+    private PreparedStatement open(Connection con, String sql) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(fetchSize);
+        return ps;
+    }
+
+    private ReconciliationRunResponse mapRun(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp finishedAt = rs.getTimestamp("finished_at");
+        return ReconciliationRunResponse.builder()
+                .runId(rs.getLong("run_id"))
+                .status(rs.getString("status"))
+                .triggeredBy(rs.getString("triggered_by"))
+                .shipmentsScanned(rs.getLong("shipments_scanned"))
+                .transactionRows(rs.getLong("transaction_rows"))
+                .invoicePaymentRows(rs.getLong("invoice_payment_rows"))
+                .discrepancyCount(rs.getLong("discrepancy_count"))
+                .discrepanciesStored(rs.getLong("discrepancies_stored"))
+                .discrepancyCounts(fromJson(rs.getString("discrepancy_counts")))
+                .errorMessage(rs.getString("error_message"))
+                .startedAt(rs.getTimestamp("started_at").toLocalDateTime())
+                .finishedAt(finishedAt != null ? finishedAt.toLocalDateTime() : null)
+                .build();
+    }
+
+    private String toJson(Map<DiscrepancyType, Long> counts) {
+        Map<String, Long> byName = new LinkedHashMap<>();
+        counts.forEach((type, count) -> byName.put(type.name(), count));
+        try {
+            return objectMapper.writeValueAsString(byName);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize discrepancy counts", e);
+        }
+    }
+
+    private Map<String, Long> fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<Map<String, Long>>() {
+            });
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable discrepancy counts: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private int resolveLimit(Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_LIMIT;
+        if (pageSize < 1 || pageSize > MAX_LIMIT) {
+            throw new AdminException.ValidationException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        return pageSize;
+    }
+
+    /** Buffers discrepancies and writes them in batches outside the read-only snapshot. */
+    private final class DiscrepancyWriter implements Consumer<Discrepancy> {
+        private final long runId;
+        private final List<Discrepancy> buffer = new ArrayList<>();
+        private long stored;
+
+        DiscrepancyWriter(long runId) {
+            this.runId = runId;
+        }
+
+        @Override
+        public void accept(Discrepancy discrepancy) {
+            if (stored + buffer.size() >= maxStoredDiscrepancies) {
+                return;
+            }
+            buffer.add(discrepancy);
+            if (buffer.size() >= writeBatchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            writeTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_DISCREPANCY_SQL, buffer,
+                    buffer.size(), (ps, d) -> {
+                        ps.setLong(1, runId);
+                        ps.setString(2, d.getType().name());
+                        ps.setObject(3, d.getShipmentId());
+                        ps.setObject(4, d.getInvoiceId());
+                        ps.setInt(5, d.getInvoiceCount());
+                        ps.setBigDecimal(6, d.getAmountPaid());
+                        ps.setBigDecimal(7, d.getTransactionTotal());
+                        ps.setBigDecimal(8, d.getInvoicePaymentTotal());
+                        ps.setBigDecimal(9, d.getDifference());
+                    }));
+            stored += buffer.size();
+            buffer.clear();
+        }
+    }
+
+    private static final class ResultSetIterator<T> implements Iterator<T> {
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+        private Boolean hasNext;
+        private int rowNum;
+
+        ResultSetIterator(ResultSet rs, RowMapper<T> mapper) {
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (hasNext == null) {
+                try {
+                    hasNext = rs.next();
+                } catch (SQLException e) {
+                    throw new DataRetrievalFailureException("Failed to read reconciliation stream", e);
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasNext = null;
+            try {
+                return mapper.mapRow(rs, rowNum++);
+            } catch (SQLException e) {
+                throw new DataRetrievalFailureException("Failed to read reconciliation stream", e);
+            }
+        }
+    }
+}
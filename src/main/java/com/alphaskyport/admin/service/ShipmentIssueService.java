@@ -46,19 +46,15 @@ public class ShipmentIssueService {
 
         @Transactional(readOnly = true)
         public IssueListResponse getIssues(IssueStatus status, Pageable pageable) {
-                Page<ShipmentIssue> page;
+                Page<IssueSummary> page;
                 if (status != null) {
-                        page = issueRepository.findByStatus(status, pageable);
+                        page = issueRepository.findSummariesByStatus(status, pageable);
                 } else {
-                        page = issueRepository.findByStatusNot(IssueStatus.CLOSED, pageable);
+                        page = issueRepository.findSummariesByStatusNot(IssueStatus.CLOSED, pageable);
                 }
 
-                List<IssueSummary> summaries = page.getContent().stream()
-                                .map(this::mapToSummary)
-                                .collect(Collectors.toList());
-
                 return IssueListResponse.builder()
-                                .issues(summaries)
+                                .issues(page.getContent())
                                 .page(page.getNumber())
                                 .size(page.getSize())
                                 .totalElements(page.getTotalElements())
@@ -68,10 +64,7 @@ public class ShipmentIssueService {
 
         @Transactional(readOnly = true)
         public IssueListResponse getIssuesByShipment(UUID shipmentId) {
-                List<ShipmentIssue> issues = issueRepository.findByShipment_ShipmentId(shipmentId);
-                List<IssueSummary> summaries = issues.stream()
-                                .map(this::mapToSummary)
-                                .collect(Collectors.toList());
+                List<IssueSummary> summaries = issueRepository.findSummariesByShipment(shipmentId);
 
                 return IssueListResponse.builder()
                                 .issues(summaries)
@@ -84,15 +77,11 @@ public class ShipmentIssueService {
 
         @Transactional(readOnly = true)
         public IssueListResponse getMyIssues(UUID adminId, Pageable pageable) {
-                Page<ShipmentIssue> page = issueRepository.findByAssignedTo_AdminIdAndStatusNot(
+                Page<IssueSummary> page = issueRepository.findSummariesByAssigneeAndStatusNot(
                                 adminId, IssueStatus.CLOSED, pageable);
 
-                List<IssueSummary> summaries = page.getContent().stream()
-                                .map(this::mapToSummary)
-                                .collect(Collectors.toList());
-
                 return IssueListResponse.builder()
-                                .issues(summaries)
+                                .issues(page.getContent())
                                 .page(page.getNumber())
                                 .size(page.getSize())
                                 .totalElements(page.getTotalElements())
@@ -102,14 +91,10 @@ public class ShipmentIssueService {
 
         @Transactional(readOnly = true)
         public IssueListResponse getOpenIssuesBySeverity(Pageable pageable) {
-                Page<ShipmentIssue> page = issueRepository.findOpenIssuesBySeverity(pageable);
-
-                List<IssueSummary> summaries = page.getContent().stream()
-                                .map(this::mapToSummary)
-                                .collect(Collectors.toList());
+                Page<IssueSummary> page = issueRepository.findOpenSummariesBySeverity(pageable);
 
                 return IssueListResponse.builder()
-                                .issues(summaries)
+                                .issues(page.getContent())
                                 .page(page.getNumber())
                                 .size(page.getSize())
                                 .totalElements(page.getTotalElements())
@@ -301,20 +286,6 @@ public class ShipmentIssueService {
                                 .build();
         }
 
-        private IssueSummary mapToSummary(ShipmentIssue issue) {
-                return IssueSummary.builder()
-                                .issueId(issue.getIssueId())
-                                .trackingNumber(issue.getShipment().getTrackingNumber())
-                                .issueType(issue.getIssueType())
-                                .severity(issue.getSeverity())
-                                .title(issue.getTitle())
-                                .status(issue.getStatus())
-                                .assignedToName(issue.getAssignedTo() != null ? issue.getAssignedTo().getFullName()
-                                                : null)
-                                .createdAt(issue.getCreatedAt())
-                                .build();
-        }
-
         private AdminSummary mapAdminSummary(AdminUser admin) {
                 if (admin == null)
                         return null;
@@ -0,0 +1,78 @@
+package com.alphaskyport.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Authenticates carrier and GPS feeds by the X-Api-Key header.
+ *
+ * Keys are configured as comma-separated carrier=key pairs. A matching key
+ * authenticates the request as "carrier:&lt;name&gt;" with the tracking:ingest
+ * authority. Not a component: it is only installed in the tracking
+ * ingestion filter chain.
+ */
+@Slf4j
+public class CarrierApiKeyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Api-Key";
+    public static final String AUTHORITY = "tracking:ingest";
+
+    private final Map<String, byte[]> keysByCarrier = new LinkedHashMap<>();
+
+    public CarrierApiKeyFilter(String configuredKeys) {
+        if (!StringUtils.hasText(configuredKeys)) {
+            return;
+        }
+        for (String entry : configuredKeys.split(",")) {
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                throw new IllegalArgumentException("Carrier API keys must be carrier=key pairs");
+            }
+            keysByCarrier.put(parts[0].trim(), parts[1].trim().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String presented = request.getHeader(HEADER);
+        if (StringUtils.hasText(presented)) {
+            String carrier = match(presented.getBytes(StandardCharsets.UTF_8));
+            if (carrier != null) {
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        "carrier:" + carrier, null, List.of(new SimpleGrantedAuthority(AUTHORITY)));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            } else {
+                log.warn("Rejected unknown carrier API key from {}", request.getRemoteAddr());
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private String match(byte[] presented) {
+        String matched = null;
+        // Compare against every key in constant time so timing does not reveal which prefix matched
+        for (Map.Entry<String, byte[]> entry : keysByCarrier.entrySet()) {
+            if (MessageDigest.isEqual(entry.getValue(), presented) && matched == null) {
+                matched = entry.getKey();
+            }
+        }
+        return matched;
+    }
+}
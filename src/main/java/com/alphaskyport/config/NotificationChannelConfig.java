@@ -0,0 +1,66 @@
+package com.alphaskyport.config;
+
+import com.alphaskyport.logistics.notification.BulkheadedNotificationChannel;
+import com.alphaskyport.logistics.notification.FileNotificationProvider;
+import com.alphaskyport.logistics.notification.NotificationProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * External notification channels, each behind its own bulkhead. Channels are
+ * switched on by admin.notifications.{channel}.enabled and tuned under
+ * logistics.notifications.channels.{channel}.*. Until real provider clients
+ * are wired in, every channel delivers through the local file stand-in.
+ */
+@Configuration
+public class NotificationChannelConfig {
+
+    private static final String PREFIX = "logistics.notifications.channels.";
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "admin.notifications.email.enabled", havingValue = "true")
+    public BulkheadedNotificationChannel emailNotificationChannel(Environment env, ObjectMapper objectMapper) {
+        return channel("email", env, objectMapper);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "admin.notifications.sms.enabled", havingValue = "true")
+    public BulkheadedNotificationChannel smsNotificationChannel(Environment env, ObjectMapper objectMapper) {
+        return channel("sms", env, objectMapper);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "admin.notifications.slack.enabled", havingValue = "true")
+    public BulkheadedNotificationChannel slackNotificationChannel(Environment env, ObjectMapper objectMapper) {
+        return channel("slack", env, objectMapper);
+    }
+
+    private BulkheadedNotificationChannel channel(String name, Environment env, ObjectMapper objectMapper) {
+        String prefix = PREFIX + name + ".";
+        int batchSize = env.getProperty(prefix + "batch-size", Integer.class, 1);
+
+        NotificationProvider provider = new FileNotificationProvider(name,
+                Paths.get(env.getProperty(prefix + "stub.directory", "/var/alphaskyport/notifications")),
+                batchSize,
+                env.getProperty(prefix + "stub.latency", Duration.class, Duration.ZERO),
+                env.getProperty(prefix + "stub.failure-rate", Double.class, 0.0),
+                objectMapper);
+
+        BulkheadedNotificationChannel.Settings settings = BulkheadedNotificationChannel.Settings.builder()
+                .concurrency(env.getProperty(prefix + "concurrency", Integer.class, 4))
+                .queueCapacity(env.getProperty(prefix + "queue-capacity", Integer.class, 1000))
+                .permitsPerSecond(env.getProperty(prefix + "rate-per-second", Double.class, 100.0))
+                .burst(env.getProperty(prefix + "burst", Integer.class, 100))
+                .maxBatchSize(batchSize)
+                .failureThreshold(env.getProperty(prefix + "breaker.failure-threshold", Integer.class, 5))
+                .openDuration(env.getProperty(prefix + "breaker.open-duration", Duration.class, Duration.ofSeconds(30)))
+                .build();
+        return new BulkheadedNotificationChannel(name, provider, settings);
+    }
+}
@@ -1,5 +1,7 @@
 package com.alphaskyport.config;
 
+import com.alphaskyport.admin.security.JwtAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -7,23 +9,34 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.cors.CorsConfigurationSource;
 
+import java.util.Set;
+
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
 public class PublicSecurityConfig {
 
+    private static final Set<String> INGEST_AUTHORITIES = Set.of(CarrierApiKeyFilter.AUTHORITY, "shipments:write",
+            "shipments:*", "*");
+
     private final CorsConfigurationSource corsConfigurationSource;
+    private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
     @Bean
     @Order(2) // Run after AdminSecurityConfig (Order 1)
     public SecurityFilterChain publicSecurityFilterChain(HttpSecurity http) throws Exception {
         http
-                .securityMatcher("/api/shipments/**", "/api/quotes/**", "/api/public/**") // Define public/API scope
+                .securityMatcher("/api/shipments/**", "/api/quotes/**", "/api/public/**", "/api/notifications/**",
+                        "/api/webhooks/**") // Define public/API scope
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -31,8 +44,45 @@ public class PublicSecurityConfig {
                         .requestMatchers("/api/shipments/tracking/**").permitAll() // Explicitly allow tracking
                         .requestMatchers("/api/public/**").permitAll() // Allow public pricing/booking
                         .requestMatchers("/api/shipments/**").authenticated() // Secure other shipment endpoints
-                        .anyRequest().authenticated());
+                        .anyRequest().authenticated())
+                // Admin tokens are honoured here too; UserAccessGuard decides what they may see
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
+
+    /**
+     * Carrier and GPS feeds write tracking rows and move shipment statuses, so
+     * they need a carrier API key or an admin token allowed to write shipments.
+     */
+    @Bean
+    @Order(3)
+    public SecurityFilterChain trackingIngestionSecurityFilterChain(HttpSecurity http,
+            @Value("${logistics.tracking.ingest.api-keys:}") String carrierApiKeys) throws Exception {
+        http
+                .securityMatcher("/api/tracking/**")
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(auth -> auth
+                        .anyRequest().access((authentication, context) ->
+                                new AuthorizationDecision(canIngest(authentication.get()))))
+                .addFilterBefore(new CarrierApiKeyFilter(carrierApiKeys), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .exceptionHandling(ex -> ex
+                        .authenticationEntryPoint((request, response, authException) -> {
+                            response.setContentType("application/json");
+                            response.setStatus(401);
+                            response.getWriter().write("{\"error\":\"Unauthorized\",\"message\":\""
+                                    + CarrierApiKeyFilter.HEADER + " or admin token required\"}");
+                        }));
+
+        return http.build();
+    }
+
+    private static boolean canIngest(Authentication authentication) {
+        return authentication != null && authentication.isAuthenticated()
+                && authentication.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .anyMatch(INGEST_AUTHORITIES::contains);
+    }
 }
@@ -0,0 +1,55 @@
+package com.alphaskyport.config;
+
+import com.alphaskyport.admin.model.AdminUser;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+
+/**
+ * Ownership check for customer endpoints addressed by a user id in the path.
+ *
+ * The caller must be that user, or an admin holding the matching users
+ * permission. Anything else is rejected before the service is reached, so a
+ * caller cannot read or change another customer's data by editing the URL.
+ */
+@Component
+public class UserAccessGuard {
+
+    public void checkRead(UUID userId) {
+        check(userId, "users:read");
+    }
+
+    public void checkWrite(UUID userId) {
+        check(userId, "users:write");
+    }
+
+    private void check(UUID userId, String adminPermission) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
+        }
+
+        if (authentication.getPrincipal() instanceof AdminUser) {
+            if (hasPermission(authentication, adminPermission)) {
+                return;
+            }
+        } else if (userId.toString().equals(authentication.getName())) {
+            return;
+        }
+        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access to this user's data is not allowed");
+    }
+
+    private static boolean hasPermission(Authentication authentication, String required) {
+        String wildcard = required.substring(0, required.indexOf(':')) + ":*";
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(p -> p.equals(required) || p.equals(wildcard) || p.equals("*"));
+    }
+}
@@ -0,0 +1,33 @@
+package com.alphaskyport.logistics.archive;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One row of shipment_tracking_events as stored in a cold archive file.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedTrackingEvent {
+    private long eventId;
+    private UUID shipmentId;
+    private String eventStatus;
+    private String eventLocation;
+    private Integer eventCountryId;
+    private String eventDescription;
+    private BigDecimal latitude;
+    private BigDecimal longitude;
+    private LocalDateTime eventTimestamp;
+    private String eventSource;
+    private String externalEventId;
+    private String createdBy;
+    private LocalDateTime createdAt;
+}
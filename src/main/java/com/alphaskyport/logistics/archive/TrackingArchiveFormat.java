@@ -0,0 +1,154 @@
+package com.alphaskyport.logistics.archive;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Layout of a tracking event archive file:
+ *
+ * <pre>
+ * "STEA" version:int
+ * row group*      one gzip-compressed chunk per column, rows sorted by (shipment_id, event_timestamp)
+ * footer          groupCount:int, then per group: offset:long rowCount:int columnLengths:int[13]
+ *                 minShipment:uuid maxShipment:uuid minTimestamp:long maxTimestamp:long
+ * footerOffset:long "STEA"
+ * </pre>
+ *
+ * Timestamps are epoch microseconds (UTC wall clock, matching the TIMESTAMP
+ * column), coordinates are unscaled longs at scale 8. UUIDs compare unsigned,
+ * the same order PostgreSQL uses, so file and row group ranges agree with the
+ * database's min/max values.
+ */
+public final class TrackingArchiveFormat {
+
+    public static final byte[] MAGIC = "STEA".getBytes(StandardCharsets.US_ASCII);
+    public static final int VERSION = 1;
+    public static final String FILE_EXTENSION = ".stea";
+
+    static final int COL_SHIPMENT_ID = 0;
+    static final int COL_EVENT_TIMESTAMP = 1;
+    static final int COL_EVENT_ID = 2;
+    static final int COL_STATUS = 3;
+    static final int COL_LOCATION = 4;
+    static final int COL_COUNTRY_ID = 5;
+    static final int COL_DESCRIPTION = 6;
+    static final int COL_LATITUDE = 7;
+    static final int COL_LONGITUDE = 8;
+    static final int COL_SOURCE = 9;
+    static final int COL_EXTERNAL_ID = 10;
+    static final int COL_CREATED_BY = 11;
+    static final int COL_CREATED_AT = 12;
+    static final int COLUMN_COUNT = 13;
+
+    static final long NULL_LONG = Long.MIN_VALUE;
+    static final int COORDINATE_SCALE = 8;
+
+    private TrackingArchiveFormat() {
+    }
+
+    public static int compareUnsigned(UUID a, UUID b) {
+        int cmp = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return cmp != 0 ? cmp : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    static long toMicros(LocalDateTime value) {
+        if (value == null) {
+            return NULL_LONG;
+        }
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        if (micros == NULL_LONG) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    static long toUnscaled(BigDecimal coordinate) {
+        return coordinate == null ? NULL_LONG : coordinate.setScale(COORDINATE_SCALE).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromUnscaled(long value) {
+        return value == NULL_LONG ? null : BigDecimal.valueOf(value, COORDINATE_SCALE);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeUuid(DataOutputStream out, UUID value) throws IOException {
+        out.writeLong(value.getMostSignificantBits());
+        out.writeLong(value.getLeastSignificantBits());
+    }
+
+    static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    /** Location and min/max statistics of one row group. */
+    @Data
+    @AllArgsConstructor
+    public static class RowGroupIndex {
+        private long offset;
+        private int rowCount;
+        private int[] columnLengths;
+        private UUID minShipmentId;
+        private UUID maxShipmentId;
+        private long minTimestamp;
+        private long maxTimestamp;
+
+        public boolean mayContain(UUID shipmentId) {
+            return compareUnsigned(shipmentId, minShipmentId) >= 0 && compareUnsigned(shipmentId, maxShipmentId) <= 0;
+        }
+
+        long columnOffset(int column) {
+            long position = offset;
+            for (int i = 0; i < column; i++) {
+                position += columnLengths[i];
+            }
+            return position;
+        }
+    }
+
+    /** File-level statistics returned once an archive has been written. */
+    @Data
+    @AllArgsConstructor
+    public static class ArchiveSummary {
+        private long rowCount;
+        private int rowGroupCount;
+        private long fileSize;
+        private String sha256;
+        private long eventIdSum;
+        private UUID minShipmentId;
+        private UUID maxShipmentId;
+        private LocalDateTime minEventTimestamp;
+        private LocalDateTime maxEventTimestamp;
+    }
+}
@@ -0,0 +1,242 @@
+package com.alphaskyport.logistics.archive;
+
+import com.alphaskyport.logistics.archive.TrackingArchiveFormat.RowGroupIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static com.alphaskyport.logistics.archive.TrackingArchiveFormat.*;
+
+/**
+ * Random-access reader for tracking archive files. Lookups use the row group
+ * min/max index to skip groups, and within a group only decompress the
+ * shipment_id column unless it contains matching rows.
+ */
+public class TrackingArchiveReader implements Closeable {
+
+    private final FileChannel channel;
+    private final List<RowGroupIndex> groups;
+
+    public TrackingArchiveReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.groups = readFooter();
+    }
+
+    public List<RowGroupIndex> getRowGroups() {
+        return groups;
+    }
+
+    public List<ArchivedTrackingEvent> findByShipment(UUID shipmentId) throws IOException {
+        List<ArchivedTrackingEvent> result = new ArrayList<>();
+        for (RowGroupIndex group : groups) {
+            if (!group.mayContain(shipmentId)) {
+                continue;
+            }
+            UUID[] shipments = readUuidColumn(group);
+            int from = firstIndexOf(shipments, shipmentId);
+            if (from < 0) {
+                continue;
+            }
+            int to = from;
+            while (to < shipments.length && shipments[to].equals(shipmentId)) {
+                to++;
+            }
+            result.addAll(readRows(group, shipments, from, to));
+        }
+        return result;
+    }
+
+    /**
+     * Reads every row group and returns {rowCount, sum(event_id)} for
+     * comparison against the source table.
+     */
+    public long[] scanTotals() throws IOException {
+        long rows = 0;
+        long eventIdSum = 0;
+        for (RowGroupIndex group : groups) {
+            try (DataInputStream in = column(group, COL_EVENT_ID)) {
+                for (int i = 0; i < group.getRowCount(); i++) {
+                    eventIdSum += in.readLong();
+                }
+            }
+            rows += group.getRowCount();
+        }
+        return new long[] { rows, eventIdSum };
+    }
+
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ==================== Internals ====================
+
+    private List<RowGroupIndex> readFooter() throws IOException {
+        long size = channel.size();
+        int trailerLength = 8 + MAGIC.length;
+        if (size < MAGIC.length + 4 + 4 + trailerLength) {
+            throw new IOException("Not a tracking archive: file too short");
+        }
+        ByteBuffer trailer = readAt(size - trailerLength, trailerLength);
+        long footerOffset = trailer.getLong();
+        byte[] magic = new byte[MAGIC.length];
+        trailer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a tracking archive: bad trailer");
+        }
+        ByteBuffer header = readAt(0, MAGIC.length + 4);
+        header.position(MAGIC.length);
+        if (header.getInt() != VERSION) {
+            throw new IOException("Unsupported tracking archive version");
+        }
+
+        ByteBuffer footer = readAt(footerOffset, (int) (size - trailerLength - footerOffset));
+        int count = footer.getInt();
+        List<RowGroupIndex> index = new ArrayList<>(count);
+        for (int g = 0; g < count; g++) {
+            long offset = footer.getLong();
+            int rows = footer.getInt();
+            int[] lengths = new int[COLUMN_COUNT];
+            for (int c = 0; c < COLUMN_COUNT; c++) {
+                lengths[c] = footer.getInt();
+            }
+            UUID min = new UUID(footer.getLong(), footer.getLong());
+            UUID max = new UUID(footer.getLong(), footer.getLong());
+            index.add(new RowGroupIndex(offset, rows, lengths, min, max, footer.getLong(), footer.getLong()));
+        }
+        return index;
+    }
+
+    private UUID[] readUuidColumn(RowGroupIndex group) throws IOException {
+        UUID[] values = new UUID[group.getRowCount()];
+        try (DataInputStream in = column(group, COL_SHIPMENT_ID)) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readUuid(in);
+            }
+        }
+        return values;
+    }
+
+    private int firstIndexOf(UUID[] sorted, UUID key) {
+        int low = 0;
+        int high = sorted.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareUnsigned(sorted[mid], key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                if (cmp == 0) {
+                    found = mid;
+                }
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private List<ArchivedTrackingEvent> readRows(RowGroupIndex group, UUID[] shipments, int from, int to)
+            throws IOException {
+        List<ArchivedTrackingEvent> rows = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            rows.add(ArchivedTrackingEvent.builder().shipmentId(shipments[i]).build());
+        }
+
+        for (int column = 1; column < COLUMN_COUNT; column++) {
+            try (DataInputStream in = column(group, column)) {
+                for (int i = 0; i < to; i++) {
+                    if (i < from) {
+                        skipValue(in, column);
+                    } else {
+                        readValue(in, column, rows.get(i - from));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private void skipValue(DataInputStream in, int column) throws IOException {
+        switch (column) {
+            case COL_STATUS, COL_LOCATION, COL_DESCRIPTION, COL_SOURCE, COL_EXTERNAL_ID, COL_CREATED_BY -> {
+                int length = in.readInt();
+                if (length > 0) {
+                    in.skipNBytes(length);
+                }
+            }
+            default -> in.skipNBytes(8);
+        }
+    }
+
+    private void readValue(DataInputStream in, int column, ArchivedTrackingEvent e) throws IOException {
+        switch (column) {
+            case COL_EVENT_TIMESTAMP -> e.setEventTimestamp(fromMicros(in.readLong()));
+            case COL_EVENT_ID -> e.setEventId(in.readLong());
+            case COL_STATUS -> e.setEventStatus(readString(in));
+            case COL_LOCATION -> e.setEventLocation(readString(in));
+            case COL_COUNTRY_ID -> {
+                long value = in.readLong();
+                e.setEventCountryId(value == NULL_LONG ? null : (int) value);
+            }
+            case COL_DESCRIPTION -> e.setEventDescription(readString(in));
+            case COL_LATITUDE -> e.setLatitude(fromUnscaled(in.readLong()));
+            case COL_LONGITUDE -> e.setLongitude(fromUnscaled(in.readLong()));
+            case COL_SOURCE -> e.setEventSource(readString(in));
+            case COL_EXTERNAL_ID -> e.setExternalEventId(readString(in));
+            case COL_CREATED_BY -> e.setCreatedBy(readString(in));
+            case COL_CREATED_AT -> e.setCreatedAt(fromMicros(in.readLong()));
+            default -> throw new IllegalArgumentException("Unknown column " + column);
+        }
+    }
+
+    private DataInputStream column(RowGroupIndex group, int column) throws IOException {
+        ByteBuffer chunk = readAt(group.columnOffset(column), group.getColumnLengths()[column]);
+        return new DataInputStream(new GZIPInputStream(
+                new ByteArrayInputStream(chunk.array(), chunk.arrayOffset(), chunk.remaining()), 1 << 14));
+    }
+
+    private ByteBuffer readAt(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of tracking archive");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
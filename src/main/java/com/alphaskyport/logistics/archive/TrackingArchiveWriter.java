@@ -0,0 +1,178 @@
+package com.alphaskyport.logistics.archive;
+
+import com.alphaskyport.logistics.archive.TrackingArchiveFormat.ArchiveSummary;
+import com.alphaskyport.logistics.archive.TrackingArchiveFormat.RowGroupIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static com.alphaskyport.logistics.archive.TrackingArchiveFormat.*;
+
+/**
+ * Streams tracking events into an archive file. Rows must be appended in
+ * (shipment_id, event_timestamp) order; they are buffered one row group at a
+ * time and each column of the group is compressed independently.
+ */
+public class TrackingArchiveWriter implements Closeable {
+
+    private final DataOutputStream out;
+    private final MessageDigest digest;
+    private final int rowGroupSize;
+    private final List<ArchivedTrackingEvent> buffer;
+    private final List<RowGroupIndex> groups = new ArrayList<>();
+
+    private long position;
+    private long rowCount;
+    private long eventIdSum;
+    private ArchivedTrackingEvent previous;
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private ArchiveSummary summary;
+
+    public TrackingArchiveWriter(Path file, int rowGroupSize) throws IOException {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        OutputStream stream = new DigestOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), 1 << 16), digest);
+        this.out = new DataOutputStream(stream);
+        this.rowGroupSize = rowGroupSize;
+        this.buffer = new ArrayList<>(rowGroupSize);
+
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        position = MAGIC.length + 4;
+    }
+
+    public void append(ArchivedTrackingEvent event) throws IOException {
+        if (previous != null) {
+            int cmp = compareUnsigned(previous.getShipmentId(), event.getShipmentId());
+            if (cmp > 0 || (cmp == 0 && previous.getEventTimestamp().isAfter(event.getEventTimestamp()))) {
+                throw new IllegalStateException("Events must be appended in (shipment_id, event_timestamp) order");
+            }
+        }
+        previous = event;
+        buffer.add(event);
+        if (buffer.size() >= rowGroupSize) {
+            flushGroup();
+        }
+    }
+
+    /**
+     * Writes the footer and returns file statistics. The underlying stream is
+     * flushed but durability (fsync, atomic rename) is left to the caller.
+     */
+    public ArchiveSummary finish() throws IOException {
+        if (summary != null) {
+            return summary;
+        }
+        flushGroup();
+
+        long footerOffset = position;
+        out.writeInt(groups.size());
+        for (RowGroupIndex group : groups) {
+            out.writeLong(group.getOffset());
+            out.writeInt(group.getRowCount());
+            for (int length : group.getColumnLengths()) {
+                out.writeInt(length);
+            }
+            writeUuid(out, group.getMinShipmentId());
+            writeUuid(out, group.getMaxShipmentId());
+            out.writeLong(group.getMinTimestamp());
+            out.writeLong(group.getMaxTimestamp());
+        }
+        out.writeLong(footerOffset);
+        out.write(MAGIC);
+        out.flush();
+        long fileSize = footerOffset + footerLength();
+
+        UUID minShipment = groups.isEmpty() ? null : groups.get(0).getMinShipmentId();
+        UUID maxShipment = groups.isEmpty() ? null : groups.get(groups.size() - 1).getMaxShipmentId();
+        summary = new ArchiveSummary(rowCount, groups.size(), fileSize,
+                HexFormat.of().formatHex(digest.digest()), eventIdSum, minShipment, maxShipment,
+                rowCount > 0 ? fromMicros(minTimestamp) : null, rowCount > 0 ? fromMicros(maxTimestamp) : null);
+        return summary;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private long footerLength() {
+        return 4L + groups.size() * (8L + 4L + 4L * COLUMN_COUNT + 16L + 16L + 8L + 8L) + 8L + MAGIC.length;
+    }
+
+    private void flushGroup() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        int[] lengths = new int[COLUMN_COUNT];
+        long groupOffset = position;
+        long groupMinTs = Long.MAX_VALUE;
+        long groupMaxTs = Long.MIN_VALUE;
+
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(buffer.size() * 16);
+            try (DataOutputStream col = new DataOutputStream(new GZIPOutputStream(bytes, 1 << 14))) {
+                for (ArchivedTrackingEvent e : buffer) {
+                    writeValue(col, column, e);
+                }
+            }
+            byte[] chunk = bytes.toByteArray();
+            out.write(chunk);
+            lengths[column] = chunk.length;
+            position += chunk.length;
+        }
+
+        for (ArchivedTrackingEvent e : buffer) {
+            long ts = toMicros(e.getEventTimestamp());
+            groupMinTs = Math.min(groupMinTs, ts);
+            groupMaxTs = Math.max(groupMaxTs, ts);
+            eventIdSum += e.getEventId();
+        }
+        minTimestamp = Math.min(minTimestamp, groupMinTs);
+        maxTimestamp = Math.max(maxTimestamp, groupMaxTs);
+        rowCount += buffer.size();
+
+        groups.add(new RowGroupIndex(groupOffset, buffer.size(), lengths,
+                buffer.get(0).getShipmentId(), buffer.get(buffer.size() - 1).getShipmentId(),
+                groupMinTs, groupMaxTs));
+        buffer.clear();
+    }
+
+    private void writeValue(DataOutputStream col, int column, ArchivedTrackingEvent e) throws IOException {
+        switch (column) {
+            case COL_SHIPMENT_ID -> writeUuid(col, e.getShipmentId());
+            case COL_EVENT_TIMESTAMP -> col.writeLong(toMicros(e.getEventTimestamp()));
+            case COL_EVENT_ID -> col.writeLong(e.getEventId());
+            case COL_STATUS -> writeString(col, e.getEventStatus());
+            case COL_LOCATION -> writeString(col, e.getEventLocation());
+            case COL_COUNTRY_ID -> col.writeLong(e.getEventCountryId() != null ? e.getEventCountryId() : NULL_LONG);
+            case COL_DESCRIPTION -> writeString(col, e.getEventDescription());
+            case COL_LATITUDE -> col.writeLong(toUnscaled(e.getLatitude()));
+            case COL_LONGITUDE -> col.writeLong(toUnscaled(e.getLongitude()));
+            case COL_SOURCE -> writeString(col, e.getEventSource());
+            case COL_EXTERNAL_ID -> writeString(col, e.getExternalEventId());
+            case COL_CREATED_BY -> writeString(col, e.getCreatedBy());
+            case COL_CREATED_AT -> col.writeLong(toMicros(e.getCreatedAt()));
+            default -> throw new IllegalArgumentException("Unknown column " + column);
+        }
+    }
+}
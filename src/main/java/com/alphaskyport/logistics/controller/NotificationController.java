@@ -0,0 +1,79 @@
+package com.alphaskyport.logistics.controller;
+
+import com.alphaskyport.config.UserAccessGuard;
+import com.alphaskyport.logistics.service.NotificationDigestService;
+import com.alphaskyport.logistics.service.NotificationDigestService.DigestPreference;
+import com.alphaskyport.logistics.service.NotificationInboxService;
+import com.alphaskyport.logistics.service.NotificationInboxService.InboxPage;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/notifications")
+@RequiredArgsConstructor
+@Tag(name = "Notifications", description = "In-app notification inbox APIs")
+public class NotificationController {
+
+    private final NotificationInboxService inboxService;
+    private final NotificationDigestService digestService;
+    private final UserAccessGuard userAccessGuard;
+
+    @GetMapping("/user/{userId}")
+    @Operation(summary = "List notifications", description = "Keyset-paginated in-app notifications, newest first")
+    public ResponseEntity<InboxPage> getInbox(
+            @PathVariable UUID userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean unreadOnly) {
+        userAccessGuard.checkRead(userId);
+        return ResponseEntity.ok(inboxService.getInbox(userId, cursor, limit, unreadOnly));
+    }
+
+    @GetMapping("/user/{userId}/unread-count")
+    @Operation(summary = "Get unread count", description = "Unread badge count served from a Redis counter")
+    public ResponseEntity<Map<String, Long>> getUnreadCount(@PathVariable UUID userId) {
+        userAccessGuard.checkRead(userId);
+        return ResponseEntity.ok(Map.of("unreadCount", inboxService.getUnreadCount(userId)));
+    }
+
+    @PostMapping("/user/{userId}/read")
+    @Operation(summary = "Mark notifications read", description = "Marks the given notifications read in one batch")
+    public ResponseEntity<Map<String, Integer>> markRead(
+            @PathVariable UUID userId,
+            @RequestBody List<Long> notificationIds) {
+        userAccessGuard.checkWrite(userId);
+        return ResponseEntity.ok(Map.of("updated", inboxService.markRead(userId, notificationIds)));
+    }
+
+    @PostMapping("/user/{userId}/read-all")
+    @Operation(summary = "Mark all read", description = "Marks every unread notification of the user read")
+    public ResponseEntity<Map<String, Integer>> markAllRead(@PathVariable UUID userId) {
+        userAccessGuard.checkWrite(userId);
+        return ResponseEntity.ok(Map.of("updated", inboxService.markAllRead(userId)));
+    }
+
+    @GetMapping("/user/{userId}/digest")
+    @Operation(summary = "Get digest preference", description = "Digest frequency and notification channels of the user")
+    public ResponseEntity<DigestPreference> getDigestPreference(@PathVariable UUID userId) {
+        userAccessGuard.checkRead(userId);
+        return ResponseEntity.ok(digestService.getPreference(userId));
+    }
+
+    @PutMapping("/user/{userId}/digest")
+    @Operation(summary = "Update digest preference",
+            description = "Switches the user between immediate, hourly and daily notification digests "
+                    + "and selects the channels notifications are sent on")
+    public ResponseEntity<DigestPreference> updateDigestPreference(
+            @PathVariable UUID userId,
+            @RequestBody DigestPreference request) {
+        userAccessGuard.checkWrite(userId);
+        return ResponseEntity.ok(digestService.updatePreference(userId, request));
+    }
+}
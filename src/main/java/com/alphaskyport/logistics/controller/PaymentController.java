@@ -1,6 +1,7 @@
 package com.alphaskyport.logistics.controller;
 
 import com.alphaskyport.logistics.model.PaymentTransaction;
+import com.alphaskyport.logistics.service.PaymentProcessor;
 import com.alphaskyport.logistics.service.PaymentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -20,7 +21,8 @@ public class PaymentController {
     private final PaymentService paymentService;
 
     @PostMapping("/process")
-    @Operation(summary = "Process payment", description = "Process a payment for a shipment with idempotency support")
+    @Operation(summary = "Process payment", description = "Accepts a payment for a shipment with idempotency support; "
+            + "returns 202 while the gateway call is still in flight")
     public ResponseEntity<PaymentTransaction> processPayment(
             @RequestParam UUID shipmentId,
             @RequestParam BigDecimal amount,
@@ -31,6 +33,14 @@ public class PaymentController {
         PaymentTransaction transaction = paymentService.processPayment(
                 shipmentId, amount, currency, paymentMethod, idempotencyKey);
 
-        return ResponseEntity.ok(transaction);
+        return PaymentProcessor.isFinal(transaction)
+                ? ResponseEntity.ok(transaction)
+                : ResponseEntity.accepted().body(transaction);
+    }
+
+    @GetMapping("/{transactionId}")
+    @Operation(summary = "Get payment", description = "Current state of a payment transaction")
+    public ResponseEntity<PaymentTransaction> getPayment(@PathVariable UUID transactionId) {
+        return ResponseEntity.ok(paymentService.getPayment(transactionId));
     }
 }
@@ -1,15 +1,29 @@
 package com.alphaskyport.logistics.controller;
 
+import com.alphaskyport.config.UserAccessGuard;
 import com.alphaskyport.logistics.model.Shipment;
+import com.alphaskyport.logistics.model.ShipmentTrackingSummary;
 import com.alphaskyport.logistics.service.ShipmentService;
+import com.alphaskyport.logistics.service.TrackingCacheService;
+import com.alphaskyport.logistics.service.TrackingCacheService.CachedTracking;
+import com.alphaskyport.logistics.service.TrackingStreamService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -19,6 +33,9 @@ import java.util.UUID;
 public class ShipmentController {
 
     private final ShipmentService shipmentService;
+    private final TrackingCacheService trackingCacheService;
+    private final TrackingStreamService trackingStreamService;
+    private final UserAccessGuard userAccessGuard;
 
     @PostMapping("/{quoteId}/create")
     @Operation(summary = "Create shipment from quote", description = "Converts an accepted quote into a shipment")
@@ -48,14 +65,51 @@ public class ShipmentController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    @GetMapping("/tracking/{trackingNumber}")
-    @Operation(summary = "Track shipment", description = "Retrieves shipment details by tracking number")
-    public ResponseEntity<Shipment> trackShipment(@PathVariable String trackingNumber) {
-        return shipmentService.getShipmentByTrackingNumber(trackingNumber)
+    @GetMapping(value = "/tracking/{trackingNumber}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Track shipment", description = "Retrieves current status, last event and ETA by tracking number. "
+            + "Supports If-None-Match with strong ETags.")
+    // The body is pre-serialized in the cache, but the contract stays the tracking summary
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = ShipmentTrackingSummary.class)))
+    public ResponseEntity<String> trackShipment(
+            @PathVariable String trackingNumber,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<CachedTracking> tracking = trackingCacheService.getTracking(trackingNumber);
+        if (tracking.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        CachedTracking cached = tracking.get();
+        // Clients must revalidate, but a matching ETag costs neither a query nor a body
+        if (cached.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(cached.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(cached.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cached.getBody());
+    }
+
+    @GetMapping(value = "/tracking/{trackingNumber}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream shipment tracking", description = "Server-Sent Events stream of tracking updates for a shipment. "
+            + "The current snapshot is sent first.")
+    public ResponseEntity<SseEmitter> streamShipment(@PathVariable String trackingNumber) {
+        return trackingStreamService.subscribeToShipment(trackingNumber)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping(value = "/user/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream user shipments", description = "Server-Sent Events stream of tracking updates for all shipments of a user")
+    public SseEmitter streamUserShipments(@PathVariable UUID userId) {
+        userAccessGuard.checkRead(userId);
+        return trackingStreamService.subscribeToUser(userId);
+    }
+
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get user shipments", description = "Retrieves all shipments for a user")
     public ResponseEntity<List<Shipment>> getUserShipments(@PathVariable UUID userId) {
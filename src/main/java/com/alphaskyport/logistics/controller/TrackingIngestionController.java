@@ -0,0 +1,30 @@
+package com.alphaskyport.logistics.controller;
+
+import com.alphaskyport.logistics.service.TrackingIngestionService;
+import com.alphaskyport.logistics.service.TrackingIngestionService.IngestionResult;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/tracking/events")
+@RequiredArgsConstructor
+@Tag(name = "Tracking Ingestion", description = "Carrier and GPS tracking feed APIs")
+public class TrackingIngestionController {
+
+    private final TrackingIngestionService ingestionService;
+
+    @PostMapping(value = "/bulk", consumes = { "application/x-ndjson", "application/jsonl",
+            MediaType.TEXT_PLAIN_VALUE })
+    @Operation(summary = "Bulk ingest tracking events", description = "Accepts newline-delimited JSON tracking events. "
+            + "Events are deduplicated by externalEventId and shipment statuses advance to the newest event.")
+    public ResponseEntity<IngestionResult> ingestEvents(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(ingestionService.ingest(request.getInputStream()));
+    }
+}
@@ -0,0 +1,69 @@
+package com.alphaskyport.logistics.controller;
+
+import com.alphaskyport.config.UserAccessGuard;
+import com.alphaskyport.logistics.service.WebhookService;
+import com.alphaskyport.logistics.service.WebhookService.DeadLetter;
+import com.alphaskyport.logistics.service.WebhookService.Subscription;
+import com.alphaskyport.logistics.service.WebhookService.SubscriptionRequest;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/webhooks")
+@RequiredArgsConstructor
+@Tag(name = "Webhooks", description = "Webhook subscription and dead-letter APIs")
+public class WebhookController {
+
+    private final WebhookService webhookService;
+    private final UserAccessGuard userAccessGuard;
+
+    @GetMapping("/user/{userId}/subscriptions")
+    @Operation(summary = "List webhook subscriptions", description = "Endpoints registered by the user")
+    public ResponseEntity<List<Subscription>> getSubscriptions(@PathVariable UUID userId) {
+        userAccessGuard.checkRead(userId);
+        return ResponseEntity.ok(webhookService.getSubscriptions(userId));
+    }
+
+    @PostMapping("/user/{userId}/subscriptions")
+    @Operation(summary = "Create webhook subscription",
+            description = "Registers an endpoint; the response contains the signing secret, shown only once")
+    public ResponseEntity<Subscription> createSubscription(
+            @PathVariable UUID userId,
+            @RequestBody SubscriptionRequest request) {
+        userAccessGuard.checkWrite(userId);
+        return ResponseEntity.status(HttpStatus.CREATED).body(webhookService.createSubscription(userId, request));
+    }
+
+    @DeleteMapping("/user/{userId}/subscriptions/{subscriptionId}")
+    @Operation(summary = "Delete webhook subscription", description = "Deactivates the endpoint and drops queued deliveries")
+    public ResponseEntity<Void> deleteSubscription(@PathVariable UUID userId, @PathVariable UUID subscriptionId) {
+        userAccessGuard.checkWrite(userId);
+        webhookService.deleteSubscription(userId, subscriptionId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/user/{userId}/dead-letters")
+    @Operation(summary = "List dead-lettered deliveries", description = "Events that could not be delivered, newest first")
+    public ResponseEntity<List<DeadLetter>> getDeadLetters(
+            @PathVariable UUID userId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer limit) {
+        userAccessGuard.checkRead(userId);
+        return ResponseEntity.ok(webhookService.getDeadLetters(userId, before, limit));
+    }
+
+    @PostMapping("/user/{userId}/dead-letters/{deadLetterId}/replay")
+    @Operation(summary = "Replay dead letter", description = "Queues a dead-lettered event for delivery again")
+    public ResponseEntity<Void> replayDeadLetter(@PathVariable UUID userId, @PathVariable long deadLetterId) {
+        userAccessGuard.checkWrite(userId);
+        webhookService.replayDeadLetter(userId, deadLetterId);
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.alphaskyport.logistics.controller;
+
+import com.alphaskyport.logistics.webhook.WebhookSigner;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local webhook endpoint for integration and load tests. Point a
+ * subscription at /api/public/webhooks/mock and shape its behaviour with
+ * query parameters: latencyMs delays each response, failureRate (0-1) answers
+ * that share of requests with failureStatus, and secret makes it verify the
+ * signature. Only registered when logistics.webhooks.mock-receiver.enabled is
+ * set.
+ */
+@RestController
+@RequestMapping("/api/public/webhooks/mock")
+@ConditionalOnProperty(name = "logistics.webhooks.mock-receiver.enabled", havingValue = "true")
+@Tag(name = "Webhook mock receiver", description = "Local endpoint for webhook testing")
+public class WebhookMockReceiverController {
+
+    private static final long SIGNATURE_TOLERANCE_SECONDS = 300;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong badSignatures = new AtomicLong();
+
+    @PostMapping
+    @Operation(summary = "Receive webhook batch", description = "Accepts, delays or fails deliveries on demand")
+    public ResponseEntity<Void> receive(
+            @RequestBody String body,
+            @RequestHeader(value = WebhookSigner.SIGNATURE_HEADER, required = false) String signature,
+            @RequestHeader(value = WebhookSigner.EVENT_COUNT_HEADER, defaultValue = "1") int eventCount,
+            @RequestParam(defaultValue = "0") long latencyMs,
+            @RequestParam(defaultValue = "0") double failureRate,
+            @RequestParam(defaultValue = "503") int failureStatus,
+            @RequestParam(required = false) String secret) throws InterruptedException {
+        requests.incrementAndGet();
+        if (latencyMs > 0) {
+            Thread.sleep(latencyMs);
+        }
+        if (secret != null && !WebhookSigner.verify(secret, signature, body,
+                System.currentTimeMillis() / 1000, SIGNATURE_TOLERANCE_SECONDS)) {
+            badSignatures.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            failures.incrementAndGet();
+            return ResponseEntity.status(failureStatus).build();
+        }
+        events.addAndGet(eventCount);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Get receiver stats", description = "Requests, events, failures and signature rejections so far")
+    public ResponseEntity<Map<String, Long>> getStats() {
+        return ResponseEntity.ok(Map.of(
+                "requests", requests.get(),
+                "events", events.get(),
+                "failures", failures.get(),
+                "badSignatures", badSignatures.get()));
+    }
+
+    @DeleteMapping("/stats")
+    @Operation(summary = "Reset receiver stats")
+    public ResponseEntity<Void> resetStats() {
+        requests.set(0);
+        events.set(0);
+        failures.set(0);
+        badSignatures.set(0);
+        return ResponseEntity.noContent().build();
+    }
+}
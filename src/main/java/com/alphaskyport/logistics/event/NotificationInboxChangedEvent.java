@@ -0,0 +1,16 @@
+package com.alphaskyport.logistics.event;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * Published when a user's unread in-app notification count changes by delta.
+ * The Redis badge counter applies it after the surrounding transaction
+ * commits, so rolled-back enqueues or reads never skew it.
+ */
+@Value
+public class NotificationInboxChangedEvent {
+    UUID userId;
+    long delta;
+}
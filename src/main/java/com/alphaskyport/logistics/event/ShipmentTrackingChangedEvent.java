@@ -0,0 +1,18 @@
+package com.alphaskyport.logistics.event;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * Published whenever a shipment's status, ETA or tracking timeline changes.
+ * Listeners that touch external state (caches, live streams) should react
+ * after the surrounding transaction commits.
+ */
+@Value
+public class ShipmentTrackingChangedEvent {
+    UUID shipmentId;
+    String trackingNumber;
+    UUID userId;
+    String status;
+}
@@ -46,8 +46,9 @@ public class PaymentTransaction {
     @Column(name = "payment_method")
     private String paymentMethod; // credit_card, bank_transfer, mobile_money, cash, other
 
+    // pending, processing, completed, failed, cancelled, refunded, refund_pending, needs_reconciliation
     @Column(name = "transaction_status")
-    private String transactionStatus = "pending"; // pending, processing, completed, failed, cancelled, refunded
+    private String transactionStatus = "pending";
 
     @Column(name = "gateway_provider")
     private String gatewayProvider;
@@ -56,6 +57,9 @@ public class PaymentTransaction {
     @Column(name = "gateway_response", columnDefinition = "jsonb")
     private Map<String, Object> gatewayResponse;
 
+    @Column(name = "gateway_attempts", nullable = false)
+    private Integer gatewayAttempts = 0;
+
     @Column(name = "processed_at")
     private LocalDateTime processedAt;
 
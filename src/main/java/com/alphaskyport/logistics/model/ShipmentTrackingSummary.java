@@ -0,0 +1,71 @@
+package com.alphaskyport.logistics.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read model backing public tracking lookups. Rows are maintained by database
+ * triggers on shipments and shipment_tracking_events (see V67 migration).
+ */
+@Entity
+@Immutable
+@Table(name = "shipment_tracking_summary")
+@Data
+@NoArgsConstructor
+public class ShipmentTrackingSummary {
+
+    @Id
+    @Column(name = "tracking_number")
+    private String trackingNumber;
+
+    @JsonIgnore
+    @Column(name = "shipment_id", nullable = false)
+    private UUID shipmentId;
+
+    @Column(name = "current_status", nullable = false)
+    private String currentStatus;
+
+    @Column(name = "origin_country_code")
+    private String originCountryCode;
+
+    @Column(name = "destination_country_code")
+    private String destinationCountryCode;
+
+    @Column(name = "estimated_delivery_date")
+    private LocalDate estimatedDeliveryDate;
+
+    @Column(name = "actual_delivery_date")
+    private LocalDate actualDeliveryDate;
+
+    @Column(name = "last_event_status")
+    private String lastEventStatus;
+
+    @Column(name = "last_location")
+    private String lastLocation;
+
+    @Column(name = "last_country_code")
+    private String lastCountryCode;
+
+    @Column(name = "last_description", columnDefinition = "TEXT")
+    private String lastDescription;
+
+    @Column(name = "last_latitude")
+    private BigDecimal lastLatitude;
+
+    @Column(name = "last_longitude")
+    private BigDecimal lastLongitude;
+
+    @Column(name = "last_event_at")
+    private LocalDateTime lastEventAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
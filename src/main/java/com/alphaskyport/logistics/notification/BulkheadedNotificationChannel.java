@@ -0,0 +1,200 @@
+package com.alphaskyport.logistics.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a {@link NotificationProvider} behind its own bulkhead.
+ *
+ * Sends are queued in a bounded queue drained by a fixed set of worker
+ * threads owned by this channel only, so a slow or failing provider can fill
+ * its own queue but never occupy threads another channel needs. Workers pull
+ * up to the provider's batch size at a time, pay for the batch from a token
+ * bucket, and go through a circuit breaker. A full queue or an open circuit
+ * fails the send immediately as retryable, leaving the dispatcher's backoff to
+ * absorb the overload.
+ */
+@Slf4j
+public class BulkheadedNotificationChannel implements NotificationChannel, AutoCloseable {
+
+    private final String name;
+    private final NotificationProvider provider;
+    private final BlockingQueue<PendingSend> queue;
+    private final TokenBucket rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final int batchSize;
+    private final ExecutorService workers;
+    private volatile boolean running = true;
+
+    public BulkheadedNotificationChannel(String name, NotificationProvider provider, Settings settings) {
+        this.name = name;
+        this.provider = provider;
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        this.rateLimiter = new TokenBucket(settings.getPermitsPerSecond(), settings.getBurst());
+        this.circuitBreaker = new CircuitBreaker(settings.getFailureThreshold(), settings.getOpenDuration());
+        this.batchSize = Math.max(1, Math.min(settings.getMaxBatchSize(), provider.getMaxBatchSize()));
+        this.workers = Executors.newFixedThreadPool(settings.getConcurrency(),
+                Thread.ofPlatform().name("notify-" + name + "-", 0).daemon(true).factory());
+        for (int i = 0; i < settings.getConcurrency(); i++) {
+            workers.execute(this::drain);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void send(NotificationMessage message) {
+        try {
+            sendAsync(message).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof NotificationDeliveryException delivery) {
+                throw delivery;
+            }
+            throw new NotificationDeliveryException(String.valueOf(e.getCause().getMessage()), true, e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(NotificationMessage message) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (circuitBreaker.isRejecting()) {
+            future.completeExceptionally(new NotificationDeliveryException(name + " circuit open", true));
+        } else if (!running || !queue.offer(new PendingSend(message, future))) {
+            future.completeExceptionally(new NotificationDeliveryException(name + " bulkhead full", true));
+        }
+        return future;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        workers.shutdownNow();
+        List<PendingSend> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(p -> p.future.completeExceptionally(
+                new NotificationDeliveryException(name + " channel shut down", true)));
+    }
+
+    // ==================== Internals ====================
+
+    private void drain() {
+        List<PendingSend> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingSend first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                // The dispatcher may already have given up on some sends
+                batch.removeIf(p -> p.future.isDone());
+                if (!batch.isEmpty()) {
+                    sendBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Notification channel {} worker error: {}", name, e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void sendBatch(List<PendingSend> batch) throws InterruptedException {
+        if (!circuitBreaker.allowRequest()) {
+            failAll(batch, new NotificationDeliveryException(name + " circuit open", true));
+            return;
+        }
+        rateLimiter.acquire(batch.size());
+
+        List<NotificationMessage> messages = new ArrayList<>(batch.size());
+        batch.forEach(p -> messages.add(p.message));
+        Map<Long, NotificationDeliveryException> rejected;
+        try {
+            rejected = provider.send(messages);
+        } catch (NotificationDeliveryException e) {
+            circuitBreaker.recordFailure();
+            failAll(batch, e);
+            return;
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure();
+            failAll(batch, new NotificationDeliveryException(name + ": " + e.getMessage(), true, e));
+            return;
+        }
+
+        circuitBreaker.recordSuccess();
+        for (PendingSend pending : batch) {
+            NotificationDeliveryException error = rejected.get(pending.message.getQueueId());
+            if (error != null) {
+                pending.future.completeExceptionally(error);
+            } else {
+                pending.future.complete(null);
+            }
+        }
+    }
+
+    private void failAll(List<PendingSend> batch, NotificationDeliveryException error) {
+        batch.forEach(p -> p.future.completeExceptionally(error));
+    }
+
+    private static class PendingSend {
+        final NotificationMessage message;
+        final CompletableFuture<Void> future;
+
+        PendingSend(NotificationMessage message, CompletableFuture<Void> future) {
+            this.message = message;
+            this.future = future;
+        }
+    }
+
+    /** Per-channel limits. */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Settings {
+        @Builder.Default
+        private int concurrency = 4;
+        @Builder.Default
+        private int queueCapacity = 1000;
+        @Builder.Default
+        private double permitsPerSecond = 100;
+        @Builder.Default
+        private int burst = 100;
+        @Builder.Default
+        private int maxBatchSize = 100;
+        @Builder.Default
+        private int failureThreshold = 5;
+        @Builder.Default
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+}
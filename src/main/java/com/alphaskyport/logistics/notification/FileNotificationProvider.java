@@ -0,0 +1,79 @@
+package com.alphaskyport.logistics.notification;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for an external provider. Appends each batch to
+ * {directory}/{channel}.ndjson after an optional simulated call latency, and
+ * can fail a share of calls at random, so channel isolation, throughput and
+ * circuit breaking can be exercised without any real provider.
+ */
+public class FileNotificationProvider implements NotificationProvider {
+
+    private final Path file;
+    private final int maxBatchSize;
+    private final Duration latency;
+    private final double failureRate;
+    private final ObjectMapper objectMapper;
+    private final Object writeLock = new Object();
+
+    public FileNotificationProvider(String channel, Path directory, int maxBatchSize, Duration latency,
+            double failureRate, ObjectMapper objectMapper) {
+        this.file = directory.resolve(channel + ".ndjson");
+        this.maxBatchSize = maxBatchSize;
+        this.latency = latency;
+        this.failureRate = failureRate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public Map<Long, NotificationDeliveryException> send(List<NotificationMessage> batch) {
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NotificationDeliveryException("Interrupted", true, e);
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new NotificationDeliveryException("Simulated provider failure", true);
+        }
+
+        StringBuilder lines = new StringBuilder();
+        try {
+            for (NotificationMessage message : batch) {
+                lines.append(objectMapper.writeValueAsString(message)).append('\n');
+            }
+        } catch (JsonProcessingException e) {
+            throw new NotificationDeliveryException("Failed to serialize notification", false, e);
+        }
+
+        synchronized (writeLock) {
+            try {
+                Files.createDirectories(file.getParent());
+                Files.writeString(file, lines, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new NotificationDeliveryException("Failed to write " + file + ": " + e.getMessage(), true, e);
+            }
+        }
+        return Map.of();
+    }
+}
@@ -0,0 +1,23 @@
+package com.alphaskyport.logistics.notification;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-app notifications are read straight from notification_queue, so
+ * delivering one only needs the dispatcher to mark the row sent.
+ */
+@Component
+public class InAppNotificationChannel implements NotificationChannel {
+
+    public static final String NAME = "in_app";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void send(NotificationMessage message) {
+        // Nothing to push; the queue row is the in-app notification
+    }
+}
@@ -0,0 +1,34 @@
+package com.alphaskyport.logistics.notification;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A delivery channel for queued notifications, named after the values used in
+ * notification_queue.send_via. Implementations are discovered as Spring beans
+ * and called from dispatcher worker threads, so they must be thread-safe.
+ */
+public interface NotificationChannel {
+
+    String getName();
+
+    /**
+     * Delivers one notification. Throw {@link NotificationDeliveryException}
+     * to control whether the dispatcher retries; any other runtime exception
+     * is treated as retryable.
+     */
+    void send(NotificationMessage message);
+
+    /**
+     * Starts a delivery and returns a future that completes when it is done.
+     * Channels with their own executors override this so the dispatcher can
+     * fan one notification out to several channels at once.
+     */
+    default CompletableFuture<Void> sendAsync(NotificationMessage message) {
+        try {
+            send(message);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.alphaskyport.logistics.notification;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Renders a batch of pending notifications into one digest message. Several
+ * updates for the same shipment collapse into its latest one, most recently
+ * updated shipments first, and the body is capped at maxLines.
+ */
+public class NotificationDigestRenderer {
+
+    private final int maxLines;
+
+    public NotificationDigestRenderer(int maxLines) {
+        this.maxLines = maxLines;
+    }
+
+    public RenderedDigest render(List<DigestEntry> entries, String frequency) {
+        // Latest entry per shipment; entries without a shipment stand on their own
+        Map<Object, DigestEntry> latest = new LinkedHashMap<>();
+        Map<Object, Integer> counts = new LinkedHashMap<>();
+        for (DigestEntry entry : entries) {
+            Object key = entry.getShipmentId() != null ? entry.getShipmentId() : entry.getQueueId();
+            latest.remove(key);
+            latest.put(key, entry);
+            counts.merge(key, 1, Integer::sum);
+        }
+
+        List<Object> keys = new ArrayList<>(latest.keySet());
+        StringBuilder body = new StringBuilder();
+        int shown = Math.min(keys.size(), maxLines);
+        for (int i = 0; i < shown; i++) {
+            Object key = keys.get(keys.size() - 1 - i);
+            DigestEntry entry = latest.get(key);
+            body.append("- ").append(entry.getMessage());
+            int count = counts.get(key);
+            if (count > 1) {
+                body.append(" (").append(count).append(" updates)");
+            }
+            body.append('\n');
+        }
+        if (keys.size() > shown) {
+            body.append("...and ").append(keys.size() - shown).append(" more\n");
+        }
+
+        String period = "daily".equals(frequency) ? "Daily" : "Hourly";
+        String title = period + " shipment digest: " + entries.size()
+                + (entries.size() == 1 ? " update" : " updates");
+        return new RenderedDigest(title, body.toString().stripTrailing());
+    }
+
+    @Value
+    public static class DigestEntry {
+        long queueId;
+        UUID shipmentId;
+        String notificationType;
+        String title;
+        String message;
+        LocalDateTime createdAt;
+    }
+
+    @Value
+    public static class RenderedDigest {
+        String title;
+        String message;
+    }
+}
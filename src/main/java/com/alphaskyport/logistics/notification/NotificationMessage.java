@@ -0,0 +1,25 @@
+package com.alphaskyport.logistics.notification;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A claimed notification_queue row as handed to channels. attempts already
+ * includes the current delivery attempt.
+ */
+@Value
+public class NotificationMessage {
+    long queueId;
+    UUID userId;
+    UUID shipmentId;
+    String notificationType;
+    String title;
+    String message;
+    String metadataJson;
+    List<String> sendVia;
+    List<String> deliveredVia;
+    int attempts;
+    int maxAttempts;
+}
@@ -0,0 +1,22 @@
+package com.alphaskyport.logistics.notification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transport for one external channel (SMTP relay, SMS gateway, Slack
+ * webhook, ...). Wrapped by {@link BulkheadedNotificationChannel}, which
+ * supplies concurrency limits, rate limiting, batching and circuit breaking.
+ */
+public interface NotificationProvider {
+
+    /** Largest batch accepted per call; 1 when the provider has no batch API. */
+    int getMaxBatchSize();
+
+    /**
+     * Sends a batch and returns the messages the provider rejected, keyed by
+     * queue id; an empty map means all were accepted. Throw when the call as
+     * a whole failed.
+     */
+    Map<Long, NotificationDeliveryException> send(List<NotificationMessage> batch);
+}
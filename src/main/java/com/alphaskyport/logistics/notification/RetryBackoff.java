@@ -0,0 +1,39 @@
+package com.alphaskyport.logistics.notification;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with equal jitter: attempt n waits between half and all
+ * of min(max, base * 2^(n-1)). The jitter spreads retries from a burst of
+ * failures so they do not hit a recovering provider in lockstep, while the
+ * lower bound keeps the delay growing with every attempt.
+ */
+public class RetryBackoff {
+
+    private final long baseMillis;
+    private final long maxMillis;
+
+    public RetryBackoff(Duration base, Duration max) {
+        if (base.isNegative() || base.isZero() || max.compareTo(base) < 0) {
+            throw new IllegalArgumentException("Backoff requires 0 < base <= max");
+        }
+        this.baseMillis = base.toMillis();
+        this.maxMillis = max.toMillis();
+    }
+
+    public long ceilingMillis(int attempt) {
+        int exponent = Math.max(0, Math.min(attempt - 1, 62));
+        long multiplier = 1L << exponent;
+        if (baseMillis > maxMillis / multiplier) {
+            return maxMillis;
+        }
+        return Math.min(maxMillis, baseMillis * multiplier);
+    }
+
+    public long delayMillis(int attempt) {
+        long ceiling = ceilingMillis(attempt);
+        long floor = ceiling / 2;
+        return floor + ThreadLocalRandom.current().nextLong(ceiling - floor + 1);
+    }
+}
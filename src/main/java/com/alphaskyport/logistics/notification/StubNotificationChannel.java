@@ -0,0 +1,52 @@
+package com.alphaskyport.logistics.notification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for an external channel. Records every message it receives
+ * and can be told to fail the next N sends, which lets tests and local
+ * environments exercise the dispatcher's retry path without a provider.
+ * Register it as a bean under the channel name it replaces.
+ */
+public class StubNotificationChannel implements NotificationChannel {
+
+    private final String name;
+    private final Queue<NotificationMessage> sent = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger failuresRemaining = new AtomicInteger();
+    private volatile boolean failRetryable = true;
+
+    public StubNotificationChannel(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void send(NotificationMessage message) {
+        if (failuresRemaining.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+            throw new NotificationDeliveryException("Simulated " + name + " failure", failRetryable);
+        }
+        sent.add(message);
+    }
+
+    public void failNext(int count, boolean retryable) {
+        this.failRetryable = retryable;
+        this.failuresRemaining.set(count);
+    }
+
+    public List<NotificationMessage> getSent() {
+        return new ArrayList<>(sent);
+    }
+
+    public void reset() {
+        sent.clear();
+        failuresRemaining.set(0);
+    }
+}
@@ -0,0 +1,15 @@
+package com.alphaskyport.logistics.payment;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Value
+public class GatewayRequest {
+    UUID transactionId;
+    String idempotencyKey;
+    BigDecimal amount;
+    String currency;
+    String paymentMethod;
+}
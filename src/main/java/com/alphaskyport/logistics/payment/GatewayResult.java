@@ -0,0 +1,13 @@
+package com.alphaskyport.logistics.payment;
+
+import lombok.Value;
+
+import java.util.Map;
+
+@Value
+public class GatewayResult {
+    boolean approved;
+    String externalTransactionId;
+    String declineReason;
+    Map<String, Object> response;
+}
@@ -0,0 +1,26 @@
+package com.alphaskyport.logistics.payment;
+
+/**
+ * External payment provider. Implementations must be idempotent on the
+ * request's idempotency key: charging the same key twice returns the first
+ * outcome without charging again, which lets stuck payments be retried
+ * safely.
+ */
+public interface PaymentGateway {
+
+    String getName();
+
+    /**
+     * Charges the payment. Returns approved or declined outcomes; throws
+     * {@link PaymentGatewayException} when the outcome is unknown (timeouts,
+     * provider errors).
+     */
+    GatewayResult charge(GatewayRequest request);
+
+    /**
+     * Refunds an approved charge in full. The request carries its own
+     * idempotency key, so a repeated refund is not paid out twice. Throws
+     * {@link PaymentGatewayException} when the outcome is unknown.
+     */
+    GatewayResult refund(GatewayRequest request, String externalTransactionId);
+}
@@ -0,0 +1,293 @@
+package com.alphaskyport.logistics.payment;
+
+import com.alphaskyport.logistics.model.PaymentTransaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Redis guard in front of idempotent payment processing.
+ *
+ * The first request for an idempotency key claims it with SET NX and a short
+ * TTL. Concurrent duplicates find the claim and wait, instead of queueing on
+ * the shipment row lock, until the owner either publishes its result (which
+ * they replay) or gives the claim up (one of them takes over). Published
+ * results stay cached so later retries are answered without touching the
+ * database. The claim TTL frees keys of crashed owners, and whenever Redis is
+ * unavailable requests run unguarded and rely on the database constraints.
+ */
+@Component
+@Slf4j
+@SuppressWarnings("null")
+public class PaymentIdempotencyGuard {
+
+    private static final String KEY_PREFIX = "payments:idempotency:";
+    private static final String IN_FLIGHT = "in-flight:";
+    private static final long MAX_POLL_MILLIS = 200;
+
+    // Only the owner of the claim may publish or release it
+    private static final DefaultRedisScript<Long> PUBLISH = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${logistics.payments.idempotency.in-flight-ttl:30s}")
+    private Duration inFlightTtl;
+
+    @Value("${logistics.payments.idempotency.result-ttl:24h}")
+    private Duration resultTtl;
+
+    @Value("${logistics.payments.idempotency.wait-timeout:10s}")
+    private Duration waitTimeout;
+
+    public PaymentIdempotencyGuard(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the cached result for the key, if one was published.
+     */
+    public Optional<CachedPayment> findCompleted(String idempotencyKey) {
+        try {
+            String value = redisTemplate.opsForValue().get(KEY_PREFIX + idempotencyKey);
+            return value != null && !value.startsWith(IN_FLIGHT) ? Optional.of(parse(value)) : Optional.empty();
+        } catch (DataAccessException e) {
+            log.warn("Idempotency cache unavailable: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Claims the key for the calling request. Blocks while another request
+     * holds it; the returned lease either carries that request's result or
+     * grants this one the right to process the payment.
+     */
+    public Lease acquire(String idempotencyKey) {
+        String key = KEY_PREFIX + idempotencyKey;
+        String token = IN_FLIGHT + UUID.randomUUID();
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        long pollMillis = 10;
+
+        try {
+            while (true) {
+                if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, token, inFlightTtl))) {
+                    heldByCurrentTransaction().ifPresent(held -> held.add(key));
+                    return new Lease(key, token, null);
+                }
+                String value = redisTemplate.opsForValue().get(key);
+                if (value != null && !value.startsWith(IN_FLIGHT)) {
+                    return new Lease(key, null, parse(value));
+                }
+                if (value != null && heldByCurrentTransaction().map(held -> held.contains(key)).orElse(false)) {
+                    // Our own uncommitted payment; the database lookup inside this transaction sees it
+                    return Lease.unguarded(key);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "A payment with this idempotency key is still being processed");
+                }
+                Thread.sleep(pollMillis);
+                pollMillis = Math.min(pollMillis * 2, MAX_POLL_MILLIS);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Idempotency guard unavailable, processing {} unguarded: {}", idempotencyKey, e.getMessage());
+            return Lease.unguarded(key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted waiting for payment");
+        }
+    }
+
+    /**
+     * Publishes the result once the surrounding transaction commits, or
+     * immediately without one. A rollback releases the claim instead.
+     */
+    public void complete(Lease lease, CachedPayment result) {
+        String value;
+        try {
+            value = objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize payment result for caching: {}", e.getMessage());
+            release(lease);
+            return;
+        }
+        runAfterCompletion(committed -> {
+            if (!committed) {
+                release(lease);
+                return;
+            }
+            try {
+                if (lease.token != null) {
+                    redisTemplate.execute(PUBLISH, List.of(lease.key), lease.token, value,
+                            String.valueOf(resultTtl.toMillis()));
+                } else {
+                    redisTemplate.opsForValue().setIfAbsent(lease.key, value, resultTtl);
+                }
+            } catch (DataAccessException e) {
+                log.warn("Failed to cache payment result: {}", e.getMessage());
+                release(lease);
+            }
+        });
+    }
+
+    /**
+     * Caches the final result of a payment that finished after its request
+     * released the claim (asynchronous processing). Never overwrites a claim
+     * or result already present.
+     */
+    public void publish(String idempotencyKey, CachedPayment result) {
+        complete(Lease.unguarded(KEY_PREFIX + idempotencyKey), result);
+    }
+
+    /**
+     * Gives the claim up so a waiting duplicate can process the payment.
+     */
+    public void release(Lease lease) {
+        if (lease.token == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE, List.of(lease.key), lease.token);
+        } catch (DataAccessException e) {
+            log.warn("Failed to release idempotency claim {}, it expires in {}: {}", lease.key, inFlightTtl,
+                    e.getMessage());
+        }
+    }
+
+    // ==================== Internals ====================
+
+    private CachedPayment parse(String value) {
+        try {
+            return objectMapper.readValue(value, CachedPayment.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt cached payment result", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<Set<String>> heldByCurrentTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return Optional.empty();
+        }
+        Set<String> held = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (held == null) {
+            Set<String> created = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PaymentIdempotencyGuard.this);
+                }
+            });
+            held = created;
+        }
+        return Optional.of(held);
+    }
+
+    private void runAfterCompletion(CompletionCallback callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.run(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.run(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface CompletionCallback {
+        void run(boolean committed);
+    }
+
+    /** Outcome of {@link #acquire}: a claim to process, or a replayable result. */
+    public static class Lease {
+        private final String key;
+        private final String token;
+        private final CachedPayment completed;
+
+        private Lease(String key, String token, CachedPayment completed) {
+            this.key = key;
+            this.token = token;
+            this.completed = completed;
+        }
+
+        private static Lease unguarded(String key) {
+            return new Lease(key, null, null);
+        }
+
+        public Optional<CachedPayment> getCompleted() {
+            return Optional.ofNullable(completed);
+        }
+    }
+
+    /** Snapshot of a processed payment, enough to answer a retry. */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CachedPayment {
+        private UUID transactionId;
+        private UUID shipmentId;
+        private String idempotencyKey;
+        private BigDecimal amount;
+        private String currency;
+        private String transactionType;
+        private String paymentMethod;
+        private String transactionStatus;
+        private String failedReason;
+        private LocalDateTime processedAt;
+        private LocalDateTime createdAt;
+
+        public static CachedPayment from(PaymentTransaction transaction) {
+            return new CachedPayment(
+                    transaction.getTransactionId(),
+                    transaction.getShipment().getShipmentId(),
+                    transaction.getIdempotencyKey(),
+                    transaction.getAmount(),
+                    transaction.getCurrency(),
+                    transaction.getTransactionType(),
+                    transaction.getPaymentMethod(),
+                    transaction.getTransactionStatus(),
+                    transaction.getFailedReason(),
+                    transaction.getProcessedAt(),
+                    transaction.getCreatedAt());
+        }
+    }
+}
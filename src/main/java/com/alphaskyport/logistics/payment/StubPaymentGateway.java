@@ -0,0 +1,93 @@
+package com.alphaskyport.logistics.payment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local gateway for development and load tests. Each call sleeps for the
+ * configured latency plus random jitter, fails with an unknown outcome at
+ * error-rate, and declines at decline-rate. Declines and external ids are
+ * derived from the idempotency key, so retrying a key gives the same answer
+ * as a real idempotent gateway would.
+ */
+@Component
+@ConditionalOnProperty(name = "logistics.payments.gateway.provider", havingValue = "stub", matchIfMissing = true)
+public class StubPaymentGateway implements PaymentGateway {
+
+    public static final String NAME = "stub";
+
+    private final Duration latency;
+    private final Duration jitter;
+    private final double declineRate;
+    private final double errorRate;
+
+    public StubPaymentGateway(
+            @Value("${logistics.payments.gateway.stub.latency:300ms}") Duration latency,
+            @Value("${logistics.payments.gateway.stub.jitter:200ms}") Duration jitter,
+            @Value("${logistics.payments.gateway.stub.decline-rate:0.0}") double declineRate,
+            @Value("${logistics.payments.gateway.stub.error-rate:0.0}") double errorRate) {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.declineRate = declineRate;
+        this.errorRate = errorRate;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public GatewayResult charge(GatewayRequest request) {
+        long delay = simulateCall();
+        UUID keyId = UUID.nameUUIDFromBytes(request.getIdempotencyKey().getBytes(StandardCharsets.UTF_8));
+        boolean declined = declineRate > 0
+                && (keyId.getLeastSignificantBits() >>> 11) / (double) (1L << 53) < declineRate;
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("provider", NAME);
+        response.put("latencyMs", delay);
+        response.put("outcome", declined ? "declined" : "approved");
+        return declined
+                ? new GatewayResult(false, null, "Card declined (simulated)", response)
+                : new GatewayResult(true, "stub_" + keyId, null, response);
+    }
+
+    @Override
+    public GatewayResult refund(GatewayRequest request, String externalTransactionId) {
+        long delay = simulateCall();
+        UUID keyId = UUID.nameUUIDFromBytes(request.getIdempotencyKey().getBytes(StandardCharsets.UTF_8));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("provider", NAME);
+        response.put("latencyMs", delay);
+        response.put("outcome", "refunded");
+        response.put("charge", externalTransactionId);
+        return new GatewayResult(true, "stub_refund_" + keyId, null, response);
+    }
+
+    private long simulateCall() {
+        long delay = latency.toMillis()
+                + (jitter.isZero() ? 0 : ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1));
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PaymentGatewayException("Interrupted during gateway call", e);
+            }
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            throw new PaymentGatewayException("Simulated gateway timeout");
+        }
+        return delay;
+    }
+}
@@ -1,7 +1,12 @@
 package com.alphaskyport.logistics.repository;
 
 import com.alphaskyport.logistics.model.PaymentTransaction;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -10,4 +15,30 @@ import java.util.UUID;
 @Repository
 public interface PaymentTransactionRepository extends JpaRepository<PaymentTransaction, UUID> {
     Optional<PaymentTransaction> findByIdempotencyKey(String idempotencyKey);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM PaymentTransaction t WHERE t.transactionId = :id")
+    Optional<PaymentTransaction> findByIdWithLock(@Param("id") UUID id);
+
+    /**
+     * Compare-and-set state transition. Returns 0 when the transaction is no
+     * longer in the expected state, i.e. another worker got there first.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE PaymentTransaction t
+            SET t.transactionStatus = :to, t.updatedAt = CURRENT_TIMESTAMP
+            WHERE t.transactionId = :id AND t.transactionStatus = :from
+            """)
+    int transition(@Param("id") UUID id, @Param("from") String from, @Param("to") String to);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE PaymentTransaction t
+            SET t.transactionStatus = 'processing',
+                t.gatewayAttempts = t.gatewayAttempts + 1,
+                t.updatedAt = CURRENT_TIMESTAMP
+            WHERE t.transactionId = :id AND t.transactionStatus = 'pending'
+            """)
+    int startProcessing(@Param("id") UUID id);
 }
@@ -1,13 +1,28 @@
 package com.alphaskyport.logistics.repository;
 
 import com.alphaskyport.logistics.model.ShipmentTrackingEvent;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface ShipmentTrackingEventRepository extends JpaRepository<ShipmentTrackingEvent, Long> {
     List<ShipmentTrackingEvent> findByShipment_ShipmentIdOrderByEventTimestampDesc(UUID shipmentId);
+
+    // Keyset pagination over idx_tracking_shipment (shipment_id, event_timestamp DESC)
+    @Query("SELECT e FROM ShipmentTrackingEvent e WHERE e.shipment.shipmentId = :shipmentId "
+            + "ORDER BY e.eventTimestamp DESC, e.eventId DESC")
+    List<ShipmentTrackingEvent> findLatestByShipment(@Param("shipmentId") UUID shipmentId, Limit limit);
+
+    @Query("SELECT e FROM ShipmentTrackingEvent e WHERE e.shipment.shipmentId = :shipmentId "
+            + "AND (e.eventTimestamp < :eventTimestamp OR (e.eventTimestamp = :eventTimestamp AND e.eventId < :eventId)) "
+            + "ORDER BY e.eventTimestamp DESC, e.eventId DESC")
+    List<ShipmentTrackingEvent> findByShipmentBefore(@Param("shipmentId") UUID shipmentId,
+            @Param("eventTimestamp") LocalDateTime eventTimestamp, @Param("eventId") Long eventId, Limit limit);
 }
@@ -0,0 +1,9 @@
+package com.alphaskyport.logistics.repository;
+
+import com.alphaskyport.logistics.model.ShipmentTrackingSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ShipmentTrackingSummaryRepository extends JpaRepository<ShipmentTrackingSummary, String> {
+}
@@ -0,0 +1,329 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.notification.InAppNotificationChannel;
+import com.alphaskyport.logistics.notification.NotificationChannel;
+import com.alphaskyport.logistics.notification.NotificationDigestRenderer;
+import com.alphaskyport.logistics.notification.NotificationDigestRenderer.DigestEntry;
+import com.alphaskyport.logistics.notification.NotificationDigestRenderer.RenderedDigest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Sends hourly or daily digests to users who opted out of per-event
+ * notifications.
+ *
+ * NotificationService enqueues those users' rows in 'digest' mode, which the
+ * dispatcher ignores. When a user's digest falls due, all of their pending
+ * digest rows are marked sent with a single UPDATE ... RETURNING, rendered
+ * into one message, and that message is enqueued as an ordinary immediate
+ * notification on the user's preferred channels. Everything happens in one
+ * transaction per user, so a failed digest leaves its rows pending for the
+ * next run.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class NotificationDigestService {
+
+    public static final String DIGEST_TYPE = "DIGEST";
+
+    private static final Set<String> FREQUENCIES = Set.of("immediate", "hourly", "daily");
+
+    // Without a preference notifications only reach the in-app inbox
+    private static final List<String> DEFAULT_SEND_VIA = List.of(InAppNotificationChannel.NAME);
+
+    // Next slot strictly after now: top of the next hour, or the next occurrence of digest_hour
+    private static final String NEXT_DIGEST_AT = """
+            CASE frequency
+                WHEN 'hourly' THEN date_trunc('hour', LOCALTIMESTAMP) + INTERVAL '1 hour'
+                WHEN 'daily' THEN date_trunc('day', LOCALTIMESTAMP) + make_interval(hours => digest_hour)
+                    + CASE WHEN date_trunc('day', LOCALTIMESTAMP) + make_interval(hours => digest_hour) <= LOCALTIMESTAMP
+                           THEN INTERVAL '1 day' ELSE INTERVAL '0' END
+            END
+            """;
+
+    private static final String FIND_DUE_SQL = """
+            SELECT user_id
+            FROM notification_digest_preferences
+            WHERE next_digest_at <= LOCALTIMESTAMP
+              AND frequency <> 'immediate'
+            ORDER BY next_digest_at
+            LIMIT ?
+            """;
+
+    // Re-checks the slot under a row lock; another node already sending this digest is skipped
+    private static final String CLAIM_SQL = """
+            SELECT user_id, frequency, send_via
+            FROM notification_digest_preferences
+            WHERE user_id = ?
+              AND next_digest_at <= LOCALTIMESTAMP
+              AND frequency <> 'immediate'
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String COLLECT_SQL = """
+            UPDATE notification_queue
+            SET status = 'sent',
+                sent_at = CURRENT_TIMESTAMP,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE user_id = ?
+              AND status = 'pending'
+              AND delivery_mode = 'digest'
+            RETURNING queue_id, shipment_id, notification_type, title, message, created_at
+            """;
+
+    private static final String ENQUEUE_DIGEST_SQL = """
+            INSERT INTO notification_queue
+                (user_id, notification_type, dedup_key, title, message, metadata, send_via, status, delivery_mode)
+            VALUES (?, ?, ?, ?, ?, ?::jsonb, ?, 'pending', 'immediate')
+            ON CONFLICT (dedup_key) DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationInboxService inboxService;
+    private final ObjectMapper objectMapper;
+    private final Set<String> channelNames;
+
+    @Value("${logistics.notifications.digest.enabled:true}")
+    private boolean enabled;
+
+    @Value("${logistics.notifications.digest.batch-size:200}")
+    private int batchSize;
+
+    @Value("${logistics.notifications.digest.max-lines:25}")
+    private int maxLines;
+
+    public NotificationDigestService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            NotificationInboxService inboxService, ObjectMapper objectMapper, List<NotificationChannel> channels) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.inboxService = inboxService;
+        this.objectMapper = objectMapper;
+        this.channelNames = channels.stream().map(NotificationChannel::getName)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    @Scheduled(cron = "${logistics.notifications.digest.cron:0 */5 * * * *}")
+    public void sendDueDigests() {
+        if (!enabled) {
+            return;
+        }
+        List<UUID> due = jdbcTemplate.queryForList(FIND_DUE_SQL, UUID.class, batchSize);
+        int sent = 0;
+        for (UUID userId : due) {
+            try {
+                // One transaction per user, so a failing digest never holds back the others
+                Boolean done = transactionTemplate.execute(status -> {
+                    List<DuePreference> claimed = jdbcTemplate.query(CLAIM_SQL, (rs, i) -> new DuePreference(
+                            rs.getObject("user_id", UUID.class),
+                            rs.getString("frequency"),
+                            toStrings(rs.getArray("send_via"))), userId);
+                    if (claimed.isEmpty()) {
+                        return false;
+                    }
+                    sendDigest(claimed.get(0));
+                    return true;
+                });
+                if (Boolean.TRUE.equals(done)) {
+                    sent++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to send notification digest for user {}: {}", userId, e.getMessage());
+            }
+        }
+        if (sent > 0) {
+            log.info("Processed {} notification digests", sent);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public DigestPreference getPreference(UUID userId) {
+        List<DigestPreference> found = jdbcTemplate.query("""
+                SELECT frequency, digest_hour, send_via, last_digest_at, next_digest_at
+                FROM notification_digest_preferences
+                WHERE user_id = ?
+                """, (rs, i) -> {
+            Timestamp last = rs.getTimestamp("last_digest_at");
+            Timestamp next = rs.getTimestamp("next_digest_at");
+            return new DigestPreference(
+                    rs.getString("frequency"),
+                    rs.getInt("digest_hour"),
+                    toStrings(rs.getArray("send_via")),
+                    last != null ? last.toLocalDateTime() : null,
+                    next != null ? next.toLocalDateTime() : null);
+        }, userId);
+        return found.isEmpty()
+                ? new DigestPreference("immediate", 8, DEFAULT_SEND_VIA, null, null)
+                : found.get(0);
+    }
+
+    /**
+     * Saves the user's digest preference. sendVia also selects the channels
+     * of immediate notifications and must name registered channels; left
+     * empty it defaults to the in-app inbox. Switching back to 'immediate'
+     * releases any rows still waiting for a digest to the dispatcher.
+     */
+    @Transactional
+    public DigestPreference updatePreference(UUID userId, DigestPreference request) {
+        String frequency = request.getFrequency() != null ? request.getFrequency() : "daily";
+        if (!FREQUENCIES.contains(frequency)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Frequency must be one of " + FREQUENCIES);
+        }
+        int hour = request.getDigestHour() != null ? request.getDigestHour() : 8;
+        if (hour < 0 || hour > 23) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Digest hour must be between 0 and 23");
+        }
+        List<String> sendVia = request.getSendVia() != null && !request.getSendVia().isEmpty()
+                ? request.getSendVia()
+                : DEFAULT_SEND_VIA;
+        List<String> unknown = sendVia.stream().filter(c -> !channelNames.contains(c)).toList();
+        if (!unknown.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unknown notification channels " + unknown + ", available: " + channelNames);
+        }
+
+        jdbcTemplate.update(con -> {
+            var ps = con.prepareStatement("""
+                    INSERT INTO notification_digest_preferences (user_id, frequency, digest_hour, send_via)
+                    VALUES (?, ?, ?, ?)
+                    ON CONFLICT (user_id) DO UPDATE
+                    SET frequency = EXCLUDED.frequency,
+                        digest_hour = EXCLUDED.digest_hour,
+                        send_via = EXCLUDED.send_via,
+                        updated_at = CURRENT_TIMESTAMP
+                    """);
+            ps.setObject(1, userId);
+            ps.setString(2, frequency);
+            ps.setInt(3, hour);
+            ps.setArray(4, con.createArrayOf("varchar", sendVia.toArray(new String[0])));
+            return ps;
+        });
+        jdbcTemplate.update("UPDATE notification_digest_preferences SET next_digest_at = " + NEXT_DIGEST_AT
+                + " WHERE user_id = ?", userId);
+
+        if ("immediate".equals(frequency)) {
+            int released = jdbcTemplate.update("""
+                    UPDATE notification_queue
+                    SET delivery_mode = 'immediate', updated_at = CURRENT_TIMESTAMP
+                    WHERE user_id = ? AND status = 'pending' AND delivery_mode = 'digest'
+                    """, userId);
+            if (released > 0) {
+                log.info("Released {} pending digest notifications of user {} for immediate delivery",
+                        released, userId);
+            }
+        }
+        return getPreference(userId);
+    }
+
+    // ==================== Internals ====================
+
+    private void sendDigest(DuePreference preference) {
+        UUID userId = preference.userId;
+        List<DigestEntry> entries = jdbcTemplate.query(COLLECT_SQL, (rs, i) -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            return new DigestEntry(
+                    rs.getLong("queue_id"),
+                    rs.getObject("shipment_id", UUID.class),
+                    rs.getString("notification_type"),
+                    rs.getString("title"),
+                    rs.getString("message"),
+                    createdAt != null ? createdAt.toLocalDateTime() : null);
+        }, userId);
+
+        if (!entries.isEmpty()) {
+            // RETURNING order is unspecified; the renderer expects oldest first
+            entries = entries.stream()
+                    .sorted((a, b) -> Long.compare(a.getQueueId(), b.getQueueId()))
+                    .toList();
+            RenderedDigest digest = new NotificationDigestRenderer(maxLines).render(entries, preference.frequency);
+
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("frequency", preference.frequency);
+            metadata.put("count", entries.size());
+            metadata.put("queueIds", entries.stream().map(DigestEntry::getQueueId).toList());
+            // Collected rows are marked sent, so the queue id range identifies this digest alone
+            String dedupKey = DIGEST_TYPE + ":" + userId + ":" + entries.get(0).getQueueId() + "-"
+                    + entries.get(entries.size() - 1).getQueueId();
+
+            int inserted = jdbcTemplate.update(con -> {
+                var ps = con.prepareStatement(ENQUEUE_DIGEST_SQL);
+                ps.setObject(1, userId);
+                ps.setString(2, DIGEST_TYPE);
+                ps.setString(3, dedupKey);
+                ps.setString(4, digest.getTitle());
+                ps.setString(5, digest.getMessage());
+                ps.setString(6, toJson(metadata));
+                ps.setArray(7, con.createArrayOf("varchar", preference.sendVia.toArray(new String[0])));
+                return ps;
+            });
+            if (inserted > 0 && preference.sendVia.contains(InAppNotificationChannel.NAME)) {
+                inboxService.publishDelta(userId, 1);
+            }
+            log.debug("Digest for user {} folded {} notifications", userId, entries.size());
+        }
+
+        jdbcTemplate.update("UPDATE notification_digest_preferences SET last_digest_at = CURRENT_TIMESTAMP, "
+                + "next_digest_at = " + NEXT_DIGEST_AT + " WHERE user_id = ?", userId);
+    }
+
+    private String toJson(Map<String, Object> metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize digest metadata", e);
+        }
+    }
+
+    private static List<String> toStrings(Array array) throws SQLException {
+        return array != null ? Arrays.asList((String[]) array.getArray()) : List.of();
+    }
+
+    private static class DuePreference {
+        final UUID userId;
+        final String frequency;
+        final List<String> sendVia;
+
+        DuePreference(UUID userId, String frequency, List<String> sendVia) {
+            this.userId = userId;
+            this.frequency = frequency;
+            this.sendVia = sendVia;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DigestPreference {
+        private String frequency;
+        private Integer digestHour;
+        private List<String> sendVia;
+        private LocalDateTime lastDigestAt;
+        private LocalDateTime nextDigestAt;
+    }
+}
@@ -0,0 +1,361 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.notification.NotificationChannel;
+import com.alphaskyport.logistics.notification.NotificationDeliveryException;
+import com.alphaskyport.logistics.notification.NotificationMessage;
+import com.alphaskyport.logistics.notification.RetryBackoff;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sends queued notifications.
+ *
+ * Each worker claims a batch of due rows with FOR UPDATE SKIP LOCKED and
+ * marks them 'processing' under a lease in the same statement, so workers on
+ * any number of nodes never block on or double-claim each other's rows. The
+ * batch is sent in parallel on virtual threads and all outcomes are written
+ * back in a single unnest-based UPDATE. Failed sends are rescheduled with
+ * exponential backoff until max_attempts; rows whose lease expires (node
+ * crash, stuck provider) are handed back by the reaper.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class NotificationDispatcher {
+
+    private static final String CLAIM_SQL = """
+            WITH claimable AS (
+                SELECT queue_id
+                FROM notification_queue
+                WHERE ((status = 'pending' AND (next_retry_at IS NULL OR next_retry_at <= CURRENT_TIMESTAMP))
+                       OR (status = 'failed' AND next_retry_at <= CURRENT_TIMESTAMP
+                           AND COALESCE(attempts, 0) < COALESCE(max_attempts, 3)))
+                  AND delivery_mode = 'immediate'
+                ORDER BY queue_id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE notification_queue q
+            SET status = 'processing',
+                attempts = COALESCE(q.attempts, 0) + 1,
+                locked_until = CURRENT_TIMESTAMP + make_interval(secs => ?),
+                updated_at = CURRENT_TIMESTAMP
+            FROM claimable c
+            WHERE q.queue_id = c.queue_id
+            RETURNING q.queue_id, q.user_id, q.shipment_id, q.notification_type, q.title, q.message,
+                      q.metadata::text AS metadata, q.send_via, q.delivered_via,
+                      q.attempts, COALESCE(q.max_attempts, 3) AS max_attempts
+            """;
+
+    private static final String COMPLETE_SQL = """
+            UPDATE notification_queue q
+            SET status = u.status,
+                next_retry_at = CASE WHEN u.retry_ms IS NULL THEN NULL
+                                     ELSE CURRENT_TIMESTAMP + u.retry_ms * INTERVAL '1 millisecond' END,
+                last_error = u.last_error,
+                delivered_via = string_to_array(u.delivered_via, ','),
+                sent_at = CASE WHEN u.status = 'sent' THEN CURRENT_TIMESTAMP ELSE q.sent_at END,
+                locked_until = NULL,
+                updated_at = CURRENT_TIMESTAMP
+            FROM unnest(?::bigint[], ?::int[], ?::text[], ?::bigint[], ?::text[], ?::text[])
+                 AS u(queue_id, attempts, status, retry_ms, last_error, delivered_via)
+            WHERE q.queue_id = u.queue_id
+              AND q.attempts = u.attempts
+              AND q.status = 'processing'
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, NotificationChannel> channels;
+    private final RetryBackoff backoff;
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Value("${logistics.notifications.dispatcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${logistics.notifications.dispatcher.workers:2}")
+    private int workerCount;
+
+    @Value("${logistics.notifications.dispatcher.batch-size:500}")
+    private int batchSize;
+
+    @Value("${logistics.notifications.dispatcher.poll-interval-ms:200}")
+    private long pollIntervalMs;
+
+    @Value("${logistics.notifications.dispatcher.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${logistics.notifications.dispatcher.lease-seconds:120}")
+    private int leaseSeconds;
+
+    public NotificationDispatcher(JdbcTemplate jdbcTemplate, List<NotificationChannel> channels,
+            @Value("${logistics.notifications.retry.base-delay:30s}") Duration baseDelay,
+            @Value("${logistics.notifications.retry.max-delay:1h}") Duration maxDelay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.channels = channels.stream()
+                .collect(Collectors.toMap(NotificationChannel::getName, Function.identity()));
+        this.backoff = new RetryBackoff(baseDelay, maxDelay);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("notification-dispatcher-" + i).start(this::runWorker));
+        }
+        log.info("Notification dispatcher started: {} workers, batch size {}, channels {}",
+                workerCount, batchSize, channels.keySet());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        sendExecutor.shutdown();
+    }
+
+    /**
+     * Claims, sends and completes one batch. Returns the number of
+     * notifications claimed.
+     */
+    public int dispatchBatch() {
+        List<NotificationMessage> batch = claim();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Future<DeliveryOutcome>> futures = new ArrayList<>(batch.size());
+        for (NotificationMessage message : batch) {
+            futures.add(sendExecutor.submit(() -> deliver(message)));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        List<DeliveryOutcome> outcomes = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            NotificationMessage message = batch.get(i);
+            Future<DeliveryOutcome> future = futures.get(i);
+            try {
+                outcomes.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                outcomes.add(failure(message, new LinkedHashSet<>(message.getDeliveredVia()),
+                        "Send timed out", true));
+            } catch (ExecutionException e) {
+                outcomes.add(failure(message, new LinkedHashSet<>(message.getDeliveredVia()),
+                        String.valueOf(e.getCause().getMessage()), true));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Leave the rest to the reaper once their lease expires
+                break;
+            }
+        }
+
+        complete(outcomes);
+        return batch.size();
+    }
+
+    @Scheduled(fixedDelayString = "${logistics.notifications.dispatcher.reaper-interval-ms:60000}")
+    public void reapExpiredLeases() {
+        if (!enabled) {
+            return;
+        }
+        int reaped = jdbcTemplate.update("""
+                UPDATE notification_queue
+                SET status = 'failed',
+                    next_retry_at = CASE WHEN attempts < COALESCE(max_attempts, 3) THEN CURRENT_TIMESTAMP END,
+                    last_error = 'Dispatch lease expired',
+                    locked_until = NULL,
+                    updated_at = CURRENT_TIMESTAMP
+                WHERE status = 'processing'
+                  AND locked_until < CURRENT_TIMESTAMP
+                """);
+        if (reaped > 0) {
+            log.warn("Released {} notifications with expired dispatch leases", reaped);
+        }
+    }
+
+    // ==================== Internals ====================
+
+    private void runWorker() {
+        while (running) {
+            int claimed = 0;
+            try {
+                claimed = dispatchBatch();
+            } catch (Exception e) {
+                log.error("Notification dispatch failed: {}", e.getMessage());
+            }
+            if (claimed < batchSize) {
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<NotificationMessage> claim() {
+        return jdbcTemplate.query(CLAIM_SQL, (rs, i) -> new NotificationMessage(
+                rs.getLong("queue_id"),
+                rs.getObject("user_id", UUID.class),
+                rs.getObject("shipment_id", UUID.class),
+                rs.getString("notification_type"),
+                rs.getString("title"),
+                rs.getString("message"),
+                rs.getString("metadata"),
+                toList(rs, "send_via"),
+                toList(rs, "delivered_via"),
+                rs.getInt("attempts"),
+                rs.getInt("max_attempts")), batchSize, leaseSeconds);
+    }
+
+    private DeliveryOutcome deliver(NotificationMessage message) throws InterruptedException {
+        Set<String> delivered = new LinkedHashSet<>(message.getDeliveredVia());
+        List<String> errors = new ArrayList<>();
+        boolean retryable = false;
+
+        // Fan out to all pending channels at once so one slow channel does not delay the others
+        Map<String, CompletableFuture<Void>> sends = new LinkedHashMap<>();
+        for (String channelName : message.getSendVia()) {
+            if (delivered.contains(channelName) || sends.containsKey(channelName)) {
+                continue;
+            }
+            NotificationChannel channel = channels.get(channelName);
+            if (channel == null) {
+                errors.add(channelName + ": no channel registered");
+                continue;
+            }
+            sends.put(channelName, channel.sendAsync(message));
+        }
+
+        for (Map.Entry<String, CompletableFuture<Void>> send : sends.entrySet()) {
+            try {
+                send.getValue().get();
+                delivered.add(send.getKey());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                errors.add(send.getKey() + ": " + cause.getMessage());
+                retryable |= !(cause instanceof NotificationDeliveryException delivery) || delivery.isRetryable();
+            } catch (InterruptedException e) {
+                // Timed out by the batch; channels skip sends whose future is already done
+                sends.values().forEach(f -> f.cancel(false));
+                throw e;
+            }
+        }
+
+        if (errors.isEmpty()) {
+            return new DeliveryOutcome(message.getQueueId(), message.getAttempts(), "sent", null, null, delivered);
+        }
+        return failure(message, delivered, String.join("; ", errors), retryable);
+    }
+
+    private DeliveryOutcome failure(NotificationMessage message, Set<String> delivered, String error,
+            boolean retryable) {
+        Long retryMs = retryable && message.getAttempts() < message.getMaxAttempts()
+                ? backoff.delayMillis(message.getAttempts())
+                : null;
+        return new DeliveryOutcome(message.getQueueId(), message.getAttempts(), "failed", retryMs, error, delivered);
+    }
+
+    private void complete(List<DeliveryOutcome> outcomes) {
+        if (outcomes.isEmpty()) {
+            return;
+        }
+        int n = outcomes.size();
+        Long[] ids = new Long[n];
+        Integer[] attempts = new Integer[n];
+        String[] statuses = new String[n];
+        Long[] retryMs = new Long[n];
+        String[] errors = new String[n];
+        String[] deliveredVia = new String[n];
+        for (int i = 0; i < n; i++) {
+            DeliveryOutcome outcome = outcomes.get(i);
+            ids[i] = outcome.queueId;
+            attempts[i] = outcome.attempts;
+            statuses[i] = outcome.status;
+            retryMs[i] = outcome.retryMs;
+            errors[i] = outcome.error;
+            deliveredVia[i] = String.join(",", outcome.deliveredVia);
+        }
+
+        int updated = jdbcTemplate.execute((Connection con) -> {
+            try (PreparedStatement ps = con.prepareStatement(COMPLETE_SQL)) {
+                Array[] arrays = {
+                        con.createArrayOf("bigint", ids),
+                        con.createArrayOf("integer", attempts),
+                        con.createArrayOf("text", statuses),
+                        con.createArrayOf("bigint", retryMs),
+                        con.createArrayOf("text", errors),
+                        con.createArrayOf("text", deliveredVia)
+                };
+                for (int i = 0; i < arrays.length; i++) {
+                    ps.setArray(i + 1, arrays[i]);
+                }
+                return ps.executeUpdate();
+            }
+        });
+        if (updated < n) {
+            log.warn("{} of {} notification outcomes were discarded because their lease had expired",
+                    n - updated, n);
+        }
+    }
+
+    private List<String> toList(ResultSet rs, String column) throws SQLException {
+        Array array = rs.getArray(column);
+        return array != null ? Arrays.asList((String[]) array.getArray()) : List.of();
+    }
+
+    private static class DeliveryOutcome {
+        final long queueId;
+        final int attempts;
+        final String status;
+        final Long retryMs;
+        final String error;
+        final Set<String> deliveredVia;
+
+        DeliveryOutcome(long queueId, int attempts, String status, Long retryMs, String error,
+                Set<String> deliveredVia) {
+            this.queueId = queueId;
+            this.attempts = attempts;
+            this.status = status;
+            this.retryMs = retryMs;
+            this.error = error;
+            this.deliveredVia = deliveredVia;
+        }
+    }
+}
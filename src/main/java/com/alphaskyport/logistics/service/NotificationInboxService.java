@@ -0,0 +1,319 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.event.NotificationInboxChangedEvent;
+import com.alphaskyport.logistics.notification.InAppNotificationChannel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Customer-facing in-app notification inbox.
+ *
+ * Pages seek on queue_id per user rather than using OFFSET, reading the live
+ * queue and notification_history together (moved rows keep their queue_id).
+ * The unread badge is a Redis counter adjusted after commit by enqueue and
+ * mark-read, so reading it never touches the database; a missing counter is
+ * rebuilt once from the partial unread indexes. Every delta bumps a per-user
+ * generation, and a rebuild is only stored if the generation it read before
+ * counting is still current, so a delta that lands while the counter is absent
+ * is never lost. Deltas do not extend the counter's TTL: each counter is
+ * rebuilt at least once per counter-ttl, which bounds any drift from lost
+ * Redis writes or a delta applied on top of a rebuild that already counted it.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class NotificationInboxService {
+
+    private static final String UNREAD_PREFIX = "notifications:unread:";
+    private static final String GENERATION_PREFIX = "notifications:unread-generation:";
+    private static final String HISTORY_TABLE = "notification_history";
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+    private static final int MAX_MARK_READ = 1000;
+
+    // Never let a late decrement push the badge below zero; INCRBY keeps the counter's TTL
+    private static final DefaultRedisScript<Long> APPLY_DELTA = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[2])
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return -1
+            end
+            local value = redis.call('INCRBY', KEYS[1], ARGV[1])
+            if value < 0 then
+                redis.call('INCRBY', KEYS[1], -value)
+                value = 0
+            end
+            return value
+            """, Long.class);
+
+    // Stores a rebuilt count only if no delta arrived since the generation was read
+    private static final DefaultRedisScript<Long> SEED_IF_CURRENT = new DefaultRedisScript<>("""
+            local gen = redis.call('GET', KEYS[2]) or '0'
+            if gen ~= ARGV[1] then
+                return 0
+            end
+            if redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3], 'NX') then
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${logistics.notifications.inbox.counter-ttl:1h}")
+    private Duration counterTtl;
+
+    public NotificationInboxService(JdbcTemplate jdbcTemplate, StringRedisTemplate redisTemplate,
+            ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional(readOnly = true)
+    public InboxPage getInbox(UUID userId, String cursor, Integer limit, boolean unreadOnly) {
+        int pageSize = limit != null ? limit : DEFAULT_LIMIT;
+        if (pageSize < 1 || pageSize > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_LIMIT);
+        }
+        Long afterId = decodeCursor(userId, cursor);
+
+        // Same filter on both tables so each branch seeks its own (user_id, queue_id) index
+        StringBuilder filter = new StringBuilder("""
+                WHERE user_id = ?
+                  AND ? = ANY(send_via)
+                  AND status <> 'cancelled'
+                """);
+        List<Object> filterArgs = new ArrayList<>(List.of(userId, InAppNotificationChannel.NAME));
+        if (unreadOnly) {
+            filter.append(" AND read_at IS NULL");
+        }
+        if (afterId != null) {
+            filter.append(" AND queue_id < ?");
+            filterArgs.add(afterId);
+        }
+        filter.append(" ORDER BY queue_id DESC LIMIT ?");
+        filterArgs.add(pageSize + 1);
+
+        String columns = "SELECT queue_id, shipment_id, notification_type, title, message, created_at, read_at ";
+        String sql = "(" + columns + "FROM notification_queue " + filter + ")"
+                + " UNION ALL (" + columns + "FROM " + HISTORY_TABLE + " " + filter + ")"
+                + " ORDER BY queue_id DESC LIMIT ?";
+        List<Object> args = new ArrayList<>(filterArgs);
+        args.addAll(filterArgs);
+        args.add(pageSize + 1);
+
+        List<InboxItem> items = jdbcTemplate.query(sql, (rs, i) -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            Timestamp readAt = rs.getTimestamp("read_at");
+            return new InboxItem(
+                    rs.getLong("queue_id"),
+                    rs.getObject("shipment_id", UUID.class),
+                    rs.getString("notification_type"),
+                    rs.getString("title"),
+                    rs.getString("message"),
+                    createdAt != null ? createdAt.toLocalDateTime() : null,
+                    readAt != null ? readAt.toLocalDateTime() : null);
+        }, args.toArray());
+
+        boolean hasMore = items.size() > pageSize;
+        if (hasMore) {
+            items = items.subList(0, pageSize);
+        }
+        String nextCursor = hasMore ? encodeCursor(userId, items.get(items.size() - 1).getId()) : null;
+        return new InboxPage(items, nextCursor, hasMore, getUnreadCount(userId));
+    }
+
+    /**
+     * Marks the given notifications read, one statement per table, and returns how
+     * many were newly marked. Ids belonging to other users are ignored.
+     */
+    @Transactional
+    public int markRead(UUID userId, List<Long> notificationIds) {
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return 0;
+        }
+        if (notificationIds.size() > MAX_MARK_READ) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_MARK_READ + " notifications can be marked read at once");
+        }
+        int updated = 0;
+        for (String table : List.of("notification_queue", HISTORY_TABLE)) {
+            updated += jdbcTemplate.update(con -> {
+                var ps = con.prepareStatement("""
+                        UPDATE %s
+                        SET read_at = CURRENT_TIMESTAMP
+                        WHERE user_id = ?
+                          AND queue_id = ANY(?)
+                          AND read_at IS NULL
+                          AND ? = ANY(send_via)
+                          AND status <> 'cancelled'
+                        """.formatted(table));
+                ps.setObject(1, userId);
+                ps.setArray(2, con.createArrayOf("bigint", notificationIds.toArray(new Long[0])));
+                ps.setString(3, InAppNotificationChannel.NAME);
+                return ps;
+            });
+        }
+        publishDelta(userId, -updated);
+        return updated;
+    }
+
+    @Transactional
+    public int markAllRead(UUID userId) {
+        int updated = 0;
+        for (String table : List.of("notification_queue", HISTORY_TABLE)) {
+            updated += jdbcTemplate.update("""
+                    UPDATE %s
+                    SET read_at = CURRENT_TIMESTAMP
+                    WHERE user_id = ?
+                      AND read_at IS NULL
+                      AND ? = ANY(send_via)
+                      AND status <> 'cancelled'
+                    """.formatted(table), userId, InAppNotificationChannel.NAME);
+        }
+        publishDelta(userId, -updated);
+        return updated;
+    }
+
+    public long getUnreadCount(UUID userId) {
+        List<String> keys = List.of(UNREAD_PREFIX + userId, GENERATION_PREFIX + userId);
+        String generation;
+        try {
+            List<String> cached = redisTemplate.opsForValue().multiGet(keys);
+            if (cached != null && cached.get(0) != null) {
+                return Long.parseLong(cached.get(0));
+            }
+            generation = cached != null && cached.get(1) != null ? cached.get(1) : "0";
+        } catch (DataAccessException e) {
+            log.warn("Unread counter unavailable for {}, counting in database: {}", userId, e.getMessage());
+            return countUnread(userId);
+        }
+
+        long count = countUnread(userId);
+        try {
+            // A delta committed during the count moved the generation; the next read rebuilds instead
+            redisTemplate.execute(SEED_IF_CURRENT, keys, generation, String.valueOf(count),
+                    String.valueOf(counterTtl.toSeconds()));
+        } catch (DataAccessException e) {
+            log.warn("Failed to seed unread counter for {}: {}", userId, e.getMessage());
+        }
+        return count;
+    }
+
+    public void publishDelta(UUID userId, long delta) {
+        if (delta != 0) {
+            eventPublisher.publishEvent(new NotificationInboxChangedEvent(userId, delta));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInboxChanged(NotificationInboxChangedEvent event) {
+        try {
+            // An absent counter is left alone; the next read rebuilds it from the database
+            redisTemplate.execute(APPLY_DELTA,
+                    List.of(UNREAD_PREFIX + event.getUserId(), GENERATION_PREFIX + event.getUserId()),
+                    String.valueOf(event.getDelta()), String.valueOf(counterTtl.toSeconds()));
+        } catch (DataAccessException e) {
+            log.warn("Failed to update unread counter for {}, dropping it: {}", event.getUserId(), e.getMessage());
+            evictCounter(event.getUserId());
+        }
+    }
+
+    // ==================== Internals ====================
+
+    private long countUnread(UUID userId) {
+        Long count = jdbcTemplate.queryForObject("""
+                SELECT (SELECT COUNT(*)
+                        FROM notification_queue
+                        WHERE user_id = ?
+                          AND read_at IS NULL
+                          AND ? = ANY(send_via)
+                          AND status <> 'cancelled')
+                     + (SELECT COUNT(*)
+                        FROM notification_history
+                        WHERE user_id = ?
+                          AND read_at IS NULL
+                          AND ? = ANY(send_via)
+                          AND status <> 'cancelled')
+                """, Long.class, userId, InAppNotificationChannel.NAME, userId, InAppNotificationChannel.NAME);
+        return count != null ? count : 0;
+    }
+
+    private void evictCounter(UUID userId) {
+        try {
+            redisTemplate.delete(UNREAD_PREFIX + userId);
+        } catch (DataAccessException e) {
+            log.debug("Failed to evict unread counter for {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private String encodeCursor(UUID userId, long queueId) {
+        String raw = userId + ":" + queueId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long decodeCursor(UUID userId, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(':');
+            if (separator > 0 && raw.substring(0, separator).equals(userId.toString())) {
+                return Long.parseLong(raw.substring(separator + 1));
+            }
+        } catch (IllegalArgumentException e) {
+            // Falls through to the error below
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class InboxItem {
+        private long id;
+        private UUID shipmentId;
+        private String type;
+        private String title;
+        private String message;
+        private LocalDateTime createdAt;
+        private LocalDateTime readAt;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class InboxPage {
+        private List<InboxItem> items;
+        private String nextCursor;
+        private boolean hasMore;
+        private long unreadCount;
+    }
+}
@@ -0,0 +1,106 @@
+package com.alphaskyport.logistics.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+/**
+ * Keeps notification_queue small by moving finished rows into the monthly
+ * partitioned notification_history table.
+ *
+ * Sent and cancelled rows older than the hot retention are moved in batches,
+ * each a single DELETE ... RETURNING feeding an INSERT, so a row is always in
+ * exactly one of the two tables. Pending, processing and failed rows never
+ * leave the queue, which keeps the dispatcher's claim index independent of
+ * history size. Old history partitions are dropped by
+ * PartitionMaintenanceService. Deduplication only covers the hot queue, so
+ * the hot retention also bounds how long a replayed event is suppressed.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class NotificationRetentionService {
+
+    private static final String MOVE_SQL = """
+            WITH moved AS (
+                DELETE FROM notification_queue q
+                WHERE q.queue_id IN (
+                    SELECT queue_id
+                    FROM notification_queue
+                    WHERE status IN ('sent', 'cancelled')
+                      AND updated_at < LOCALTIMESTAMP - make_interval(secs => ?)
+                    ORDER BY updated_at
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING q.*
+            )
+            INSERT INTO notification_history
+                (queue_id, user_id, shipment_id, notification_type, dedup_key, title, message, metadata,
+                 send_via, delivered_via, delivery_mode, status, attempts, last_error, sent_at, delivered_at,
+                 read_at, created_at, updated_at)
+            SELECT queue_id, user_id, shipment_id, notification_type, dedup_key, title, message, metadata,
+                   send_via, delivered_via, delivery_mode, status, attempts, last_error, sent_at, delivered_at,
+                   read_at, COALESCE(created_at, updated_at, LOCALTIMESTAMP), updated_at
+            FROM moved
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${logistics.notifications.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${logistics.notifications.retention.hot-retention:7d}")
+    private Duration hotRetention;
+
+    @Value("${logistics.notifications.retention.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${logistics.notifications.retention.max-batches:50}")
+    private int maxBatches;
+
+    public NotificationRetentionService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${logistics.notifications.retention.interval-ms:300000}",
+            initialDelayString = "${logistics.notifications.retention.interval-ms:300000}")
+    public void runScheduledMove() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long moved = moveExpired();
+            if (moved > 0) {
+                log.info("Moved {} notifications older than {} to notification_history", moved, hotRetention);
+            }
+        } catch (Exception e) {
+            log.error("Notification retention move failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Moves expired rows in short transactions until none are left or
+     * max-batches is reached, and returns how many were moved.
+     */
+    public long moveExpired() {
+        long total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            Integer moved = transactionTemplate.execute(status ->
+                    jdbcTemplate.update(MOVE_SQL, hotRetention.toSeconds(), batchSize));
+            int count = moved != null ? moved : 0;
+            total += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+}
@@ -1,45 +1,138 @@
 package com.alphaskyport.logistics.service;
 
 import com.alphaskyport.iam.model.User;
-import com.alphaskyport.logistics.model.Notification;
 import com.alphaskyport.logistics.model.Shipment;
-import com.alphaskyport.logistics.repository.NotificationRepository;
-import lombok.RequiredArgsConstructor;
+import com.alphaskyport.logistics.notification.InAppNotificationChannel;
+import com.alphaskyport.logistics.notification.NotificationChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
-import java.util.UUID;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+/**
+ * Enqueues user notifications into notification_queue.
+ *
+ * dedup_key is derived from the triggering event, so enqueueing the same
+ * event twice (retries, duplicate deliveries) yields one row. Types listed in
+ * logistics.notifications.coalesce.types are additionally coalesced: all
+ * events for the same shipment and user inside one window share a key, the
+ * row is held back until the window closes, and later events overwrite its
+ * content so the user receives a single notification with the latest state.
+ * Rows for users on hourly or daily digests are enqueued in 'digest' mode and
+ * left for NotificationDigestService instead of the dispatcher. Every row goes
+ * to the in-app inbox plus the channels the user chose in their notification
+ * preference, limited to the channels registered on this node.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
+@SuppressWarnings("null")
 public class NotificationService {
 
-    private final NotificationRepository notificationRepository;
+    // in_app plus the user's preferred channels; parameters: in_app, user id, registered channels
+    private static final String SEND_VIA_SQL = """
+            ARRAY(SELECT DISTINCT c FROM unnest(ARRAY[?]::varchar[] || COALESCE(
+                      (SELECT p.send_via FROM notification_digest_preferences p WHERE p.user_id = ?),
+                      '{}'::varchar[])) AS c
+                  WHERE c = ANY(string_to_array(?, ',')))""";
+
+    private static final String COALESCE_SQL = """
+            WITH window_bucket AS (
+                SELECT (floor(extract(epoch FROM clock_timestamp()) / ?)::bigint + ?) AS bucket
+            )
+            INSERT INTO notification_queue
+                (user_id, shipment_id, notification_type, dedup_key, title, message, metadata, send_via,
+                 status, next_retry_at, delivery_mode)
+            SELECT ?, ?, ?, ? || ':w' || b.bucket, ?, ?, jsonb_build_object('coalescedCount', 1),
+                   %s, 'pending', to_timestamp((b.bucket + 1) * ?),
+                   COALESCE((SELECT 'digest' FROM notification_digest_preferences p
+                             WHERE p.user_id = ? AND p.frequency <> 'immediate'), 'immediate')
+            FROM window_bucket b
+            ON CONFLICT (dedup_key) DO UPDATE
+            SET title = EXCLUDED.title,
+                message = EXCLUDED.message,
+                metadata = jsonb_set(COALESCE(notification_queue.metadata, '{}'::jsonb), '{coalescedCount}',
+                        to_jsonb(COALESCE((notification_queue.metadata ->> 'coalescedCount')::int, 1) + 1)),
+                updated_at = CURRENT_TIMESTAMP
+            WHERE notification_queue.status = 'pending'
+            RETURNING (xmax = 0) AS inserted
+            """.formatted(SEND_VIA_SQL);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO notification_queue
+                (user_id, shipment_id, notification_type, dedup_key, title, message, send_via, status,
+                 delivery_mode)
+            VALUES (?, ?, ?, ?, ?, ?, %s, 'pending',
+                    COALESCE((SELECT 'digest' FROM notification_digest_preferences p
+                              WHERE p.user_id = ? AND p.frequency <> 'immediate'), 'immediate'))
+            ON CONFLICT (dedup_key) DO NOTHING
+            """.formatted(SEND_VIA_SQL);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationInboxService inboxService;
+    private final String registeredChannels;
+
+    @Value("${logistics.notifications.coalesce.window-seconds:30}")
+    private int coalesceWindowSeconds;
+
+    @Value("${logistics.notifications.coalesce.types:SHIPMENT_STATUS_UPDATE}")
+    private Set<String> coalescedTypes;
+
+    public NotificationService(JdbcTemplate jdbcTemplate, NotificationInboxService inboxService,
+            List<NotificationChannel> channels) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.inboxService = inboxService;
+        this.registeredChannels = channels.stream().map(NotificationChannel::getName)
+                .collect(Collectors.joining(","));
+    }
 
-    @Transactional // Ensure notification is saved even if main tx fails? No,
-                   // usually we want it bound. But for "queueing", maybe we
-                   // want it to be part of the transaction. Let's stick to
-                   // default propagation (REQUIRED).
     public void enqueueNotification(User user, Shipment shipment, String title, String message, String type) {
-        Notification notification = new Notification();
-        notification.setUser(user);
-        notification.setShipment(shipment);
-        notification.setTitle(title);
-        notification.setMessage(message);
-        notification.setNotificationType(type);
-
-        // Generate a simple dedup key for now: TYPE-SHIPMENTID-TIMESTAMP_MINUTE (or
-        // just random if we don't have strict dedup requirements yet)
-        // Schema says dedup_key is unique. Let's use UUID for now to avoid collisions
-        // in this simple implementation.
-        // In a real system, this would be deterministic based on the event.
-        notification.setDedupKey(type + "-" + shipment.getShipmentId() + "-" + UUID.randomUUID());
-
-        notification.setSendVia(Collections.singletonList("in_app"));
-        notification.setStatus("pending");
-
-        notificationRepository.save(notification);
+        enqueueNotification(user, shipment, title, message, type, null);
+    }
+
+    /**
+     * Enqueues a notification for one event. eventKey distinguishes events of
+     * the same type for the same shipment (e.g. the new status and the time of
+     * its tracking event); leave it null for once-per-shipment events such as
+     * creation. Coalesced types ignore it and merge within the window.
+     */
+    @Transactional
+    public void enqueueNotification(User user, Shipment shipment, String title, String message, String type,
+            String eventKey) {
+        String baseKey = type + ":" + shipment.getShipmentId() + ":" + user.getUserId();
+
+        if (coalesceWindowSeconds > 0 && coalescedTypes.contains(type)) {
+            // If this window's row was already claimed for sending, roll over into the next window
+            for (int offset = 0; offset <= 1; offset++) {
+                List<Boolean> upserted = jdbcTemplate.queryForList(COALESCE_SQL, Boolean.class,
+                        coalesceWindowSeconds, offset, user.getUserId(), shipment.getShipmentId(), type, baseKey,
+                        title, message, InAppNotificationChannel.NAME, user.getUserId(), registeredChannels,
+                        coalesceWindowSeconds, user.getUserId());
+                if (!upserted.isEmpty()) {
+                    // A coalesced update replaces content but is still one unread notification
+                    if (Boolean.TRUE.equals(upserted.get(0))) {
+                        inboxService.publishDelta(user.getUserId(), 1);
+                    }
+                    return;
+                }
+            }
+            log.warn("Could not coalesce {} notification for shipment {}", type, shipment.getShipmentId());
+            return;
+        }
+
+        String dedupKey = eventKey != null ? baseKey + ":" + eventKey : baseKey;
+        int inserted = jdbcTemplate.update(INSERT_SQL, user.getUserId(), shipment.getShipmentId(), type,
+                dedupKey, title, message, InAppNotificationChannel.NAME, user.getUserId(), registeredChannels,
+                user.getUserId());
+        if (inserted == 0) {
+            log.debug("Duplicate notification suppressed: {}", dedupKey);
+        } else {
+            inboxService.publishDelta(user.getUserId(), inserted);
+        }
     }
 }
@@ -0,0 +1,357 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.model.PaymentTransaction;
+import com.alphaskyport.logistics.model.Shipment;
+import com.alphaskyport.logistics.payment.GatewayRequest;
+import com.alphaskyport.logistics.payment.GatewayResult;
+import com.alphaskyport.logistics.payment.PaymentGateway;
+import com.alphaskyport.logistics.payment.PaymentGatewayException;
+import com.alphaskyport.logistics.payment.PaymentIdempotencyGuard;
+import com.alphaskyport.logistics.payment.PaymentIdempotencyGuard.CachedPayment;
+import com.alphaskyport.logistics.repository.PaymentTransactionRepository;
+import com.alphaskyport.logistics.repository.ShipmentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Drives payment transactions through the gateway.
+ *
+ * pending -> processing -> completed | failed. Every transition is a
+ * compare-and-set on the current status, so a payment is charged by one
+ * worker even when the sweeper and a request race for it. No database lock
+ * is held while the gateway is called; shipment financials are applied in a
+ * short follow-up transaction. Gateway calls run on virtual threads, capped
+ * by a semaphore. Unknown outcomes (timeouts) send the payment back to
+ * pending for the sweeper to retry, which is safe because gateways are
+ * idempotent on the payment's idempotency key; once max-attempts is spent
+ * the payment is parked as needs_reconciliation, since it may have been
+ * charged. An approved charge that the shipment can no longer take (a
+ * concurrent payment covered the amount due) becomes refund_pending and is
+ * refunded through the gateway, by the sweeper if the first try fails.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class PaymentProcessor {
+
+    public static final String REFUND_PENDING = "refund_pending";
+    public static final String NEEDS_RECONCILIATION = "needs_reconciliation";
+
+    private final PaymentTransactionRepository paymentTransactionRepository;
+    private final ShipmentRepository shipmentRepository;
+    private final PaymentGateway gateway;
+    private final PaymentIdempotencyGuard idempotencyGuard;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecutorService gatewayExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore gatewayPermits;
+
+    @Value("${logistics.payments.gateway.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${logistics.payments.sweeper.pending-grace:30s}")
+    private Duration pendingGrace;
+
+    @Value("${logistics.payments.sweeper.processing-timeout:2m}")
+    private Duration processingTimeout;
+
+    @Value("${logistics.payments.sweeper.batch-size:500}")
+    private int sweepBatchSize;
+
+    public PaymentProcessor(PaymentTransactionRepository paymentTransactionRepository,
+            ShipmentRepository shipmentRepository, PaymentGateway gateway, PaymentIdempotencyGuard idempotencyGuard,
+            TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate,
+            @Value("${logistics.payments.gateway.max-concurrency:200}") int maxConcurrency) {
+        this.paymentTransactionRepository = paymentTransactionRepository;
+        this.shipmentRepository = shipmentRepository;
+        this.gateway = gateway;
+        this.idempotencyGuard = idempotencyGuard;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.gatewayPermits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Processes the payment on a virtual thread once the surrounding
+     * transaction (if any) has committed.
+     */
+    public void submit(UUID transactionId) {
+        Runnable task = () -> {
+            try {
+                gatewayExecutor.execute(() -> processQuietly(transactionId));
+            } catch (RejectedExecutionException e) {
+                log.warn("Payment {} not submitted, executor shut down; the sweeper will pick it up", transactionId);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Runs one pending payment through the gateway on the calling thread and
+     * returns it in its resulting state. A payment another worker already
+     * owns, or that has finished, is returned as is.
+     */
+    public PaymentTransaction process(UUID transactionId) {
+        GatewayRequest request = transactionTemplate.execute(status -> {
+            if (paymentTransactionRepository.startProcessing(transactionId) == 0) {
+                return null;
+            }
+            PaymentTransaction transaction = paymentTransactionRepository.findById(transactionId).orElseThrow();
+            return new GatewayRequest(transaction.getTransactionId(), transaction.getIdempotencyKey(),
+                    transaction.getAmount(), transaction.getCurrency(), transaction.getPaymentMethod());
+        });
+        if (request == null) {
+            return paymentTransactionRepository.findById(transactionId).orElseThrow();
+        }
+
+        PaymentTransaction finished;
+        try {
+            GatewayResult result;
+            gatewayPermits.acquire();
+            try {
+                result = gateway.charge(request);
+            } finally {
+                gatewayPermits.release();
+            }
+            finished = transactionTemplate.execute(status -> finish(transactionId, result));
+        } catch (PaymentGatewayException e) {
+            finished = transactionTemplate.execute(status -> retryLater(transactionId, e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished = transactionTemplate.execute(status -> retryLater(transactionId, "Interrupted"));
+        }
+
+        if (finished != null && REFUND_PENDING.equals(finished.getTransactionStatus())) {
+            return refund(transactionId);
+        }
+        if (isFinal(finished)) {
+            idempotencyGuard.publish(finished.getIdempotencyKey(), CachedPayment.from(finished));
+        }
+        return finished;
+    }
+
+    /**
+     * Refunds a refund_pending payment through the gateway. An unknown
+     * outcome leaves it refund_pending for the sweeper; a declined refund
+     * parks it as needs_reconciliation.
+     */
+    public PaymentTransaction refund(UUID transactionId) {
+        PaymentTransaction transaction = paymentTransactionRepository.findById(transactionId).orElseThrow();
+        if (!REFUND_PENDING.equals(transaction.getTransactionStatus())) {
+            return transaction;
+        }
+        GatewayRequest request = new GatewayRequest(transactionId, transaction.getIdempotencyKey() + ":refund",
+                transaction.getAmount(), transaction.getCurrency(), transaction.getPaymentMethod());
+
+        GatewayResult result;
+        try {
+            gatewayPermits.acquire();
+            try {
+                result = gateway.refund(request, transaction.getExternalTransactionId());
+            } finally {
+                gatewayPermits.release();
+            }
+        } catch (PaymentGatewayException e) {
+            log.warn("Refund of payment {} failed, will retry: {}", transactionId, e.getMessage());
+            // Touches updated_at so the sweeper waits out the grace period before the next try
+            transactionTemplate.execute(status -> paymentTransactionRepository.transition(transactionId,
+                    REFUND_PENDING, REFUND_PENDING));
+            return paymentTransactionRepository.findById(transactionId).orElseThrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return transaction;
+        }
+
+        PaymentTransaction finished = transactionTemplate.execute(status -> finishRefund(transactionId, result));
+        if (isFinal(finished)) {
+            idempotencyGuard.publish(finished.getIdempotencyKey(), CachedPayment.from(finished));
+        }
+        return finished;
+    }
+
+    /**
+     * Hands back payments whose worker died mid-call and resubmits payments
+     * that were never picked up.
+     */
+    @Scheduled(fixedDelayString = "${logistics.payments.sweeper.interval-ms:30000}")
+    public void sweep() {
+        int reset = jdbcTemplate.update("""
+                UPDATE payment_transactions
+                SET transaction_status = 'pending', updated_at = CURRENT_TIMESTAMP
+                WHERE transaction_status = 'processing'
+                  AND updated_at < LOCALTIMESTAMP - make_interval(secs => ?)
+                """, processingTimeout.toSeconds());
+        if (reset > 0) {
+            log.warn("Reset {} payments stuck in processing for more than {}", reset, processingTimeout);
+        }
+
+        List<UUID> pending = jdbcTemplate.queryForList("""
+                SELECT transaction_id
+                FROM payment_transactions
+                WHERE transaction_status = 'pending'
+                  AND updated_at < LOCALTIMESTAMP - make_interval(secs => ?)
+                ORDER BY updated_at
+                LIMIT ?
+                """, UUID.class, pendingGrace.toSeconds(), sweepBatchSize);
+        pending.forEach(this::submit);
+        if (!pending.isEmpty()) {
+            log.info("Resubmitted {} pending payments", pending.size());
+        }
+
+        List<UUID> refunds = jdbcTemplate.queryForList("""
+                SELECT transaction_id
+                FROM payment_transactions
+                WHERE transaction_status = 'refund_pending'
+                  AND updated_at < LOCALTIMESTAMP - make_interval(secs => ?)
+                ORDER BY updated_at
+                LIMIT ?
+                """, UUID.class, pendingGrace.toSeconds(), sweepBatchSize);
+        for (UUID transactionId : refunds) {
+            try {
+                gatewayExecutor.execute(() -> refundQuietly(transactionId));
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        if (!refunds.isEmpty()) {
+            log.info("Retrying {} pending refunds", refunds.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        gatewayExecutor.shutdown();
+    }
+
+    /**
+     * Whether the payment has reached a state its idempotency key can be
+     * answered with for good. refund_pending and needs_reconciliation still
+     * change, so they are read from the database instead.
+     */
+    public static boolean isFinal(PaymentTransaction transaction) {
+        return transaction != null && ("completed".equals(transaction.getTransactionStatus())
+                || "failed".equals(transaction.getTransactionStatus())
+                || "refunded".equals(transaction.getTransactionStatus()));
+    }
+
+    // ==================== Internals ====================
+
+    private void processQuietly(UUID transactionId) {
+        try {
+            process(transactionId);
+        } catch (Exception e) {
+            log.error("Payment {} processing failed, the sweeper will retry: {}", transactionId, e.getMessage());
+        }
+    }
+
+    private void refundQuietly(UUID transactionId) {
+        try {
+            refund(transactionId);
+        } catch (Exception e) {
+            log.error("Refund of payment {} failed, the sweeper will retry", transactionId, e);
+        }
+    }
+
+    private PaymentTransaction finish(UUID transactionId, GatewayResult result) {
+        PaymentTransaction transaction = paymentTransactionRepository.findByIdWithLock(transactionId).orElseThrow();
+        if (!"processing".equals(transaction.getTransactionStatus())) {
+            // Reset by the sweeper and picked up again; the later worker records the outcome
+            return transaction;
+        }
+        transaction.setGatewayProvider(gateway.getName());
+        transaction.setGatewayResponse(result.getResponse());
+        transaction.setProcessedAt(LocalDateTime.now());
+
+        if (!result.isApproved()) {
+            transaction.setTransactionStatus("failed");
+            transaction.setFailedReason(result.getDeclineReason());
+            return paymentTransactionRepository.save(transaction);
+        }
+        transaction.setExternalTransactionId(result.getExternalTransactionId());
+
+        Shipment shipment = shipmentRepository.findByIdWithLock(transaction.getShipment().getShipmentId())
+                .orElseThrow(() -> new IllegalStateException("Shipment of payment " + transactionId + " not found"));
+        BigDecimal newAmountPaid = shipment.getAmountPaid().add(transaction.getAmount());
+        BigDecimal newAmountDue = shipment.getTotalCost().subtract(newAmountPaid);
+        if (newAmountDue.compareTo(BigDecimal.ZERO) < 0) {
+            // Concurrent payments overtook this one after it was accepted; the charge is refunded, not applied
+            log.warn("Payment {} was charged but exceeds the amount due of shipment {}; refunding",
+                    transactionId, shipment.getShipmentId());
+            transaction.setTransactionStatus(REFUND_PENDING);
+            transaction.setFailedReason("Payment amount exceeds amount due");
+            return paymentTransactionRepository.save(transaction);
+        }
+
+        shipment.setAmountPaid(newAmountPaid);
+        shipment.setAmountDue(newAmountDue);
+        shipment.setPaymentStatus(newAmountDue.compareTo(BigDecimal.ZERO) == 0 ? "paid" : "partial");
+        shipmentRepository.save(shipment);
+
+        transaction.setTransactionStatus("completed");
+        return paymentTransactionRepository.save(transaction);
+    }
+
+    private PaymentTransaction retryLater(UUID transactionId, String error) {
+        PaymentTransaction transaction = paymentTransactionRepository.findByIdWithLock(transactionId).orElseThrow();
+        if (!"processing".equals(transaction.getTransactionStatus())) {
+            return transaction;
+        }
+        if (transaction.getGatewayAttempts() >= maxAttempts) {
+            // The charge may have gone through, so this is not a failure the customer can simply retry
+            log.error("Payment {} outcome still unknown after {} gateway attempts, needs reconciliation: {}",
+                    transactionId, transaction.getGatewayAttempts(), error);
+            transaction.setTransactionStatus(NEEDS_RECONCILIATION);
+            transaction.setFailedReason("Gateway outcome unknown: " + error);
+            transaction.setProcessedAt(LocalDateTime.now());
+        } else {
+            log.warn("Payment {} gateway attempt {} failed, will retry: {}", transactionId,
+                    transaction.getGatewayAttempts(), error);
+            transaction.setTransactionStatus("pending");
+        }
+        transaction.setGatewayProvider(gateway.getName());
+        return paymentTransactionRepository.save(transaction);
+    }
+
+    private PaymentTransaction finishRefund(UUID transactionId, GatewayResult result) {
+        PaymentTransaction transaction = paymentTransactionRepository.findByIdWithLock(transactionId).orElseThrow();
+        if (!REFUND_PENDING.equals(transaction.getTransactionStatus())) {
+            return transaction;
+        }
+        if (result.isApproved()) {
+            log.info("Refunded payment {} as {}", transactionId, result.getExternalTransactionId());
+            transaction.setTransactionStatus("refunded");
+        } else {
+            log.error("Refund of payment {} was declined, needs reconciliation: {}", transactionId,
+                    result.getDeclineReason());
+            transaction.setTransactionStatus(NEEDS_RECONCILIATION);
+            transaction.setFailedReason("Refund declined: " + result.getDeclineReason());
+        }
+        return paymentTransactionRepository.save(transaction);
+    }
+}
@@ -2,37 +2,110 @@ package com.alphaskyport.logistics.service;
 
 import com.alphaskyport.logistics.model.PaymentTransaction;
 import com.alphaskyport.logistics.model.Shipment;
+import com.alphaskyport.logistics.payment.PaymentIdempotencyGuard;
+import com.alphaskyport.logistics.payment.PaymentIdempotencyGuard.CachedPayment;
+import com.alphaskyport.logistics.payment.PaymentIdempotencyGuard.Lease;
 import com.alphaskyport.logistics.repository.PaymentTransactionRepository;
 import com.alphaskyport.logistics.repository.ShipmentRepository;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
 public class PaymentService {
 
     private final PaymentTransactionRepository paymentTransactionRepository;
     private final ShipmentRepository shipmentRepository;
+    private final PaymentIdempotencyGuard idempotencyGuard;
+    private final PaymentProcessor paymentProcessor;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
+    @Value("${logistics.payments.processing.mode:async}")
+    private String processingMode;
+
+    public PaymentService(PaymentTransactionRepository paymentTransactionRepository,
+            ShipmentRepository shipmentRepository, PaymentIdempotencyGuard idempotencyGuard,
+            PaymentProcessor paymentProcessor, TransactionTemplate transactionTemplate) {
+        this.paymentTransactionRepository = paymentTransactionRepository;
+        this.shipmentRepository = shipmentRepository;
+        this.idempotencyGuard = idempotencyGuard;
+        this.paymentProcessor = paymentProcessor;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Accepts a payment at most once per idempotency key and returns it as
+     * 'pending'; PaymentProcessor charges it in the background. With
+     * logistics.payments.processing.mode=inline the gateway is called on the
+     * calling thread and the final state is returned instead.
+     *
+     * Retries of a finished payment are answered from the Redis result cache;
+     * concurrent duplicates wait for the first request and replay its result
+     * instead of racing it to the unique constraint.
+     */
     public PaymentTransaction processPayment(UUID shipmentId, BigDecimal amount, String currency, String paymentMethod,
             String idempotencyKey) {
-        // 1. Idempotency Check
+        // 1. Idempotency Check (cache, then in-flight guard)
+        Optional<CachedPayment> cached = idempotencyGuard.findCompleted(idempotencyKey);
+        if (cached.isPresent()) {
+            return toTransaction(cached.get());
+        }
+        Lease lease = idempotencyGuard.acquire(idempotencyKey);
+        if (lease.getCompleted().isPresent()) {
+            return toTransaction(lease.getCompleted().get());
+        }
+
+        PaymentTransaction transaction;
+        try {
+            transaction = transactionTemplate.execute(status -> createPayment(shipmentId, amount, currency,
+                    paymentMethod, idempotencyKey));
+            if ("inline".equals(processingMode) && "pending".equals(transaction.getTransactionStatus())) {
+                transaction = paymentProcessor.process(transaction.getTransactionId());
+            }
+        } catch (RuntimeException e) {
+            idempotencyGuard.release(lease);
+            throw e;
+        }
+
+        if (PaymentProcessor.isFinal(transaction)) {
+            // Published only after commit, so a retry never replays a rolled-back payment
+            idempotencyGuard.complete(lease, CachedPayment.from(transaction));
+        } else {
+            // Still in flight: duplicates find the row; the processor caches the final result
+            idempotencyGuard.release(lease);
+            if ("pending".equals(transaction.getTransactionStatus())) {
+                paymentProcessor.submit(transaction.getTransactionId());
+            }
+        }
+        return transaction;
+    }
+
+    public PaymentTransaction getPayment(UUID transactionId) {
+        return paymentTransactionRepository.findById(transactionId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Payment not found"));
+    }
+
+    private PaymentTransaction createPayment(UUID shipmentId, BigDecimal amount, String currency,
+            String paymentMethod, String idempotencyKey) {
         Optional<PaymentTransaction> existingTransaction = paymentTransactionRepository
                 .findByIdempotencyKey(idempotencyKey);
         if (existingTransaction.isPresent()) {
             return existingTransaction.get();
         }
 
-        // 2. Lock Shipment
-        Shipment shipment = shipmentRepository.findByIdWithLock(shipmentId)
+        // 2. Validate against the shipment without locking it; financials are applied once the gateway answers
+        Shipment shipment = shipmentRepository.findById(shipmentId)
                 .orElseThrow(() -> new RuntimeException("Shipment not found"));
+        // Schema constraint: amount_due >= 0, so overpayment is rejected up front
+        if (amount.compareTo(shipment.getAmountDue()) > 0) {
+            throw new RuntimeException("Payment amount exceeds amount due");
+        }
 
         // 3. Create Transaction
         PaymentTransaction transaction = new PaymentTransaction();
@@ -42,35 +115,27 @@ public class PaymentService {
         transaction.setCurrency(currency);
         transaction.setTransactionType("payment");
         transaction.setPaymentMethod(paymentMethod);
-        transaction.setTransactionStatus("completed"); // Simulating instant success
-        transaction.setProcessedAt(LocalDateTime.now());
-
-        paymentTransactionRepository.save(transaction);
+        transaction.setTransactionStatus("pending");
 
-        // 4. Update Shipment Financials
-        BigDecimal newAmountPaid = shipment.getAmountPaid().add(amount);
-        shipment.setAmountPaid(newAmountPaid);
-
-        BigDecimal newAmountDue = shipment.getTotalCost().subtract(newAmountPaid);
-        // Ensure due is not negative (overpayment) - business rule?
-        // For now, allow negative to indicate credit, or clamp to zero?
-        // Schema constraint: amount_due >= 0. So we must clamp or throw.
-        if (newAmountDue.compareTo(BigDecimal.ZERO) < 0) {
-            // throw new RuntimeException("Overpayment not allowed");
-            // Or just set to zero and maybe handle refund later?
-            // Let's stick to strict schema.
-            throw new RuntimeException("Payment amount exceeds amount due");
-        }
-        shipment.setAmountDue(newAmountDue);
-
-        if (newAmountDue.compareTo(BigDecimal.ZERO) == 0) {
-            shipment.setPaymentStatus("paid");
-        } else {
-            shipment.setPaymentStatus("partial");
-        }
-
-        shipmentRepository.save(shipment);
+        // A concurrent unguarded duplicate loses here on the unique idempotency_key
+        return paymentTransactionRepository.saveAndFlush(transaction);
+    }
 
+    @SuppressWarnings("null")
+    private PaymentTransaction toTransaction(CachedPayment cached) {
+        PaymentTransaction transaction = new PaymentTransaction();
+        transaction.setTransactionId(cached.getTransactionId());
+        // Lazy reference: no query unless the caller navigates into the shipment
+        transaction.setShipment(shipmentRepository.getReferenceById(cached.getShipmentId()));
+        transaction.setIdempotencyKey(cached.getIdempotencyKey());
+        transaction.setAmount(cached.getAmount());
+        transaction.setCurrency(cached.getCurrency());
+        transaction.setTransactionType(cached.getTransactionType());
+        transaction.setPaymentMethod(cached.getPaymentMethod());
+        transaction.setTransactionStatus(cached.getTransactionStatus());
+        transaction.setFailedReason(cached.getFailedReason());
+        transaction.setProcessedAt(cached.getProcessedAt());
+        transaction.setCreatedAt(cached.getCreatedAt());
         return transaction;
     }
 }
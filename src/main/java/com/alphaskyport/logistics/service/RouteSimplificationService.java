@@ -0,0 +1,210 @@
+package com.alphaskyport.logistics.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serves simplified GPS trails per shipment.
+ *
+ * The simplified polyline is cached in Redis per shipment and tolerance. When
+ * new points arrive only the tail is recomputed: everything before the
+ * second-to-last kept vertex is final, so the window from that anchor to the
+ * newest point is re-simplified and spliced on. Points that arrive out of
+ * order trigger a full rebuild.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class RouteSimplificationService {
+
+    private static final String CACHE_PREFIX = "tracking:route:";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${logistics.tracking.route.default-tolerance-meters:50}")
+    private double defaultToleranceMeters;
+
+    @Value("${logistics.tracking.route.cache-ttl-hours:24}")
+    private long cacheTtlHours;
+
+    public RouteSimplificationService(JdbcTemplate jdbcTemplate, StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public SimplifiedRoute getSimplifiedRoute(UUID shipmentId, Double toleranceMeters) {
+        double tolerance = toleranceMeters != null ? toleranceMeters : defaultToleranceMeters;
+        if (tolerance < 1 || tolerance > 100_000) {
+            throw new IllegalArgumentException("Tolerance must be between 1 and 100000 metres");
+        }
+
+        String cacheKey = CACHE_PREFIX + shipmentId + ":" + (long) tolerance;
+        SimplifiedRoute cached = readCache(cacheKey);
+        SimplifiedRoute route = cached != null ? refresh(shipmentId, tolerance, cached) : build(shipmentId, tolerance);
+
+        if (route != cached) {
+            writeCache(cacheKey, route);
+        }
+        return route;
+    }
+
+    // ==================== Internals ====================
+
+    private SimplifiedRoute refresh(UUID shipmentId, double tolerance, SimplifiedRoute cached) {
+        String deltaSql = """
+                SELECT COUNT(*) AS new_points, MIN(event_timestamp) AS earliest
+                FROM shipment_tracking_events
+                WHERE shipment_id = ?
+                  AND event_id > ?
+                  AND latitude IS NOT NULL AND longitude IS NOT NULL
+                """;
+        Object[] delta = jdbcTemplate.queryForObject(deltaSql, (rs, i) -> new Object[] {
+                rs.getLong("new_points"), rs.getTimestamp("earliest") }, shipmentId, cached.getLastEventId());
+
+        long newPoints = (Long) delta[0];
+        if (newPoints == 0) {
+            return cached;
+        }
+
+        List<RoutePoint> points = cached.getPoints();
+        Timestamp earliest = (Timestamp) delta[1];
+        if (points.size() < 2 || earliest.toLocalDateTime().isBefore(points.get(points.size() - 1).getTimestamp())) {
+            return build(shipmentId, tolerance);
+        }
+
+        // Everything before the anchor stays; the anchor onwards is re-simplified with the new points
+        int anchorIndex = points.size() - 2;
+        RoutePoint anchor = points.get(anchorIndex);
+        Trail tail = loadTrail(shipmentId, anchor.getTimestamp());
+
+        List<RoutePoint> merged = new ArrayList<>(points.subList(0, anchorIndex));
+        merged.addAll(simplify(tail, tolerance));
+
+        return new SimplifiedRoute(shipmentId, tolerance, cached.getRawPointCount() + newPoints,
+                merged.size(), Math.max(cached.getLastEventId(), tail.maxEventId), merged);
+    }
+
+    private SimplifiedRoute build(UUID shipmentId, double tolerance) {
+        Trail trail = loadTrail(shipmentId, null);
+        List<RoutePoint> points = simplify(trail, tolerance);
+        return new SimplifiedRoute(shipmentId, tolerance, trail.size, points.size(), trail.maxEventId, points);
+    }
+
+    private List<RoutePoint> simplify(Trail trail, double tolerance) {
+        int[] kept = RouteSimplifier.simplify(trail.latitudes, trail.longitudes, trail.size, tolerance);
+        List<RoutePoint> points = new ArrayList<>(kept.length);
+        for (int index : kept) {
+            points.add(new RoutePoint(trail.latitudes[index], trail.longitudes[index], trail.timestamps[index]));
+        }
+        return points;
+    }
+
+    private Trail loadTrail(UUID shipmentId, LocalDateTime from) {
+        String sql = """
+                SELECT event_id, event_timestamp, latitude::float8 AS lat, longitude::float8 AS lon
+                FROM shipment_tracking_events
+                WHERE shipment_id = ?
+                  AND latitude IS NOT NULL AND longitude IS NOT NULL
+                  AND event_timestamp >= ?
+                ORDER BY event_timestamp, event_id
+                """;
+
+        Trail trail = new Trail();
+        Timestamp lowerBound = Timestamp.valueOf(from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0));
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(sql);
+            ps.setFetchSize(5000);
+            ps.setObject(1, shipmentId);
+            ps.setTimestamp(2, lowerBound);
+            return ps;
+        }, rs -> {
+            trail.add(rs.getDouble("lat"), rs.getDouble("lon"),
+                    rs.getTimestamp("event_timestamp").toLocalDateTime(), rs.getLong("event_id"));
+        });
+        return trail;
+    }
+
+    private SimplifiedRoute readCache(String key) {
+        try {
+            String json = redisTemplate.opsForValue().get(key);
+            return json != null ? objectMapper.readValue(json, SimplifiedRoute.class) : null;
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Route cache read failed for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCache(String key, SimplifiedRoute route) {
+        try {
+            redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(route),
+                    Duration.ofHours(cacheTtlHours));
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Route cache write failed for {}: {}", key, e.getMessage());
+        }
+    }
+
+    /** Growable primitive buffers; avoids boxing every coordinate of a long trail. */
+    private static class Trail {
+        double[] latitudes = new double[256];
+        double[] longitudes = new double[256];
+        LocalDateTime[] timestamps = new LocalDateTime[256];
+        int size;
+        long maxEventId;
+
+        void add(double lat, double lon, LocalDateTime timestamp, long eventId) {
+            if (size == latitudes.length) {
+                int capacity = size * 2;
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+            }
+            latitudes[size] = lat;
+            longitudes[size] = lon;
+            timestamps[size] = timestamp;
+            size++;
+            maxEventId = Math.max(maxEventId, eventId);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SimplifiedRoute {
+        private UUID shipmentId;
+        private double toleranceMeters;
+        private long rawPointCount;
+        private int pointCount;
+        private long lastEventId;
+        private List<RoutePoint> points;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RoutePoint {
+        private double latitude;
+        private double longitude;
+        private LocalDateTime timestamp;
+    }
+}
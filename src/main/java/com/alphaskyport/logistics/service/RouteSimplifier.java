@@ -0,0 +1,129 @@
+package com.alphaskyport.logistics.service;
+
+import java.util.Arrays;
+
+/**
+ * Douglas-Peucker line simplification over primitive coordinate arrays.
+ *
+ * Each segment is checked on an equirectangular plane centred on the segment's
+ * mid-latitude, which is accurate enough for metre tolerances. Longitudes are
+ * unwrapped first so routes crossing the antimeridian are not distorted. The
+ * recursion is replaced by an explicit stack so very long trails cannot
+ * overflow the call stack.
+ */
+public final class RouteSimplifier {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private RouteSimplifier() {
+    }
+
+    /**
+     * Returns the indices of the points to keep, in ascending order. The first
+     * and last points are always kept.
+     */
+    public static int[] simplify(double[] latitudes, double[] longitudes, int count, double toleranceMeters) {
+        if (count <= 2) {
+            int[] all = new int[count];
+            for (int i = 0; i < count; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        double[] lambda = new double[count];
+        double[] phi = new double[count];
+        toRadians(latitudes, longitudes, count, phi, lambda);
+
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+        double toleranceSquared = toleranceMeters * toleranceMeters;
+
+        int[] stack = new int[2 * 64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+
+            // Scale longitudes by the segment's own mid-latitude so long routes keep local accuracy
+            double scale = Math.cos((phi[first] + phi[last]) / 2) * EARTH_RADIUS_METERS;
+            double ax = lambda[first] * scale;
+            double ay = phi[first] * EARTH_RADIUS_METERS;
+            double bx = lambda[last] * scale;
+            double by = phi[last] * EARTH_RADIUS_METERS;
+
+            double maxDistance = -1;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double d = segmentDistanceSquared(lambda[i] * scale, phi[i] * EARTH_RADIUS_METERS, ax, ay, bx, by);
+                if (d > maxDistance) {
+                    maxDistance = d;
+                    farthest = i;
+                }
+            }
+
+            if (farthest != -1 && maxDistance > toleranceSquared) {
+                keep[farthest] = true;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+
+        int kept = 0;
+        for (boolean k : keep) {
+            if (k) {
+                kept++;
+            }
+        }
+        int[] indices = new int[kept];
+        for (int i = 0, j = 0; i < count; i++) {
+            if (keep[i]) {
+                indices[j++] = i;
+            }
+        }
+        return indices;
+    }
+
+    private static void toRadians(double[] latitudes, double[] longitudes, int count, double[] phi, double[] lambda) {
+        double offset = 0;
+        double previous = longitudes[0];
+        for (int i = 0; i < count; i++) {
+            double lon = longitudes[i];
+            double delta = lon - previous;
+            if (delta > 180) {
+                offset -= 360;
+            } else if (delta < -180) {
+                offset += 360;
+            }
+            previous = lon;
+
+            lambda[i] = Math.toRadians(lon + offset);
+            phi[i] = Math.toRadians(latitudes[i]);
+        }
+    }
+
+    private static double segmentDistanceSquared(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0) {
+            double ex = px - ax;
+            double ey = py - ay;
+            return ex * ex + ey * ey;
+        }
+        double t = ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double cx = ax + t * dx - px;
+        double cy = ay + t * dy - py;
+        return cx * cx + cy * cy;
+    }
+}
@@ -1,13 +1,17 @@
 package com.alphaskyport.logistics.service;
 
+import com.alphaskyport.logistics.event.ShipmentTrackingChangedEvent;
 import com.alphaskyport.logistics.model.Quote;
 import com.alphaskyport.logistics.model.Shipment;
 import com.alphaskyport.logistics.model.ShipmentTrackingEvent;
+import com.alphaskyport.logistics.model.ShipmentTrackingSummary;
 import com.alphaskyport.logistics.repository.QuoteRepository;
 import com.alphaskyport.logistics.repository.ShipmentRepository;
 import com.alphaskyport.logistics.repository.ShipmentTrackingEventRepository;
+import com.alphaskyport.logistics.repository.ShipmentTrackingSummaryRepository;
 import com.alphaskyport.logistics.repository.TrackingNumberRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,10 +27,12 @@ public class ShipmentService {
     private final com.alphaskyport.iam.repository.UserRepository userRepository; // Direct access or via UserService
     private final TrackingNumberRepository trackingNumberRepository;
     private final ShipmentTrackingEventRepository trackingEventRepository;
+    private final ShipmentTrackingSummaryRepository trackingSummaryRepository;
     private final com.alphaskyport.masterdata.repository.CountryRepository countryRepository;
     private final com.alphaskyport.masterdata.repository.FreightServiceRepository freightServiceRepository;
     private final CapacityService capacityService;
     private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     @SuppressWarnings("null")
@@ -102,7 +108,10 @@ public class ShipmentService {
 
         shipmentRepository.save(shipment);
 
-        createTrackingEvent(shipment, newStatus, description, source);
+        ShipmentTrackingEvent event = createTrackingEvent(shipment, newStatus, description, source);
+
+        eventPublisher.publishEvent(new ShipmentTrackingChangedEvent(
+                shipment.getShipmentId(), shipment.getTrackingNumber(), shipment.getUser().getUserId(), newStatus));
 
         // Notify user
         notificationService.enqueueNotification(
@@ -110,10 +119,12 @@ public class ShipmentService {
                 shipment,
                 "Shipment Update: " + newStatus,
                 "Your shipment " + shipment.getTrackingNumber() + " is now " + newStatus + ".",
-                "SHIPMENT_STATUS_UPDATE");
+                "SHIPMENT_STATUS_UPDATE",
+                newStatus + ":" + event.getEventTimestamp());
     }
 
-    private void createTrackingEvent(Shipment shipment, String status, String description, String source) {
+    private ShipmentTrackingEvent createTrackingEvent(Shipment shipment, String status, String description,
+            String source) {
         ShipmentTrackingEvent event = new ShipmentTrackingEvent();
         event.setShipment(shipment);
         event.setEventStatus(status);
@@ -121,7 +132,7 @@ public class ShipmentService {
         event.setEventTimestamp(LocalDateTime.now());
         event.setEventSource(source);
 
-        trackingEventRepository.save(event);
+        return trackingEventRepository.save(event);
     }
 
     // Query methods
@@ -135,6 +146,11 @@ public class ShipmentService {
         return shipmentRepository.findByTrackingNumber(trackingNumber);
     }
 
+    @SuppressWarnings("null")
+    public java.util.Optional<ShipmentTrackingSummary> getTrackingSummary(String trackingNumber) {
+        return trackingSummaryRepository.findById(trackingNumber);
+    }
+
     public java.util.List<Shipment> getShipmentsByUser(UUID userId) {
         return shipmentRepository.findByUser_UserId(userId);
     } // Restore closing brace
@@ -0,0 +1,303 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.archive.ArchivedTrackingEvent;
+import com.alphaskyport.logistics.archive.TrackingArchiveFormat;
+import com.alphaskyport.logistics.archive.TrackingArchiveFormat.ArchiveSummary;
+import com.alphaskyport.logistics.archive.TrackingArchiveReader;
+import com.alphaskyport.logistics.archive.TrackingArchiveWriter;
+import com.alphaskyport.logistics.model.ShipmentTrackingEvent;
+import com.alphaskyport.masterdata.repository.CountryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Moves detached shipment_tracking_events partitions into compressed columnar
+ * archive files and serves archived events back to the tracking history API.
+ *
+ * A partition is only dropped after its archive file has been fsynced, moved
+ * into place and re-read to confirm row count, event_id checksum and file
+ * digest. File-level shipment and timestamp ranges are recorded in
+ * tracking_event_archives so lookups only open files that can match.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class TrackingArchiveService {
+
+    private static final String PARENT_TABLE = "shipment_tracking_events";
+    private static final Pattern PARTITION_NAME = Pattern.compile("^" + PARENT_TABLE + "_[0-9]{4}_[0-9]{2}$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CountryRepository countryRepository;
+    private final Map<String, TrackingArchiveReader> readers = new ConcurrentHashMap<>();
+
+    @Value("${logistics.tracking.archive.path:/var/alphaskyport/archive/tracking}")
+    private String archivePath;
+
+    @Value("${logistics.tracking.archive.row-group-size:8192}")
+    private int rowGroupSize;
+
+    @Value("${admin.partitions.tracking-events.retention-months:24}")
+    private int retentionMonths;
+
+    public TrackingArchiveService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            CountryRepository countryRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.countryRepository = countryRepository;
+    }
+
+    @Scheduled(cron = "${logistics.tracking.archive.cron:0 45 2 * * *}")
+    public void archiveDetachedPartitions() {
+        for (String partition : listDetachedPartitions()) {
+            try {
+                archivePartition(partition);
+            } catch (Exception e) {
+                log.error("Failed to archive tracking partition {}: {}", partition, e.getMessage());
+            }
+        }
+    }
+
+    public List<String> listDetachedPartitions() {
+        String sql = """
+                SELECT c.relname
+                FROM pg_class c
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = current_schema()
+                  AND c.relkind = 'r'
+                  AND NOT c.relispartition
+                  AND c.relname ~ ?
+                ORDER BY c.relname
+                """;
+        return jdbcTemplate.queryForList(sql, String.class, PARTITION_NAME.pattern());
+    }
+
+    /**
+     * Archives one detached partition and drops it. Returns null when another
+     * node is already archiving it.
+     */
+    public ArchiveSummary archivePartition(String partition) {
+        if (!PARTITION_NAME.matcher(partition).matches()) {
+            throw new IllegalArgumentException("Not a tracking partition: " + partition);
+        }
+
+        return transactionTemplate.execute(status -> {
+            Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(hashtext(?))",
+                    Boolean.class, "tracking-archive:" + partition);
+            if (!Boolean.TRUE.equals(locked)) {
+                return null;
+            }
+            Boolean detached = jdbcTemplate.queryForObject("""
+                    SELECT EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass(?) AND NOT relispartition)
+                    """, Boolean.class, partition);
+            if (!Boolean.TRUE.equals(detached)) {
+                return null;
+            }
+
+            try {
+                Path target = Paths.get(archivePath, partition + TrackingArchiveFormat.FILE_EXTENSION);
+                ArchiveSummary summary = export(partition, target);
+                verify(partition, target, summary);
+
+                jdbcTemplate.update("""
+                        INSERT INTO tracking_event_archives
+                            (partition_name, file_path, file_size, sha256, row_count, row_group_count,
+                             min_shipment_id, max_shipment_id, min_event_timestamp, max_event_timestamp)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                        """,
+                        partition, target.toString(), summary.getFileSize(), summary.getSha256(),
+                        summary.getRowCount(), summary.getRowGroupCount(),
+                        summary.getMinShipmentId(), summary.getMaxShipmentId(),
+                        summary.getMinEventTimestamp(), summary.getMaxEventTimestamp());
+                jdbcTemplate.execute("DROP TABLE " + partition);
+
+                log.info("Archived {} ({} rows, {} row groups, {} bytes) to {}", partition,
+                        summary.getRowCount(), summary.getRowGroupCount(), summary.getFileSize(), target);
+                return summary;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to archive " + partition, e);
+            }
+        });
+    }
+
+    /**
+     * Returns archived events for a shipment, newest first, as detached
+     * ShipmentTrackingEvent instances. Partitions are only retired once they
+     * end before the retention cut-off, so a shipment created on or after it
+     * has nothing archived and neither the catalogue nor any file is read.
+     * A null creation time searches every archive.
+     */
+    public List<ShipmentTrackingEvent> findArchivedEvents(UUID shipmentId, LocalDateTime shipmentCreatedAt) {
+        if (shipmentCreatedAt != null && !shipmentCreatedAt.isBefore(retentionCutoff())) {
+            return List.of();
+        }
+        LocalDateTime since = shipmentCreatedAt != null ? shipmentCreatedAt : LocalDateTime.of(1970, 1, 1, 0, 0);
+
+        List<String> files = jdbcTemplate.queryForList("""
+                SELECT file_path
+                FROM tracking_event_archives
+                WHERE ? BETWEEN min_shipment_id AND max_shipment_id
+                  AND max_event_timestamp >= ?
+                ORDER BY max_event_timestamp DESC
+                """, String.class, shipmentId, since);
+
+        List<ShipmentTrackingEvent> events = new ArrayList<>();
+        for (String file : files) {
+            try {
+                for (ArchivedTrackingEvent archived : reader(file).findByShipment(shipmentId)) {
+                    events.add(toEntity(archived));
+                }
+            } catch (IOException e) {
+                log.error("Failed to read tracking archive {}: {}", file, e.getMessage());
+            }
+        }
+        events.sort((a, b) -> b.getEventTimestamp().compareTo(a.getEventTimestamp()));
+        return events;
+    }
+
+    @PreDestroy
+    public void closeReaders() {
+        readers.values().forEach(reader -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                log.debug("Failed to close archive reader: {}", e.getMessage());
+            }
+        });
+    }
+
+    // ==================== Internals ====================
+
+    /** Same rule PartitionMaintenanceService uses to retire tracking partitions. */
+    private LocalDateTime retentionCutoff() {
+        return LocalDate.now().withDayOfMonth(1).minusMonths(retentionMonths).atStartOfDay();
+    }
+
+    private ArchiveSummary export(String partition, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        String sql = "SELECT event_id, shipment_id, event_status, event_location, event_country_id, "
+                + "event_description, latitude, longitude, event_timestamp, event_source, external_event_id, "
+                + "created_by, created_at FROM " + partition + " ORDER BY shipment_id, event_timestamp, event_id";
+
+        ArchiveSummary summary;
+        try (TrackingArchiveWriter writer = new TrackingArchiveWriter(temp, rowGroupSize)) {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                ps.setFetchSize(10_000);
+                return ps;
+            }, rs -> {
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                Integer countryId = rs.getObject("event_country_id", Integer.class);
+                try {
+                    writer.append(ArchivedTrackingEvent.builder()
+                            .eventId(rs.getLong("event_id"))
+                            .shipmentId(rs.getObject("shipment_id", UUID.class))
+                            .eventStatus(rs.getString("event_status"))
+                            .eventLocation(rs.getString("event_location"))
+                            .eventCountryId(countryId)
+                            .eventDescription(rs.getString("event_description"))
+                            .latitude(rs.getBigDecimal("latitude"))
+                            .longitude(rs.getBigDecimal("longitude"))
+                            .eventTimestamp(rs.getTimestamp("event_timestamp").toLocalDateTime())
+                            .eventSource(rs.getString("event_source"))
+                            .externalEventId(rs.getString("external_event_id"))
+                            .createdBy(rs.getString("created_by"))
+                            .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                            .build());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            summary = writer.finish();
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        }
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return summary;
+    }
+
+    private void verify(String partition, Path target, ArchiveSummary summary) throws IOException {
+        Map<String, Object> source = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS row_count, COALESCE(SUM(event_id), 0) AS id_sum FROM " + partition);
+        long expectedRows = ((Number) source.get("row_count")).longValue();
+        BigDecimal expectedSum = new BigDecimal(source.get("id_sum").toString());
+
+        long[] totals;
+        try (TrackingArchiveReader reader = new TrackingArchiveReader(target)) {
+            totals = reader.scanTotals();
+        }
+        String digest = TrackingArchiveReader.sha256(target);
+
+        if (totals[0] != expectedRows || BigDecimal.valueOf(totals[1]).compareTo(expectedSum) != 0
+                || !digest.equals(summary.getSha256())) {
+            Files.deleteIfExists(target);
+            throw new IOException("Archive verification failed for " + partition + ": expected " + expectedRows
+                    + " rows, file has " + totals[0]);
+        }
+    }
+
+    private TrackingArchiveReader reader(String file) throws IOException {
+        TrackingArchiveReader reader = readers.get(file);
+        if (reader == null) {
+            reader = new TrackingArchiveReader(Paths.get(file));
+            TrackingArchiveReader existing = readers.putIfAbsent(file, reader);
+            if (existing != null) {
+                reader.close();
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    private ShipmentTrackingEvent toEntity(ArchivedTrackingEvent archived) {
+        return ShipmentTrackingEvent.builder()
+                .eventId(archived.getEventId())
+                .eventStatus(archived.getEventStatus())
+                .eventLocation(archived.getEventLocation())
+                .eventCountry(archived.getEventCountryId() != null
+                        ? countryRepository.getReferenceById(archived.getEventCountryId())
+                        : null)
+                .eventDescription(archived.getEventDescription())
+                .latitude(archived.getLatitude())
+                .longitude(archived.getLongitude())
+                .eventTimestamp(archived.getEventTimestamp())
+                .eventSource(archived.getEventSource())
+                .externalEventId(archived.getExternalEventId())
+                .createdBy(archived.getCreatedBy())
+                .createdAt(archived.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,177 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.event.ShipmentTrackingChangedEvent;
+import com.alphaskyport.logistics.model.ShipmentTrackingSummary;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-through Redis cache for public tracking responses.
+ *
+ * Each entry stores the serialized JSON body together with a strong ETag so
+ * conditional requests can be answered from Redis alone. A per-tracking-number
+ * generation counter guards against a slow reader writing back data that was
+ * invalidated while it was loading. Redis failures fall back to the database.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class TrackingCacheService {
+
+    private static final String ENTRY_PREFIX = "tracking:response:";
+    private static final String GENERATION_PREFIX = "tracking:generation:";
+
+    private static final DefaultRedisScript<Long> PUT_IF_CURRENT = new DefaultRedisScript<>("""
+            local gen = redis.call('GET', KEYS[2]) or '0'
+            if gen ~= ARGV[1] then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'body', ARGV[2], 'etag', ARGV[3])
+            redis.call('EXPIRE', KEYS[1], tonumber(ARGV[4]))
+            return 1
+            """, Long.class);
+
+    private static final DefaultRedisScript<Long> INVALIDATE = new DefaultRedisScript<>("""
+            redis.call('DEL', KEYS[1])
+            local gen = redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], tonumber(ARGV[1]))
+            return gen
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ShipmentService shipmentService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${logistics.tracking.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    public TrackingCacheService(StringRedisTemplate redisTemplate,
+            ShipmentService shipmentService,
+            ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.shipmentService = shipmentService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the cached tracking response, loading and caching it from the
+     * summary table on a miss. Empty when the tracking number is unknown.
+     */
+    public Optional<CachedTracking> getTracking(String trackingNumber) {
+        String entryKey = ENTRY_PREFIX + trackingNumber;
+        String generation = null;
+
+        try {
+            List<Object> cached = redisTemplate.opsForHash().multiGet(entryKey, List.of("body", "etag"));
+            if (cached.get(0) != null && cached.get(1) != null) {
+                return Optional.of(new CachedTracking((String) cached.get(0), (String) cached.get(1)));
+            }
+            String current = redisTemplate.opsForValue().get(GENERATION_PREFIX + trackingNumber);
+            generation = current != null ? current : "0";
+        } catch (DataAccessException e) {
+            log.warn("Tracking cache unavailable, reading from database: {}", e.getMessage());
+        }
+
+        Optional<ShipmentTrackingSummary> summary = shipmentService.getTrackingSummary(trackingNumber);
+        if (summary.isEmpty()) {
+            return Optional.empty();
+        }
+
+        CachedTracking response = serialize(summary.get());
+        if (generation != null) {
+            try {
+                redisTemplate.execute(PUT_IF_CURRENT,
+                        List.of(entryKey, GENERATION_PREFIX + trackingNumber),
+                        generation, response.getBody(), response.getEtag(), String.valueOf(ttlSeconds));
+            } catch (DataAccessException e) {
+                log.warn("Failed to populate tracking cache for {}: {}", trackingNumber, e.getMessage());
+            }
+        }
+        return Optional.of(response);
+    }
+
+    public void evict(String trackingNumber) {
+        try {
+            // Generation outlives any in-flight read so a stale loader can never write back
+            redisTemplate.execute(INVALIDATE,
+                    List.of(ENTRY_PREFIX + trackingNumber, GENERATION_PREFIX + trackingNumber),
+                    String.valueOf(Math.max(ttlSeconds, 3600)));
+        } catch (DataAccessException e) {
+            log.warn("Failed to evict tracking cache for {}: {}", trackingNumber, e.getMessage());
+        }
+    }
+
+    // Runs before the live stream relay so subscribers never re-read a stale entry
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTrackingChanged(ShipmentTrackingChangedEvent event) {
+        if (event.getTrackingNumber() != null) {
+            evict(event.getTrackingNumber());
+        }
+    }
+
+    private CachedTracking serialize(ShipmentTrackingSummary summary) {
+        try {
+            String body = objectMapper.writeValueAsString(summary);
+            return new CachedTracking(body, strongEtag(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize tracking summary", e);
+        }
+    }
+
+    private String strongEtag(String body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Data
+    public static class CachedTracking {
+        private final String body;
+        private final String etag;
+
+        /**
+         * If-None-Match uses weak comparison, so a W/ prefix on the client's
+         * value still matches our strong tag.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*")) {
+                    return true;
+                }
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
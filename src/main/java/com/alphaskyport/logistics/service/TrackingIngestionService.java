@@ -0,0 +1,319 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.event.ShipmentTrackingChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bulk ingestion of carrier / GPS tracking events delivered as JSON lines.
+ *
+ * Events are buffered into chunks and each chunk is written with a single
+ * multi-row INSERT ... SELECT FROM unnest(...) statement. Duplicates are
+ * dropped by the unique partial index on external_event_id, and the same
+ * statement advances each shipment's status to its newest inserted event.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class TrackingIngestionService {
+
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private static final String CHUNK_SQL = """
+            WITH input AS (
+                SELECT *
+                FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[],
+                            ?::numeric[], ?::numeric[], ?::timestamp[], ?::text[], ?::text[])
+                     AS t(tracking_number, event_status, event_location, country_code, event_description,
+                          latitude, longitude, event_timestamp, event_source, external_event_id)
+            ),
+            inserted AS (
+                INSERT INTO shipment_tracking_events
+                    (shipment_id, event_status, event_location, event_country_id, event_description,
+                     latitude, longitude, event_timestamp, event_source, external_event_id, created_by)
+                SELECT s.shipment_id, i.event_status, i.event_location, c.country_id, i.event_description,
+                       i.latitude, i.longitude, i.event_timestamp, i.event_source, i.external_event_id, 'bulk-ingest'
+                FROM input i
+                JOIN shipments s ON s.tracking_number = i.tracking_number AND s.deleted_at IS NULL
+                LEFT JOIN countries c ON c.country_code = i.country_code
+                ON CONFLICT (shipment_id, external_event_id, event_timestamp)
+                    WHERE external_event_id IS NOT NULL DO NOTHING
+                RETURNING shipment_id, event_status, event_timestamp
+            ),
+            latest AS (
+                SELECT DISTINCT ON (shipment_id) shipment_id, event_status, event_timestamp
+                FROM inserted
+                WHERE event_status IN ('pending', 'confirmed', 'picked_up', 'in_transit', 'customs_clearance',
+                                       'out_for_delivery', 'delivered', 'cancelled', 'returned', 'exception')
+                ORDER BY shipment_id, event_timestamp DESC
+            ),
+            updated AS (
+                UPDATE shipments s
+                SET shipment_status = l.event_status,
+                    updated_at = CURRENT_TIMESTAMP
+                FROM latest l
+                WHERE s.shipment_id = l.shipment_id
+                  AND s.shipment_status <> l.event_status
+                  AND s.shipment_status NOT IN ('delivered', 'cancelled', 'returned')
+                  -- Events stored before this chunk decide staleness; the snapshot hides this chunk's rows
+                  AND NOT EXISTS (
+                      SELECT 1 FROM shipment_tracking_events e
+                      WHERE e.shipment_id = l.shipment_id
+                        AND e.event_timestamp > l.event_timestamp
+                        AND e.event_status IN ('pending', 'confirmed', 'picked_up', 'in_transit', 'customs_clearance',
+                                               'out_for_delivery', 'delivered', 'cancelled', 'returned', 'exception'))
+                RETURNING s.shipment_id
+            )
+            SELECT s.shipment_id, s.tracking_number, s.user_id,
+                   COALESCE(l.event_status, s.shipment_status) AS status,
+                   (SELECT COUNT(*) FROM inserted) AS inserted,
+                   (SELECT COUNT(*) FROM updated) AS updated,
+                   (SELECT COUNT(*) FROM input i
+                    WHERE NOT EXISTS (SELECT 1 FROM shipments s
+                                      WHERE s.tracking_number = i.tracking_number
+                                        AND s.deleted_at IS NULL)) AS unknown
+            FROM (SELECT 1) AS one
+            LEFT JOIN (SELECT DISTINCT shipment_id FROM inserted) changed ON TRUE
+            LEFT JOIN shipments s ON s.shipment_id = changed.shipment_id
+            LEFT JOIN updated u ON u.shipment_id = changed.shipment_id
+            LEFT JOIN latest l ON l.shipment_id = u.shipment_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader eventReader;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${logistics.tracking.ingest.chunk-size:1000}")
+    private int chunkSize;
+
+    public TrackingIngestionService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventReader = objectMapper.readerFor(TrackingEventRecord.class);
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Streams JSON lines from the given input, committing each chunk in its own
+     * transaction so a large feed never holds one long-running transaction.
+     */
+    public IngestionResult ingest(InputStream body) throws IOException {
+        IngestionResult result = new IngestionResult();
+        List<TrackingEventRecord> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                result.received++;
+
+                TrackingEventRecord event;
+                try {
+                    event = eventReader.readValue(line);
+                } catch (IOException e) {
+                    result.reject("line " + lineNumber + ": malformed JSON");
+                    continue;
+                }
+                String problem = validate(event);
+                if (problem != null) {
+                    result.reject("line " + lineNumber + ": " + problem);
+                    continue;
+                }
+
+                chunk.add(event);
+                if (chunk.size() >= chunkSize) {
+                    flush(chunk, result);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            flush(chunk, result);
+        }
+
+        result.duplicates = result.received - result.rejected - result.unknownShipments
+                - result.failed - result.inserted;
+        log.info("Tracking ingestion: received={}, inserted={}, duplicates={}, unknown={}, rejected={}, "
+                + "failed={}, statusUpdates={}", result.received, result.inserted, result.duplicates,
+                result.unknownShipments, result.rejected, result.failed, result.shipmentsUpdated);
+        return result;
+    }
+
+    private void flush(List<TrackingEventRecord> chunk, IngestionResult result) {
+        try {
+            ChunkOutcome outcome = transactionTemplate.execute(status -> {
+                ChunkOutcome written = writeChunk(chunk);
+                // Listeners run after commit, so caches and streams never see a rolled-back chunk
+                written.changed.forEach(eventPublisher::publishEvent);
+                return written;
+            });
+            result.chunks++;
+            result.inserted += outcome.inserted;
+            result.shipmentsUpdated += outcome.updated;
+            result.unknownShipments += outcome.unknown;
+        } catch (DataAccessException e) {
+            log.error("Failed to ingest tracking chunk of {} events: {}", chunk.size(), e.getMessage());
+            result.failed += chunk.size();
+            result.error("chunk " + (result.chunks + 1) + ": " + e.getMostSpecificCause().getMessage());
+            result.chunks++;
+        }
+    }
+
+    private ChunkOutcome writeChunk(List<TrackingEventRecord> chunk) {
+        int n = chunk.size();
+        String[] trackingNumbers = new String[n];
+        String[] statuses = new String[n];
+        String[] locations = new String[n];
+        String[] countries = new String[n];
+        String[] descriptions = new String[n];
+        BigDecimal[] latitudes = new BigDecimal[n];
+        BigDecimal[] longitudes = new BigDecimal[n];
+        Timestamp[] timestamps = new Timestamp[n];
+        String[] sources = new String[n];
+        String[] externalIds = new String[n];
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < n; i++) {
+            TrackingEventRecord e = chunk.get(i);
+            trackingNumbers[i] = e.getTrackingNumber();
+            statuses[i] = e.getStatus();
+            locations[i] = e.getLocation();
+            countries[i] = e.getCountryCode();
+            descriptions[i] = e.getDescription();
+            latitudes[i] = e.getLatitude();
+            longitudes[i] = e.getLongitude();
+            timestamps[i] = Timestamp.valueOf(e.getTimestamp() != null ? e.getTimestamp() : now);
+            sources[i] = e.getSource() != null ? e.getSource() : "api";
+            externalIds[i] = e.getExternalEventId();
+        }
+
+        return jdbcTemplate.execute((Connection con) -> {
+            try (PreparedStatement ps = con.prepareStatement(CHUNK_SQL)) {
+                Array[] arrays = {
+                        con.createArrayOf("text", trackingNumbers),
+                        con.createArrayOf("text", statuses),
+                        con.createArrayOf("text", locations),
+                        con.createArrayOf("text", countries),
+                        con.createArrayOf("text", descriptions),
+                        con.createArrayOf("numeric", latitudes),
+                        con.createArrayOf("numeric", longitudes),
+                        con.createArrayOf("timestamp", timestamps),
+                        con.createArrayOf("text", sources),
+                        con.createArrayOf("text", externalIds)
+                };
+                for (int i = 0; i < arrays.length; i++) {
+                    ps.setArray(i + 1, arrays[i]);
+                }
+                ChunkOutcome outcome = new ChunkOutcome();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        outcome.inserted = rs.getLong("inserted");
+                        outcome.updated = rs.getLong("updated");
+                        outcome.unknown = rs.getLong("unknown");
+                        UUID shipmentId = rs.getObject("shipment_id", UUID.class);
+                        if (shipmentId != null) {
+                            outcome.changed.add(new ShipmentTrackingChangedEvent(shipmentId,
+                                    rs.getString("tracking_number"), rs.getObject("user_id", UUID.class),
+                                    rs.getString("status")));
+                        }
+                    }
+                }
+                return outcome;
+            }
+        });
+    }
+
+    private String validate(TrackingEventRecord event) {
+        if (event.getTrackingNumber() == null || event.getTrackingNumber().isBlank()) {
+            return "trackingNumber is required";
+        }
+        if (event.getStatus() == null || event.getStatus().isBlank()) {
+            return "status is required";
+        }
+        if (event.getStatus().length() > 30) {
+            return "status exceeds 30 characters";
+        }
+        if (event.getExternalEventId() != null && event.getExternalEventId().length() > 100) {
+            return "externalEventId exceeds 100 characters";
+        }
+        if (event.getSource() != null && event.getSource().length() > 50) {
+            return "source exceeds 50 characters";
+        }
+        return null;
+    }
+
+    private static class ChunkOutcome {
+        long inserted;
+        long updated;
+        long unknown;
+        final List<ShipmentTrackingChangedEvent> changed = new ArrayList<>();
+    }
+
+    @Data
+    public static class TrackingEventRecord {
+        private String trackingNumber;
+        private String status;
+        private String location;
+        private String countryCode;
+        private String description;
+        private BigDecimal latitude;
+        private BigDecimal longitude;
+        private LocalDateTime timestamp;
+        private String source;
+        private String externalEventId;
+    }
+
+    @Data
+    public static class IngestionResult {
+        private long received;
+        private long inserted;
+        private long duplicates;
+        private long unknownShipments;
+        private long rejected;
+        private long failed;
+        private long shipmentsUpdated;
+        private int chunks;
+        private List<String> errors = new ArrayList<>();
+
+        void reject(String message) {
+            rejected++;
+            error(message);
+        }
+
+        void error(String message) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.event.ShipmentTrackingChangedEvent;
+import com.alphaskyport.logistics.service.TrackingCacheService.CachedTracking;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live tracking push over Server-Sent Events.
+ *
+ * Emitters are parked on async servlet requests, so an idle subscriber costs a
+ * socket and a map entry but no thread. Committed tracking changes are relayed
+ * through Redis pub/sub so every node fans out to its own subscribers; sends
+ * run on virtual threads so one slow client cannot stall the others.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class TrackingStreamService implements MessageListener {
+
+    public static final String CHANNEL = "tracking:changes";
+
+    private final Map<String, Set<SseEmitter>> shipmentSubscribers = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<SseEmitter>> userSubscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final StringRedisTemplate redisTemplate;
+    private final TrackingCacheService trackingCacheService;
+    private final ObjectMapper objectMapper;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${logistics.tracking.stream.timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
+    @Value("${logistics.tracking.stream.max-subscriptions:50000}")
+    private int maxSubscriptions;
+
+    public TrackingStreamService(StringRedisTemplate redisTemplate,
+            TrackingCacheService trackingCacheService,
+            ObjectMapper objectMapper,
+            RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.trackingCacheService = trackingCacheService;
+        this.objectMapper = objectMapper;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * Opens a stream for one shipment and immediately sends the current
+     * tracking snapshot. Empty when the tracking number is unknown.
+     */
+    public Optional<SseEmitter> subscribeToShipment(String trackingNumber) {
+        Optional<CachedTracking> snapshot = trackingCacheService.getTracking(trackingNumber);
+        if (snapshot.isEmpty()) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = register(shipmentSubscribers, trackingNumber);
+        send(emitter, snapshot.get().getBody(), shipmentSubscribers, trackingNumber);
+        return Optional.of(emitter);
+    }
+
+    public SseEmitter subscribeToUser(UUID userId) {
+        return register(userSubscribers, userId);
+    }
+
+    public int getOpenStreams() {
+        return openStreams.get();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTrackingChanged(ShipmentTrackingChangedEvent event) {
+        Map<String, String> payload = new HashMap<>();
+        payload.put("shipmentId", event.getShipmentId().toString());
+        payload.put("trackingNumber", event.getTrackingNumber());
+        payload.put("userId", event.getUserId() != null ? event.getUserId().toString() : null);
+        payload.put("status", event.getStatus());
+
+        try {
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(payload));
+        } catch (DataAccessException | JsonProcessingException e) {
+            // Other nodes miss this change, but local subscribers still get it
+            log.warn("Failed to relay tracking change for {}: {}", event.getTrackingNumber(), e.getMessage());
+            fanOut(payload);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Map<String, String> payload = objectMapper.readValue(
+                    new String(message.getBody(), StandardCharsets.UTF_8),
+                    new TypeReference<Map<String, String>>() {
+                    });
+            fanOut(payload);
+        } catch (IOException e) {
+            log.warn("Ignoring malformed tracking change message: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${logistics.tracking.stream.heartbeat-ms:20000}")
+    public void sendHeartbeats() {
+        heartbeat(shipmentSubscribers);
+        heartbeat(userSubscribers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shipmentSubscribers.values().forEach(set -> set.forEach(SseEmitter::complete));
+        userSubscribers.values().forEach(set -> set.forEach(SseEmitter::complete));
+        sendExecutor.shutdown();
+    }
+
+    // ==================== Internals ====================
+
+    private void fanOut(Map<String, String> payload) {
+        String trackingNumber = payload.get("trackingNumber");
+        UUID userId = payload.get("userId") != null ? UUID.fromString(payload.get("userId")) : null;
+
+        Set<SseEmitter> byShipment = shipmentSubscribers.get(trackingNumber);
+        Set<SseEmitter> byUser = userId != null ? userSubscribers.get(userId) : null;
+        if ((byShipment == null || byShipment.isEmpty()) && (byUser == null || byUser.isEmpty())) {
+            return;
+        }
+
+        // One cache read per change per node, regardless of subscriber count
+        Optional<CachedTracking> snapshot = trackingCacheService.getTracking(trackingNumber);
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        String body = snapshot.get().getBody();
+
+        if (byShipment != null) {
+            byShipment.forEach(emitter -> sendAsync(emitter, body, shipmentSubscribers, trackingNumber));
+        }
+        if (byUser != null) {
+            byUser.forEach(emitter -> sendAsync(emitter, body, userSubscribers, userId));
+        }
+    }
+
+    private <K> SseEmitter register(Map<K, Set<SseEmitter>> registry, K key) {
+        if (openStreams.get() >= maxSubscriptions) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Tracking stream capacity reached, retry later");
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        registry.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(emitter);
+        openStreams.incrementAndGet();
+
+        Runnable cleanup = () -> unregister(registry, key, emitter);
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(cleanup);
+        emitter.onError(e -> cleanup.run());
+        return emitter;
+    }
+
+    private <K> void unregister(Map<K, Set<SseEmitter>> registry, K key, SseEmitter emitter) {
+        registry.computeIfPresent(key, (k, set) -> {
+            if (set.remove(emitter)) {
+                openStreams.decrementAndGet();
+            }
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private <K> void sendAsync(SseEmitter emitter, String body, Map<K, Set<SseEmitter>> registry, K key) {
+        sendExecutor.execute(() -> send(emitter, body, registry, key));
+    }
+
+    private <K> void send(SseEmitter emitter, String body, Map<K, Set<SseEmitter>> registry, K key) {
+        try {
+            emitter.send(SseEmitter.event().name("tracking").data(body, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            unregister(registry, key, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private <K> void heartbeat(Map<K, Set<SseEmitter>> registry) {
+        registry.forEach((key, emitters) -> emitters.forEach(emitter -> sendExecutor.execute(() -> {
+            try {
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            } catch (IOException | IllegalStateException e) {
+                unregister(registry, key, emitter);
+                emitter.completeWithError(e);
+            }
+        })));
+    }
+}
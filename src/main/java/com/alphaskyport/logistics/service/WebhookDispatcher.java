@@ -0,0 +1,454 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.notification.RetryBackoff;
+import com.alphaskyport.logistics.webhook.WebhookDelivery;
+import com.alphaskyport.logistics.webhook.WebhookEndpointGuard;
+import com.alphaskyport.logistics.webhook.WebhookEndpointGuard.BlockedEndpointException;
+import com.alphaskyport.logistics.webhook.WebhookSigner;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers webhook_deliveries to customer endpoints.
+ *
+ * Workers claim due deliveries with FOR UPDATE SKIP LOCKED under a lease,
+ * group them per subscription and POST each group as one signed batch of up
+ * to the subscription's max_batch_size events. Requests share one pooled
+ * HttpClient and run on virtual threads, while a semaphore per endpoint URL
+ * caps in-flight requests. A subscription never has more than
+ * max_concurrency * max_batch_size deliveries leased, and every request
+ * writes its own outcome as soon as it finishes, so a slow customer holds
+ * only its own leases and never a worker. Failed batches are retried with
+ * exponential backoff; a delivery that exhausts its attempts, is rejected
+ * with a non-retryable 4xx, or whose endpoint now resolves to an internal
+ * address, is moved to webhook_dead_letters.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class WebhookDispatcher {
+
+    private static final String CLAIM_SQL = """
+            WITH claimable AS (
+                SELECT d.delivery_id
+                FROM webhook_subscriptions s
+                CROSS JOIN LATERAL (
+                    SELECT delivery_id, next_attempt_at
+                    FROM webhook_deliveries
+                    WHERE subscription_id = s.subscription_id
+                      AND status IN ('pending', 'failed')
+                      AND next_attempt_at <= CURRENT_TIMESTAMP
+                    ORDER BY next_attempt_at
+                    LIMIT GREATEST(0, s.max_concurrency * s.max_batch_size - (
+                        SELECT COUNT(*) FROM webhook_deliveries p
+                        WHERE p.subscription_id = s.subscription_id AND p.status = 'processing'))
+                ) due
+                JOIN webhook_deliveries d ON d.delivery_id = due.delivery_id
+                WHERE s.is_active
+                  -- Rechecked on the locked row, so a delivery another worker just claimed is skipped
+                  AND d.status IN ('pending', 'failed')
+                  AND d.next_attempt_at <= CURRENT_TIMESTAMP
+                ORDER BY due.next_attempt_at
+                LIMIT ?
+                FOR UPDATE OF d SKIP LOCKED
+            )
+            UPDATE webhook_deliveries d
+            SET status = 'processing',
+                attempts = d.attempts + 1,
+                locked_until = CURRENT_TIMESTAMP + make_interval(secs => ?),
+                updated_at = CURRENT_TIMESTAMP
+            FROM claimable c, webhook_subscriptions s
+            WHERE d.delivery_id = c.delivery_id
+              AND s.subscription_id = d.subscription_id
+            RETURNING d.delivery_id, d.subscription_id, s.url, s.secret, s.max_concurrency, s.max_batch_size,
+                      d.payload::text AS payload, d.attempts, d.max_attempts
+            """;
+
+    private static final String COMPLETE_SQL = """
+            UPDATE webhook_deliveries d
+            SET status = u.status,
+                next_attempt_at = CASE WHEN u.retry_ms IS NULL THEN d.next_attempt_at
+                                       ELSE CURRENT_TIMESTAMP + u.retry_ms * INTERVAL '1 millisecond' END,
+                last_status_code = u.status_code,
+                last_error = u.last_error,
+                delivered_at = CASE WHEN u.status = 'delivered' THEN CURRENT_TIMESTAMP ELSE d.delivered_at END,
+                locked_until = NULL,
+                updated_at = CURRENT_TIMESTAMP
+            FROM unnest(?::bigint[], ?::int[], ?::text[], ?::bigint[], ?::int[], ?::text[])
+                 AS u(delivery_id, attempts, status, retry_ms, status_code, last_error)
+            WHERE d.delivery_id = u.delivery_id
+              AND d.attempts = u.attempts
+              AND d.status = 'processing'
+            """;
+
+    private static final String DEAD_LETTER_SQL = """
+            WITH dead AS (
+                DELETE FROM webhook_deliveries d
+                USING unnest(?::bigint[], ?::int[], ?::int[], ?::text[])
+                      AS u(delivery_id, attempts, status_code, last_error)
+                WHERE d.delivery_id = u.delivery_id
+                  AND d.attempts = u.attempts
+                  AND d.status = 'processing'
+                RETURNING d.delivery_id, d.subscription_id, d.event_id, d.event_type, d.payload, d.attempts,
+                          u.status_code, u.last_error, d.created_at
+            )
+            INSERT INTO webhook_dead_letters
+                (delivery_id, subscription_id, event_id, event_type, payload, attempts, last_status_code,
+                 last_error, first_attempted_at)
+            SELECT delivery_id, subscription_id, event_id, event_type, payload, attempts, status_code,
+                   last_error, created_at
+            FROM dead
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RetryBackoff backoff;
+    private final WebhookEndpointGuard endpointGuard;
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Semaphore> endpointPermits = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final HttpClient httpClient;
+    private volatile boolean running;
+
+    @Value("${logistics.webhooks.dispatcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${logistics.webhooks.dispatcher.workers:2}")
+    private int workerCount;
+
+    @Value("${logistics.webhooks.dispatcher.batch-size:500}")
+    private int batchSize;
+
+    @Value("${logistics.webhooks.dispatcher.poll-interval-ms:500}")
+    private long pollIntervalMs;
+
+    @Value("${logistics.webhooks.dispatcher.request-timeout:10s}")
+    private Duration requestTimeout;
+
+    @Value("${logistics.webhooks.dispatcher.lease-seconds:120}")
+    private int leaseSeconds;
+
+    @Value("${logistics.webhooks.retention.delivered:3d}")
+    private Duration deliveredRetention;
+
+    public WebhookDispatcher(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            WebhookEndpointGuard endpointGuard,
+            @Value("${logistics.webhooks.retry.base-delay:10s}") Duration baseDelay,
+            @Value("${logistics.webhooks.retry.max-delay:6h}") Duration maxDelay,
+            @Value("${logistics.webhooks.dispatcher.connect-timeout:5s}") Duration connectTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.backoff = new RetryBackoff(baseDelay, maxDelay);
+        this.endpointGuard = endpointGuard;
+        // One client for all endpoints so keep-alive connections are pooled and reused
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(sendExecutor)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("webhook-dispatcher-" + i).start(this::runWorker));
+        }
+        log.info("Webhook dispatcher started: {} workers, batch size {}", workerCount, batchSize);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        sendExecutor.shutdown();
+    }
+
+    /**
+     * Claims one batch of deliveries, up to the free in-flight capacity, and
+     * hands its requests to the send executor without waiting for them; each
+     * request completes its own deliveries. Returns the number of deliveries
+     * claimed.
+     */
+    public int dispatchBatch() {
+        int capacity = Math.min(batchSize, batchSize * Math.max(1, workerCount) - inFlight.get());
+        if (capacity <= 0) {
+            return 0;
+        }
+        List<WebhookDelivery> claimed = claim(capacity);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        // Leave headroom in the lease for writing the outcomes back
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(1, leaseSeconds - 10));
+        inFlight.addAndGet(claimed.size());
+
+        Map<UUID, List<WebhookDelivery>> bySubscription = claimed.stream()
+                .collect(Collectors.groupingBy(WebhookDelivery::getSubscriptionId, LinkedHashMap::new,
+                        Collectors.toList()));
+        for (List<WebhookDelivery> deliveries : bySubscription.values()) {
+            int size = Math.max(1, deliveries.get(0).getMaxBatchSize());
+            for (int from = 0; from < deliveries.size(); from += size) {
+                List<WebhookDelivery> request = deliveries.subList(from, Math.min(from + size, deliveries.size()));
+                sendExecutor.execute(() -> deliver(request, deadline));
+            }
+        }
+        return claimed.size();
+    }
+
+    /** Deliveries currently leased by this dispatcher and not yet completed. */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Scheduled(fixedDelayString = "${logistics.webhooks.dispatcher.reaper-interval-ms:60000}")
+    public void reapExpiredLeases() {
+        if (!enabled) {
+            return;
+        }
+        int reaped = jdbcTemplate.update("""
+                UPDATE webhook_deliveries
+                SET status = 'failed',
+                    next_attempt_at = CURRENT_TIMESTAMP,
+                    last_error = 'Dispatch lease expired',
+                    locked_until = NULL,
+                    updated_at = CURRENT_TIMESTAMP
+                WHERE status = 'processing'
+                  AND locked_until < CURRENT_TIMESTAMP
+                """);
+        if (reaped > 0) {
+            log.warn("Released {} webhook deliveries with expired dispatch leases", reaped);
+        }
+        int purged = jdbcTemplate.update("""
+                DELETE FROM webhook_deliveries
+                WHERE status = 'delivered'
+                  AND delivered_at < LOCALTIMESTAMP - make_interval(secs => ?)
+                """, deliveredRetention.toSeconds());
+        if (purged > 0) {
+            log.debug("Purged {} delivered webhook deliveries", purged);
+        }
+    }
+
+    // ==================== Internals ====================
+
+    private void runWorker() {
+        while (running) {
+            int claimed = 0;
+            try {
+                claimed = dispatchBatch();
+            } catch (Exception e) {
+                log.error("Webhook dispatch failed: {}", e.getMessage());
+            }
+            if (claimed < batchSize) {
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(List<WebhookDelivery> deliveries, long deadline) {
+        try {
+            List<Outcome> outcomes;
+            try {
+                outcomes = send(deliveries, deadline);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Shutting down; the reaper releases these once their lease expires
+                return;
+            } catch (RuntimeException e) {
+                outcomes = failAll(deliveries, null, String.valueOf(e.getMessage()), true);
+            }
+            complete(outcomes);
+        } catch (Exception e) {
+            log.error("Failed to record outcomes of {} webhook deliveries", deliveries.size(), e);
+        } finally {
+            inFlight.addAndGet(-deliveries.size());
+        }
+    }
+
+    private List<WebhookDelivery> claim(int limit) {
+        return jdbcTemplate.query(CLAIM_SQL, (rs, i) -> new WebhookDelivery(
+                rs.getLong("delivery_id"),
+                rs.getObject("subscription_id", UUID.class),
+                rs.getString("url"),
+                rs.getString("secret"),
+                rs.getInt("max_concurrency"),
+                rs.getInt("max_batch_size"),
+                rs.getString("payload"),
+                rs.getInt("attempts"),
+                rs.getInt("max_attempts")), limit, leaseSeconds);
+    }
+
+    private List<Outcome> send(List<WebhookDelivery> deliveries, long deadline) throws InterruptedException {
+        WebhookDelivery first = deliveries.get(0);
+        String body = deliveries.stream()
+                .map(WebhookDelivery::getPayload)
+                .collect(Collectors.joining(",", "{\"events\":[", "]}"));
+
+        URI endpoint;
+        HttpRequest request;
+        try {
+            endpoint = URI.create(first.getUrl());
+            request = HttpRequest.newBuilder(endpoint)
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header(WebhookSigner.SIGNATURE_HEADER,
+                            WebhookSigner.sign(first.getSecret(), System.currentTimeMillis() / 1000, body))
+                    .header(WebhookSigner.EVENT_COUNT_HEADER, String.valueOf(deliveries.size()))
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return failAll(deliveries, null, "Invalid endpoint URL: " + e.getMessage(), false);
+        }
+
+        // Checked on every send, not just at subscription time, so a rebound DNS name is caught
+        try {
+            endpointGuard.check(endpoint);
+        } catch (BlockedEndpointException e) {
+            return failAll(deliveries, null, e.getMessage(), false);
+        } catch (UnknownHostException e) {
+            return failAll(deliveries, null, "UnknownHostException: " + e.getMessage(), true);
+        }
+
+        Semaphore permits = endpointPermits.computeIfAbsent(first.getUrl(),
+                url -> new Semaphore(Math.max(1, first.getMaxConcurrency())));
+        if (!permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            return failAll(deliveries, null, "Endpoint busy", true);
+        }
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            int code = response.statusCode();
+            if (code >= 200 && code < 300) {
+                List<Outcome> delivered = new ArrayList<>(deliveries.size());
+                deliveries.forEach(d -> delivered.add(new Outcome(d.getDeliveryId(), d.getAttempts(), "delivered",
+                        null, code, null)));
+                return delivered;
+            }
+            // Other client errors will not succeed on retry; 408 and 429 are transient
+            boolean retryable = code >= 500 || code == 408 || code == 429;
+            return failAll(deliveries, code, "HTTP " + code, retryable);
+        } catch (IOException e) {
+            return failAll(deliveries, null, e.getClass().getSimpleName() + ": " + e.getMessage(), true);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private List<Outcome> failAll(List<WebhookDelivery> deliveries, Integer statusCode, String error,
+            boolean retryable) {
+        List<Outcome> outcomes = new ArrayList<>(deliveries.size());
+        for (WebhookDelivery delivery : deliveries) {
+            if (retryable && delivery.getAttempts() < delivery.getMaxAttempts()) {
+                outcomes.add(new Outcome(delivery.getDeliveryId(), delivery.getAttempts(), "failed",
+                        backoff.delayMillis(delivery.getAttempts()), statusCode, error));
+            } else {
+                outcomes.add(new Outcome(delivery.getDeliveryId(), delivery.getAttempts(), "dead", null,
+                        statusCode, error));
+            }
+        }
+        return outcomes;
+    }
+
+    private void complete(List<Outcome> outcomes) {
+        List<Outcome> settled = outcomes.stream().filter(o -> !"dead".equals(o.status)).toList();
+        List<Outcome> dead = outcomes.stream().filter(o -> "dead".equals(o.status)).toList();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!settled.isEmpty()) {
+                execute(COMPLETE_SQL, con -> new Array[] {
+                        con.createArrayOf("bigint", settled.stream().map(o -> o.deliveryId).toArray()),
+                        con.createArrayOf("integer", settled.stream().map(o -> o.attempts).toArray()),
+                        con.createArrayOf("text", settled.stream().map(o -> o.status).toArray()),
+                        con.createArrayOf("bigint", settled.stream().map(o -> o.retryMs).toArray()),
+                        con.createArrayOf("integer", settled.stream().map(o -> o.statusCode).toArray()),
+                        con.createArrayOf("text", settled.stream().map(o -> o.error).toArray())
+                });
+            }
+            if (!dead.isEmpty()) {
+                int moved = execute(DEAD_LETTER_SQL, con -> new Array[] {
+                        con.createArrayOf("bigint", dead.stream().map(o -> o.deliveryId).toArray()),
+                        con.createArrayOf("integer", dead.stream().map(o -> o.attempts).toArray()),
+                        con.createArrayOf("integer", dead.stream().map(o -> o.statusCode).toArray()),
+                        con.createArrayOf("text", dead.stream().map(o -> o.error).toArray())
+                });
+                if (moved > 0) {
+                    log.warn("Moved {} webhook deliveries to the dead-letter list", moved);
+                }
+            }
+        });
+    }
+
+    private int execute(String sql, ArrayBinder binder) {
+        return jdbcTemplate.execute((Connection con) -> {
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                Array[] arrays = binder.bind(con);
+                for (int i = 0; i < arrays.length; i++) {
+                    ps.setArray(i + 1, arrays[i]);
+                }
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface ArrayBinder {
+        Array[] bind(Connection con) throws SQLException;
+    }
+
+    private static class Outcome {
+        final long deliveryId;
+        final int attempts;
+        final String status;
+        final Long retryMs;
+        final Integer statusCode;
+        final String error;
+
+        Outcome(long deliveryId, int attempts, String status, Long retryMs, Integer statusCode, String error) {
+            this.deliveryId = deliveryId;
+            this.attempts = attempts;
+            this.status = status;
+            this.retryMs = retryMs;
+            this.statusCode = statusCode;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.event.ShipmentTrackingChangedEvent;
+import com.alphaskyport.logistics.webhook.WebhookEndpointGuard;
+import com.alphaskyport.logistics.webhook.WebhookEndpointGuard.BlockedEndpointException;
+import com.alphaskyport.logistics.webhook.WebhookSigner;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Webhook subscriptions, the delivery outbox and the dead-letter list.
+ *
+ * Shipment changes are written to webhook_deliveries just before the
+ * surrounding transaction commits, so an event is queued if and only if the
+ * change itself commits; WebhookDispatcher sends them afterwards.
+ */
+@Service
+@Slf4j
+@SuppressWarnings("null")
+public class WebhookService {
+
+    public static final String SHIPMENT_UPDATED = "shipment.updated";
+
+    private static final Set<String> EVENT_TYPES = Set.of("*", SHIPMENT_UPDATED);
+    private static final int MAX_SUBSCRIPTIONS_PER_USER = 10;
+    private static final int MAX_DEAD_LETTER_PAGE = 200;
+
+    private static final String ENQUEUE_SQL = """
+            INSERT INTO webhook_deliveries (subscription_id, event_id, event_type, payload, max_attempts)
+            SELECT s.subscription_id, ?, ?, ?::jsonb, ?
+            FROM webhook_subscriptions s
+            WHERE s.user_id = ?
+              AND s.is_active
+              AND (? = ANY(s.event_types) OR '*' = ANY(s.event_types))
+            ON CONFLICT (subscription_id, event_id) DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final WebhookEndpointGuard endpointGuard;
+
+    @Value("${logistics.webhooks.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${logistics.webhooks.allow-http:false}")
+    private boolean allowHttp;
+
+    public WebhookService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+            WebhookEndpointGuard endpointGuard) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.endpointGuard = endpointGuard;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onTrackingChanged(ShipmentTrackingChangedEvent event) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        UUID eventId = UUID.randomUUID();
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("shipmentId", event.getShipmentId());
+        data.put("trackingNumber", event.getTrackingNumber());
+        data.put("status", event.getStatus());
+        Map<String, Object> envelope = new LinkedHashMap<>();
+        envelope.put("id", eventId);
+        envelope.put("type", SHIPMENT_UPDATED);
+        envelope.put("createdAt", OffsetDateTime.now().toString());
+        envelope.put("data", data);
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(envelope);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize webhook event", e);
+        }
+        int queued = jdbcTemplate.update(ENQUEUE_SQL, eventId, SHIPMENT_UPDATED, payload, maxAttempts,
+                event.getUserId(), SHIPMENT_UPDATED);
+        if (queued > 0) {
+            log.debug("Queued {} webhook deliveries for shipment {}", queued, event.getTrackingNumber());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<Subscription> getSubscriptions(UUID userId) {
+        return jdbcTemplate.query("""
+                SELECT subscription_id, url, event_types, max_concurrency, max_batch_size, is_active, created_at
+                FROM webhook_subscriptions
+                WHERE user_id = ?
+                ORDER BY created_at
+                """, (rs, i) -> mapSubscription(rs, null), userId);
+    }
+
+    /**
+     * Registers an endpoint. The returned subscription carries the signing
+     * secret; it is not returned again afterwards.
+     */
+    @Transactional
+    public Subscription createSubscription(UUID userId, SubscriptionRequest request) {
+        String url = validateUrl(request.getUrl());
+        List<String> eventTypes = request.getEventTypes() != null && !request.getEventTypes().isEmpty()
+                ? request.getEventTypes()
+                : List.of("*");
+        if (!EVENT_TYPES.containsAll(eventTypes)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Event types must be among " + EVENT_TYPES);
+        }
+        int concurrency = request.getMaxConcurrency() != null ? request.getMaxConcurrency() : 4;
+        int batchSize = request.getMaxBatchSize() != null ? request.getMaxBatchSize() : 50;
+        if (concurrency < 1 || concurrency > 32 || batchSize < 1 || batchSize > 500) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "maxConcurrency must be 1-32 and maxBatchSize 1-500");
+        }
+
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM webhook_subscriptions WHERE user_id = ? AND is_active", Integer.class, userId);
+        if (existing != null && existing >= MAX_SUBSCRIPTIONS_PER_USER) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "At most " + MAX_SUBSCRIPTIONS_PER_USER + " active webhook subscriptions are allowed");
+        }
+
+        String secret = WebhookSigner.newSecret();
+        return jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    INSERT INTO webhook_subscriptions
+                        (user_id, url, secret, event_types, max_concurrency, max_batch_size)
+                    VALUES (?, ?, ?, ?, ?, ?)
+                    RETURNING subscription_id, url, event_types, max_concurrency, max_batch_size, is_active,
+                              created_at
+                    """);
+            ps.setObject(1, userId);
+            ps.setString(2, url);
+            ps.setString(3, secret);
+            ps.setArray(4, con.createArrayOf("varchar", eventTypes.toArray(new String[0])));
+            ps.setInt(5, concurrency);
+            ps.setInt(6, batchSize);
+            return ps;
+        }, (rs, i) -> mapSubscription(rs, secret)).get(0);
+    }
+
+    /**
+     * Deactivates a subscription. Deliveries still queued for it are dropped.
+     */
+    @Transactional
+    public void deleteSubscription(UUID userId, UUID subscriptionId) {
+        int updated = jdbcTemplate.update("""
+                UPDATE webhook_subscriptions
+                SET is_active = FALSE, updated_at = CURRENT_TIMESTAMP
+                WHERE subscription_id = ? AND user_id = ? AND is_active
+                """, subscriptionId, userId);
+        if (updated == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Webhook subscription not found");
+        }
+        jdbcTemplate.update("""
+                DELETE FROM webhook_deliveries
+                WHERE subscription_id = ? AND status IN ('pending', 'failed')
+                """, subscriptionId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<DeadLetter> getDeadLetters(UUID userId, Long beforeId, Integer limit) {
+        int pageSize = limit != null ? limit : 50;
+        if (pageSize < 1 || pageSize > MAX_DEAD_LETTER_PAGE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Limit must be between 1 and " + MAX_DEAD_LETTER_PAGE);
+        }
+        return jdbcTemplate.query("""
+                SELECT dl.dead_letter_id, dl.subscription_id, dl.event_id, dl.event_type, dl.payload::text AS payload,
+                       dl.attempts, dl.last_status_code, dl.last_error, dl.failed_at, dl.replayed_at
+                FROM webhook_dead_letters dl
+                JOIN webhook_subscriptions s ON s.subscription_id = dl.subscription_id
+                WHERE s.user_id = ?
+                  AND (?::bigint IS NULL OR dl.dead_letter_id < ?)
+                ORDER BY dl.dead_letter_id DESC
+                LIMIT ?
+                """, (rs, i) -> {
+            Timestamp replayedAt = rs.getTimestamp("replayed_at");
+            return new DeadLetter(
+                    rs.getLong("dead_letter_id"),
+                    rs.getObject("subscription_id", UUID.class),
+                    rs.getObject("event_id", UUID.class),
+                    rs.getString("event_type"),
+                    rs.getString("payload"),
+                    rs.getInt("attempts"),
+                    rs.getObject("last_status_code", Integer.class),
+                    rs.getString("last_error"),
+                    rs.getTimestamp("failed_at").toLocalDateTime(),
+                    replayedAt != null ? replayedAt.toLocalDateTime() : null);
+        }, userId, beforeId, beforeId, pageSize);
+    }
+
+    /**
+     * Queues a dead-lettered event for delivery again with a fresh attempt
+     * budget.
+     */
+    @Transactional
+    public void replayDeadLetter(UUID userId, long deadLetterId) {
+        int queued = jdbcTemplate.update("""
+                INSERT INTO webhook_deliveries (subscription_id, event_id, event_type, payload, max_attempts)
+                SELECT dl.subscription_id, dl.event_id, dl.event_type, dl.payload, ?
+                FROM webhook_dead_letters dl
+                JOIN webhook_subscriptions s ON s.subscription_id = dl.subscription_id
+                WHERE dl.dead_letter_id = ? AND s.user_id = ? AND s.is_active
+                ON CONFLICT (subscription_id, event_id) DO UPDATE
+                SET status = 'pending', attempts = 0, next_attempt_at = CURRENT_TIMESTAMP,
+                    last_error = NULL, updated_at = CURRENT_TIMESTAMP
+                WHERE webhook_deliveries.status <> 'processing'
+                """, maxAttempts, deadLetterId, userId);
+        if (queued == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Dead letter not found or its subscription is inactive");
+        }
+        jdbcTemplate.update("UPDATE webhook_dead_letters SET replayed_at = CURRENT_TIMESTAMP WHERE dead_letter_id = ?",
+                deadLetterId);
+    }
+
+    // ==================== Internals ====================
+
+    private String validateUrl(String url) {
+        if (url == null || url.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Webhook URL is required");
+        }
+        try {
+            URI uri = URI.create(url.trim());
+            String scheme = uri.getScheme();
+            if (uri.getHost() == null
+                    || !("https".equalsIgnoreCase(scheme) || (allowHttp && "http".equalsIgnoreCase(scheme)))) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        allowHttp ? "Webhook URL must be http(s)" : "Webhook URL must use https");
+            }
+            endpointGuard.check(uri);
+            return uri.toString();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid webhook URL");
+        } catch (UnknownHostException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Webhook host cannot be resolved");
+        } catch (BlockedEndpointException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private Subscription mapSubscription(ResultSet rs, String secret) throws SQLException {
+        Array eventTypes = rs.getArray("event_types");
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return new Subscription(
+                rs.getObject("subscription_id", UUID.class),
+                rs.getString("url"),
+                eventTypes != null ? Arrays.asList((String[]) eventTypes.getArray()) : List.of(),
+                rs.getInt("max_concurrency"),
+                rs.getInt("max_batch_size"),
+                rs.getBoolean("is_active"),
+                secret,
+                createdAt != null ? createdAt.toLocalDateTime() : null);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SubscriptionRequest {
+        private String url;
+        private List<String> eventTypes;
+        private Integer maxConcurrency;
+        private Integer maxBatchSize;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Subscription {
+        private UUID id;
+        private String url;
+        private List<String> eventTypes;
+        private int maxConcurrency;
+        private int maxBatchSize;
+        private boolean active;
+        private String secret;
+        private LocalDateTime createdAt;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DeadLetter {
+        private long id;
+        private UUID subscriptionId;
+        private UUID eventId;
+        private String eventType;
+        private String payload;
+        private int attempts;
+        private Integer lastStatusCode;
+        private String lastError;
+        private LocalDateTime failedAt;
+        private LocalDateTime replayedAt;
+    }
+}
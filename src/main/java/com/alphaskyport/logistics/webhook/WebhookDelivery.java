@@ -0,0 +1,22 @@
+package com.alphaskyport.logistics.webhook;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * One claimed webhook delivery together with the endpoint settings it is
+ * sent with.
+ */
+@Value
+public class WebhookDelivery {
+    long deliveryId;
+    UUID subscriptionId;
+    String url;
+    String secret;
+    int maxConcurrency;
+    int maxBatchSize;
+    String payload;
+    int attempts;
+    int maxAttempts;
+}
@@ -0,0 +1,120 @@
+package com.alphaskyport.logistics.webhook;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Locale;
+
+/**
+ * Keeps webhook endpoints off internal networks.
+ *
+ * An endpoint host is resolved and refused if any of its addresses is
+ * loopback, link-local (which includes the 169.254.169.254 metadata
+ * service), site-local (RFC 1918), unique-local, carrier-grade NAT, wildcard
+ * or multicast. WebhookService checks when a subscription is created and
+ * WebhookDispatcher checks again right before every send, so a host that
+ * later rebinds its DNS to an internal address is caught too. The dispatcher
+ * checks through the JVM resolver cache that the HttpClient connects
+ * through, so both see the same answer.
+ */
+@Component
+public class WebhookEndpointGuard {
+
+    /** Resolves a host name; replaced in tests. */
+    @FunctionalInterface
+    public interface Resolver {
+        InetAddress[] resolve(String host) throws UnknownHostException;
+    }
+
+    /** The endpoint resolves to an address webhooks may not be sent to. */
+    public static class BlockedEndpointException extends Exception {
+        public BlockedEndpointException(String message) {
+            super(message);
+        }
+    }
+
+    private final boolean allowPrivate;
+    private final Resolver resolver;
+
+    @Autowired
+    public WebhookEndpointGuard(@Value("${logistics.webhooks.allow-private-addresses:false}") boolean allowPrivate) {
+        this(allowPrivate, InetAddress::getAllByName);
+    }
+
+    public WebhookEndpointGuard(boolean allowPrivate, Resolver resolver) {
+        this.allowPrivate = allowPrivate;
+        this.resolver = resolver;
+    }
+
+    /**
+     * Resolves the endpoint host and checks every address it resolves to.
+     *
+     * @throws UnknownHostException if the host does not resolve
+     * @throws BlockedEndpointException if the host or any address is internal
+     */
+    public void check(URI endpoint) throws UnknownHostException, BlockedEndpointException {
+        String host = endpoint.getHost();
+        if (host == null || host.isBlank()) {
+            throw new BlockedEndpointException("Webhook URL has no host");
+        }
+        if (allowPrivate) {
+            return;
+        }
+        if (host.equalsIgnoreCase("localhost") || host.toLowerCase(Locale.ROOT).endsWith(".localhost")) {
+            throw new BlockedEndpointException("Webhook host " + host + " is not publicly routable");
+        }
+        // URI keeps the brackets of an IPv6 literal
+        String name = host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+        for (InetAddress address : resolver.resolve(name)) {
+            if (isInternal(address)) {
+                throw new BlockedEndpointException("Webhook host " + host + " resolves to non-public address "
+                        + address.getHostAddress());
+            }
+        }
+    }
+
+    static boolean isInternal(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            int first = bytes[0] & 0xff;
+            int second = bytes[1] & 0xff;
+            // 0.0.0.0/8, 100.64.0.0/10 (carrier-grade NAT) and 255.255.255.255
+            return first == 0 || (first == 100 && (second & 0xc0) == 64) || first == 255;
+        }
+        if (address instanceof Inet6Address) {
+            // fc00::/7 unique-local
+            if ((bytes[0] & 0xfe) == 0xfc) {
+                return true;
+            }
+            // IPv4-compatible (::a.b.c.d) and NAT64 (64:ff9b::a.b.c.d) forms embed an IPv4 address
+            boolean compatible = true;
+            for (int i = 0; i < 12; i++) {
+                compatible &= bytes[i] == 0;
+            }
+            boolean nat64 = bytes[0] == 0 && bytes[1] == 0x64
+                    && (bytes[2] & 0xff) == 0xff && (bytes[3] & 0xff) == 0x9b;
+            for (int i = 4; nat64 && i < 12; i++) {
+                nat64 = bytes[i] == 0;
+            }
+            if (compatible || nat64) {
+                try {
+                    return isInternal(InetAddress.getByAddress(
+                            new byte[] { bytes[12], bytes[13], bytes[14], bytes[15] }));
+                } catch (UnknownHostException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+package com.alphaskyport.logistics.webhook;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * Signs webhook requests with HMAC-SHA256.
+ *
+ * The signature header has the form {@code t=<unix seconds>,v1=<hex hmac>}
+ * where the HMAC covers {@code <t>.<body>}. Receivers recompute it with their
+ * subscription secret and reject stale timestamps, which stops both tampering
+ * and replay of captured requests.
+ */
+public final class WebhookSigner {
+
+    public static final String SIGNATURE_HEADER = "X-AlphaSkyport-Signature";
+    public static final String EVENT_COUNT_HEADER = "X-AlphaSkyport-Event-Count";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private WebhookSigner() {
+    }
+
+    public static String newSecret() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return "whsec_" + HexFormat.of().formatHex(bytes);
+    }
+
+    public static String sign(String secret, long timestampSeconds, String body) {
+        return "t=" + timestampSeconds + ",v1=" + hmac(secret, timestampSeconds + "." + body);
+    }
+
+    /**
+     * Checks a signature header against the body. Fails when the header is
+     * malformed, the HMAC does not match, or the timestamp is further than
+     * toleranceSeconds from nowSeconds.
+     */
+    public static boolean verify(String secret, String header, String body, long nowSeconds, long toleranceSeconds) {
+        if (header == null) {
+            return false;
+        }
+        Long timestamp = null;
+        String signature = null;
+        for (String part : header.split(",")) {
+            if (part.startsWith("t=")) {
+                try {
+                    timestamp = Long.parseLong(part.substring(2));
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            } else if (part.startsWith("v1=")) {
+                signature = part.substring(3);
+            }
+        }
+        if (timestamp == null || signature == null || Math.abs(nowSeconds - timestamp) > toleranceSeconds) {
+            return false;
+        }
+        byte[] expected = hmac(secret, timestamp + "." + body).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String hmac(String secret, String data) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+        }
+    }
+}
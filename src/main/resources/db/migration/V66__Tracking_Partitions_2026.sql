@@ -0,0 +1,13 @@
+-- V66__Tracking_Partitions_2026.sql
+
+-- Close the gap between the seeded Q1 2026 partitions and what PartitionMaintenanceService
+-- creates ahead of time, so back-dated events for the rest of 2026 have a home.
+CREATE TABLE IF NOT EXISTS shipment_tracking_events_2026_04 PARTITION OF shipment_tracking_events FOR VALUES FROM ('2026-04-01') TO ('2026-05-01');
+CREATE TABLE IF NOT EXISTS shipment_tracking_events_2026_05 PARTITION OF shipment_tracking_events FOR VALUES FROM ('2026-05-01') TO ('2026-06-01');
+CREATE TABLE IF NOT EXISTS shipment_tracking_events_2026_06 PARTITION OF shipment_tracking_events FOR VALUES FROM ('2026-06-01') TO ('2026-07-01');
+CREATE TABLE IF NOT EXISTS shipment_tracking_events_2026_07 PARTITION OF shipment_tracking_events FOR VALUES FROM ('2026-07-01') TO ('2026-08-01');
+CREATE TABLE IF NOT EXISTS shipment_tracking_events_2026_08 PARTITION OF shipment_tracking_events FOR VALUES FROM ('2026-08-01') TO ('2026-09-01');
+CREATE TABLE IF NOT EXISTS shipment_tracking_events_2026_09 PARTITION OF shipment_tracking_events FOR VALUES FROM ('2026-09-01') TO ('2026-10-01');
+CREATE TABLE IF NOT EXISTS shipment_tracking_events_2026_10 PARTITION OF shipment_tracking_events FOR VALUES FROM ('2026-10-01') TO ('2026-11-01');
+CREATE TABLE IF NOT EXISTS shipment_tracking_events_2026_11 PARTITION OF shipment_tracking_events FOR VALUES FROM ('2026-11-01') TO ('2026-12-01');
+CREATE TABLE IF NOT EXISTS shipment_tracking_events_2026_12 PARTITION OF shipment_tracking_events FOR VALUES FROM ('2026-12-01') TO ('2027-01-01');
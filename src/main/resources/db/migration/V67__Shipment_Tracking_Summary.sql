@@ -0,0 +1,136 @@
+-- V67__Shipment_Tracking_Summary.sql
+
+-- Compact read model for public tracking lookups.
+-- One row per shipment keyed by tracking number, kept current by triggers so a
+-- tracking lookup is a single primary-key probe with no joins.
+
+CREATE TABLE shipment_tracking_summary (
+    tracking_number VARCHAR(50) PRIMARY KEY,
+    shipment_id UUID NOT NULL UNIQUE REFERENCES shipments(shipment_id) ON DELETE CASCADE,
+
+    current_status VARCHAR(30) NOT NULL,
+    origin_country_code VARCHAR(3),
+    destination_country_code VARCHAR(3),
+    estimated_delivery_date DATE,
+    actual_delivery_date DATE,
+
+    -- Latest tracking event
+    last_event_status VARCHAR(30),
+    last_location VARCHAR(255),
+    last_country_code VARCHAR(3),
+    last_description TEXT,
+    last_latitude DECIMAL(10, 8),
+    last_longitude DECIMAL(11, 8),
+    last_event_at TIMESTAMP,
+
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Shipment side: status, ETA and route changes
+CREATE OR REPLACE FUNCTION sync_tracking_summary_from_shipment()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.deleted_at IS NOT NULL THEN
+        DELETE FROM shipment_tracking_summary WHERE shipment_id = NEW.shipment_id;
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP = 'UPDATE' AND OLD.tracking_number IS DISTINCT FROM NEW.tracking_number THEN
+        DELETE FROM shipment_tracking_summary WHERE shipment_id = NEW.shipment_id;
+    END IF;
+
+    INSERT INTO shipment_tracking_summary AS sts (
+        tracking_number, shipment_id, current_status,
+        origin_country_code, destination_country_code,
+        estimated_delivery_date, actual_delivery_date, updated_at
+    )
+    VALUES (
+        NEW.tracking_number, NEW.shipment_id, NEW.shipment_status,
+        (SELECT country_code FROM countries WHERE country_id = NEW.origin_country_id),
+        (SELECT country_code FROM countries WHERE country_id = NEW.destination_country_id),
+        NEW.estimated_delivery_date, NEW.actual_delivery_date, CURRENT_TIMESTAMP
+    )
+    ON CONFLICT (tracking_number) DO UPDATE SET
+        current_status = EXCLUDED.current_status,
+        origin_country_code = EXCLUDED.origin_country_code,
+        destination_country_code = EXCLUDED.destination_country_code,
+        estimated_delivery_date = EXCLUDED.estimated_delivery_date,
+        actual_delivery_date = EXCLUDED.actual_delivery_date,
+        updated_at = CURRENT_TIMESTAMP;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER shipment_tracking_summary_trigger
+AFTER INSERT OR UPDATE OF tracking_number, shipment_status, estimated_delivery_date, actual_delivery_date,
+    origin_country_id, destination_country_id, deleted_at ON shipments
+FOR EACH ROW
+EXECUTE FUNCTION sync_tracking_summary_from_shipment();
+
+-- Event side: statement-level with a transition table so bulk inserts cost one upsert per statement.
+-- Older events arriving late never overwrite a newer "last event".
+CREATE OR REPLACE FUNCTION sync_tracking_summary_from_events()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO shipment_tracking_summary AS sts (
+        tracking_number, shipment_id, current_status,
+        last_event_status, last_location, last_country_code, last_description,
+        last_latitude, last_longitude, last_event_at, updated_at
+    )
+    SELECT s.tracking_number, s.shipment_id, s.shipment_status,
+           e.event_status, e.event_location, c.country_code, e.event_description,
+           e.latitude, e.longitude, e.event_timestamp, CURRENT_TIMESTAMP
+    FROM (
+        SELECT DISTINCT ON (shipment_id) *
+        FROM new_events
+        ORDER BY shipment_id, event_timestamp DESC, event_id DESC
+    ) e
+    JOIN shipments s ON s.shipment_id = e.shipment_id AND s.deleted_at IS NULL
+    LEFT JOIN countries c ON c.country_id = e.event_country_id
+    ON CONFLICT (tracking_number) DO UPDATE SET
+        last_event_status = EXCLUDED.last_event_status,
+        last_location = EXCLUDED.last_location,
+        last_country_code = EXCLUDED.last_country_code,
+        last_description = EXCLUDED.last_description,
+        last_latitude = EXCLUDED.last_latitude,
+        last_longitude = EXCLUDED.last_longitude,
+        last_event_at = EXCLUDED.last_event_at,
+        updated_at = CURRENT_TIMESTAMP
+    WHERE sts.last_event_at IS NULL OR EXCLUDED.last_event_at >= sts.last_event_at;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER tracking_events_summary_trigger
+AFTER INSERT ON shipment_tracking_events
+REFERENCING NEW TABLE AS new_events
+FOR EACH STATEMENT
+EXECUTE FUNCTION sync_tracking_summary_from_events();
+
+-- Backfill
+INSERT INTO shipment_tracking_summary (
+    tracking_number, shipment_id, current_status,
+    origin_country_code, destination_country_code,
+    estimated_delivery_date, actual_delivery_date,
+    last_event_status, last_location, last_country_code, last_description,
+    last_latitude, last_longitude, last_event_at
+)
+SELECT s.tracking_number, s.shipment_id, s.shipment_status,
+       oc.country_code, dc.country_code,
+       s.estimated_delivery_date, s.actual_delivery_date,
+       e.event_status, e.event_location, ec.country_code, e.event_description,
+       e.latitude, e.longitude, e.event_timestamp
+FROM shipments s
+LEFT JOIN countries oc ON oc.country_id = s.origin_country_id
+LEFT JOIN countries dc ON dc.country_id = s.destination_country_id
+LEFT JOIN LATERAL (
+    SELECT *
+    FROM shipment_tracking_events te
+    WHERE te.shipment_id = s.shipment_id
+    ORDER BY te.event_timestamp DESC, te.event_id DESC
+    LIMIT 1
+) e ON TRUE
+LEFT JOIN countries ec ON ec.country_id = e.event_country_id
+WHERE s.deleted_at IS NULL;
@@ -0,0 +1,24 @@
+-- V68__Tracking_Event_Archives.sql
+
+-- Catalogue of tracking partitions exported to cold archive files.
+-- Shipment and timestamp ranges let history lookups open only files that can match.
+
+CREATE TABLE tracking_event_archives (
+    archive_id BIGSERIAL PRIMARY KEY,
+    partition_name VARCHAR(63) UNIQUE NOT NULL,
+    file_path TEXT NOT NULL,
+    file_size BIGINT NOT NULL,
+    sha256 VARCHAR(64) NOT NULL,
+
+    row_count BIGINT NOT NULL,
+    row_group_count INTEGER NOT NULL,
+
+    min_shipment_id UUID,
+    max_shipment_id UUID,
+    min_event_timestamp TIMESTAMP,
+    max_event_timestamp TIMESTAMP,
+
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_tracking_archives_shipment_range ON tracking_event_archives(min_shipment_id, max_shipment_id);
@@ -0,0 +1,11 @@
+-- V69__Shipment_Keyset_Indexes.sql
+
+-- Keyset pagination orders shipments by (created_at DESC, shipment_id DESC).
+-- The sort key must be NOT NULL for row-value comparisons to seek correctly.
+UPDATE shipments SET created_at = COALESCE(updated_at, CURRENT_TIMESTAMP) WHERE created_at IS NULL;
+ALTER TABLE shipments ALTER COLUMN created_at SET NOT NULL;
+
+-- Covering indexes: the page of ids is resolved with an index-only scan,
+-- then only the rows on that page are fetched from the heap.
+CREATE INDEX idx_shipments_keyset ON shipments(created_at DESC, shipment_id DESC);
+CREATE INDEX idx_shipments_status_keyset ON shipments(shipment_status, created_at DESC, shipment_id DESC);
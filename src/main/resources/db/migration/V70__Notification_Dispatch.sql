@@ -0,0 +1,11 @@
+-- V70__Notification_Dispatch.sql
+
+-- Dispatcher lease: a claimed row stays 'processing' until locked_until, after
+-- which the reaper hands it back for retry (e.g. the claiming node died).
+ALTER TABLE notification_queue ADD COLUMN locked_until TIMESTAMP;
+
+-- Channels that already accepted the notification, so a retry only resends
+-- to the channels that failed.
+ALTER TABLE notification_queue ADD COLUMN delivered_via VARCHAR(20)[] DEFAULT ARRAY[]::VARCHAR(20)[];
+
+CREATE INDEX idx_notif_queue_lease ON notification_queue(locked_until) WHERE status = 'processing';
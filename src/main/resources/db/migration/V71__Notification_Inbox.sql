@@ -0,0 +1,6 @@
+-- V71__Notification_Inbox.sql
+
+-- Inbox pages seek on (user_id, queue_id DESC); the partial index serves the
+-- unread-only view and rebuilding a user's unread counter.
+CREATE INDEX idx_notif_queue_inbox ON notification_queue(user_id, queue_id DESC);
+CREATE INDEX idx_notif_queue_unread ON notification_queue(user_id, queue_id DESC) WHERE read_at IS NULL;
@@ -0,0 +1,24 @@
+-- V72__Notification_Digests.sql
+
+-- Per-user digest preferences. Users without a row (or with 'immediate')
+-- get one notification per event.
+CREATE TABLE notification_digest_preferences (
+    user_id UUID PRIMARY KEY REFERENCES users(user_id) ON DELETE CASCADE,
+    frequency VARCHAR(10) NOT NULL DEFAULT 'immediate' CHECK (frequency IN ('immediate', 'hourly', 'daily')),
+    digest_hour SMALLINT NOT NULL DEFAULT 8 CHECK (digest_hour BETWEEN 0 AND 23),
+    send_via VARCHAR(20)[] NOT NULL DEFAULT ARRAY['email']::VARCHAR(20)[],
+    last_digest_at TIMESTAMP,
+    next_digest_at TIMESTAMP,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_digest_prefs_due ON notification_digest_preferences(next_digest_at)
+    WHERE frequency <> 'immediate';
+
+-- 'digest' rows are skipped by the dispatcher and folded into the user's next digest
+ALTER TABLE notification_queue ADD COLUMN delivery_mode VARCHAR(10) NOT NULL DEFAULT 'immediate'
+    CHECK (delivery_mode IN ('immediate', 'digest'));
+
+CREATE INDEX idx_notif_queue_digest ON notification_queue(user_id, queue_id)
+    WHERE status = 'pending' AND delivery_mode = 'digest';
@@ -0,0 +1,60 @@
+-- V73__Notification_History.sql
+
+-- notification_queue only keeps live rows (pending, processing, failed and
+-- recently sent). NotificationRetentionService moves sent and cancelled rows
+-- past the hot retention into this monthly partitioned table, whose old
+-- partitions PartitionMaintenanceService drops.
+CREATE TABLE notification_history (
+    queue_id BIGINT NOT NULL,
+    user_id UUID NOT NULL,
+    shipment_id UUID,
+    notification_type VARCHAR(50) NOT NULL,
+    dedup_key VARCHAR(200) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    message TEXT NOT NULL,
+    metadata JSONB,
+    send_via VARCHAR(20)[],
+    delivered_via VARCHAR(20)[],
+    delivery_mode VARCHAR(10) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INTEGER,
+    last_error TEXT,
+    sent_at TIMESTAMP,
+    delivered_at TIMESTAMP,
+    read_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (queue_id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Inbox reads UNION ALL the queue and the history with the same seek order
+CREATE INDEX idx_notif_history_inbox ON notification_history(user_id, queue_id DESC);
+CREATE INDEX idx_notif_history_unread ON notification_history(user_id, queue_id DESC) WHERE read_at IS NULL;
+
+-- Rows older than the first monthly partition (back-dated seeds) land here
+CREATE TABLE notification_history_default PARTITION OF notification_history DEFAULT;
+
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', LOCALTIMESTAMP - INTERVAL '1 month')::date;
+BEGIN
+    WHILE month_start <= date_trunc('month', LOCALTIMESTAMP + INTERVAL '3 months')::date LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS notification_history_%s PARTITION OF notification_history '
+                || 'FOR VALUES FROM (%L) TO (%L)',
+                to_char(month_start, 'YYYY_MM'), month_start, (month_start + INTERVAL '1 month')::date);
+        month_start := (month_start + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+-- Feeds the retention mover without scanning live rows
+CREATE INDEX idx_notif_queue_retention ON notification_queue(updated_at)
+    WHERE status IN ('sent', 'cancelled');
+
+-- The queue is small and update-heavy: leave room for HOT status updates and
+-- vacuum it well before dead tuples pile up behind the claim index.
+ALTER TABLE notification_queue SET (
+    fillfactor = 80,
+    autovacuum_vacuum_scale_factor = 0.02,
+    autovacuum_analyze_scale_factor = 0.02
+);
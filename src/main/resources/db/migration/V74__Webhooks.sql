@@ -0,0 +1,63 @@
+-- V74__Webhooks.sql
+
+-- Customer webhook endpoints. The secret signs every request (HMAC-SHA256)
+-- and is only shown to the customer when the subscription is created.
+CREATE TABLE webhook_subscriptions (
+    subscription_id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    user_id UUID NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    url TEXT NOT NULL,
+    secret VARCHAR(128) NOT NULL,
+    event_types VARCHAR(50)[] NOT NULL DEFAULT ARRAY['*']::VARCHAR(50)[],
+    max_concurrency INTEGER NOT NULL DEFAULT 4 CHECK (max_concurrency BETWEEN 1 AND 32),
+    max_batch_size INTEGER NOT NULL DEFAULT 50 CHECK (max_batch_size BETWEEN 1 AND 500),
+    is_active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_webhook_subs_user ON webhook_subscriptions(user_id) WHERE is_active;
+
+-- Outbox: one row per (subscription, event), written in the same transaction
+-- as the shipment change and drained by WebhookDispatcher.
+CREATE TABLE webhook_deliveries (
+    delivery_id BIGSERIAL PRIMARY KEY,
+    subscription_id UUID NOT NULL REFERENCES webhook_subscriptions(subscription_id) ON DELETE CASCADE,
+    event_id UUID NOT NULL,
+    event_type VARCHAR(50) NOT NULL,
+    payload JSONB NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'pending' CHECK (status IN ('pending', 'processing', 'delivered', 'failed')),
+    attempts INTEGER NOT NULL DEFAULT 0,
+    max_attempts INTEGER NOT NULL DEFAULT 8,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_until TIMESTAMP,
+    last_status_code INTEGER,
+    last_error TEXT,
+    delivered_at TIMESTAMP,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (subscription_id, event_id)
+);
+
+CREATE INDEX idx_webhook_deliveries_due ON webhook_deliveries(next_attempt_at)
+    WHERE status IN ('pending', 'failed');
+CREATE INDEX idx_webhook_deliveries_lease ON webhook_deliveries(locked_until) WHERE status = 'processing';
+CREATE INDEX idx_webhook_deliveries_delivered ON webhook_deliveries(delivered_at) WHERE status = 'delivered';
+
+-- Deliveries that exhausted their attempts or were rejected outright. They
+-- can be replayed once the customer fixes the endpoint.
+CREATE TABLE webhook_dead_letters (
+    dead_letter_id BIGSERIAL PRIMARY KEY,
+    delivery_id BIGINT NOT NULL,
+    subscription_id UUID NOT NULL REFERENCES webhook_subscriptions(subscription_id) ON DELETE CASCADE,
+    event_id UUID NOT NULL,
+    event_type VARCHAR(50) NOT NULL,
+    payload JSONB NOT NULL,
+    attempts INTEGER NOT NULL,
+    last_status_code INTEGER,
+    last_error TEXT,
+    first_attempted_at TIMESTAMP,
+    failed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    replayed_at TIMESTAMP
+);
+
+CREATE INDEX idx_webhook_dead_letters_sub ON webhook_dead_letters(subscription_id, dead_letter_id DESC);
@@ -0,0 +1,9 @@
+-- V75__Async_Payments.sql
+
+-- Payments are created 'pending' and charged asynchronously; gateway_attempts
+-- bounds how often an unknown gateway outcome is retried.
+ALTER TABLE payment_transactions ADD COLUMN gateway_attempts INTEGER NOT NULL DEFAULT 0;
+
+-- Feeds PaymentProcessor's sweeper: payments stuck before or during the gateway call
+CREATE INDEX idx_payments_in_flight ON payment_transactions(updated_at)
+    WHERE transaction_status IN ('pending', 'processing');
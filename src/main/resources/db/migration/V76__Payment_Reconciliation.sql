@@ -0,0 +1,49 @@
+-- Reconciliation between shipment-level payment_transactions and invoice-level payments
+
+-- Completed transactions in shipment order, covering the columns the reconciliation stream reads
+CREATE INDEX idx_payments_reconcile ON payment_transactions(shipment_id)
+    INCLUDE (amount, transaction_type)
+    WHERE transaction_status = 'completed';
+
+-- Invoices in shipment order so the invoice stream can walk them without a sort
+CREATE INDEX idx_invoices_shipment_invoice ON invoices(shipment_id, invoice_id)
+    WHERE shipment_id IS NOT NULL;
+
+CREATE TABLE payment_reconciliation_runs (
+    run_id BIGSERIAL PRIMARY KEY,
+    status VARCHAR(20) NOT NULL DEFAULT 'running' CHECK (status IN ('running', 'completed', 'failed')),
+    triggered_by VARCHAR(100) NOT NULL,
+    shipments_scanned BIGINT NOT NULL DEFAULT 0,
+    transaction_rows BIGINT NOT NULL DEFAULT 0,
+    invoice_payment_rows BIGINT NOT NULL DEFAULT 0,
+    discrepancy_count BIGINT NOT NULL DEFAULT 0,
+    discrepancies_stored BIGINT NOT NULL DEFAULT 0,
+    discrepancy_counts JSONB NOT NULL DEFAULT '{}'::jsonb,
+    error_message TEXT,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+-- At most one run in progress across all nodes
+CREATE UNIQUE INDEX idx_reconciliation_single_running ON payment_reconciliation_runs((true))
+    WHERE status = 'running';
+
+CREATE INDEX idx_reconciliation_runs_started ON payment_reconciliation_runs(started_at DESC);
+
+CREATE TABLE payment_reconciliation_discrepancies (
+    discrepancy_id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES payment_reconciliation_runs(run_id) ON DELETE CASCADE,
+    discrepancy_type VARCHAR(30) NOT NULL,
+    shipment_id UUID NOT NULL,
+    invoice_id UUID,
+    invoice_count INTEGER NOT NULL DEFAULT 0,
+    amount_paid DECIMAL(14, 2),
+    transaction_total DECIMAL(14, 2) NOT NULL,
+    invoice_payment_total DECIMAL(14, 2) NOT NULL,
+    difference DECIMAL(14, 2) NOT NULL
+);
+
+CREATE INDEX idx_reconciliation_discrepancies_run
+    ON payment_reconciliation_discrepancies(run_id, discrepancy_id);
+CREATE INDEX idx_reconciliation_discrepancies_type
+    ON payment_reconciliation_discrepancies(run_id, discrepancy_type, discrepancy_id);
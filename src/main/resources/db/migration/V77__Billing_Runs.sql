@@ -0,0 +1,62 @@
+-- Invoice numbering and month-end billing runs
+
+CREATE SEQUENCE IF NOT EXISTS invoice_number_seq START 1 CACHE 50;
+
+-- Allocates a block of invoice numbers in one call
+-- Format: INV-YYYY-XXXXXXX
+CREATE OR REPLACE FUNCTION generate_invoice_numbers(block_size INTEGER)
+RETURNS SETOF VARCHAR(50) AS $$
+    SELECT ('INV-' || TO_CHAR(CURRENT_DATE, 'YYYY') || '-' || LPAD(nextval('invoice_number_seq')::TEXT, 7, '0'))::VARCHAR(50)
+    FROM generate_series(1, block_size);
+$$ LANGUAGE sql VOLATILE;
+
+CREATE OR REPLACE FUNCTION generate_invoice_number()
+RETURNS VARCHAR(50) AS $$
+    SELECT generate_invoice_numbers(1);
+$$ LANGUAGE sql VOLATILE;
+
+-- Which shipment a line item bills; a shipment is billed by at most one line item
+ALTER TABLE invoice_line_items ADD COLUMN shipment_id UUID REFERENCES shipments(shipment_id);
+CREATE UNIQUE INDEX uq_invoice_lines_shipment ON invoice_line_items(shipment_id)
+    WHERE shipment_id IS NOT NULL;
+
+-- Delivered shipments in user order, for planning and loading billing chunks
+CREATE INDEX idx_shipments_billable ON shipments(user_id, actual_delivery_date)
+    WHERE shipment_status = 'delivered' AND deleted_at IS NULL;
+
+CREATE TABLE billing_runs (
+    run_id BIGSERIAL PRIMARY KEY,
+    period_start DATE NOT NULL,
+    period_end DATE NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'running' CHECK (status IN ('running', 'completed', 'failed')),
+    created_by UUID NOT NULL REFERENCES admin_users(admin_id),
+    chunk_count INTEGER NOT NULL DEFAULT 0,
+    planned_shipments INTEGER NOT NULL DEFAULT 0,
+    invoices_created INTEGER NOT NULL DEFAULT 0,
+    shipments_billed INTEGER NOT NULL DEFAULT 0,
+    total_amount DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP,
+    CONSTRAINT billing_period_check CHECK (period_end >= period_start),
+    CONSTRAINT uq_billing_run_period UNIQUE (period_start, period_end)
+);
+
+CREATE TABLE billing_run_chunks (
+    chunk_id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES billing_runs(run_id) ON DELETE CASCADE,
+    chunk_no INTEGER NOT NULL,
+    user_ids UUID[] NOT NULL,
+    planned_shipments INTEGER NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'pending' CHECK (status IN ('pending', 'processing', 'completed', 'failed')),
+    attempts INTEGER NOT NULL DEFAULT 0,
+    lease_until TIMESTAMP,
+    invoices_created INTEGER NOT NULL DEFAULT 0,
+    shipments_billed INTEGER NOT NULL DEFAULT 0,
+    total_amount DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    last_error TEXT,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_billing_chunk UNIQUE (run_id, chunk_no)
+);
+
+CREATE INDEX idx_billing_chunks_claimable ON billing_run_chunks(run_id, chunk_no)
+    WHERE status IN ('pending', 'processing');
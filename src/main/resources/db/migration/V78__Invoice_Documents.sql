@@ -0,0 +1,15 @@
+-- Rendered invoice PDFs stored under admin.upload.storage-path
+CREATE TABLE invoice_documents (
+    invoice_id UUID PRIMARY KEY REFERENCES invoices(invoice_id) ON DELETE CASCADE,
+    file_path VARCHAR(500) NOT NULL,
+    file_size BIGINT NOT NULL,
+    sha256 CHAR(64) NOT NULL,
+    page_count INTEGER NOT NULL,
+    -- invoices.version and template digest the file was rendered from; a mismatch means stale
+    invoice_version INTEGER NOT NULL,
+    template_version VARCHAR(32) NOT NULL,
+    rendered_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Invoices issued in a period, for bulk re-rendering in key order
+CREATE INDEX idx_invoices_issue_date ON invoices(issue_date, invoice_id);
@@ -0,0 +1,2 @@
+-- Payments in export order (payment date, then id) so streaming exports read in index order
+CREATE INDEX idx_payments_export ON payments(payment_date, payment_id);
@@ -0,0 +1,70 @@
+-- Overdue invoices are marked by a periodic set-based transition (InvoiceOverdueService)
+-- instead of being derived from due_date on every read. The number and outstanding
+-- amount of OVERDUE invoices are kept in a single-row aggregate by statement-level
+-- triggers, so dashboards read two numbers instead of scanning invoices.
+
+-- Candidates for the transition job
+CREATE INDEX idx_invoices_overdue_candidates ON invoices(due_date)
+    WHERE status IN ('SENT', 'PARTIAL');
+
+CREATE TABLE invoice_overdue_stats (
+    id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    overdue_count BIGINT NOT NULL DEFAULT 0,
+    overdue_amount DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO invoice_overdue_stats (overdue_count, overdue_amount)
+SELECT COUNT(*), COALESCE(SUM(total_amount - COALESCE(paid_amount, 0)), 0)
+FROM invoices
+WHERE status = 'OVERDUE';
+
+-- One aggregate update per statement: a transition batch of thousands of rows
+-- touches the stats row once
+CREATE OR REPLACE FUNCTION maintain_invoice_overdue_stats()
+RETURNS TRIGGER AS $$
+DECLARE
+    added_count BIGINT := 0;
+    added_amount DECIMAL(14, 2) := 0;
+    removed_count BIGINT := 0;
+    removed_amount DECIMAL(14, 2) := 0;
+BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        SELECT COUNT(*), COALESCE(SUM(total_amount - COALESCE(paid_amount, 0)), 0)
+        INTO added_count, added_amount
+        FROM new_rows
+        WHERE status = 'OVERDUE';
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        SELECT COUNT(*), COALESCE(SUM(total_amount - COALESCE(paid_amount, 0)), 0)
+        INTO removed_count, removed_amount
+        FROM old_rows
+        WHERE status = 'OVERDUE';
+    END IF;
+
+    IF added_count <> removed_count OR added_amount <> removed_amount THEN
+        UPDATE invoice_overdue_stats
+        SET overdue_count = overdue_count + added_count - removed_count,
+            overdue_amount = overdue_amount + added_amount - removed_amount,
+            updated_at = CURRENT_TIMESTAMP
+        WHERE id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables allow only one event per trigger
+CREATE TRIGGER trg_invoice_overdue_stats_insert
+    AFTER INSERT ON invoices
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION maintain_invoice_overdue_stats();
+
+CREATE TRIGGER trg_invoice_overdue_stats_update
+    AFTER UPDATE ON invoices
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION maintain_invoice_overdue_stats();
+
+CREATE TRIGGER trg_invoice_overdue_stats_delete
+    AFTER DELETE ON invoices
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION maintain_invoice_overdue_stats();
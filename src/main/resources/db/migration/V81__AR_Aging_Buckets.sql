@@ -0,0 +1,160 @@
+-- Accounts-receivable aging per customer and currency, maintained incrementally.
+-- Open (SENT, PARTIAL, OVERDUE) invoices contribute their outstanding amount to
+-- one bucket by days past due as of ar_aging_state.as_of. Statement triggers on
+-- invoices apply deltas; ArAgingService moves as_of forward nightly and
+-- recomputes the buckets, so the report never scans invoices.
+
+CREATE TABLE ar_aging_state (
+    id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    as_of DATE NOT NULL,
+    rebucketed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE ar_aging_buckets (
+    user_id UUID NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    currency VARCHAR(3) NOT NULL,
+    open_invoices INTEGER NOT NULL DEFAULT 0,
+    current_amount DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    days_1_30 DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    days_31_60 DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    days_61_90 DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    days_over_90 DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    total_amount DECIMAL(14, 2) GENERATED ALWAYS AS
+        (current_amount + days_1_30 + days_31_60 + days_61_90 + days_over_90) STORED,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, currency)
+);
+
+-- Customer listing, largest balance first (keyset on total, user, currency)
+CREATE INDEX idx_ar_aging_buckets_total ON ar_aging_buckets(total_amount DESC, user_id DESC, currency DESC)
+    WHERE open_invoices > 0;
+
+-- Outstanding amount of open invoices split into aging buckets as of a date
+CREATE OR REPLACE FUNCTION ar_aging_rows(as_of DATE)
+RETURNS TABLE (
+    user_id UUID,
+    currency VARCHAR,
+    open_invoices INTEGER,
+    current_amount DECIMAL,
+    days_1_30 DECIMAL,
+    days_31_60 DECIMAL,
+    days_61_90 DECIMAL,
+    days_over_90 DECIMAL
+) AS $$
+    SELECT i.user_id,
+           COALESCE(i.currency, 'USD'),
+           COUNT(*)::INTEGER,
+           COALESCE(SUM(o.amount) FILTER (WHERE as_of - i.due_date <= 0), 0),
+           COALESCE(SUM(o.amount) FILTER (WHERE as_of - i.due_date BETWEEN 1 AND 30), 0),
+           COALESCE(SUM(o.amount) FILTER (WHERE as_of - i.due_date BETWEEN 31 AND 60), 0),
+           COALESCE(SUM(o.amount) FILTER (WHERE as_of - i.due_date BETWEEN 61 AND 90), 0),
+           COALESCE(SUM(o.amount) FILTER (WHERE as_of - i.due_date > 90), 0)
+    FROM invoices i
+    CROSS JOIN LATERAL (SELECT i.total_amount - COALESCE(i.paid_amount, 0) AS amount) o
+    WHERE i.status IN ('SENT', 'PARTIAL', 'OVERDUE')
+    GROUP BY i.user_id, COALESCE(i.currency, 'USD')
+$$ LANGUAGE sql STABLE;
+
+INSERT INTO ar_aging_state (as_of) VALUES (CURRENT_DATE);
+
+INSERT INTO ar_aging_buckets (user_id, currency, open_invoices, current_amount,
+                              days_1_30, days_31_60, days_61_90, days_over_90)
+SELECT * FROM ar_aging_rows(CURRENT_DATE);
+
+CREATE TYPE ar_aging_delta AS (
+    user_id UUID,
+    currency VARCHAR(3),
+    sign INTEGER,
+    due_date DATE,
+    amount DECIMAL(14, 2)
+);
+
+-- Applies the net change of one statement, grouped per customer. Reading as_of
+-- FOR SHARE makes a statement racing the nightly rebucket wait for it and then
+-- bucket against the new date.
+CREATE OR REPLACE FUNCTION maintain_ar_aging_buckets()
+RETURNS TRIGGER AS $$
+DECLARE
+    bucket_date DATE;
+    deltas ar_aging_delta[];
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        deltas := ARRAY(
+            SELECT ROW(user_id, COALESCE(currency, 'USD'), 1, due_date,
+                       total_amount - COALESCE(paid_amount, 0))::ar_aging_delta
+            FROM new_rows
+            WHERE status IN ('SENT', 'PARTIAL', 'OVERDUE'));
+    ELSIF TG_OP = 'DELETE' THEN
+        deltas := ARRAY(
+            SELECT ROW(user_id, COALESCE(currency, 'USD'), -1, due_date,
+                       total_amount - COALESCE(paid_amount, 0))::ar_aging_delta
+            FROM old_rows
+            WHERE status IN ('SENT', 'PARTIAL', 'OVERDUE'));
+    ELSE
+        -- Only rows whose aging inputs changed; SENT -> OVERDUE moves nothing
+        deltas := ARRAY(
+            SELECT d
+            FROM old_rows o
+            JOIN new_rows n ON n.invoice_id = o.invoice_id
+            CROSS JOIN LATERAL (VALUES
+                (ROW(o.user_id, COALESCE(o.currency, 'USD'), -1, o.due_date,
+                     o.total_amount - COALESCE(o.paid_amount, 0))::ar_aging_delta,
+                 o.status IN ('SENT', 'PARTIAL', 'OVERDUE')),
+                (ROW(n.user_id, COALESCE(n.currency, 'USD'), 1, n.due_date,
+                     n.total_amount - COALESCE(n.paid_amount, 0))::ar_aging_delta,
+                 n.status IN ('SENT', 'PARTIAL', 'OVERDUE'))
+            ) v(d, is_open)
+            WHERE v.is_open
+              AND (o.user_id, o.currency, o.due_date, o.total_amount, o.paid_amount,
+                   o.status IN ('SENT', 'PARTIAL', 'OVERDUE'))
+                  IS DISTINCT FROM
+                  (n.user_id, n.currency, n.due_date, n.total_amount, n.paid_amount,
+                   n.status IN ('SENT', 'PARTIAL', 'OVERDUE')));
+    END IF;
+
+    IF cardinality(deltas) = 0 THEN
+        RETURN NULL;
+    END IF;
+
+    SELECT as_of INTO bucket_date FROM ar_aging_state WHERE id FOR SHARE;
+
+    -- Fixed key order so concurrent statements lock customer rows in the same order
+    INSERT INTO ar_aging_buckets AS b (user_id, currency, open_invoices, current_amount,
+                                       days_1_30, days_31_60, days_61_90, days_over_90)
+    SELECT d.user_id, d.currency,
+           SUM(d.sign),
+           COALESCE(SUM(d.sign * d.amount) FILTER (WHERE bucket_date - d.due_date <= 0), 0),
+           COALESCE(SUM(d.sign * d.amount) FILTER (WHERE bucket_date - d.due_date BETWEEN 1 AND 30), 0),
+           COALESCE(SUM(d.sign * d.amount) FILTER (WHERE bucket_date - d.due_date BETWEEN 31 AND 60), 0),
+           COALESCE(SUM(d.sign * d.amount) FILTER (WHERE bucket_date - d.due_date BETWEEN 61 AND 90), 0),
+           COALESCE(SUM(d.sign * d.amount) FILTER (WHERE bucket_date - d.due_date > 90), 0)
+    FROM unnest(deltas) d
+    GROUP BY d.user_id, d.currency
+    ORDER BY d.user_id, d.currency
+    ON CONFLICT (user_id, currency) DO UPDATE
+    SET open_invoices = b.open_invoices + EXCLUDED.open_invoices,
+        current_amount = b.current_amount + EXCLUDED.current_amount,
+        days_1_30 = b.days_1_30 + EXCLUDED.days_1_30,
+        days_31_60 = b.days_31_60 + EXCLUDED.days_31_60,
+        days_61_90 = b.days_61_90 + EXCLUDED.days_61_90,
+        days_over_90 = b.days_over_90 + EXCLUDED.days_over_90,
+        updated_at = CURRENT_TIMESTAMP;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_ar_aging_insert
+    AFTER INSERT ON invoices
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION maintain_ar_aging_buckets();
+
+CREATE TRIGGER trg_ar_aging_update
+    AFTER UPDATE ON invoices
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION maintain_ar_aging_buckets();
+
+CREATE TRIGGER trg_ar_aging_delete
+    AFTER DELETE ON invoices
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION maintain_ar_aging_buckets();
@@ -0,0 +1,8 @@
+-- V82__Webhook_Fair_Claim.sql
+
+-- WebhookDispatcher claims per subscription, oldest due first, and caps each
+-- subscription by the deliveries it already has leased.
+CREATE INDEX idx_webhook_deliveries_sub_due ON webhook_deliveries(subscription_id, next_attempt_at)
+    WHERE status IN ('pending', 'failed');
+CREATE INDEX idx_webhook_deliveries_sub_processing ON webhook_deliveries(subscription_id)
+    WHERE status = 'processing';
@@ -0,0 +1,15 @@
+-- V83__Payment_Refund_States.sql
+
+-- refund_pending: approved by the gateway but no longer applicable (the amount
+-- due was covered by a concurrent payment); PaymentProcessor refunds it.
+-- needs_reconciliation: the gateway outcome stayed unknown after every retry,
+-- or a refund was declined; someone must check with the provider.
+ALTER TABLE payment_transactions DROP CONSTRAINT payment_transactions_transaction_status_check;
+ALTER TABLE payment_transactions ADD CONSTRAINT payment_transactions_transaction_status_check
+    CHECK (transaction_status IN (
+        'pending', 'processing', 'completed', 'failed', 'cancelled', 'refunded',
+        'refund_pending', 'needs_reconciliation'
+    ));
+
+CREATE INDEX idx_payments_attention ON payment_transactions(updated_at)
+    WHERE transaction_status IN ('refund_pending', 'needs_reconciliation');
@@ -0,0 +1,12 @@
+-- Invoice PDFs are stored under content-hashed names; a re-render writes a new file and
+-- records the superseded one here until downloads that may still be reading it are done
+CREATE TABLE invoice_documents_retired (
+    retired_id BIGSERIAL PRIMARY KEY,
+    -- No foreign key: the file outlives a deleted invoice until it is cleaned up
+    invoice_id UUID NOT NULL,
+    file_path VARCHAR(500) NOT NULL,
+    retired_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_invoice_documents_retired_at ON invoice_documents_retired(retired_at);
+CREATE INDEX idx_invoice_documents_retired_invoice ON invoice_documents_retired(invoice_id);
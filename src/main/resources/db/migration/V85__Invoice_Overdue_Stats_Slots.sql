@@ -0,0 +1,61 @@
+-- The single invoice_overdue_stats row (V80) was written by every statement that
+-- touched an OVERDUE invoice, serialising concurrent payments and transition
+-- batches on one row lock. The aggregate is now spread over 16 slots; a
+-- statement adds its delta to the slot of its backend and readers sum the slots.
+-- A session always writes the same slot, so a transaction locks at most one
+-- stats row and two writers only wait on each other when their backends share one.
+
+DROP TABLE invoice_overdue_stats;
+
+CREATE TABLE invoice_overdue_stats (
+    slot SMALLINT PRIMARY KEY CHECK (slot >= 0 AND slot < 16),
+    -- A slot holds deltas, so it can go negative; only the sum is meaningful
+    overdue_count BIGINT NOT NULL DEFAULT 0,
+    overdue_amount DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO invoice_overdue_stats (slot)
+SELECT generate_series(0, 15);
+
+UPDATE invoice_overdue_stats
+SET overdue_count = agg.overdue_count,
+    overdue_amount = agg.overdue_amount
+FROM (
+    SELECT COUNT(*) AS overdue_count, COALESCE(SUM(total_amount - COALESCE(paid_amount, 0)), 0) AS overdue_amount
+    FROM invoices
+    WHERE status = 'OVERDUE'
+) agg
+WHERE slot = 0;
+
+CREATE OR REPLACE FUNCTION maintain_invoice_overdue_stats()
+RETURNS TRIGGER AS $$
+DECLARE
+    added_count BIGINT := 0;
+    added_amount DECIMAL(14, 2) := 0;
+    removed_count BIGINT := 0;
+    removed_amount DECIMAL(14, 2) := 0;
+BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        SELECT COUNT(*), COALESCE(SUM(total_amount - COALESCE(paid_amount, 0)), 0)
+        INTO added_count, added_amount
+        FROM new_rows
+        WHERE status = 'OVERDUE';
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        SELECT COUNT(*), COALESCE(SUM(total_amount - COALESCE(paid_amount, 0)), 0)
+        INTO removed_count, removed_amount
+        FROM old_rows
+        WHERE status = 'OVERDUE';
+    END IF;
+
+    IF added_count <> removed_count OR added_amount <> removed_amount THEN
+        UPDATE invoice_overdue_stats
+        SET overdue_count = overdue_count + added_count - removed_count,
+            overdue_amount = overdue_amount + added_amount - removed_amount,
+            updated_at = CURRENT_TIMESTAMP
+        WHERE slot = pg_backend_pid() % 16;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,89 @@
+-- The overdue aggregate (V80, V85) summed outstanding amounts across
+-- currencies into one figure. Slots are now keyed by currency as well, so
+-- each currency keeps its own total; readers sum the slots per currency.
+-- Rows are created on first use, so a new currency needs no migration.
+-- Invoices without a currency count as USD, the column default.
+
+DROP TABLE invoice_overdue_stats;
+
+CREATE TABLE invoice_overdue_stats (
+    slot SMALLINT NOT NULL CHECK (slot >= 0 AND slot < 16),
+    currency VARCHAR(3) NOT NULL,
+    -- A slot holds deltas, so it can go negative; only the sum is meaningful
+    overdue_count BIGINT NOT NULL DEFAULT 0,
+    overdue_amount DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (slot, currency)
+);
+
+INSERT INTO invoice_overdue_stats (slot, currency, overdue_count, overdue_amount)
+SELECT 0, COALESCE(currency, 'USD'), COUNT(*), SUM(total_amount - COALESCE(paid_amount, 0))
+FROM invoices
+WHERE status = 'OVERDUE'
+GROUP BY COALESCE(currency, 'USD');
+
+-- A statement still writes only its backend's slot: one row per currency it
+-- moved, locked in currency order so two writers sharing a slot cannot deadlock
+CREATE OR REPLACE FUNCTION maintain_invoice_overdue_stats()
+RETURNS TRIGGER AS $$
+DECLARE
+    currencies VARCHAR(3)[];
+    counts BIGINT[];
+    amounts DECIMAL(14, 2)[];
+BEGIN
+    -- Each branch reads only the transition tables its event provides
+    IF TG_OP = 'INSERT' THEN
+        SELECT array_agg(d.currency ORDER BY d.currency), array_agg(d.delta_count ORDER BY d.currency),
+               array_agg(d.delta_amount ORDER BY d.currency)
+        INTO currencies, counts, amounts
+        FROM (
+            SELECT COALESCE(currency, 'USD') AS currency, COUNT(*) AS delta_count,
+                   SUM(total_amount - COALESCE(paid_amount, 0)) AS delta_amount
+            FROM new_rows
+            WHERE status = 'OVERDUE'
+            GROUP BY 1
+        ) d;
+    ELSIF TG_OP = 'DELETE' THEN
+        SELECT array_agg(d.currency ORDER BY d.currency), array_agg(d.delta_count ORDER BY d.currency),
+               array_agg(d.delta_amount ORDER BY d.currency)
+        INTO currencies, counts, amounts
+        FROM (
+            SELECT COALESCE(currency, 'USD') AS currency, -COUNT(*) AS delta_count,
+                   -SUM(total_amount - COALESCE(paid_amount, 0)) AS delta_amount
+            FROM old_rows
+            WHERE status = 'OVERDUE'
+            GROUP BY 1
+        ) d;
+    ELSE
+        SELECT array_agg(d.currency ORDER BY d.currency), array_agg(d.delta_count ORDER BY d.currency),
+               array_agg(d.delta_amount ORDER BY d.currency)
+        INTO currencies, counts, amounts
+        FROM (
+            SELECT currency, SUM(row_count) AS delta_count, SUM(amount) AS delta_amount
+            FROM (
+                SELECT COALESCE(currency, 'USD') AS currency, 1 AS row_count,
+                       total_amount - COALESCE(paid_amount, 0) AS amount
+                FROM new_rows
+                WHERE status = 'OVERDUE'
+                UNION ALL
+                SELECT COALESCE(currency, 'USD'), -1, -(total_amount - COALESCE(paid_amount, 0))
+                FROM old_rows
+                WHERE status = 'OVERDUE'
+            ) changes
+            GROUP BY currency
+            HAVING SUM(row_count) <> 0 OR SUM(amount) <> 0
+        ) d;
+    END IF;
+
+    IF currencies IS NOT NULL THEN
+        INSERT INTO invoice_overdue_stats AS s (slot, currency, overdue_count, overdue_amount)
+        SELECT pg_backend_pid() % 16, d.currency, d.delta_count, d.delta_amount
+        FROM unnest(currencies, counts, amounts) AS d(currency, delta_count, delta_amount)
+        ON CONFLICT (slot, currency) DO UPDATE
+        SET overdue_count = s.overdue_count + EXCLUDED.overdue_count,
+            overdue_amount = s.overdue_amount + EXCLUDED.overdue_amount,
+            updated_at = CURRENT_TIMESTAMP;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,153 @@
+package com.alphaskyport.admin.document;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvoicePdfRendererTest {
+
+    private static InvoiceTemplate template;
+
+    @BeforeAll
+    static void compileTemplate() throws IOException {
+        try (InputStream in = InvoicePdfRendererTest.class.getResourceAsStream("/documents/invoice.pdft")) {
+            assertNotNull(in, "invoice template resource");
+            template = InvoiceTemplate.compile(new String(in.readAllBytes(), StandardCharsets.UTF_8), Map.of(
+                    "companyName", "Alpha Skyport",
+                    "companyAddress", "1 Runway Road",
+                    "companyContact", "billing@example.com"));
+        }
+    }
+
+    @Test
+    void rendersMultiPageDocumentWithValidCrossReferences() throws IOException {
+        InvoicePdfRenderer renderer = new InvoicePdfRenderer(template);
+        int lines = 80;
+        int expectedPages = renderer.pageCount(lines);
+        assertEquals(3, expectedPages);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InvoicePdfRenderer.Session session = renderer.open(header(), lines, out)) {
+            for (int i = 0; i < lines; i++) {
+                session.addLine(new InvoicePdfRenderer.Line("Air freight (leg " + i + ")",
+                        new BigDecimal("2.500"), new BigDecimal("1234.5"), new BigDecimal("3086.25")));
+            }
+            session.finish();
+            assertEquals(out.size(), session.getBytesWritten());
+        }
+
+        byte[] pdf = out.toByteArray();
+        String text = new String(pdf, StandardCharsets.ISO_8859_1);
+        assertTrue(text.startsWith("%PDF-1.4\n"));
+        assertTrue(text.endsWith("%%EOF\n"));
+        assertTrue(text.contains("/Type /Pages /Kids [") && text.contains("/Count " + expectedPages + " >>"));
+
+        // Every xref entry points at the start of its object
+        Matcher startxref = Pattern.compile("startxref\\n(\\d+)\\n").matcher(text);
+        assertTrue(startxref.find());
+        int xref = Integer.parseInt(startxref.group(1));
+        assertTrue(text.startsWith("xref\n0 ", xref));
+        String[] table = text.substring(xref).split("\n");
+        int size = Integer.parseInt(table[1].split(" ")[1]);
+        for (int object = 1; object < size; object++) {
+            int offset = Integer.parseInt(table[2 + object].substring(0, 10));
+            assertTrue(text.startsWith(object + " 0 obj\n", offset), "xref entry for object " + object);
+        }
+
+        List<String> pages = contentStreams(pdf, text);
+        assertEquals(expectedPages, pages.size());
+        assertTrue(pages.get(0).contains("(Page 1 of 3)"));
+        assertTrue(pages.get(2).contains("(Page 3 of 3)"));
+        assertTrue(pages.get(0).contains("(Air freight \\(leg 0\\))"));
+        assertTrue(pages.get(0).contains("(2.5) Tj") && pages.get(0).contains("(1,234.50) Tj"));
+        assertTrue(pages.get(0).contains("(1 Runway Road)"));
+        assertTrue(pages.get(2).contains("(Balance due) Tj 130 0 Td (1,000.00) Tj"));
+        assertFalse(pages.get(1).contains("Balance due"));
+    }
+
+    @Test
+    void emptyInvoiceStillRendersOnePageWithTotals() throws IOException {
+        InvoicePdfRenderer renderer = new InvoicePdfRenderer(template);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InvoicePdfRenderer.Session session = renderer.open(header(), 0, out)) {
+            session.finish();
+        }
+
+        byte[] pdf = out.toByteArray();
+        List<String> pages = contentStreams(pdf, new String(pdf, StandardCharsets.ISO_8859_1));
+        assertEquals(1, pages.size());
+        assertTrue(pages.get(0).contains("(Total USD)"));
+    }
+
+    @Test
+    void lineCountMustMatchAnnouncedCount() throws IOException {
+        InvoicePdfRenderer renderer = new InvoicePdfRenderer(template);
+        InvoicePdfRenderer.Line line = new InvoicePdfRenderer.Line("x", BigDecimal.ONE, BigDecimal.ONE,
+                BigDecimal.ONE);
+
+        try (InvoicePdfRenderer.Session session = renderer.open(header(), 2, new ByteArrayOutputStream())) {
+            session.addLine(line);
+            assertThrows(IllegalStateException.class, session::finish);
+        }
+        try (InvoicePdfRenderer.Session session = renderer.open(header(), 1, new ByteArrayOutputStream())) {
+            session.addLine(line);
+            assertThrows(IllegalStateException.class, () -> session.addLine(line));
+        }
+    }
+
+    @Test
+    void templateFieldsAreEscapedAndRequired() throws IOException {
+        InvoiceTemplate compiled = InvoiceTemplate.compile("""
+                %% rows 3
+                {{#row}}
+                ({{company}}) Tj ({{value}}) Tj
+                {{/row}}
+                """, Map.of("company", "A (B)"));
+        assertEquals(3, compiled.layout("rows"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compiled.write("row", Map.of("value", "50% \\ off"), out);
+        assertEquals("(A \\(B\\)) Tj (50% \\\\ off) Tj\n", out.toString(StandardCharsets.ISO_8859_1));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> compiled.write("row", Map.of(), new ByteArrayOutputStream()));
+        assertThrows(IllegalArgumentException.class, () -> compiled.layout("missing"));
+    }
+
+    private static InvoicePdfRenderer.Header header() {
+        return new InvoicePdfRenderer.Header("INV-2026-0000042", "SENT", LocalDate.of(2026, 9, 30),
+                LocalDate.of(2026, 10, 30), "Acme Imports", "ap@acme.test", "USD",
+                new BigDecimal("1000.00"), BigDecimal.ZERO, new BigDecimal("1000.00"), BigDecimal.ZERO);
+    }
+
+    /** Inflates the content streams in file order, which is page order for this renderer. */
+    private static List<String> contentStreams(byte[] pdf, String text) throws IOException {
+        List<String> streams = new ArrayList<>();
+        int from = 0;
+        while ((from = text.indexOf("/FlateDecode >>\nstream\n", from)) >= 0) {
+            int start = from + "/FlateDecode >>\nstream\n".length();
+            int end = text.indexOf("\nendstream", start);
+            try (InputStream in = new InflaterInputStream(
+                    new ByteArrayInputStream(pdf, start, end - start))) {
+                streams.add(new String(in.readAllBytes(), StandardCharsets.ISO_8859_1));
+            }
+            from = end;
+        }
+        return streams;
+    }
+}
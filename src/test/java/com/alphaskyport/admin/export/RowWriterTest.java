@@ -0,0 +1,75 @@
+package com.alphaskyport.admin.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowWriterTest {
+
+    private static final List<String> COLUMNS = List.of("id", "reference", "amount", "paid", "issued", "created_at",
+            "note");
+    private static final UUID ID = UUID.fromString("00000000-0000-0000-0000-00000000002a");
+
+    @Test
+    void csvQuotesDelimitersAndGuardsFormulas() throws IOException {
+        StringWriter out = new StringWriter();
+        try (RowWriter writer = ExportFormat.CSV.open(out, COLUMNS)) {
+            writer.writeRow(row("=HYPERLINK(\"x\")", "a,b \"c\""));
+            writer.writeRow(row("-42", null));
+        }
+
+        String[] lines = out.toString().split("\r\n");
+        assertEquals("id,reference,amount,paid,issued,created_at,note", lines[0]);
+        assertEquals(ID + ",\"'=HYPERLINK(\"\"x\"\")\",1250.50,true,2026-09-30,2026-09-30T08:15,\"a,b \"\"c\"\"\"",
+                lines[1]);
+        assertEquals(ID + ",\"'-42\",1250.50,true,2026-09-30,2026-09-30T08:15,", lines[2]);
+    }
+
+    @Test
+    void jsonlKeepsTypesOnePerLine() throws IOException {
+        StringWriter out = new StringWriter();
+        Object[] values = row("REF-1", null);
+        try (RowWriter writer = ExportFormat.JSONL.open(out, COLUMNS)) {
+            writer.writeRow(values);
+            values[1] = "REF-2\nnext";
+            writer.writeRow(values);
+        }
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertEquals(ID.toString(), first.get("id").asText());
+        assertTrue(first.get("amount").isNumber());
+        assertEquals(0, new BigDecimal("1250.50").compareTo(first.get("amount").decimalValue()));
+        assertTrue(first.get("paid").booleanValue());
+        assertEquals("2026-09-30", first.get("issued").asText());
+        assertEquals("2026-09-30T08:15", first.get("created_at").asText());
+        assertTrue(first.get("note").isNull());
+        assertEquals("REF-2\nnext", new ObjectMapper().readTree(lines[1]).get("reference").asText());
+    }
+
+    @Test
+    void formatAcceptsExtensionOrName() {
+        assertEquals(ExportFormat.JSONL, ExportFormat.fromValue("jsonl"));
+        assertEquals(ExportFormat.CSV, ExportFormat.fromValue("CSV"));
+        assertThrows(IllegalArgumentException.class, () -> ExportFormat.fromValue("xlsx"));
+    }
+
+    private static Object[] row(String reference, String note) {
+        return new Object[] { ID, reference, new BigDecimal("1250.50"), Boolean.TRUE,
+                Date.valueOf(LocalDate.of(2026, 9, 30)), Timestamp.valueOf(LocalDateTime.of(2026, 9, 30, 8, 15)),
+                note };
+    }
+}
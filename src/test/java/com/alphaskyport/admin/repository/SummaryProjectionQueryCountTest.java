@@ -0,0 +1,198 @@
+package com.alphaskyport.admin.repository;
+
+import com.alphaskyport.admin.dto.InvoiceDTOs.InvoiceSummary;
+import com.alphaskyport.admin.dto.IssueDTOs.IssueSummary;
+import com.alphaskyport.admin.model.AdminRole;
+import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.model.Invoice;
+import com.alphaskyport.admin.model.InvoiceStatus;
+import com.alphaskyport.admin.model.IssueSeverity;
+import com.alphaskyport.admin.model.IssueStatus;
+import com.alphaskyport.admin.model.IssueType;
+import com.alphaskyport.admin.model.ShipmentIssue;
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.logistics.model.Shipment;
+import com.alphaskyport.masterdata.model.Country;
+import com.alphaskyport.masterdata.model.FreightService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Locks in that invoice and issue list pages are built by projection: one
+ * select for the rows plus one count, and no entity is loaded, however many
+ * distinct customers, shipments and assignees the page touches.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SummaryProjectionQueryCountTest {
+
+    private static final int ROWS = 30;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ShipmentIssueRepository issueRepository;
+
+    private Statistics statistics;
+    private User firstCustomer;
+    private Shipment firstShipment;
+    private AdminUser assignee;
+
+    @BeforeEach
+    void seed() {
+        Country country = new Country();
+        country.setCountryCode("QC");
+        country.setCountryName("Query Count");
+        entityManager.persist(country);
+
+        FreightService service = new FreightService();
+        service.setServiceName("Projection Test Service");
+        service.setServiceType("air");
+        entityManager.persist(service);
+
+        assignee = AdminUser.builder()
+                .email("projection-assignee@example.com")
+                .passwordHash("hash")
+                .role(AdminRole.SUPPORT)
+                .firstName("Ada")
+                .lastName("Assignee")
+                .build();
+        entityManager.persist(assignee);
+
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < ROWS; i++) {
+            User customer = new User();
+            customer.setEmail("projection-" + i + "@example.com");
+            customer.setPasswordHash("hash");
+            customer.setUserType("business");
+            customer.setFirstName("Customer");
+            customer.setLastName(Integer.toString(i));
+            entityManager.persist(customer);
+
+            Shipment shipment = new Shipment();
+            shipment.setTrackingNumber("PROJ-TRACK-" + i);
+            shipment.setUser(customer);
+            shipment.setService(service);
+            shipment.setOriginCountry(country);
+            shipment.setDestinationCountry(country);
+            shipment.setCargoWeight(BigDecimal.ONE);
+            shipment.setCargoVolume(BigDecimal.ONE);
+            entityManager.persist(shipment);
+
+            entityManager.persist(Invoice.builder()
+                    .invoiceNumber("PROJ-INV-" + i)
+                    .user(customer)
+                    .status(i % 2 == 0 ? InvoiceStatus.OVERDUE : InvoiceStatus.PAID)
+                    .subtotal(new BigDecimal("100.00"))
+                    .totalAmount(new BigDecimal("100.00"))
+                    .paidAmount(i % 2 == 0 ? new BigDecimal("40.00") : new BigDecimal("100.00"))
+                    .issueDate(today.minusDays(60))
+                    .dueDate(today.minusDays(30))
+                    .build());
+
+            entityManager.persist(ShipmentIssue.builder()
+                    .shipment(shipment)
+                    .issueType(IssueType.DELAY)
+                    .severity(i % 3 == 0 ? IssueSeverity.CRITICAL : IssueSeverity.LOW)
+                    .title("Delay " + i)
+                    .description("Held at hub")
+                    .assignedTo(i % 2 == 0 ? assignee : null)
+                    .build());
+
+            if (i == 0) {
+                firstCustomer = customer;
+                firstShipment = shipment;
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void invoicePageIsOneSelectPlusCount() {
+        Page<InvoiceSummary> page = invoiceRepository.findSummaries(
+                PageRequest.of(0, 25, Sort.by("invoiceNumber")));
+
+        assertEquals(25, page.getContent().size());
+        assertQueries(2);
+
+        InvoiceSummary first = page.getContent().get(0);
+        assertEquals("PROJ-INV-0", first.getInvoiceNumber());
+        assertEquals("Customer 0", first.getCustomerName());
+        assertEquals(0, new BigDecimal("60.00").compareTo(first.getOutstandingAmount()));
+        assertTrue(first.isOverdue());
+        assertFalse(page.getContent().get(1).isOverdue());
+    }
+
+    @Test
+    void filteredInvoicePagesAreOneSelectPlusCount() {
+        Page<InvoiceSummary> overdue = invoiceRepository.findSummariesByStatus(InvoiceStatus.OVERDUE,
+                PageRequest.of(0, 10));
+        assertEquals(10, overdue.getContent().size());
+        assertEquals(ROWS / 2, overdue.getTotalElements());
+        assertQueries(2);
+
+        statistics.clear();
+        Page<InvoiceSummary> byUser = invoiceRepository.findSummariesByUser(firstCustomer.getUserId(),
+                PageRequest.of(0, 10));
+        assertEquals(1, byUser.getContent().size());
+        assertQueries(1);
+    }
+
+    @Test
+    void issuePagesAreOneSelectPlusCount() {
+        Page<IssueSummary> open = issueRepository.findSummariesByStatusNot(IssueStatus.CLOSED,
+                PageRequest.of(0, 25, Sort.by("title")));
+        assertEquals(25, open.getContent().size());
+        assertQueries(2);
+        assertTrue(open.getContent().stream().anyMatch(s -> "Ada Assignee".equals(s.getAssignedToName())));
+        assertTrue(open.getContent().stream().anyMatch(s -> s.getAssignedToName() == null));
+        assertTrue(open.getContent().stream().allMatch(s -> s.getTrackingNumber().startsWith("PROJ-TRACK-")));
+
+        statistics.clear();
+        Page<IssueSummary> bySeverity = issueRepository.findOpenSummariesBySeverity(PageRequest.of(0, 25));
+        assertEquals(IssueSeverity.CRITICAL, bySeverity.getContent().get(0).getSeverity());
+        assertQueries(2);
+
+        statistics.clear();
+        Page<IssueSummary> mine = issueRepository.findSummariesByAssigneeAndStatusNot(assignee.getAdminId(),
+                IssueStatus.CLOSED, PageRequest.of(0, 10));
+        assertEquals(ROWS / 2, mine.getTotalElements());
+        assertQueries(2);
+
+        statistics.clear();
+        List<IssueSummary> forShipment = issueRepository.findSummariesByShipment(firstShipment.getShipmentId());
+        assertEquals(1, forShipment.size());
+        assertQueries(1);
+    }
+
+    private void assertQueries(long expected) {
+        assertEquals(expected, statistics.getPrepareStatementCount(), "SQL statements executed");
+        assertEquals(0, statistics.getEntityLoadCount(), "entities loaded");
+        assertEquals(0, statistics.getEntityFetchCount(), "lazy associations fetched");
+    }
+}
@@ -0,0 +1,181 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.PagingDTOs.CursorPage;
+import com.alphaskyport.admin.exception.AdminException;
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.iam.repository.UserRepository;
+import com.alphaskyport.logistics.model.Shipment;
+import com.alphaskyport.logistics.model.ShipmentTrackingEvent;
+import com.alphaskyport.logistics.repository.ShipmentRepository;
+import com.alphaskyport.masterdata.model.Country;
+import com.alphaskyport.masterdata.model.FreightService;
+import com.alphaskyport.masterdata.repository.CountryRepository;
+import com.alphaskyport.masterdata.repository.FreightServiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keyset paging over rows that share their leading sort key: the id
+ * tie-breaker must carry every page forward without repeating or skipping a
+ * row, and cursors only work for the listing that issued them.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class AdminShipmentPagingIntegrationTest {
+
+    // Later than any real shipment, so these rows lead the newest-first listing
+    private static final LocalDateTime TIED_CREATED_AT = LocalDateTime.of(2999, 1, 1, 0, 0);
+
+    @Autowired
+    private AdminShipmentService shipmentService;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CountryRepository countryRepository;
+
+    @Autowired
+    private FreightServiceRepository freightServiceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional
+    public void testShipmentsPage_WalksTiesOnCreatedAt() {
+        List<UUID> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            UUID shipmentId = createTestShipment().getShipmentId();
+            jdbcTemplate.update("UPDATE shipments SET created_at = ? WHERE shipment_id = ?",
+                    Timestamp.valueOf(TIED_CREATED_AT), shipmentId);
+            expected.add(shipmentId);
+        }
+        // Postgres orders uuids bytewise, which matches their lowercase text form
+        expected.sort(Comparator.comparing(UUID::toString).reversed());
+
+        List<UUID> seen = new ArrayList<>();
+        String cursor = null;
+        for (int page = 0; page < 3; page++) {
+            CursorPage<Shipment> result = shipmentService.getShipmentsPage(null, cursor, 2);
+            assertEquals(2, result.getItems().size());
+            assertTrue(result.isHasMore());
+            result.getItems().forEach(s -> seen.add(s.getShipmentId()));
+
+            String[] position = CursorCodec.decode(result.getNextCursor(), "shipments", 2);
+            assertEquals(TIED_CREATED_AT, LocalDateTime.parse(position[0]));
+            assertEquals(seen.get(seen.size() - 1).toString(), position[1]);
+            cursor = result.getNextCursor();
+        }
+
+        assertEquals(expected, seen.subList(0, 5));
+    }
+
+    @Test
+    @Transactional
+    public void testTrackingHistoryPage_WalksTiesOnEventTimestamp() {
+        Shipment shipment = createTestShipment();
+        LocalDateTime tied = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(1);
+        for (int i = 0; i < 5; i++) {
+            jdbcTemplate.update("""
+                    INSERT INTO shipment_tracking_events (shipment_id, event_status, event_timestamp)
+                    VALUES (?, 'in_transit', ?)
+                    """, shipment.getShipmentId(), Timestamp.valueOf(tied));
+        }
+        List<Long> expected = jdbcTemplate.queryForList("""
+                SELECT event_id FROM shipment_tracking_events
+                WHERE shipment_id = ? ORDER BY event_id DESC
+                """, Long.class, shipment.getShipmentId());
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        CursorPage<ShipmentTrackingEvent> result;
+        do {
+            result = shipmentService.getTrackingHistoryPage(shipment.getShipmentId(), cursor, 2);
+            result.getItems().forEach(e -> seen.add(e.getEventId()));
+            cursor = result.getNextCursor();
+        } while (result.isHasMore());
+
+        assertEquals(expected, seen);
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    @Transactional
+    public void testCursors_RejectTamperedAndForeignScopes() {
+        Shipment shipment = createTestShipment();
+        Shipment other = createTestShipment();
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.update("""
+                    INSERT INTO shipment_tracking_events (shipment_id, event_status, event_timestamp)
+                    VALUES (?, 'in_transit', ?)
+                    """, shipment.getShipmentId(), Timestamp.valueOf(LocalDateTime.now().minusMinutes(i + 1)));
+        }
+        String historyCursor = shipmentService.getTrackingHistoryPage(shipment.getShipmentId(), null, 1)
+                .getNextCursor();
+        String listingCursor = shipmentService.getShipmentsPage(null, null, 1).getNextCursor();
+        assertNotNull(historyCursor);
+        assertNotNull(listingCursor);
+
+        // Issued for another shipment's history, another listing, or another status filter
+        assertThrows(AdminException.ValidationException.class,
+                () -> shipmentService.getTrackingHistoryPage(other.getShipmentId(), historyCursor, 1));
+        assertThrows(AdminException.ValidationException.class,
+                () -> shipmentService.getShipmentsPage(null, historyCursor, 1));
+        assertThrows(AdminException.ValidationException.class,
+                () -> shipmentService.getShipmentsPage("delivered", listingCursor, 1));
+
+        // Right scope, but key values that do not parse
+        String scope = "tracking:" + shipment.getShipmentId();
+        assertThrows(AdminException.ValidationException.class, () -> shipmentService.getTrackingHistoryPage(
+                shipment.getShipmentId(), CursorCodec.encode(scope, "yesterday", 1), 1));
+        assertThrows(AdminException.ValidationException.class, () -> shipmentService.getShipmentsPage(
+                null, CursorCodec.encode("shipments", LocalDateTime.now(), "not-a-uuid"), 1));
+        assertThrows(AdminException.ValidationException.class,
+                () -> shipmentService.getShipmentsPage(null, listingCursor.substring(1) + "*", 1));
+    }
+
+    private Shipment createTestShipment() {
+        User user = new User();
+        user.setEmail("paging_test_" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user.setUserType("private");
+        user = userRepository.save(user);
+
+        Country country = countryRepository.findByCountryCode("FR").orElseGet(() -> {
+            Country created = new Country();
+            created.setCountryCode("FR");
+            created.setCountryName("France");
+            return countryRepository.save(created);
+        });
+        FreightService service = new FreightService();
+        service.setServiceName("Standard");
+        service.setServiceType("land");
+        service = freightServiceRepository.save(service);
+
+        Shipment shipment = new Shipment();
+        shipment.setTrackingNumber("PAGE-" + UUID.randomUUID());
+        shipment.setUser(user);
+        shipment.setService(service);
+        shipment.setOriginCountry(country);
+        shipment.setDestinationCountry(country);
+        return shipmentRepository.saveAndFlush(shipment);
+    }
+}
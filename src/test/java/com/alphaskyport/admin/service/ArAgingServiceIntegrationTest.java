@@ -0,0 +1,298 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.PagingDTOs.CursorPage;
+import com.alphaskyport.admin.dto.ReportDTOs.AgingRebucketResult;
+import com.alphaskyport.admin.dto.ReportDTOs.CustomerAging;
+import com.alphaskyport.admin.exception.AdminException;
+import com.alphaskyport.admin.model.AdminRole;
+import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.model.Invoice;
+import com.alphaskyport.admin.model.InvoiceStatus;
+import com.alphaskyport.admin.repository.AdminUserRepository;
+import com.alphaskyport.admin.repository.InvoiceRepository;
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.iam.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The V81 triggers that apply invoice changes to ar_aging_buckets, the
+ * rebucket that moves as_of forward, and the keyset-paginated customer list.
+ * Every test customer is new, so its bucket row reflects only what the test
+ * did; dates are relative to the as_of the buckets are kept against.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ArAgingServiceIntegrationTest {
+
+    // ISO 4217 code reserved for testing, so no other data shares the currency filter
+    private static final String TEST_CURRENCY = "XTS";
+
+    @Autowired
+    private ArAgingService arAgingService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AdminUserRepository adminUserRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional
+    public void testTriggers_ApplyIssuePaymentAndDueDateChanges() {
+        LocalDate asOf = asOf();
+        User user = createUser();
+
+        Invoice invoice = createInvoice(user, InvoiceStatus.SENT, "100.00", asOf.minusDays(10));
+        assertBuckets(user, 1, "0", "100.00", "0", "0", "0");
+
+        invoiceRepository.applyPaymentDelta(invoice.getInvoiceId(), new BigDecimal("40.00"), asOf);
+        assertBuckets(user, 1, "0", "60.00", "0", "0", "0");
+
+        // Marking it overdue changes none of the aging inputs, so nothing is moved
+        jdbcTemplate.update("UPDATE invoices SET status = 'OVERDUE' WHERE invoice_id = ?", invoice.getInvoiceId());
+        assertBuckets(user, 1, "0", "60.00", "0", "0", "0");
+        jdbcTemplate.update("UPDATE invoices SET notes = 'reminder sent' WHERE invoice_id = ?",
+                invoice.getInvoiceId());
+        assertBuckets(user, 1, "0", "60.00", "0", "0", "0");
+
+        jdbcTemplate.update("UPDATE invoices SET due_date = ? WHERE invoice_id = ?", asOf.minusDays(45),
+                invoice.getInvoiceId());
+        assertBuckets(user, 1, "0", "0", "60.00", "0", "0");
+        jdbcTemplate.update("UPDATE invoices SET due_date = ? WHERE invoice_id = ?", asOf.plusDays(5),
+                invoice.getInvoiceId());
+        assertBuckets(user, 1, "60.00", "0", "0", "0", "0");
+
+        // A draft is not receivable until it is issued
+        Invoice draft = createInvoice(user, InvoiceStatus.DRAFT, "30.00", asOf.minusDays(100));
+        assertBuckets(user, 1, "60.00", "0", "0", "0", "0");
+        jdbcTemplate.update("UPDATE invoices SET status = 'SENT' WHERE invoice_id = ?", draft.getInvoiceId());
+        assertBuckets(user, 2, "60.00", "0", "0", "0", "30.00");
+
+        invoiceRepository.applyPaymentDelta(invoice.getInvoiceId(), new BigDecimal("60.00"), asOf);
+        assertEquals("PAID", status(invoice));
+        assertBuckets(user, 1, "0", "0", "0", "0", "30.00");
+        assertMatchesRecomputed(user, asOf);
+    }
+
+    @Test
+    @Transactional
+    public void testTriggers_RemoveCancelledAndDeletedInvoices() {
+        LocalDate asOf = asOf();
+        User user = createUser();
+        Invoice cancelled = createInvoice(user, InvoiceStatus.PARTIAL, "80.00", asOf.minusDays(70));
+        Invoice deleted = createInvoice(user, InvoiceStatus.OVERDUE, "20.00", asOf.minusDays(35));
+        assertBuckets(user, 2, "0", "0", "20.00", "80.00", "0");
+
+        jdbcTemplate.update("UPDATE invoices SET status = 'CANCELLED' WHERE invoice_id = ?",
+                cancelled.getInvoiceId());
+        assertBuckets(user, 1, "0", "0", "20.00", "0", "0");
+
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_id = ?", deleted.getInvoiceId());
+        assertBuckets(user, 0, "0", "0", "0", "0", "0");
+
+        // One statement touching several invoices applies their net change once
+        Invoice first = createInvoice(user, InvoiceStatus.SENT, "10.00", asOf.minusDays(1));
+        Invoice second = createInvoice(user, InvoiceStatus.SENT, "15.00", asOf.minusDays(2));
+        jdbcTemplate.update("UPDATE invoices SET due_date = due_date - 89 WHERE invoice_id IN (?, ?)",
+                first.getInvoiceId(), second.getInvoiceId());
+        assertBuckets(user, 2, "0", "0", "0", "10.00", "15.00");
+        assertMatchesRecomputed(user, asOf);
+    }
+
+    @Test
+    @Transactional
+    public void testScheduledRebucket_MovesAsOfToDatabaseDate() {
+        LocalDate today = jdbcTemplate.queryForObject("SELECT CURRENT_DATE", LocalDate.class);
+        jdbcTemplate.update("UPDATE ar_aging_state SET as_of = ?", today.minusDays(30));
+        User user = createUser();
+        createInvoice(user, InvoiceStatus.SENT, "50.00", today.minusDays(40));
+        // Ten days past due as of the stale date
+        assertBuckets(user, 1, "0", "50.00", "0", "0", "0");
+        assertTrue(arAgingService.getSummary().isStale());
+
+        arAgingService.runScheduledRebucket();
+
+        assertEquals(today, asOf());
+        assertFalse(arAgingService.getSummary().isStale());
+        assertBuckets(user, 1, "0", "0", "50.00", "0", "0");
+
+        // Already current: a second run leaves the buckets alone
+        jdbcTemplate.update("UPDATE ar_aging_buckets SET days_over_90 = 999 WHERE user_id = ?", user.getUserId());
+        arAgingService.runScheduledRebucket();
+        assertBuckets(user, 1, "0", "0", "50.00", "0", "999");
+    }
+
+    @Test
+    @Transactional
+    public void testRebucket_RepairsDrift() {
+        LocalDate asOf = asOf();
+        User user = createUser();
+        createInvoice(user, InvoiceStatus.SENT, "50.00", asOf.minusDays(5));
+        jdbcTemplate.update("UPDATE ar_aging_buckets SET days_1_30 = 0, days_over_90 = 999 WHERE user_id = ?",
+                user.getUserId());
+
+        AgingRebucketResult result = arAgingService.rebucket(createAdmin());
+
+        assertEquals(jdbcTemplate.queryForObject("SELECT CURRENT_DATE", LocalDate.class), result.getAsOf());
+        assertTrue(result.getOpenInvoices() >= 1);
+        assertMatchesRecomputed(user, result.getAsOf());
+    }
+
+    @Test
+    @Transactional
+    public void testGetCustomers_PagesByTotalWithoutGapsOrRepeats() {
+        LocalDate asOf = asOf();
+        List<String> totals = List.of("500.00", "300.00", "300.00", "300.00", "100.00");
+        List<UUID> seeded = new ArrayList<>();
+        for (String total : totals) {
+            User user = createUser();
+            seeded.add(user.getUserId());
+            Invoice invoice = createInvoice(user, InvoiceStatus.SENT, total, asOf.minusDays(3));
+            jdbcTemplate.update("UPDATE invoices SET currency = ? WHERE invoice_id = ?", TEST_CURRENCY,
+                    invoice.getInvoiceId());
+        }
+
+        List<CustomerAging> listed = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<CustomerAging> page = arAgingService.getCustomers(TEST_CURRENCY.toLowerCase(), cursor, 2);
+            assertTrue(page.getItems().size() <= 2);
+            assertEquals(page.isHasMore(), page.getNextCursor() != null);
+            listed.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, listed.size());
+        assertEquals(5, listed.stream().map(CustomerAging::getUserId).distinct().count());
+        assertTrue(listed.stream().map(CustomerAging::getUserId).allMatch(seeded::contains));
+        for (int i = 1; i < listed.size(); i++) {
+            CustomerAging previous = listed.get(i - 1);
+            CustomerAging current = listed.get(i);
+            int byTotal = previous.getBuckets().getTotal().compareTo(current.getBuckets().getTotal());
+            // Ties on the total continue in user id order, descending
+            assertTrue(byTotal > 0 || (byTotal == 0 && previous.getUserId().compareTo(current.getUserId()) > 0));
+        }
+        assertTrue(listed.stream().allMatch(c -> TEST_CURRENCY.equals(c.getCurrency())));
+    }
+
+    @Test
+    @Transactional
+    public void testGetCustomers_RejectsForeignCursorAndBadLimit() {
+        LocalDate asOf = asOf();
+        for (int i = 0; i < 2; i++) {
+            Invoice invoice = createInvoice(createUser(), InvoiceStatus.SENT, "10.00", asOf);
+            jdbcTemplate.update("UPDATE invoices SET currency = ? WHERE invoice_id = ?", TEST_CURRENCY,
+                    invoice.getInvoiceId());
+        }
+        String cursor = arAgingService.getCustomers(TEST_CURRENCY, null, 1).getNextCursor();
+        assertNotNull(cursor);
+
+        // A cursor only continues the listing it came from
+        assertThrows(AdminException.ValidationException.class, () -> arAgingService.getCustomers(null, cursor, 1));
+        assertThrows(AdminException.ValidationException.class, () -> arAgingService.getCustomers("USD", cursor, 1));
+        assertThrows(AdminException.ValidationException.class,
+                () -> arAgingService.getCustomers(null, "not-a-cursor", 10));
+        assertThrows(AdminException.ValidationException.class, () -> arAgingService.getCustomers(null, null, 0));
+        assertThrows(AdminException.ValidationException.class, () -> arAgingService.getCustomers(null, null, 501));
+    }
+
+    private void assertBuckets(User user, int openInvoices, String current, String days1To30, String days31To60,
+            String days61To90, String over90) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT * FROM ar_aging_buckets WHERE user_id = ?", user.getUserId());
+        Map<String, Object> row = rows.isEmpty() ? Map.of() : rows.get(0);
+        assertEquals(openInvoices, ((Number) row.getOrDefault("open_invoices", 0)).intValue());
+        assertAmount(current, row.get("current_amount"));
+        assertAmount(days1To30, row.get("days_1_30"));
+        assertAmount(days31To60, row.get("days_31_60"));
+        assertAmount(days61To90, row.get("days_61_90"));
+        assertAmount(over90, row.get("days_over_90"));
+    }
+
+    private void assertMatchesRecomputed(User user, LocalDate asOf) {
+        List<Map<String, Object>> expected = jdbcTemplate.queryForList(
+                "SELECT * FROM ar_aging_rows(?) WHERE user_id = ?", asOf, user.getUserId());
+        if (expected.isEmpty()) {
+            assertBuckets(user, 0, "0", "0", "0", "0", "0");
+            return;
+        }
+        Map<String, Object> row = expected.get(0);
+        assertBuckets(user, ((Number) row.get("open_invoices")).intValue(), plain(row.get("current_amount")),
+                plain(row.get("days_1_30")), plain(row.get("days_31_60")), plain(row.get("days_61_90")),
+                plain(row.get("days_over_90")));
+    }
+
+    private static void assertAmount(String expected, Object actual) {
+        BigDecimal amount = actual != null ? (BigDecimal) actual : BigDecimal.ZERO;
+        assertEquals(0, new BigDecimal(expected).compareTo(amount), "expected " + expected + " but was " + amount);
+    }
+
+    private static String plain(Object amount) {
+        return ((BigDecimal) amount).toPlainString();
+    }
+
+    private LocalDate asOf() {
+        return jdbcTemplate.queryForObject("SELECT as_of FROM ar_aging_state", LocalDate.class);
+    }
+
+    private String status(Invoice invoice) {
+        return jdbcTemplate.queryForObject("SELECT status FROM invoices WHERE invoice_id = ?", String.class,
+                invoice.getInvoiceId());
+    }
+
+    private AdminUser createAdmin() {
+        return adminUserRepository.save(AdminUser.builder()
+                .email("aging_admin_" + UUID.randomUUID() + "@example.com")
+                .passwordHash("hash")
+                .role(AdminRole.FINANCE)
+                .firstName("Ag")
+                .lastName("Ing")
+                .build());
+    }
+
+    private User createUser() {
+        User user = new User();
+        user.setEmail("aging_test_" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user.setUserType("private");
+        user.setFirstName("Aging");
+        user.setLastName("Customer");
+        return userRepository.save(user);
+    }
+
+    private Invoice createInvoice(User user, InvoiceStatus status, String total, LocalDate dueDate) {
+        return invoiceRepository.saveAndFlush(Invoice.builder()
+                .invoiceNumber("AGE-TEST-" + UUID.randomUUID())
+                .user(user)
+                .status(status)
+                .subtotal(new BigDecimal(total))
+                .totalAmount(new BigDecimal(total))
+                .paidAmount(BigDecimal.ZERO)
+                .issueDate(dueDate.minusDays(30))
+                .dueDate(dueDate)
+                .build());
+    }
+}
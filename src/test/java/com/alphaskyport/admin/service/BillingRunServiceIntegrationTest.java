@@ -0,0 +1,380 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.BillingDTOs.BillingRunResponse;
+import com.alphaskyport.admin.dto.ReconciliationDTOs.ReconciliationRunResponse;
+import com.alphaskyport.admin.exception.AdminException;
+import com.alphaskyport.admin.model.AdminRole;
+import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.repository.AdminUserRepository;
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.iam.repository.UserRepository;
+import com.alphaskyport.logistics.model.Shipment;
+import com.alphaskyport.logistics.repository.ShipmentRepository;
+import com.alphaskyport.masterdata.model.Country;
+import com.alphaskyport.masterdata.model.FreightService;
+import com.alphaskyport.masterdata.repository.CountryRepository;
+import com.alphaskyport.masterdata.repository.FreightServiceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Billing runs commit chunk by chunk on background threads, so the data is
+ * committed rather than rolled back and each test waits for the run to
+ * settle. Interruptions are simulated by putting a chunk back into the state
+ * a crash or a failing attempt leaves it in: its invoices gone with the
+ * rolled-back transaction and the chunk still leased or marked failed.
+ */
+@SpringBootTest(properties = {
+        "admin.billing.chunk-size=1",
+        "admin.billing.parallelism=2"
+})
+@ActiveProfiles("test")
+public class BillingRunServiceIntegrationTest {
+
+    private static final String INVOICE_NUMBER = "INV-\\d{4}-\\d{7}";
+
+    @Autowired
+    private BillingRunService billingRunService;
+
+    @Autowired
+    private PaymentReconciliationService reconciliationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AdminUserRepository adminUserRepository;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private CountryRepository countryRepository;
+
+    @Autowired
+    private FreightServiceRepository freightServiceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<UUID> userIds = new ArrayList<>();
+    private final List<UUID> shipmentIds = new ArrayList<>();
+    private YearMonth period;
+    private AdminUser admin;
+    private Long runId;
+
+    @BeforeEach
+    public void seed() {
+        // A period no other data falls into, so the run bills only what is seeded here
+        period = YearMonth.of(ThreadLocalRandom.current().nextInt(1900, 2000),
+                ThreadLocalRandom.current().nextInt(1, 13));
+        admin = adminUserRepository.save(AdminUser.builder()
+                .email("billing_admin_" + UUID.randomUUID() + "@example.com")
+                .passwordHash("hash")
+                .role(AdminRole.FINANCE)
+                .firstName("Bill")
+                .lastName("Ing")
+                .build());
+
+        Country country = countryRepository.findByCountryCode("FR").orElseGet(() -> {
+            Country created = new Country();
+            created.setCountryCode("FR");
+            created.setCountryName("France");
+            return countryRepository.save(created);
+        });
+        FreightService service = new FreightService();
+        service.setServiceName("Standard");
+        service.setServiceType("land");
+        service = freightServiceRepository.save(service);
+
+        // Three customers with 2, 1 and 2 shipments; a chunk size of one gives each customer a chunk
+        for (int shipments : new int[] { 2, 1, 2 }) {
+            User user = new User();
+            user.setEmail("billing_test_" + UUID.randomUUID() + "@example.com");
+            user.setPasswordHash("hash");
+            user.setUserType("private");
+            user = userRepository.save(user);
+            userIds.add(user.getUserId());
+            for (int i = 0; i < shipments; i++) {
+                Shipment shipment = new Shipment();
+                shipment.setTrackingNumber("BILL-" + UUID.randomUUID());
+                shipment.setUser(user);
+                shipment.setService(service);
+                shipment.setOriginCountry(country);
+                shipment.setDestinationCountry(country);
+                shipment.setShipmentStatus("delivered");
+                shipment.setActualDeliveryDate(period.atDay(1 + i));
+                shipment.setTotalCost(new BigDecimal("10.00").multiply(BigDecimal.valueOf(i + 1)));
+                shipmentIds.add(shipmentRepository.save(shipment).getShipmentId());
+            }
+        }
+    }
+
+    @AfterEach
+    public void cleanUp() throws InterruptedException {
+        if (runId != null) {
+            awaitSettled(runId);
+            jdbcTemplate.update("DELETE FROM billing_runs WHERE run_id = ?", runId);
+        }
+        for (UUID userId : userIds) {
+            // Line items go with their invoices, shipments with their user
+            jdbcTemplate.update("DELETE FROM payments p USING invoices i WHERE p.invoice_id = i.invoice_id "
+                    + "AND i.user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM invoices WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", userId);
+        }
+    }
+
+    @Test
+    public void testStartRun_BillsEveryShipmentOnce() throws InterruptedException {
+        BillingRunResponse planned = billingRunService.startRun(period, admin);
+        runId = planned.getRunId();
+        assertEquals(3, planned.getChunkCount());
+        assertEquals(5, planned.getPlannedShipments());
+
+        BillingRunResponse run = awaitSettled(runId);
+
+        assertEquals("completed", run.getStatus());
+        assertEquals(3, run.getInvoicesCreated());
+        assertEquals(5, run.getShipmentsBilled());
+        assertEquals(0, new BigDecimal("70.00").compareTo(run.getTotalAmount()));
+        assertEachShipmentBilledOnce();
+
+        assertThrows(AdminException.InvalidStateException.class, () -> billingRunService.startRun(period, admin));
+        assertThrows(AdminException.InvalidStateException.class, () -> billingRunService.resumeRun(runId, admin));
+    }
+
+    @Test
+    public void testResumeRun_BillsOnlyChunksLeftOpen() throws InterruptedException {
+        runId = billingRunService.startRun(period, admin).getRunId();
+        awaitSettled(runId);
+        List<Integer> chunks = chunkNos();
+        List<String> untouched = invoiceNumbers(chunks.get(2));
+
+        // One chunk exhausted its attempts; another was leased by a worker that died mid-transaction
+        reopenChunk(chunks.get(0), "failed");
+        reopenChunk(chunks.get(1), "processing");
+        jdbcTemplate.update("UPDATE billing_runs SET status = 'failed' WHERE run_id = ?", runId);
+
+        billingRunService.resumeRun(runId, admin);
+        BillingRunResponse run = awaitSettled(runId);
+
+        assertEquals("completed", run.getStatus());
+        assertEquals(3, run.getCompletedChunks());
+        assertEquals(0, run.getFailedChunks());
+        assertEquals(3, run.getInvoicesCreated());
+        assertEquals(5, run.getShipmentsBilled());
+        assertEquals(0, new BigDecimal("70.00").compareTo(run.getTotalAmount()));
+        assertEachShipmentBilledOnce();
+        // The chunk that had completed is not billed again
+        assertEquals(untouched, invoiceNumbers(chunks.get(2)));
+        assertEquals(1, attempts(chunks.get(0)));
+    }
+
+    @Test
+    public void testResumeInterruptedRuns_ReclaimsExpiredLease() throws InterruptedException {
+        runId = billingRunService.startRun(period, admin).getRunId();
+        awaitSettled(runId);
+        int chunkNo = chunkNos().get(1);
+
+        reopenChunk(chunkNo, "processing");
+        jdbcTemplate.update("UPDATE billing_runs SET status = 'running', finished_at = NULL WHERE run_id = ?",
+                runId);
+
+        billingRunService.resumeInterruptedRuns();
+        BillingRunResponse run = awaitSettled(runId);
+
+        assertEquals("completed", run.getStatus());
+        assertEquals(5, run.getShipmentsBilled());
+        assertEachShipmentBilledOnce();
+        // The takeover is a second attempt on the same chunk
+        assertEquals(2, attempts(chunkNo));
+    }
+
+    @Test
+    public void testReconciliation_MatchesShipmentsOnConsolidatedInvoice() throws InterruptedException {
+        runId = billingRunService.startRun(period, admin).getRunId();
+        awaitSettled(runId);
+        // The first customer's two shipments (10.00 and 20.00) share one invoice with no shipment link
+        List<UUID> consolidated = shipmentIds.subList(0, 2);
+        UUID invoiceId = jdbcTemplate.queryForObject(
+                "SELECT invoice_id FROM invoices WHERE user_id = ? AND shipment_id IS NULL", UUID.class,
+                userIds.get(0));
+
+        jdbcTemplate.update("""
+                INSERT INTO payments (payment_id, invoice_id, amount, payment_method, payment_date, status)
+                VALUES (?, ?, 30.00, 'BANK_TRANSFER', CURRENT_DATE, 'COMPLETED')
+                """, UUID.randomUUID(), invoiceId);
+        for (UUID shipmentId : consolidated) {
+            jdbcTemplate.update("""
+                    INSERT INTO payment_transactions
+                        (shipment_id, idempotency_key, amount, currency, transaction_type, transaction_status)
+                    SELECT shipment_id, ?, total_cost, 'USD', 'payment', 'completed' FROM shipments
+                    WHERE shipment_id = ?
+                    """, "billing-test:" + UUID.randomUUID(), shipmentId);
+            jdbcTemplate.update("UPDATE shipments SET amount_paid = total_cost WHERE shipment_id = ?", shipmentId);
+        }
+
+        ReconciliationRunResponse reconciliation = awaitReconciled(
+                reconciliationService.startAsync("billing-test").getRunId());
+
+        assertEquals("completed", reconciliation.getStatus());
+        try {
+            // Each shipment is matched to its line's share of the invoice payment, not reported as uninvoiced
+            assertEquals(0, jdbcTemplate.queryForObject("""
+                    SELECT COUNT(*) FROM payment_reconciliation_discrepancies
+                    WHERE run_id = ? AND shipment_id = ANY(?)
+                    """, Integer.class, reconciliation.getRunId(), consolidated.toArray(new UUID[0])));
+        } finally {
+            jdbcTemplate.update("DELETE FROM payment_reconciliation_runs WHERE run_id = ?",
+                    reconciliation.getRunId());
+        }
+    }
+
+    @Test
+    public void testGenerateInvoiceNumbers_AllocatesIncreasingBlock() {
+        List<String> block = jdbcTemplate.queryForList("SELECT generate_invoice_numbers(3)", String.class);
+        String single = jdbcTemplate.queryForObject("SELECT generate_invoice_number()", String.class);
+
+        assertEquals(3, block.size());
+        String year = jdbcTemplate.queryForObject("SELECT TO_CHAR(CURRENT_DATE, 'YYYY')", String.class);
+        for (int i = 0; i < block.size(); i++) {
+            assertTrue(block.get(i).matches(INVOICE_NUMBER), block.get(i));
+            assertTrue(block.get(i).startsWith("INV-" + year + "-"), block.get(i));
+            if (i > 0) {
+                // Increasing within a block; sessions cache their own ranges, so only uniqueness holds across calls
+                assertTrue(sequenceValue(block.get(i)) > sequenceValue(block.get(i - 1)));
+            }
+        }
+        assertTrue(single.matches(INVOICE_NUMBER), single);
+        assertFalse(block.contains(single));
+    }
+
+    @Test
+    public void testGenerateInvoiceNumbers_UniqueAcrossConcurrentCallers() throws Exception {
+        List<Future<List<String>>> calls = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (int i = 0; i < 8; i++) {
+                calls.add(executor.submit(() -> jdbcTemplate.queryForList("SELECT generate_invoice_numbers(25)",
+                        String.class)));
+            }
+        }
+        List<String> numbers = new ArrayList<>();
+        for (Future<List<String>> call : calls) {
+            numbers.addAll(call.get());
+        }
+
+        assertEquals(200, numbers.size());
+        assertEquals(200, numbers.stream().distinct().count());
+    }
+
+    /**
+     * Rolls one chunk back to the state its failed transaction would leave:
+     * none of its invoices exist, and the chunk is either failed or still
+     * leased to a worker whose lease has run out.
+     */
+    private void reopenChunk(int chunkNo, String status) {
+        jdbcTemplate.update("""
+                DELETE FROM invoices i
+                USING billing_run_chunks c
+                WHERE c.run_id = ? AND c.chunk_no = ? AND i.user_id = ANY(c.user_ids)
+                """, runId, chunkNo);
+        jdbcTemplate.update("""
+                UPDATE billing_run_chunks
+                SET status = ?, lease_until = CURRENT_TIMESTAMP - INTERVAL '1 minute',
+                    invoices_created = 0, shipments_billed = 0, total_amount = 0
+                WHERE run_id = ? AND chunk_no = ?
+                """, status, runId, chunkNo);
+    }
+
+    // Chunk numbers follow the planned shipment offsets, so they are not consecutive
+    private List<Integer> chunkNos() {
+        return jdbcTemplate.queryForList("SELECT chunk_no FROM billing_run_chunks WHERE run_id = ? ORDER BY chunk_no",
+                Integer.class, runId);
+    }
+
+    private int attempts(int chunkNo) {
+        return jdbcTemplate.queryForObject("SELECT attempts FROM billing_run_chunks WHERE run_id = ? AND chunk_no = ?",
+                Integer.class, runId, chunkNo);
+    }
+
+    private List<String> invoiceNumbers(int chunkNo) {
+        return jdbcTemplate.queryForList("""
+                SELECT i.invoice_number
+                FROM invoices i
+                JOIN billing_run_chunks c ON i.user_id = ANY(c.user_ids)
+                WHERE c.run_id = ? AND c.chunk_no = ?
+                ORDER BY i.invoice_number
+                """, String.class, runId, chunkNo);
+    }
+
+    private void assertEachShipmentBilledOnce() {
+        for (UUID shipmentId : shipmentIds) {
+            assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM invoice_line_items WHERE shipment_id = ?", Integer.class, shipmentId),
+                    shipmentId.toString());
+        }
+        List<Map<String, Object>> invoices = jdbcTemplate.queryForList("""
+                SELECT i.invoice_number, i.total_amount, SUM(li.line_total) AS lines
+                FROM invoices i
+                JOIN invoice_line_items li ON li.invoice_id = i.invoice_id
+                WHERE i.user_id = ANY(?)
+                GROUP BY i.invoice_id
+                """, (Object) userIds.toArray(new UUID[0]));
+        assertEquals(3, invoices.size());
+        for (Map<String, Object> invoice : invoices) {
+            assertTrue(((String) invoice.get("invoice_number")).matches(INVOICE_NUMBER));
+            assertEquals(0, ((BigDecimal) invoice.get("total_amount")).compareTo((BigDecimal) invoice.get("lines")));
+        }
+    }
+
+    private BillingRunResponse awaitSettled(long id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            BillingRunResponse run = billingRunService.getRun(id);
+            if (!"running".equals(run.getStatus()) && run.getPendingChunks() == 0) {
+                return run;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("Billing run " + id + " did not settle: " + run.getStatus());
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private ReconciliationRunResponse awaitReconciled(long id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (true) {
+            ReconciliationRunResponse run = reconciliationService.getRun(id);
+            if (!"running".equals(run.getStatus())) {
+                return run;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("Reconciliation run " + id + " did not finish");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static long sequenceValue(String invoiceNumber) {
+        return Long.parseLong(invoiceNumber.substring(invoiceNumber.lastIndexOf('-') + 1));
+    }
+}
@@ -0,0 +1,57 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.exception.AdminException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CursorCodecTest {
+
+    @Test
+    public void roundTripsKeyValues() {
+        LocalDateTime timestamp = LocalDateTime.of(2026, 3, 14, 9, 26, 53, 589_000_000);
+        UUID id = UUID.randomUUID();
+
+        String cursor = CursorCodec.encode("shipments:in_transit", timestamp, id);
+
+        assertFalse(cursor.contains("=") || cursor.contains("+") || cursor.contains("/"));
+        assertArrayEquals(new String[] { timestamp.toString(), id.toString() },
+                CursorCodec.decode(cursor, "shipments:in_transit", 2));
+    }
+
+    @Test
+    public void missingCursorStartsFromTheTop() {
+        assertNull(CursorCodec.decode(null, "shipments", 2));
+        assertNull(CursorCodec.decode(" ", "shipments", 2));
+    }
+
+    @Test
+    public void rejectsCursorFromAnotherScope() {
+        String cursor = CursorCodec.encode("shipments:delivered", LocalDateTime.now(), UUID.randomUUID());
+
+        assertThrows(AdminException.ValidationException.class, () -> CursorCodec.decode(cursor, "shipments", 2));
+        assertThrows(AdminException.ValidationException.class,
+                () -> CursorCodec.decode(cursor, "shipments:in_transit", 2));
+    }
+
+    @Test
+    public void rejectsTamperedCursor() {
+        String cursor = CursorCodec.encode("shipments", LocalDateTime.now(), UUID.randomUUID());
+
+        assertThrows(AdminException.ValidationException.class, () -> CursorCodec.decode("%%" + cursor, "shipments", 2));
+        assertThrows(AdminException.ValidationException.class, () -> CursorCodec.decode(cursor, "shipments", 3));
+        assertThrows(AdminException.ValidationException.class,
+                () -> CursorCodec.decode(raw("v2\u001fshipments\u001fa\u001fb"), "shipments", 2));
+        assertThrows(AdminException.ValidationException.class,
+                () -> CursorCodec.decode(raw("v1\u001fshipments\u001fa\u001fb\u001fc"), "shipments", 2));
+    }
+
+    private static String raw(String payload) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+    }
+}
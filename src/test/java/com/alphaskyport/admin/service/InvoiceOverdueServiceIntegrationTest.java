@@ -0,0 +1,252 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.InvoiceDTOs.InvoiceListResponse;
+import com.alphaskyport.admin.dto.InvoiceDTOs.OverdueStats;
+import com.alphaskyport.admin.dto.InvoiceDTOs.OverdueTransitionResult;
+import com.alphaskyport.admin.model.Invoice;
+import com.alphaskyport.admin.model.InvoiceStatus;
+import com.alphaskyport.admin.repository.InvoiceRepository;
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.iam.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The overdue transition job and the statement triggers that keep the slotted
+ * invoice_overdue_stats aggregate (V80, V85, V86) in step with the invoices. Other
+ * data may share the database, so totals are checked as deltas and against
+ * the aggregate recomputed from invoices.
+ */
+@SpringBootTest(properties = "admin.invoices.overdue.batch-size=2")
+@ActiveProfiles("test")
+public class InvoiceOverdueServiceIntegrationTest {
+
+    @Autowired
+    private InvoiceOverdueService overdueService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional
+    public void testMarkOverdue_MovesOnlySentAndPartialPastDue() {
+        LocalDate today = jdbcTemplate.queryForObject("SELECT CURRENT_DATE", LocalDate.class);
+        Invoice sent = createInvoice(InvoiceStatus.SENT, "100.00", "0.00", today.minusDays(1));
+        Invoice partial = createInvoice(InvoiceStatus.PARTIAL, "100.00", "30.00", today.minusDays(5));
+        Invoice alsoSent = createInvoice(InvoiceStatus.SENT, "50.00", "0.00", today.minusDays(2));
+        Invoice dueToday = createInvoice(InvoiceStatus.SENT, "100.00", "0.00", today);
+        Invoice draft = createInvoice(InvoiceStatus.DRAFT, "100.00", "0.00", today.minusDays(10));
+        Invoice paid = createInvoice(InvoiceStatus.PAID, "100.00", "100.00", today.minusDays(10));
+        OverdueStats before = overdueService.getStats();
+
+        // Three candidates with a batch size of two take more than one batch
+        OverdueTransitionResult result = overdueService.markOverdue();
+
+        assertTrue(result.getInvoicesMarked() >= 3);
+        assertEquals("OVERDUE", status(sent));
+        assertEquals("OVERDUE", status(partial));
+        assertEquals("OVERDUE", status(alsoSent));
+        assertEquals("SENT", status(dueToday));
+        assertEquals("DRAFT", status(draft));
+        assertEquals("PAID", status(paid));
+        assertEquals(1, version(sent) - sent.getVersion());
+
+        OverdueStats after = result.getStats();
+        assertTrue(after.getOverdueCount() - before.getOverdueCount() >= 3);
+        assertMatchesInvoices(after);
+
+        assertEquals(0, overdueService.markOverdue().getInvoicesMarked());
+    }
+
+    @Test
+    @Transactional
+    public void testTriggers_TrackInsertPaymentCancelAndDelete() {
+        LocalDate dueDate = LocalDate.now().minusDays(10);
+        OverdueStats start = overdueService.getStats();
+
+        Invoice overdue = createInvoice(InvoiceStatus.OVERDUE, "100.00", "0.00", dueDate);
+        assertDelta(start, 1, "100.00");
+
+        // A partial payment keeps the invoice overdue and lowers what is outstanding
+        assertEquals(1, invoiceRepository.applyPaymentDelta(overdue.getInvoiceId(), new BigDecimal("40.00"),
+                LocalDate.now()));
+        assertEquals("OVERDUE", status(overdue));
+        assertDelta(start, 1, "60.00");
+
+        // Updates that leave the overdue rows alone do not move the aggregate
+        jdbcTemplate.update("UPDATE invoices SET notes = 'reminder sent' WHERE invoice_id = ?",
+                overdue.getInvoiceId());
+        assertDelta(start, 1, "60.00");
+
+        jdbcTemplate.update("UPDATE invoices SET status = 'CANCELLED' WHERE invoice_id = ?", overdue.getInvoiceId());
+        assertDelta(start, 0, "0.00");
+
+        Invoice deleted = createInvoice(InvoiceStatus.OVERDUE, "25.00", "0.00", dueDate);
+        assertDelta(start, 1, "25.00");
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_id = ?", deleted.getInvoiceId());
+        assertDelta(start, 0, "0.00");
+
+        // Paying in full leaves OVERDUE for PAID
+        Invoice paidOff = createInvoice(InvoiceStatus.OVERDUE, "80.00", "0.00", dueDate);
+        invoiceRepository.applyPaymentDelta(paidOff.getInvoiceId(), new BigDecimal("80.00"), LocalDate.now());
+        assertEquals("PAID", status(paidOff));
+        assertDelta(start, 0, "0.00");
+
+        assertMatchesInvoices(overdueService.getStats());
+    }
+
+    @Test
+    @Transactional
+    public void testGetStats_SumsEverySlot() {
+        OverdueStats before = overdueService.getStats();
+
+        // Deltas land in the writer's slot; whichever slot holds them, reads see the total
+        addToSlot(15, "XTS", 2, "15.50");
+        addToSlot(3, "XTS", -1, "-5.50");
+
+        OverdueStats after = overdueService.getStats();
+        assertEquals(before.getOverdueCount() + 1, after.getOverdueCount());
+        assertEquals(0, amount(before, "XTS").add(new BigDecimal("10.00")).compareTo(amount(after, "XTS")));
+    }
+
+    @Test
+    @Transactional
+    public void testTriggers_KeepCurrenciesApart() {
+        LocalDate dueDate = LocalDate.now().minusDays(10);
+        OverdueStats start = overdueService.getStats();
+
+        Invoice dollars = createInvoice(InvoiceStatus.OVERDUE, "100.00", "0.00", dueDate);
+        Invoice euros = createInvoice(InvoiceStatus.OVERDUE, "40.00", "0.00", dueDate, "EUR");
+        OverdueStats both = overdueService.getStats();
+        assertEquals(start.getOverdueCount() + 2, both.getOverdueCount());
+        assertEquals(0, amount(start, "USD").add(new BigDecimal("100.00")).compareTo(amount(both, "USD")));
+        assertEquals(0, amount(start, "EUR").add(new BigDecimal("40.00")).compareTo(amount(both, "EUR")));
+        assertMatchesInvoices(both);
+
+        // One statement moving rows of both currencies adjusts each total on its own
+        jdbcTemplate.update("UPDATE invoices SET paid_amount = 10.00 WHERE invoice_id IN (?, ?)",
+                dollars.getInvoiceId(), euros.getInvoiceId());
+        OverdueStats paid = overdueService.getStats();
+        assertEquals(0, amount(start, "USD").add(new BigDecimal("90.00")).compareTo(amount(paid, "USD")));
+        assertEquals(0, amount(start, "EUR").add(new BigDecimal("30.00")).compareTo(amount(paid, "EUR")));
+
+        jdbcTemplate.update("UPDATE invoices SET status = 'CANCELLED' WHERE invoice_id IN (?, ?)",
+                dollars.getInvoiceId(), euros.getInvoiceId());
+        OverdueStats cancelled = overdueService.getStats();
+        assertEquals(start.getOverdueCount(), cancelled.getOverdueCount());
+        assertEquals(0, amount(start, "USD").compareTo(amount(cancelled, "USD")));
+        assertEquals(0, amount(start, "EUR").compareTo(amount(cancelled, "EUR")));
+    }
+
+    @Test
+    @Transactional
+    public void testGetOverdueInvoices_ReturnsPagedSummaries() {
+        LocalDate today = LocalDate.now();
+        createInvoice(InvoiceStatus.OVERDUE, "10.00", "0.00", today.minusDays(3));
+        createInvoice(InvoiceStatus.OVERDUE, "20.00", "5.00", today.minusDays(2));
+        createInvoice(InvoiceStatus.OVERDUE, "30.00", "0.00", today.minusDays(1));
+
+        InvoiceListResponse page = invoiceService.getOverdueInvoices(PageRequest.of(0, 2, Sort.by("dueDate")));
+
+        assertEquals(2, page.getInvoices().size());
+        assertTrue(page.getTotalElements() >= 3);
+        assertTrue(page.getInvoices().stream().allMatch(i -> i.getStatus() == InvoiceStatus.OVERDUE && i.isOverdue()));
+        assertFalse(page.getInvoices().get(0).getDueDate().isAfter(page.getInvoices().get(1).getDueDate()));
+    }
+
+    private void assertDelta(OverdueStats start, long count, String amount) {
+        OverdueStats now = overdueService.getStats();
+        assertEquals(count, now.getOverdueCount() - start.getOverdueCount());
+        assertEquals(0, new BigDecimal(amount).compareTo(amount(now, "USD").subtract(amount(start, "USD"))));
+    }
+
+    private void assertMatchesInvoices(OverdueStats stats) {
+        List<Map<String, Object>> actual = jdbcTemplate.queryForList("""
+                SELECT COALESCE(currency, 'USD') AS currency, COUNT(*) AS overdue_count,
+                       SUM(total_amount - COALESCE(paid_amount, 0)) AS overdue_amount
+                FROM invoices
+                WHERE status = 'OVERDUE'
+                GROUP BY 1
+                """);
+        assertEquals(actual.stream().mapToLong(row -> ((Number) row.get("overdue_count")).longValue()).sum(),
+                stats.getOverdueCount());
+        for (Map<String, Object> row : actual) {
+            String currency = (String) row.get("currency");
+            assertEquals(0, ((BigDecimal) row.get("overdue_amount")).compareTo(amount(stats, currency)), currency);
+        }
+    }
+
+    private static BigDecimal amount(OverdueStats stats, String currency) {
+        return stats.getOverdueAmounts().getOrDefault(currency, BigDecimal.ZERO);
+    }
+
+    private void addToSlot(int slot, String currency, long count, String amount) {
+        jdbcTemplate.update("""
+                INSERT INTO invoice_overdue_stats AS s (slot, currency, overdue_count, overdue_amount)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT (slot, currency) DO UPDATE
+                SET overdue_count = s.overdue_count + EXCLUDED.overdue_count,
+                    overdue_amount = s.overdue_amount + EXCLUDED.overdue_amount
+                """, slot, currency, count, new BigDecimal(amount));
+    }
+
+    private String status(Invoice invoice) {
+        return jdbcTemplate.queryForObject("SELECT status FROM invoices WHERE invoice_id = ?", String.class,
+                invoice.getInvoiceId());
+    }
+
+    private int version(Invoice invoice) {
+        return jdbcTemplate.queryForObject("SELECT version FROM invoices WHERE invoice_id = ?", Integer.class,
+                invoice.getInvoiceId());
+    }
+
+    private Invoice createInvoice(InvoiceStatus status, String total, String paid, LocalDate dueDate) {
+        return createInvoice(status, total, paid, dueDate, "USD");
+    }
+
+    private Invoice createInvoice(InvoiceStatus status, String total, String paid, LocalDate dueDate,
+            String currency) {
+        User user = new User();
+        user.setEmail("overdue_test_" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user.setUserType("private");
+        user.setFirstName("Overdue");
+        user.setLastName("Customer");
+        user = userRepository.save(user);
+
+        return invoiceRepository.saveAndFlush(Invoice.builder()
+                .invoiceNumber("OVD-TEST-" + UUID.randomUUID())
+                .user(user)
+                .status(status)
+                .subtotal(new BigDecimal(total))
+                .totalAmount(new BigDecimal(total))
+                .paidAmount(new BigDecimal(paid))
+                .currency(currency)
+                .issueDate(dueDate.minusDays(30))
+                .dueDate(dueDate)
+                .build());
+    }
+}
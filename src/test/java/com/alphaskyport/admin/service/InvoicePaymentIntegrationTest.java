@@ -0,0 +1,185 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.InvoiceDTOs.BalanceVerificationResult;
+import com.alphaskyport.admin.dto.InvoiceDTOs.InvoiceResponse;
+import com.alphaskyport.admin.dto.InvoiceDTOs.RecordPaymentRequest;
+import com.alphaskyport.admin.model.AdminRole;
+import com.alphaskyport.admin.model.AdminUser;
+import com.alphaskyport.admin.model.Invoice;
+import com.alphaskyport.admin.model.InvoiceStatus;
+import com.alphaskyport.admin.model.PaymentMethod;
+import com.alphaskyport.admin.repository.AdminUserRepository;
+import com.alphaskyport.admin.repository.InvoiceRepository;
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.iam.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Payments move invoices.paid_amount by a delta (applyPaymentDelta), and
+ * InvoiceBalanceVerificationService finds and repairs totals that drifted
+ * from the payments table.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class InvoicePaymentIntegrationTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceBalanceVerificationService verificationService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AdminUserRepository adminUserRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional
+    public void testRecordPayment_AppliesDeltaAndReturnsRecordedPayment() {
+        AdminUser admin = createAdmin();
+        Invoice invoice = createInvoice(InvoiceStatus.SENT, "100.00");
+
+        InvoiceResponse partial = invoiceService.recordPayment(payment(invoice, "30.00"), admin);
+        assertEquals(InvoiceStatus.PARTIAL, partial.getStatus());
+        assertEquals(0, new BigDecimal("30.00").compareTo(partial.getPaidAmount()));
+        assertEquals(1, partial.getPayments().size());
+        assertEquals(0, new BigDecimal("30.00").compareTo(partial.getPayments().get(0).getAmount()));
+
+        InvoiceResponse paid = invoiceService.recordPayment(payment(invoice, "70.00"), admin);
+        assertEquals(InvoiceStatus.PAID, paid.getStatus());
+        assertEquals(0, new BigDecimal("100.00").compareTo(paid.getPaidAmount()));
+        assertEquals(LocalDate.now(), paid.getPaidDate());
+        // Only the payment just recorded; the totals cover the earlier ones
+        assertEquals(1, paid.getPayments().size());
+        assertEquals(0, new BigDecimal("70.00").compareTo(paid.getPayments().get(0).getAmount()));
+    }
+
+    @Test
+    @Transactional
+    public void testApplyPaymentDelta_MovesToPaidAndSkipsCancelled() {
+        Invoice sent = createInvoice(InvoiceStatus.SENT, "100.00");
+        assertEquals(1, invoiceRepository.applyPaymentDelta(sent.getInvoiceId(), new BigDecimal("40.00"),
+                LocalDate.now()));
+        assertEquals("PARTIAL", status(sent));
+        assertEquals(1, invoiceRepository.applyPaymentDelta(sent.getInvoiceId(), new BigDecimal("60.00"),
+                LocalDate.now()));
+        assertEquals("PAID", status(sent));
+        assertEquals(0, new BigDecimal("100.00").compareTo(paidAmount(sent)));
+
+        Invoice cancelled = createInvoice(InvoiceStatus.CANCELLED, "100.00");
+        assertEquals(0, invoiceRepository.applyPaymentDelta(cancelled.getInvoiceId(), new BigDecimal("10.00"),
+                LocalDate.now()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(paidAmount(cancelled)));
+        assertEquals(0, invoiceRepository.applyPaymentDelta(UUID.randomUUID(), BigDecimal.ONE, LocalDate.now()));
+    }
+
+    @Test
+    @Transactional
+    public void testVerify_RepairsDriftedPaidAmount() {
+        AdminUser admin = createAdmin();
+        Invoice drifted = createInvoice(InvoiceStatus.SENT, "100.00");
+        invoiceService.recordPayment(payment(drifted, "30.00"), admin);
+        Invoice consistent = createInvoice(InvoiceStatus.SENT, "100.00");
+        invoiceService.recordPayment(payment(consistent, "50.00"), admin);
+
+        // A lost delta: the running total no longer matches the payment rows
+        jdbcTemplate.update("UPDATE invoices SET paid_amount = 0 WHERE invoice_id = ?", drifted.getInvoiceId());
+
+        BalanceVerificationResult result = verificationService.verify();
+
+        assertTrue(result.getInvoicesChecked() >= 2);
+        assertTrue(result.getDriftedInvoiceIds().contains(drifted.getInvoiceId()));
+        assertFalse(result.getDriftedInvoiceIds().contains(consistent.getInvoiceId()));
+        assertTrue(result.getRepaired() >= 1);
+        assertEquals(0, new BigDecimal("30.00").compareTo(paidAmount(drifted)));
+        assertEquals("PARTIAL", status(drifted));
+        assertEquals(0, new BigDecimal("50.00").compareTo(paidAmount(consistent)));
+    }
+
+    @Test
+    @Transactional
+    public void testVerify_RepairToPaidSetsPaidDate() {
+        AdminUser admin = createAdmin();
+        Invoice invoice = createInvoice(InvoiceStatus.SENT, "100.00");
+        invoiceService.recordPayment(payment(invoice, "100.00"), admin);
+
+        // Both the running total and the settlement were lost
+        jdbcTemplate.update("UPDATE invoices SET paid_amount = 0, status = 'SENT', paid_date = NULL "
+                + "WHERE invoice_id = ?", invoice.getInvoiceId());
+
+        verificationService.verify();
+
+        assertEquals("PAID", status(invoice));
+        assertEquals(LocalDate.now(), jdbcTemplate.queryForObject(
+                "SELECT paid_date FROM invoices WHERE invoice_id = ?", LocalDate.class, invoice.getInvoiceId()));
+    }
+
+    private RecordPaymentRequest payment(Invoice invoice, String amount) {
+        RecordPaymentRequest request = new RecordPaymentRequest();
+        request.setInvoiceId(invoice.getInvoiceId());
+        request.setAmount(new BigDecimal(amount));
+        request.setPaymentMethod(PaymentMethod.BANK_TRANSFER);
+        request.setPaymentDate(LocalDate.now());
+        return request;
+    }
+
+    private String status(Invoice invoice) {
+        return jdbcTemplate.queryForObject("SELECT status FROM invoices WHERE invoice_id = ?", String.class,
+                invoice.getInvoiceId());
+    }
+
+    private BigDecimal paidAmount(Invoice invoice) {
+        return jdbcTemplate.queryForObject("SELECT paid_amount FROM invoices WHERE invoice_id = ?",
+                BigDecimal.class, invoice.getInvoiceId());
+    }
+
+    private AdminUser createAdmin() {
+        return adminUserRepository.save(AdminUser.builder()
+                .email("invoice_admin_" + UUID.randomUUID() + "@example.com")
+                .passwordHash("hash")
+                .role(AdminRole.FINANCE)
+                .firstName("Fin")
+                .lastName("Ance")
+                .build());
+    }
+
+    private Invoice createInvoice(InvoiceStatus status, String total) {
+        User user = new User();
+        user.setEmail("invoice_test_" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user.setUserType("private");
+        user.setFirstName("Invoice");
+        user.setLastName("Customer");
+        user = userRepository.save(user);
+
+        return invoiceRepository.saveAndFlush(Invoice.builder()
+                .invoiceNumber("PAY-TEST-" + UUID.randomUUID())
+                .user(user)
+                .status(status)
+                .subtotal(new BigDecimal(total))
+                .totalAmount(new BigDecimal(total))
+                .paidAmount(BigDecimal.ZERO)
+                .issueDate(LocalDate.now().minusDays(40))
+                .dueDate(LocalDate.now().minusDays(10))
+                .build());
+    }
+}
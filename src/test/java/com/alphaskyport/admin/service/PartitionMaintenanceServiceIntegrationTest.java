@@ -0,0 +1,104 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.dto.MaintenanceDTOs.PartitionMaintenanceResult;
+import com.alphaskyport.admin.dto.MaintenanceDTOs.PartitionStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs maintenance against the migrated schema: a missing future
+ * shipment_tracking_events partition is created once, a partition past the
+ * retention window is detached and kept, and the DEFAULT partition of
+ * notification_history is neither counted as a monthly partition nor retired.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class PartitionMaintenanceServiceIntegrationTest {
+
+    private static final String DEFAULT_PARTITION = PartitionMaintenanceService.NOTIFICATION_HISTORY + "_default";
+
+    @Autowired
+    private PartitionMaintenanceService maintenanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void createsMissingPartitionAheadOnce() {
+        String table = PartitionMaintenanceService.TRACKING_EVENTS;
+        String partition = table + "_"
+                + LocalDate.now().withDayOfMonth(1).plusMonths(2).format(DateTimeFormatter.ofPattern("yyyy_MM"));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+
+        PartitionMaintenanceResult first = maintenanceService.maintain(table);
+        assertTrue(first.isLockAcquired());
+        assertTrue(first.getCreatedPartitions().contains(partition));
+        assertTrue(isAttached(table, partition));
+
+        // Indexes of the parent cascade to a partition created with PARTITION OF
+        PartitionStats stats = maintenanceService.getStats(table);
+        assertTrue(stats.getPartitions().stream()
+                .filter(p -> p.getPartitionName().equals(partition))
+                .allMatch(p -> p.isIndexesComplete()));
+
+        PartitionMaintenanceResult second = maintenanceService.maintain(table);
+        assertTrue(second.getCreatedPartitions().isEmpty());
+        assertTrue(second.getRepairedIndexes().isEmpty());
+    }
+
+    @Test
+    public void detachesPartitionPastRetention() {
+        String table = PartitionMaintenanceService.TRACKING_EVENTS;
+        // Far outside the 24-month window and clear of any partition the migrations create
+        String partition = table + "_2001_01";
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+        jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF " + table
+                + " FOR VALUES FROM ('2001-01-01') TO ('2001-02-01')");
+        try {
+            PartitionMaintenanceResult result = maintenanceService.maintain(table);
+
+            assertTrue(result.isLockAcquired());
+            assertEquals("detach", result.getRetentionAction());
+            assertTrue(result.getRetiredPartitions().contains(partition));
+            assertFalse(isAttached(table, partition));
+            // Detached, not dropped: the table is kept and reported as detached
+            assertTrue(maintenanceService.listDetachedPartitions(table).contains(partition));
+            assertTrue(maintenanceService.getStats(table).getPartitions().stream()
+                    .noneMatch(p -> p.getPartitionName().equals(partition)));
+        } finally {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+        }
+    }
+
+    @Test
+    public void leavesDefaultPartitionAlone() {
+        String table = PartitionMaintenanceService.NOTIFICATION_HISTORY;
+
+        PartitionMaintenanceResult result = maintenanceService.maintain(table);
+        assertTrue(result.isLockAcquired());
+        assertFalse(result.getRetiredPartitions().contains(DEFAULT_PARTITION));
+        assertTrue(isAttached(table, DEFAULT_PARTITION));
+
+        PartitionStats stats = maintenanceService.getStats(table);
+        assertTrue(stats.getPartitions().stream().noneMatch(p -> p.getPartitionName().equals(DEFAULT_PARTITION)));
+        assertFalse(stats.getDetachedPartitions().contains(DEFAULT_PARTITION));
+        assertNotNull(stats.getCoveredUntil());
+        assertTrue(stats.getCoveredUntil().isAfter(LocalDate.now().withDayOfMonth(1).plusMonths(3)));
+    }
+
+    private boolean isAttached(String parent, String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (
+                    SELECT 1 FROM pg_inherits WHERE inhparent = ?::regclass AND inhrelid = ?::regclass
+                )
+                """, Boolean.class, parent, partition));
+    }
+}
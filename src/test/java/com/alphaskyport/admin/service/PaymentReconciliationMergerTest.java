@@ -0,0 +1,177 @@
+package com.alphaskyport.admin.service;
+
+import com.alphaskyport.admin.service.PaymentReconciliationMerger.Discrepancy;
+import com.alphaskyport.admin.service.PaymentReconciliationMerger.DiscrepancyType;
+import com.alphaskyport.admin.service.PaymentReconciliationMerger.LedgerEntry;
+import com.alphaskyport.admin.service.PaymentReconciliationMerger.ShipmentBalance;
+import com.alphaskyport.admin.service.PaymentReconciliationMerger.Summary;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentReconciliationMergerTest {
+
+    private static final UUID S1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID S2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID S3 = UUID.fromString("00000000-0000-0000-0000-000000000003");
+    private static final UUID S4 = UUID.fromString("00000000-0000-0000-0000-000000000004");
+    private static final UUID I1 = UUID.fromString("10000000-0000-0000-0000-000000000001");
+    private static final UUID I2 = UUID.fromString("10000000-0000-0000-0000-000000000002");
+
+    private final PaymentReconciliationMerger merger = new PaymentReconciliationMerger(BigDecimal.ZERO);
+
+    @Test
+    void matchingLedgersProduceNoDiscrepancies() {
+        List<Discrepancy> found = new ArrayList<>();
+        Summary summary = merger.merge(
+                List.of(shipment(S1, "100.00"), shipment(S2, "0.00")).iterator(),
+                List.of(tx(S1, "60.00"), tx(S1, "40.00")).iterator(),
+                List.of(invoice(S1, I1, "70.00"), invoice(S1, I2, "30.00"), invoice(S2, I1, null)).iterator(),
+                found::add);
+
+        assertTrue(found.isEmpty());
+        assertEquals(2, summary.getShipmentsScanned());
+        assertEquals(2, summary.getTransactionRows());
+        assertEquals(2, summary.getInvoicePaymentRows());
+        assertEquals(0, summary.getDiscrepancyCount());
+    }
+
+    @Test
+    void reportsEachKindOfDiscrepancy() {
+        List<Discrepancy> found = new ArrayList<>();
+        Summary summary = merger.merge(
+                List.of(shipment(S1, "100.00"), shipment(S2, "50.00"), shipment(S3, "0.00")).iterator(),
+                List.of(tx(S1, "100.00"), tx(S2, "50.00"), tx(S4, "5.00")).iterator(),
+                List.of(invoice(S1, I1, "90.00"), invoice(S3, I2, "20.00")).iterator(),
+                found::add);
+
+        assertEquals(4, found.size());
+        assertEquals(DiscrepancyType.AMOUNT_MISMATCH, found.get(0).getType());
+        assertEquals(S1, found.get(0).getShipmentId());
+        assertEquals(new BigDecimal("10.00"), found.get(0).getDifference());
+
+        assertEquals(DiscrepancyType.MISSING_INVOICE, found.get(1).getType());
+        assertEquals(S2, found.get(1).getShipmentId());
+
+        assertEquals(DiscrepancyType.MISSING_TRANSACTIONS, found.get(2).getType());
+        assertEquals(S3, found.get(2).getShipmentId());
+        assertEquals(I2, found.get(2).getInvoiceId());
+
+        assertEquals(DiscrepancyType.UNKNOWN_SHIPMENT, found.get(3).getType());
+        assertEquals(S4, found.get(3).getShipmentId());
+        assertEquals(4, summary.getDiscrepancyCount());
+    }
+
+    @Test
+    void flagsAmountPaidThatDisagreesWithNetTransactions() {
+        List<Discrepancy> found = new ArrayList<>();
+        merger.merge(
+                List.of(shipment(S1, "100.00")).iterator(),
+                List.of(tx(S1, "100.00"), tx(S1, "-25.00")).iterator(),
+                List.of(invoice(S1, I1, "75.00")).iterator(),
+                found::add);
+
+        assertEquals(1, found.size());
+        assertEquals(DiscrepancyType.AMOUNT_PAID_MISMATCH, found.get(0).getType());
+        assertEquals(new BigDecimal("25.00"), found.get(0).getDifference());
+        assertEquals(new BigDecimal("75.00"), found.get(0).getTransactionTotal());
+    }
+
+    @Test
+    void toleranceAbsorbsRoundingDifferences() {
+        List<Discrepancy> found = new ArrayList<>();
+        new PaymentReconciliationMerger(new BigDecimal("0.01")).merge(
+                List.of(shipment(S1, "10.00")).iterator(),
+                List.of(tx(S1, "10.00")).iterator(),
+                List.of(invoice(S1, I1, "9.99")).iterator(),
+                found::add);
+
+        assertTrue(found.isEmpty());
+    }
+
+    @Test
+    void ordersKeysLikePostgres() {
+        UUID low = UUID.fromString("7fffffff-ffff-ffff-ffff-ffffffffffff");
+        UUID high = UUID.fromString("80000000-0000-0000-0000-000000000000");
+
+        // Signed comparison puts high first; PostgreSQL compares unsigned bytes
+        assertTrue(high.compareTo(low) < 0);
+        assertTrue(PaymentReconciliationMerger.compareKeys(low, high) < 0);
+
+        List<Discrepancy> found = new ArrayList<>();
+        Summary summary = merger.merge(
+                List.of(shipment(low, "0.00"), shipment(high, "0.00")).iterator(),
+                List.<LedgerEntry>of().iterator(),
+                List.<LedgerEntry>of().iterator(),
+                found::add);
+        assertEquals(2, summary.getShipmentsScanned());
+        assertTrue(found.isEmpty());
+    }
+
+    @Test
+    void rejectsUnsortedInput() {
+        Iterator<LedgerEntry> unsorted = List.of(tx(S2, "1.00"), tx(S1, "1.00")).iterator();
+
+        assertThrows(IllegalStateException.class, () -> merger.merge(
+                List.of(shipment(S1, "1.00"), shipment(S2, "1.00")).iterator(),
+                unsorted,
+                List.<LedgerEntry>of().iterator(),
+                d -> {
+                }));
+    }
+
+    @Test
+    void streamsWithoutMaterializingInputs() {
+        int shipments = 200_000;
+        long[] emitted = new long[1];
+        Summary summary = merger.merge(
+                generate(shipments, i -> shipment(key(i), "10.00")),
+                generate(shipments, i -> tx(key(i), "10.00")),
+                generate(shipments, i -> invoice(key(i), key(i), i % 1000 == 0 ? "9.00" : "10.00")),
+                d -> emitted[0]++);
+
+        assertEquals(shipments, summary.getShipmentsScanned());
+        assertEquals(shipments / 1000, emitted[0]);
+        assertEquals(shipments / 1000,
+                summary.getDiscrepancies().get(DiscrepancyType.AMOUNT_MISMATCH).longValue());
+    }
+
+    private static UUID key(int i) {
+        return new UUID(0, i);
+    }
+
+    private static <T> Iterator<T> generate(int count, IntFunction<T> row) {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public T next() {
+                return row.apply(next++);
+            }
+        };
+    }
+
+    private static ShipmentBalance shipment(UUID id, String amountPaid) {
+        return new ShipmentBalance(id, new BigDecimal(amountPaid));
+    }
+
+    private static LedgerEntry tx(UUID shipmentId, String amount) {
+        return new LedgerEntry(shipmentId, null, new BigDecimal(amount));
+    }
+
+    private static LedgerEntry invoice(UUID shipmentId, UUID invoiceId, String amount) {
+        return new LedgerEntry(shipmentId, invoiceId, amount != null ? new BigDecimal(amount) : null);
+    }
+}
@@ -0,0 +1,86 @@
+package com.alphaskyport.config;
+
+import com.alphaskyport.admin.model.AdminRole;
+import com.alphaskyport.admin.model.AdminUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserAccessGuardTest {
+
+    private final UserAccessGuard guard = new UserAccessGuard();
+    private final UUID userId = UUID.randomUUID();
+
+    @AfterEach
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void rejectsAnonymousCaller() {
+        authenticate(new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+
+        assertStatus(HttpStatus.UNAUTHORIZED, () -> guard.checkRead(userId));
+    }
+
+    @Test
+    public void rejectsMissingAuthentication() {
+        assertStatus(HttpStatus.UNAUTHORIZED, () -> guard.checkRead(userId));
+    }
+
+    @Test
+    public void allowsOwnerAndRejectsOtherUsers() {
+        authenticate(new UsernamePasswordAuthenticationToken(userId.toString(), null, AuthorityUtils.NO_AUTHORITIES));
+
+        guard.checkRead(userId);
+        guard.checkWrite(userId);
+        assertStatus(HttpStatus.FORBIDDEN, () -> guard.checkRead(UUID.randomUUID()));
+        assertStatus(HttpStatus.FORBIDDEN, () -> guard.checkWrite(UUID.randomUUID()));
+    }
+
+    @Test
+    public void adminNeedsMatchingUsersPermission() {
+        authenticate(admin(AdminRole.SUPPORT, "users:read"));
+        guard.checkRead(userId);
+        assertStatus(HttpStatus.FORBIDDEN, () -> guard.checkWrite(userId));
+
+        authenticate(admin(AdminRole.SUPPORT, "users:*"));
+        guard.checkWrite(userId);
+
+        authenticate(admin(AdminRole.SUPPORT, "shipments:read"));
+        assertStatus(HttpStatus.FORBIDDEN, () -> guard.checkRead(userId));
+    }
+
+    @Test
+    public void adminIsNotMatchedByName() {
+        AdminUser admin = AdminUser.builder().adminId(userId).email(userId.toString()).role(AdminRole.SUPPORT).build();
+        authenticate(new UsernamePasswordAuthenticationToken(admin, null, AuthorityUtils.NO_AUTHORITIES));
+
+        assertStatus(HttpStatus.FORBIDDEN, () -> guard.checkRead(userId));
+    }
+
+    private static Authentication admin(AdminRole role, String... permissions) {
+        AdminUser admin = AdminUser.builder().adminId(UUID.randomUUID()).email("ops@example.com").role(role).build();
+        return new UsernamePasswordAuthenticationToken(admin, null, AuthorityUtils.createAuthorityList(permissions));
+    }
+
+    private static void authenticate(Authentication authentication) {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
+    private static void assertStatus(HttpStatus expected, Runnable check) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, check::run);
+        assertEquals(expected, e.getStatusCode());
+    }
+}
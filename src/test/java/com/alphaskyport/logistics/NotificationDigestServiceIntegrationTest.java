@@ -0,0 +1,154 @@
+package com.alphaskyport.logistics;
+
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.iam.repository.UserRepository;
+import com.alphaskyport.logistics.model.Shipment;
+import com.alphaskyport.logistics.repository.ShipmentRepository;
+import com.alphaskyport.logistics.service.NotificationDigestService;
+import com.alphaskyport.logistics.service.NotificationDigestService.DigestPreference;
+import com.alphaskyport.logistics.service.NotificationService;
+import com.alphaskyport.masterdata.model.Country;
+import com.alphaskyport.masterdata.model.FreightService;
+import com.alphaskyport.masterdata.repository.CountryRepository;
+import com.alphaskyport.masterdata.repository.FreightServiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class NotificationDigestServiceIntegrationTest {
+
+    @Autowired
+    private NotificationDigestService digestService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CountryRepository countryRepository;
+
+    @Autowired
+    private FreightServiceRepository freightServiceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional
+    public void testDigest_FoldsPendingNotificationsIntoOne() {
+        Shipment shipment = createTestShipment();
+        User user = shipment.getUser();
+        digestService.updatePreference(user.getUserId(), preference("hourly"));
+
+        notificationService.enqueueNotification(user, shipment, "Booked", "Booked", "BOOKING_CONFIRMED");
+        notificationService.enqueueNotification(user, shipment, "Paid", "Paid", "PAYMENT_RECEIVED");
+        assertEquals(2, count(user, "delivery_mode = 'digest' AND status = 'pending'"));
+
+        makeDue(user);
+        digestService.sendDueDigests();
+
+        assertEquals(0, count(user, "delivery_mode = 'digest' AND status = 'pending'"));
+        assertEquals(1, count(user, "notification_type = 'DIGEST' AND delivery_mode = 'immediate'"));
+    }
+
+    @Test
+    @Transactional
+    public void testDigest_SecondDigestInSameHourIsNotDropped() {
+        Shipment shipment = createTestShipment();
+        User user = shipment.getUser();
+        digestService.updatePreference(user.getUserId(), preference("hourly"));
+
+        notificationService.enqueueNotification(user, shipment, "Booked", "Booked", "BOOKING_CONFIRMED");
+        makeDue(user);
+        digestService.sendDueDigests();
+
+        // Re-saving the preference reschedules the digest; a second one within the hour must still go out
+        notificationService.enqueueNotification(user, shipment, "Paid", "Paid", "PAYMENT_RECEIVED");
+        digestService.updatePreference(user.getUserId(), preference("hourly"));
+        makeDue(user);
+        digestService.sendDueDigests();
+
+        assertEquals(0, count(user, "delivery_mode = 'digest' AND status = 'pending'"));
+        assertEquals(2, count(user, "notification_type = 'DIGEST'"));
+        List<String> messages = jdbcTemplate.queryForList(
+                "SELECT message FROM notification_queue WHERE user_id = ? AND notification_type = 'DIGEST' "
+                        + "ORDER BY queue_id", String.class, user.getUserId());
+        assertTrue(messages.get(0).contains("Booked"));
+        assertTrue(messages.get(1).contains("Paid"));
+    }
+
+    @Test
+    @Transactional
+    public void testDigest_NothingPendingSendsNothing() {
+        Shipment shipment = createTestShipment();
+        User user = shipment.getUser();
+        digestService.updatePreference(user.getUserId(), preference("daily"));
+
+        makeDue(user);
+        digestService.sendDueDigests();
+
+        assertEquals(0, count(user, "notification_type = 'DIGEST'"));
+        DigestPreference preference = digestService.getPreference(user.getUserId());
+        assertNotNull(preference.getLastDigestAt());
+        assertNotNull(preference.getNextDigestAt());
+    }
+
+    private static DigestPreference preference(String frequency) {
+        return new DigestPreference(frequency, 8, List.of("in_app"), null, null);
+    }
+
+    private void makeDue(User user) {
+        // LOCALTIMESTAMP is fixed for the test transaction, so move the slot behind it
+        jdbcTemplate.update("UPDATE notification_digest_preferences SET next_digest_at = LOCALTIMESTAMP "
+                + "- INTERVAL '1 minute' WHERE user_id = ?", user.getUserId());
+    }
+
+    private long count(User user, String condition) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM notification_queue WHERE user_id = ? AND " + condition, Long.class,
+                user.getUserId());
+        return count != null ? count : 0;
+    }
+
+    private Shipment createTestShipment() {
+        User user = new User();
+        user.setEmail("digest_test_" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user.setUserType("private");
+        user = userRepository.save(user);
+
+        Country country = new Country();
+        country.setCountryCode("DE");
+        country.setCountryName("Germany");
+        country = countryRepository.save(country);
+
+        FreightService service = new FreightService();
+        service.setServiceName("Express");
+        service.setServiceType("air");
+        service = freightServiceRepository.save(service);
+
+        Shipment shipment = new Shipment();
+        shipment.setTrackingNumber("DIGEST-" + UUID.randomUUID());
+        shipment.setUser(user);
+        shipment.setService(service);
+        shipment.setOriginCountry(country);
+        shipment.setDestinationCountry(country);
+
+        return shipmentRepository.saveAndFlush(shipment);
+    }
+}
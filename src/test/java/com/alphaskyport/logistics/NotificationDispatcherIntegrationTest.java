@@ -0,0 +1,300 @@
+package com.alphaskyport.logistics;
+
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.iam.repository.UserRepository;
+import com.alphaskyport.logistics.notification.NotificationChannel;
+import com.alphaskyport.logistics.notification.NotificationDeliveryException;
+import com.alphaskyport.logistics.notification.NotificationMessage;
+import com.alphaskyport.logistics.service.NotificationDispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives NotificationDispatcher against test channels. No background workers
+ * run, so each test claims explicitly; the reaper stays enabled so an expired
+ * lease can be handed back. Claims commit for real, so rows are cleaned up
+ * through their user rather than rolled back.
+ */
+@SpringBootTest(properties = {
+        "logistics.notifications.dispatcher.workers=0",
+        "logistics.notifications.dispatcher.batch-size=5",
+        "logistics.notifications.dispatcher.lease-seconds=1"
+})
+@ActiveProfiles("test")
+public class NotificationDispatcherIntegrationTest {
+
+    private static final Map<Long, AtomicInteger> SENDS = new ConcurrentHashMap<>();
+    private static volatile CountDownLatch blockedSend = new CountDownLatch(1);
+    private static volatile CountDownLatch releaseBlocked = new CountDownLatch(1);
+    private static volatile boolean providerDown;
+
+    @TestConfiguration
+    static class Channels {
+
+        /** Counts sends; a "block" notification stalls its first attempt, which then fails. */
+        @Bean
+        NotificationChannel recorderChannel() {
+            return new NotificationChannel() {
+                @Override
+                public String getName() {
+                    return "recorder";
+                }
+
+                @Override
+                public void send(NotificationMessage message) {
+                    int attempt = SENDS.computeIfAbsent(message.getQueueId(), id -> new AtomicInteger())
+                            .incrementAndGet();
+                    if (message.getTitle().equals("block") && attempt == 1) {
+                        blockedSend.countDown();
+                        try {
+                            releaseBlocked.await(30, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new IllegalStateException("late failure");
+                    }
+                }
+            };
+        }
+
+        /** Fails retryably while the provider is down; "reject" fails permanently. */
+        @Bean
+        NotificationChannel flakyChannel() {
+            return new NotificationChannel() {
+                @Override
+                public String getName() {
+                    return "flaky";
+                }
+
+                @Override
+                public void send(NotificationMessage message) {
+                    if (message.getTitle().equals("reject")) {
+                        throw new NotificationDeliveryException("address rejected", false);
+                    }
+                    if (providerDown) {
+                        throw new IllegalStateException("provider down");
+                    }
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private NotificationDispatcher dispatcher;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        SENDS.clear();
+        blockedSend = new CountDownLatch(1);
+        releaseBlocked = new CountDownLatch(1);
+        providerDown = false;
+
+        user = new User();
+        user.setEmail("dispatch_test_" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user.setUserType("private");
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        releaseBlocked.countDown();
+        jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", user.getUserId());
+    }
+
+    @Test
+    public void testConcurrentClaimers_DeliverEachNotificationOnce() throws Exception {
+        List<Long> queued = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            queued.add(enqueue("burst " + i, "{recorder}", 3));
+        }
+
+        ExecutorService claimers = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> runs = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            runs.add(claimers.submit(() -> {
+                start.await();
+                long deadline = System.currentTimeMillis() + 20000;
+                while (count(queued, "sent") < queued.size() && System.currentTimeMillis() < deadline) {
+                    dispatcher.dispatchBatch();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> run : runs) {
+            run.get(30, TimeUnit.SECONDS);
+        }
+        claimers.shutdown();
+
+        assertEquals(queued.size(), count(queued, "sent"));
+        for (long queueId : queued) {
+            assertEquals(1, SENDS.get(queueId).get(), "queue_id " + queueId);
+            assertEquals(1, attempts(queueId));
+        }
+    }
+
+    @Test
+    public void testCompletion_RecordsSentAndFailedOutcomes() {
+        long sent = enqueue("ok", "{recorder}", 3);
+        long retryable = enqueue("retry", "{recorder,flaky}", 3);
+        long rejected = enqueue("reject", "{flaky}", 3);
+        long exhausted = enqueue("last try", "{flaky}", 1);
+        providerDown = true;
+
+        dispatchUntilSettled(List.of(sent, retryable, rejected, exhausted));
+
+        Map<String, Object> row = row(sent);
+        assertEquals("sent", row.get("status"));
+        assertNotNull(row.get("sent_at"));
+        assertNull(row.get("locked_until"));
+        assertEquals("{recorder}", row.get("delivered_via"));
+
+        // Retryable: rescheduled with the channel that worked remembered
+        row = row(retryable);
+        assertEquals("failed", row.get("status"));
+        assertEquals(Boolean.TRUE, row.get("retry_later"));
+        assertTrue(((String) row.get("last_error")).contains("flaky: provider down"));
+        assertEquals("{recorder}", row.get("delivered_via"));
+
+        // Permanent failures and the last allowed attempt are not rescheduled
+        assertEquals("failed", row(rejected).get("status"));
+        assertNull(row(rejected).get("next_retry_at"));
+        assertEquals("failed", row(exhausted).get("status"));
+        assertNull(row(exhausted).get("next_retry_at"));
+
+        // Once due and the provider is back, only the failed channel is retried
+        providerDown = false;
+        jdbcTemplate.update("UPDATE notification_queue SET next_retry_at = CURRENT_TIMESTAMP - INTERVAL '1 second' "
+                + "WHERE queue_id = ?", retryable);
+        dispatchUntilSettled(List.of(retryable));
+
+        assertEquals("sent", row(retryable).get("status"));
+        assertEquals(2, attempts(retryable));
+        assertEquals(1, SENDS.get(retryable).get());
+    }
+
+    @Test
+    public void testExpiredLease_IsReclaimedAndStaleOutcomeDiscarded() throws Exception {
+        long queueId = enqueue("block", "{recorder}", 3);
+
+        // The first claimer stalls in the channel past its one-second lease
+        ExecutorService firstClaimer = Executors.newSingleThreadExecutor();
+        Future<Integer> stalled = firstClaimer.submit(dispatcher::dispatchBatch);
+        assertTrue(blockedSend.await(10, TimeUnit.SECONDS));
+        waitFor(() -> Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT locked_until < CURRENT_TIMESTAMP FROM notification_queue WHERE queue_id = ?",
+                Boolean.class, queueId)), 5000);
+
+        dispatcher.reapExpiredLeases();
+        Map<String, Object> row = row(queueId);
+        assertEquals("failed", row.get("status"));
+        assertEquals("Dispatch lease expired", row.get("last_error"));
+        assertNull(row.get("locked_until"));
+
+        // Another claimer takes the row over and delivers it
+        dispatchUntilSettled(List.of(queueId));
+        assertEquals("sent", row(queueId).get("status"));
+        assertEquals(2, attempts(queueId));
+
+        // The first claimer's late failure is fenced off by the attempt number
+        releaseBlocked.countDown();
+        stalled.get(10, TimeUnit.SECONDS);
+        firstClaimer.shutdown();
+        assertEquals("sent", row(queueId).get("status"));
+        assertEquals(2, SENDS.get(queueId).get());
+    }
+
+    private long enqueue(String title, String sendVia, int maxAttempts) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO notification_queue
+                    (user_id, notification_type, dedup_key, title, message, send_via, max_attempts)
+                VALUES (?, 'TEST', ?, ?, 'body', ?::varchar[], ?)
+                RETURNING queue_id
+                """, Long.class, user.getUserId(), "dispatch-test:" + UUID.randomUUID(), title, sendVia,
+                maxAttempts);
+    }
+
+    private void dispatchUntilSettled(List<Long> queueIds) {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (count(queueIds, "pending") + count(queueIds, "processing") + dueRetries(queueIds) > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Notifications did not settle within 10s");
+            }
+            dispatcher.dispatchBatch();
+        }
+    }
+
+    private long dueRetries(List<Long> queueIds) {
+        return jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM notification_queue
+                WHERE queue_id = ANY(?::bigint[]) AND status = 'failed' AND next_retry_at <= CURRENT_TIMESTAMP
+                  AND attempts < max_attempts
+                """, Long.class, idArray(queueIds));
+    }
+
+    private long count(List<Long> queueIds, String status) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM notification_queue WHERE queue_id = ANY(?::bigint[]) AND status = ?",
+                Long.class, idArray(queueIds), status);
+    }
+
+    private static String idArray(List<Long> queueIds) {
+        return queueIds.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private int attempts(long queueId) {
+        return jdbcTemplate.queryForObject("SELECT attempts FROM notification_queue WHERE queue_id = ?",
+                Integer.class, queueId);
+    }
+
+    private Map<String, Object> row(long queueId) {
+        return jdbcTemplate.queryForMap("""
+                SELECT status, sent_at, locked_until, next_retry_at, last_error, delivered_via::text AS delivered_via,
+                       next_retry_at > CURRENT_TIMESTAMP AS retry_later
+                FROM notification_queue WHERE queue_id = ?
+                """, queueId);
+    }
+
+    private static void waitFor(BooleanSupplier condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition not met within " + timeoutMs + "ms");
+            }
+            Thread.sleep(50);
+        }
+    }
+}
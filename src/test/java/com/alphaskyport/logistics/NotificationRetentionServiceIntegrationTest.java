@@ -0,0 +1,113 @@
+package com.alphaskyport.logistics;
+
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.iam.repository.UserRepository;
+import com.alphaskyport.logistics.service.NotificationRetentionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Finished notifications past the hot retention are moved: deleted from
+ * notification_queue and inserted into notification_history in one statement.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class NotificationRetentionServiceIntegrationTest {
+
+    @Autowired
+    private NotificationRetentionService retentionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional
+    public void testMoveExpired_MovesOnlyOldFinishedRows() {
+        User user = createTestUser();
+        String prefix = "RET:" + user.getUserId() + ":";
+        insert(user, prefix + "old-sent", "sent", 10);
+        insert(user, prefix + "old-cancelled", "cancelled", 10);
+        insert(user, prefix + "old-pending", "pending", 10);
+        insert(user, prefix + "old-failed", "failed", 10);
+        insert(user, prefix + "recent-sent", "sent", 1);
+
+        assertTrue(retentionService.moveExpired() >= 2);
+
+        assertFalse(inQueue(prefix + "old-sent"));
+        assertFalse(inQueue(prefix + "old-cancelled"));
+        assertTrue(inHistory(prefix + "old-sent"));
+        assertTrue(inHistory(prefix + "old-cancelled"));
+
+        assertTrue(inQueue(prefix + "old-pending"));
+        assertTrue(inQueue(prefix + "old-failed"));
+        assertTrue(inQueue(prefix + "recent-sent"));
+        assertFalse(inHistory(prefix + "recent-sent"));
+    }
+
+    @Test
+    @Transactional
+    public void testMoveExpired_KeepsContentAndMovesOnce() {
+        User user = createTestUser();
+        String dedupKey = "RET:" + user.getUserId() + ":content";
+        long queueId = insert(user, dedupKey, "sent", 10);
+        jdbcTemplate.update("UPDATE notification_queue SET read_at = LOCALTIMESTAMP WHERE queue_id = ?", queueId);
+
+        retentionService.moveExpired();
+        retentionService.moveExpired();
+
+        Map<String, Object> moved = jdbcTemplate.queryForMap(
+                "SELECT queue_id, user_id, title, status, read_at FROM notification_history WHERE dedup_key = ?",
+                dedupKey);
+        assertEquals(queueId, ((Number) moved.get("queue_id")).longValue());
+        assertEquals(user.getUserId(), moved.get("user_id"));
+        assertEquals("Delivered", moved.get("title"));
+        assertEquals("sent", moved.get("status"));
+        assertNotNull(moved.get("read_at"));
+        assertEquals(1, count("notification_history", dedupKey));
+    }
+
+    private long insert(User user, String dedupKey, String status, int ageDays) {
+        Long id = jdbcTemplate.queryForObject("""
+                INSERT INTO notification_queue
+                    (user_id, notification_type, dedup_key, title, message, status, created_at, updated_at)
+                VALUES (?, 'SHIPMENT_STATUS_UPDATE', ?, 'Delivered', 'Your shipment was delivered', ?,
+                        LOCALTIMESTAMP - make_interval(days => ?), LOCALTIMESTAMP - make_interval(days => ?))
+                RETURNING queue_id
+                """, Long.class, user.getUserId(), dedupKey, status, ageDays, ageDays);
+        return id != null ? id : 0;
+    }
+
+    private boolean inQueue(String dedupKey) {
+        return count("notification_queue", dedupKey) > 0;
+    }
+
+    private boolean inHistory(String dedupKey) {
+        return count("notification_history", dedupKey) > 0;
+    }
+
+    private long count(String table, String dedupKey) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE dedup_key = ?",
+                Long.class, dedupKey);
+        return count != null ? count : 0;
+    }
+
+    private User createTestUser() {
+        User user = new User();
+        user.setEmail("retention_test_" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user.setUserType("private");
+        return userRepository.saveAndFlush(user);
+    }
+}
@@ -6,6 +6,9 @@ import com.alphaskyport.logistics.model.Notification;
 import com.alphaskyport.logistics.model.Shipment;
 import com.alphaskyport.logistics.repository.NotificationRepository;
 import com.alphaskyport.logistics.repository.ShipmentRepository;
+import com.alphaskyport.logistics.service.NotificationDigestService;
+import com.alphaskyport.logistics.service.NotificationDigestService.DigestPreference;
+import com.alphaskyport.logistics.service.NotificationService;
 import com.alphaskyport.logistics.service.ShipmentService;
 import com.alphaskyport.masterdata.model.Country;
 import com.alphaskyport.masterdata.model.FreightService;
@@ -14,11 +17,16 @@ import com.alphaskyport.masterdata.repository.FreightServiceRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -45,6 +53,15 @@ public class NotificationServiceIntegrationTest {
     @Autowired
     private FreightServiceRepository freightServiceRepository;
 
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationDigestService digestService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     @Transactional
     public void testUpdateStatus_TriggersNotification() {
@@ -69,6 +86,145 @@ public class NotificationServiceIntegrationTest {
         assertTrue(notification.getMessage().contains("in_transit"));
     }
 
+    @Test
+    @Transactional
+    public void testEnqueue_UsesPreferredChannels() {
+        Shipment shipment = createTestShipment();
+        User user = shipment.getUser();
+        notificationService.enqueueNotification(user, shipment, "Booked", "Booked", "BOOKING_CONFIRMED");
+        assertEquals("in_app", sendVia(user, "BOOKING_CONFIRMED"));
+
+        digestService.updatePreference(user.getUserId(),
+                new DigestPreference("immediate", 8, List.of("email"), null, null));
+        notificationService.enqueueNotification(user, shipment, "Paid", "Paid", "PAYMENT_RECEIVED");
+        assertEquals("email,in_app", sendVia(user, "PAYMENT_RECEIVED"));
+    }
+
+    @Test
+    @Transactional
+    public void testUpdatePreference_RejectsUnregisteredChannelsAndDefaultsToInbox() {
+        User user = createTestShipment().getUser();
+        assertEquals(List.of("in_app"), digestService.getPreference(user.getUserId()).getSendVia());
+
+        // sms has no registered channel here
+        ResponseStatusException rejected = assertThrows(ResponseStatusException.class,
+                () -> digestService.updatePreference(user.getUserId(),
+                        new DigestPreference("immediate", 8, List.of("email", "sms"), null, null)));
+        assertEquals(HttpStatus.BAD_REQUEST, rejected.getStatusCode());
+
+        // Saving without channels stores the same default that a missing preference reports
+        DigestPreference saved = digestService.updatePreference(user.getUserId(),
+                new DigestPreference("daily", 8, null, null, null));
+        assertEquals(List.of("in_app"), saved.getSendVia());
+    }
+
+    @Test
+    @Transactional
+    public void testCoalesce_BurstCollapsesToOneNotification() {
+        Shipment shipment = createTestShipment();
+        User user = shipment.getUser();
+
+        // A long window keeps the whole burst inside one bucket
+        withCoalesceWindow(3600, () -> {
+            for (String status : List.of("picked_up", "in_transit", "customs_clearance", "out_for_delivery")) {
+                notificationService.enqueueNotification(user, shipment, "Update", "Now " + status,
+                        "SHIPMENT_STATUS_UPDATE", status);
+            }
+        });
+
+        List<Map<String, Object>> rows = queuedRows(user, "SHIPMENT_STATUS_UPDATE");
+        assertEquals(1, rows.size());
+        assertEquals("Now out_for_delivery", rows.get(0).get("message"));
+        assertEquals(4, ((Number) rows.get(0).get("coalesced_count")).intValue());
+        // Held back until its window closes
+        assertEquals(Boolean.TRUE, rows.get(0).get("held"));
+    }
+
+    @Test
+    @Transactional
+    public void testCoalesce_NewWindowStartsNewNotification() throws InterruptedException {
+        Shipment shipment = createTestShipment();
+        User user = shipment.getUser();
+
+        withCoalesceWindow(1, () -> notificationService.enqueueNotification(user, shipment, "Update",
+                "Now picked_up", "SHIPMENT_STATUS_UPDATE"));
+        Thread.sleep(1100);
+        withCoalesceWindow(1, () -> notificationService.enqueueNotification(user, shipment, "Update",
+                "Now in_transit", "SHIPMENT_STATUS_UPDATE"));
+
+        List<Map<String, Object>> rows = queuedRows(user, "SHIPMENT_STATUS_UPDATE");
+        assertEquals(2, rows.size());
+        assertEquals("Now picked_up", rows.get(0).get("message"));
+        assertEquals("Now in_transit", rows.get(1).get("message"));
+        assertNotEquals(rows.get(0).get("dedup_key"), rows.get(1).get("dedup_key"));
+    }
+
+    @Test
+    @Transactional
+    public void testCoalesce_ClaimedWindowRollsOverToNext() {
+        Shipment shipment = createTestShipment();
+        User user = shipment.getUser();
+
+        withCoalesceWindow(3600, () -> {
+            notificationService.enqueueNotification(user, shipment, "Update", "Now picked_up",
+                    "SHIPMENT_STATUS_UPDATE");
+            // The dispatcher took this window's row, so a later event must not rewrite it
+            jdbcTemplate.update("UPDATE notification_queue SET status = 'processing' WHERE user_id = ?",
+                    user.getUserId());
+            notificationService.enqueueNotification(user, shipment, "Update", "Now in_transit",
+                    "SHIPMENT_STATUS_UPDATE");
+        });
+
+        List<Map<String, Object>> rows = queuedRows(user, "SHIPMENT_STATUS_UPDATE");
+        assertEquals(2, rows.size());
+        assertEquals("Now picked_up", rows.get(0).get("message"));
+        assertEquals("Now in_transit", rows.get(1).get("message"));
+        assertEquals("pending", rows.get(1).get("status"));
+    }
+
+    @Test
+    @Transactional
+    public void testEnqueue_DeduplicatesRepeatedEvent() {
+        Shipment shipment = createTestShipment();
+        User user = shipment.getUser();
+
+        notificationService.enqueueNotification(user, shipment, "Paid", "Paid", "PAYMENT_RECEIVED", "txn-1");
+        notificationService.enqueueNotification(user, shipment, "Paid", "Paid again", "PAYMENT_RECEIVED", "txn-1");
+        assertEquals(1, queuedRows(user, "PAYMENT_RECEIVED").size());
+        assertEquals("Paid", queuedRows(user, "PAYMENT_RECEIVED").get(0).get("message"));
+
+        notificationService.enqueueNotification(user, shipment, "Paid", "Paid", "PAYMENT_RECEIVED", "txn-2");
+        assertEquals(2, queuedRows(user, "PAYMENT_RECEIVED").size());
+    }
+
+    private void withCoalesceWindow(int seconds, Runnable action) {
+        Object previous = ReflectionTestUtils.getField(notificationService, "coalesceWindowSeconds");
+        ReflectionTestUtils.setField(notificationService, "coalesceWindowSeconds", seconds);
+        try {
+            action.run();
+        } finally {
+            ReflectionTestUtils.setField(notificationService, "coalesceWindowSeconds", previous);
+        }
+    }
+
+    private List<Map<String, Object>> queuedRows(User user, String type) {
+        return jdbcTemplate.queryForList("""
+                SELECT dedup_key, status, message, (metadata ->> 'coalescedCount')::int AS coalesced_count,
+                       next_retry_at > CURRENT_TIMESTAMP AS held
+                FROM notification_queue
+                WHERE user_id = ? AND notification_type = ?
+                ORDER BY queue_id
+                """, user.getUserId(), type);
+    }
+
+    private String sendVia(User user, String type) {
+        return jdbcTemplate.queryForObject("""
+                SELECT array_to_string(ARRAY(SELECT unnest(send_via) ORDER BY 1), ',')
+                FROM notification_queue
+                WHERE user_id = ? AND notification_type = ?
+                """, String.class, user.getUserId(), type);
+    }
+
     private Shipment createTestShipment() {
         User user = new User();
         user.setEmail("notif_test_" + UUID.randomUUID() + "@example.com");
@@ -98,6 +254,6 @@ public class NotificationServiceIntegrationTest {
         shipment.setPaymentStatus("unpaid");
         shipment.setShipmentStatus("pending");
 
-        return shipmentRepository.save(shipment);
+        return shipmentRepository.saveAndFlush(shipment);
     }
 }
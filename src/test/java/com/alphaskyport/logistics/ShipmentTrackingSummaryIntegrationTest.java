@@ -0,0 +1,142 @@
+package com.alphaskyport.logistics;
+
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.iam.repository.UserRepository;
+import com.alphaskyport.logistics.model.Shipment;
+import com.alphaskyport.logistics.repository.ShipmentRepository;
+import com.alphaskyport.logistics.service.TrackingIngestionService;
+import com.alphaskyport.masterdata.model.Country;
+import com.alphaskyport.masterdata.model.FreightService;
+import com.alphaskyport.masterdata.repository.CountryRepository;
+import com.alphaskyport.masterdata.repository.FreightServiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The tracking summary read model is maintained by triggers on shipments and
+ * shipment_tracking_events; the public tracking endpoint serves it as is.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ShipmentTrackingSummaryIntegrationTest {
+
+    @Autowired
+    private TrackingIngestionService ingestionService;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CountryRepository countryRepository;
+
+    @Autowired
+    private FreightServiceRepository freightServiceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional
+    public void testSummary_CreatedWithShipment() {
+        Shipment shipment = createTestShipment();
+
+        Map<String, Object> summary = summary(shipment);
+        assertEquals(shipment.getShipmentId(), summary.get("shipment_id"));
+        assertEquals("pending", summary.get("current_status"));
+        assertEquals("FR", summary.get("origin_country_code"));
+        assertNull(summary.get("last_event_at"));
+    }
+
+    @Test
+    @Transactional
+    public void testSummary_TracksNewestEventAndStatus() throws IOException {
+        Shipment shipment = createTestShipment();
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(3);
+
+        ingest(event(shipment.getTrackingNumber(), "picked_up", "Lyon", "SUM-1", base),
+                event(shipment.getTrackingNumber(), "in_transit", "Paris", "SUM-2", base.plusHours(2)));
+
+        Map<String, Object> summary = summary(shipment);
+        assertEquals("in_transit", summary.get("current_status"));
+        assertEquals("in_transit", summary.get("last_event_status"));
+        assertEquals("Paris", summary.get("last_location"));
+        assertEquals(Timestamp.valueOf(base.plusHours(2)), summary.get("last_event_at"));
+    }
+
+    @Test
+    @Transactional
+    public void testSummary_LateEventDoesNotReplaceLastEvent() throws IOException {
+        Shipment shipment = createTestShipment();
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(3);
+
+        ingest(event(shipment.getTrackingNumber(), "in_transit", "Paris", "SUM-10", base.plusHours(2)));
+        ingest(event(shipment.getTrackingNumber(), "picked_up", "Lyon", "SUM-11", base));
+
+        Map<String, Object> summary = summary(shipment);
+        assertEquals("in_transit", summary.get("last_event_status"));
+        assertEquals("Paris", summary.get("last_location"));
+    }
+
+    private void ingest(String... lines) throws IOException {
+        byte[] body = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+        ingestionService.ingest(new ByteArrayInputStream(body));
+    }
+
+    private static String event(String trackingNumber, String status, String location, String externalEventId,
+            LocalDateTime timestamp) {
+        return "{\"trackingNumber\":\"" + trackingNumber + "\",\"status\":\"" + status
+                + "\",\"location\":\"" + location + "\",\"countryCode\":\"FR\",\"timestamp\":\"" + timestamp
+                + "\",\"source\":\"carrier\",\"externalEventId\":\"" + externalEventId + "\"}";
+    }
+
+    private Map<String, Object> summary(Shipment shipment) {
+        return jdbcTemplate.queryForMap("SELECT * FROM shipment_tracking_summary WHERE tracking_number = ?",
+                shipment.getTrackingNumber());
+    }
+
+    private Shipment createTestShipment() {
+        User user = new User();
+        user.setEmail("summary_test_" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user.setUserType("private");
+        user = userRepository.save(user);
+
+        Country country = new Country();
+        country.setCountryCode("FR");
+        country.setCountryName("France");
+        country = countryRepository.save(country);
+
+        FreightService service = new FreightService();
+        service.setServiceName("Standard");
+        service.setServiceType("land");
+        service = freightServiceRepository.save(service);
+
+        Shipment shipment = new Shipment();
+        shipment.setTrackingNumber("SUM-" + UUID.randomUUID());
+        shipment.setUser(user);
+        shipment.setService(service);
+        shipment.setOriginCountry(country);
+        shipment.setDestinationCountry(country);
+
+        // The summary row is written by the insert trigger, so flush before reading it
+        return shipmentRepository.saveAndFlush(shipment);
+    }
+}
@@ -0,0 +1,192 @@
+package com.alphaskyport.logistics;
+
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.iam.repository.UserRepository;
+import com.alphaskyport.logistics.model.Shipment;
+import com.alphaskyport.logistics.repository.ShipmentRepository;
+import com.alphaskyport.logistics.service.TrackingIngestionService;
+import com.alphaskyport.logistics.service.TrackingIngestionService.IngestionResult;
+import com.alphaskyport.masterdata.model.Country;
+import com.alphaskyport.masterdata.model.FreightService;
+import com.alphaskyport.masterdata.repository.CountryRepository;
+import com.alphaskyport.masterdata.repository.FreightServiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class TrackingIngestionServiceIntegrationTest {
+
+    @Autowired
+    private TrackingIngestionService ingestionService;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CountryRepository countryRepository;
+
+    @Autowired
+    private FreightServiceRepository freightServiceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional
+    public void testIngest_InsertsBatchAndAdvancesStatus() throws IOException {
+        Shipment shipment = createTestShipment();
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(2);
+
+        IngestionResult result = ingest(
+                event(shipment.getTrackingNumber(), "picked_up", "EXT-1", base),
+                event(shipment.getTrackingNumber(), "in_transit", "EXT-2", base.plusHours(1)),
+                event("UNKNOWN-" + UUID.randomUUID(), "in_transit", "EXT-3", base),
+                "{not json",
+                "{\"status\":\"in_transit\"}");
+
+        assertEquals(5, result.getReceived());
+        assertEquals(2, result.getInserted());
+        assertEquals(1, result.getUnknownShipments());
+        assertEquals(2, result.getRejected());
+        assertEquals(0, result.getDuplicates());
+        assertEquals(1, result.getShipmentsUpdated());
+        assertEquals(2, countEvents(shipment));
+        assertEquals("in_transit", currentStatus(shipment));
+    }
+
+    @Test
+    @Transactional
+    public void testIngest_DeduplicatesByExternalEventId() throws IOException {
+        Shipment shipment = createTestShipment();
+        LocalDateTime timestamp = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(1);
+        String line = event(shipment.getTrackingNumber(), "picked_up", "EXT-DUP", timestamp);
+
+        // Repeated within one chunk and then redelivered in a later feed
+        IngestionResult first = ingest(line, line);
+        IngestionResult second = ingest(line);
+
+        assertEquals(1, first.getInserted());
+        assertEquals(1, first.getDuplicates());
+        assertEquals(0, second.getInserted());
+        assertEquals(1, second.getDuplicates());
+        assertEquals(0, second.getShipmentsUpdated());
+        assertEquals(1, countEvents(shipment));
+    }
+
+    @Test
+    @Transactional
+    public void testIngest_IgnoresOlderEventsAndTerminalStatuses() throws IOException {
+        Shipment shipment = createTestShipment();
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(3);
+
+        ingest(event(shipment.getTrackingNumber(), "delivered", "EXT-10", base.plusHours(2)));
+        assertEquals("delivered", currentStatus(shipment));
+
+        // A late scan is recorded but neither rewinds nor reopens a delivered shipment
+        IngestionResult late = ingest(
+                event(shipment.getTrackingNumber(), "in_transit", "EXT-11", base.plusHours(1)),
+                event(shipment.getTrackingNumber(), "exception", "EXT-12", base.plusHours(3)));
+
+        assertEquals(2, late.getInserted());
+        assertEquals(0, late.getShipmentsUpdated());
+        assertEquals("delivered", currentStatus(shipment));
+    }
+
+    @Test
+    @Transactional
+    public void testIngest_LaggingOutOfOrderFeedAdvancesAcrossChunks() throws IOException {
+        Shipment shipment = createTestShipment();
+        String tracking = shipment.getTrackingNumber();
+        // Every event predates the wall-clock time at which its chunk changes the status
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusDays(2);
+
+        ReflectionTestUtils.setField(ingestionService, "chunkSize", 2);
+        IngestionResult result;
+        try {
+            result = ingest(
+                    event(tracking, "in_transit", "EXT-20", base.plusHours(2)),
+                    event(tracking, "picked_up", "EXT-21", base.plusHours(1)),
+                    event(tracking, "customs_clearance", "EXT-22", base.plusHours(4)),
+                    event(tracking, "out_for_delivery", "EXT-23", base.plusHours(3)),
+                    event(tracking, "confirmed", "EXT-24", base));
+        } finally {
+            ReflectionTestUtils.setField(ingestionService, "chunkSize", 1000);
+        }
+
+        assertEquals(3, result.getChunks());
+        assertEquals(5, result.getInserted());
+        assertEquals(2, result.getShipmentsUpdated());
+        assertEquals(5, countEvents(shipment));
+        assertEquals("customs_clearance", currentStatus(shipment));
+    }
+
+    private IngestionResult ingest(String... lines) throws IOException {
+        byte[] body = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+        return ingestionService.ingest(new ByteArrayInputStream(body));
+    }
+
+    private static String event(String trackingNumber, String status, String externalEventId,
+            LocalDateTime timestamp) {
+        return "{\"trackingNumber\":\"" + trackingNumber + "\",\"status\":\"" + status
+                + "\",\"location\":\"Paris\",\"countryCode\":\"FR\",\"timestamp\":\"" + timestamp
+                + "\",\"source\":\"carrier\",\"externalEventId\":\"" + externalEventId + "\"}";
+    }
+
+    private long countEvents(Shipment shipment) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM shipment_tracking_events WHERE shipment_id = ?", Long.class,
+                shipment.getShipmentId());
+        return count != null ? count : 0;
+    }
+
+    private String currentStatus(Shipment shipment) {
+        return jdbcTemplate.queryForObject("SELECT shipment_status FROM shipments WHERE shipment_id = ?",
+                String.class, shipment.getShipmentId());
+    }
+
+    private Shipment createTestShipment() {
+        User user = new User();
+        user.setEmail("ingest_test_" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user.setUserType("private");
+        user = userRepository.save(user);
+
+        Country country = new Country();
+        country.setCountryCode("FR");
+        country.setCountryName("France");
+        country = countryRepository.save(country);
+
+        FreightService service = new FreightService();
+        service.setServiceName("Standard");
+        service.setServiceType("land");
+        service = freightServiceRepository.save(service);
+
+        Shipment shipment = new Shipment();
+        shipment.setTrackingNumber("TRK-" + UUID.randomUUID());
+        shipment.setUser(user);
+        shipment.setService(service);
+        shipment.setOriginCountry(country);
+        shipment.setDestinationCountry(country);
+
+        // Ingestion writes through JDBC, so the shipment must reach the database first
+        return shipmentRepository.saveAndFlush(shipment);
+    }
+}
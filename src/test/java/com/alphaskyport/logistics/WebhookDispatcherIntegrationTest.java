@@ -0,0 +1,205 @@
+package com.alphaskyport.logistics;
+
+import com.alphaskyport.iam.model.User;
+import com.alphaskyport.iam.repository.UserRepository;
+import com.alphaskyport.logistics.service.WebhookDispatcher;
+import com.alphaskyport.logistics.webhook.WebhookSigner;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives WebhookDispatcher against a local receiver. The background workers
+ * are disabled so each test claims explicitly; requests complete on their
+ * own threads, so tests wait for the dispatcher to drain.
+ */
+@SpringBootTest(properties = {
+        "logistics.webhooks.dispatcher.enabled=false",
+        "logistics.webhooks.allow-http=true",
+        "logistics.webhooks.allow-private-addresses=true"
+})
+@ActiveProfiles("test")
+public class WebhookDispatcherIntegrationTest {
+
+    private static final String SECRET = "whsec_dispatcher_test";
+
+    @Autowired
+    private WebhookDispatcher dispatcher;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentLinkedQueue<String> received = new ConcurrentLinkedQueue<>();
+    private HttpServer server;
+    private User user;
+
+    @BeforeEach
+    public void startReceiver() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/fast", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String signature = exchange.getRequestHeaders().getFirst(WebhookSigner.SIGNATURE_HEADER);
+            boolean valid = WebhookSigner.verify(SECRET, signature, body, System.currentTimeMillis() / 1000, 300);
+            received.add("fast:" + exchange.getRequestHeaders().getFirst(WebhookSigner.EVENT_COUNT_HEADER));
+            exchange.sendResponseHeaders(valid ? 204 : 401, -1);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add("slow");
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.createContext("/gone", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(410, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        user = new User();
+        user.setEmail("webhook_test_" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user.setUserType("private");
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    public void stopReceiver() throws InterruptedException {
+        awaitDrained(10);
+        server.stop(0);
+        // Cascades to the subscriptions, deliveries and dead letters created here
+        jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", user.getUserId());
+    }
+
+    @Test
+    public void testDispatch_BatchesPerSubscriptionAndDelivers() throws InterruptedException {
+        UUID subscription = subscribe("/fast", 4, 2);
+        List<Long> deliveries = enqueue(subscription, 5);
+
+        assertTrue(dispatcher.dispatchBatch() >= 5);
+        awaitDrained(10);
+
+        for (long deliveryId : deliveries) {
+            assertEquals("delivered", status(deliveryId));
+        }
+        List<String> requests = received.stream().filter(r -> r.startsWith("fast:")).sorted().toList();
+        assertEquals(List.of("fast:1", "fast:2", "fast:2"), requests);
+    }
+
+    @Test
+    public void testDispatch_SlowEndpointHoldsOnlyItsOwnLeases() throws InterruptedException {
+        UUID slow = subscribe("/slow", 1, 1);
+        List<Long> slowDeliveries = enqueue(slow, 5);
+        UUID fast = subscribe("/fast", 4, 50);
+        List<Long> fastDeliveries = enqueue(fast, 3);
+
+        long started = System.nanoTime();
+        dispatcher.dispatchBatch();
+        // The worker hands requests off instead of waiting for the slow endpoint
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1500);
+
+        // One request of one event is all the slow subscription may have leased
+        assertEquals(1, count(slowDeliveries, "processing"));
+        assertEquals(4, count(slowDeliveries, "pending"));
+
+        waitFor(() -> count(fastDeliveries, "delivered") == 3, 1500);
+        assertEquals(1, count(slowDeliveries, "processing"));
+
+        // A second claim while the slow request is in flight takes nothing more from it
+        dispatcher.dispatchBatch();
+        assertEquals(4, count(slowDeliveries, "pending"));
+
+        awaitDrained(10);
+        assertEquals(1, count(slowDeliveries, "delivered"));
+        assertEquals(4, count(slowDeliveries, "pending"));
+    }
+
+    @Test
+    public void testDispatch_NonRetryableStatusMovesToDeadLetters() throws InterruptedException {
+        UUID subscription = subscribe("/gone", 4, 50);
+        List<Long> deliveries = enqueue(subscription, 2);
+
+        dispatcher.dispatchBatch();
+        awaitDrained(10);
+
+        for (long deliveryId : deliveries) {
+            assertNull(status(deliveryId));
+        }
+        Integer deadLetters = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM webhook_dead_letters
+                WHERE subscription_id = ? AND last_status_code = 410
+                """, Integer.class, subscription);
+        assertEquals(2, deadLetters);
+    }
+
+    private UUID subscribe(String path, int maxConcurrency, int maxBatchSize) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO webhook_subscriptions (user_id, url, secret, max_concurrency, max_batch_size)
+                VALUES (?, ?, ?, ?, ?)
+                RETURNING subscription_id
+                """, UUID.class, user.getUserId(), "http://127.0.0.1:" + server.getAddress().getPort() + path,
+                SECRET, maxConcurrency, maxBatchSize);
+    }
+
+    private List<Long> enqueue(UUID subscription, int count) {
+        return jdbcTemplate.queryForList("""
+                INSERT INTO webhook_deliveries (subscription_id, event_id, event_type, payload, next_attempt_at)
+                SELECT ?, gen_random_uuid(), 'shipment.updated', '{"type":"shipment.updated"}'::jsonb,
+                       CURRENT_TIMESTAMP - make_interval(secs => 60 - n)
+                FROM generate_series(1, ?) AS n
+                RETURNING delivery_id
+                """, Long.class, subscription, count);
+    }
+
+    private String status(long deliveryId) {
+        List<String> status = jdbcTemplate.queryForList(
+                "SELECT status FROM webhook_deliveries WHERE delivery_id = ?", String.class, deliveryId);
+        return status.isEmpty() ? null : status.get(0);
+    }
+
+    private long count(List<Long> deliveryIds, String status) {
+        return deliveryIds.stream().filter(id -> status.equals(status(id))).count();
+    }
+
+    private void awaitDrained(int seconds) throws InterruptedException {
+        waitFor(() -> dispatcher.getInFlight() == 0, seconds * 1000L);
+    }
+
+    private static void waitFor(BooleanSupplier condition, long timeoutMs)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out after " + timeoutMs + " ms");
+            }
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.alphaskyport.logistics.archive;
+
+import com.alphaskyport.logistics.archive.TrackingArchiveFormat.ArchiveSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrackingArchiveRoundTripTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRoundTrip_FindByShipmentAcrossRowGroups() throws Exception {
+        List<UUID> shipments = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            shipments.add(UUID.randomUUID());
+        }
+        // Include ids with the sign bit set to exercise unsigned ordering
+        shipments.add(UUID.fromString("ffffffff-0000-0000-0000-000000000001"));
+        shipments.add(UUID.fromString("80000000-0000-0000-0000-000000000001"));
+        shipments.sort(TrackingArchiveFormat::compareUnsigned);
+
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        Path file = tempDir.resolve("shipment_tracking_events_2025_01.stea");
+        long eventId = 1;
+        ArchiveSummary summary;
+        try (TrackingArchiveWriter writer = new TrackingArchiveWriter(file, 7)) {
+            for (UUID shipment : shipments) {
+                for (int e = 0; e < 5; e++) {
+                    writer.append(ArchivedTrackingEvent.builder()
+                            .eventId(eventId++)
+                            .shipmentId(shipment)
+                            .eventStatus("in_transit")
+                            .eventLocation(e % 2 == 0 ? "Port of Hamburg" : null)
+                            .eventCountryId(e % 2 == 0 ? 42 : null)
+                            .eventDescription("Leg " + e)
+                            .latitude(new BigDecimal("53.54611100"))
+                            .longitude(e % 2 == 0 ? new BigDecimal("-9.99366700") : null)
+                            .eventTimestamp(base.plusMinutes(e).plusNanos(123_000))
+                            .eventSource("gps")
+                            .externalEventId(shipment + "-" + e)
+                            .build());
+                }
+            }
+            summary = writer.finish();
+        }
+
+        assertEquals(shipments.size() * 5L, summary.getRowCount());
+        assertEquals(shipments.get(0), summary.getMinShipmentId());
+        assertEquals(shipments.get(shipments.size() - 1), summary.getMaxShipmentId());
+        assertEquals(Files.size(file), summary.getFileSize());
+        assertEquals(TrackingArchiveReader.sha256(file), summary.getSha256());
+
+        try (TrackingArchiveReader reader = new TrackingArchiveReader(file)) {
+            long[] totals = reader.scanTotals();
+            assertEquals(summary.getRowCount(), totals[0]);
+            assertEquals(summary.getEventIdSum(), totals[1]);
+
+            UUID target = UUID.fromString("80000000-0000-0000-0000-000000000001");
+            List<ArchivedTrackingEvent> found = reader.findByShipment(target);
+            assertEquals(5, found.size());
+            found.sort(Comparator.comparing(ArchivedTrackingEvent::getEventTimestamp));
+            ArchivedTrackingEvent first = found.get(0);
+            assertEquals(target, first.getShipmentId());
+            assertEquals("Port of Hamburg", first.getEventLocation());
+            assertEquals(Integer.valueOf(42), first.getEventCountryId());
+            assertEquals(new BigDecimal("-9.99366700"), first.getLongitude());
+            assertEquals(base.plusNanos(123_000), first.getEventTimestamp());
+            assertNull(found.get(1).getEventLocation());
+            assertNull(found.get(1).getLongitude());
+
+            assertTrue(reader.findByShipment(UUID.fromString("00000000-0000-0000-0000-000000000000")).isEmpty());
+        }
+    }
+
+    @Test
+    public void testAppend_RejectsUnsortedInput() throws Exception {
+        Path file = tempDir.resolve("unsorted.stea");
+        try (TrackingArchiveWriter writer = new TrackingArchiveWriter(file, 10)) {
+            writer.append(ArchivedTrackingEvent.builder().eventId(1)
+                    .shipmentId(UUID.fromString("ffffffff-0000-0000-0000-000000000000"))
+                    .eventTimestamp(LocalDateTime.now()).build());
+            assertThrows(IllegalStateException.class, () -> writer.append(ArchivedTrackingEvent.builder().eventId(2)
+                    .shipmentId(UUID.fromString("00000000-0000-0000-0000-000000000001"))
+                    .eventTimestamp(LocalDateTime.now()).build()));
+        }
+    }
+}
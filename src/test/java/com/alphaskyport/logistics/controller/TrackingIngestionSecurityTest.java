@@ -0,0 +1,83 @@
+package com.alphaskyport.logistics.controller;
+
+import com.alphaskyport.admin.repository.AdminUserRepository;
+import com.alphaskyport.admin.security.AdminSecurityConfig;
+import com.alphaskyport.admin.security.JwtAuthenticationFilter;
+import com.alphaskyport.admin.security.JwtTokenProvider;
+import com.alphaskyport.config.CarrierApiKeyFilter;
+import com.alphaskyport.config.PublicSecurityConfig;
+import com.alphaskyport.logistics.service.TrackingIngestionService;
+import com.alphaskyport.logistics.service.TrackingIngestionService.IngestionResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.InputStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The bulk ingestion endpoint writes tracking rows and moves shipment
+ * statuses, so it must refuse requests without a carrier key or admin token.
+ */
+@WebMvcTest(properties = "logistics.tracking.ingest.api-keys=acme=test-key")
+@ContextConfiguration(classes = { TrackingIngestionController.class, PublicSecurityConfig.class,
+        AdminSecurityConfig.class, JwtAuthenticationFilter.class })
+public class TrackingIngestionSecurityTest {
+
+    private static final String BODY = "{\"trackingNumber\":\"T-1\",\"status\":\"in_transit\"}\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TrackingIngestionService ingestionService;
+
+    @MockBean
+    private JwtTokenProvider tokenProvider;
+
+    @MockBean
+    private AdminUserRepository adminUserRepository;
+
+    @Test
+    public void rejectsAnonymousRequest() throws Exception {
+        mockMvc.perform(post("/api/tracking/events/bulk")
+                .contentType("application/x-ndjson")
+                .content(BODY))
+                .andExpect(status().isUnauthorized());
+
+        verify(ingestionService, never()).ingest(any());
+    }
+
+    @Test
+    public void rejectsUnknownApiKey() throws Exception {
+        mockMvc.perform(post("/api/tracking/events/bulk")
+                .header(CarrierApiKeyFilter.HEADER, "wrong-key")
+                .contentType("application/x-ndjson")
+                .content(BODY))
+                .andExpect(status().isUnauthorized());
+
+        verify(ingestionService, never()).ingest(any());
+    }
+
+    @Test
+    public void acceptsCarrierApiKey() throws Exception {
+        when(ingestionService.ingest(any(InputStream.class))).thenReturn(new IngestionResult());
+
+        mockMvc.perform(post("/api/tracking/events/bulk")
+                .header(CarrierApiKeyFilter.HEADER, "test-key")
+                .contentType("application/x-ndjson")
+                .content(BODY))
+                .andExpect(status().isOk());
+
+        verify(ingestionService).ingest(any(InputStream.class));
+    }
+}
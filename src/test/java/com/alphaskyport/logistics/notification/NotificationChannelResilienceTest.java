@@ -0,0 +1,139 @@
+package com.alphaskyport.logistics.notification;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotificationChannelResilienceTest {
+
+    @Test
+    public void testTokenBucket_RefillsAtConfiguredRate() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(10, 5, now::get);
+
+        assertTrue(bucket.tryAcquire(5));
+        assertFalse(bucket.tryAcquire(1));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+
+        // A batch larger than the burst is admitted after paying off the deficit
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, bucket.reserve(5));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(300), bucket.reserve(3), TimeUnit.MICROSECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testCircuitBreaker_OpensAndRecoversThroughSingleTrial() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofSeconds(30), now::get);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testBulkhead_SlowChannelDoesNotStarveOthers() throws Exception {
+        RecordingProvider slowSms = new RecordingProvider(1, 500);
+        RecordingProvider email = new RecordingProvider(50, 0);
+        BulkheadedNotificationChannel.Settings smsSettings = BulkheadedNotificationChannel.Settings.builder()
+                .concurrency(1).queueCapacity(2).permitsPerSecond(1000).burst(1000).maxBatchSize(1).build();
+        BulkheadedNotificationChannel.Settings emailSettings = BulkheadedNotificationChannel.Settings.builder()
+                .concurrency(2).queueCapacity(1000).permitsPerSecond(100_000).burst(100_000).maxBatchSize(50).build();
+
+        try (BulkheadedNotificationChannel sms = new BulkheadedNotificationChannel("sms", slowSms, smsSettings);
+                BulkheadedNotificationChannel mail = new BulkheadedNotificationChannel("email", email, emailSettings)) {
+            List<CompletableFuture<Void>> smsSends = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                smsSends.add(sms.sendAsync(message(i)));
+            }
+
+            long start = System.nanoTime();
+            List<CompletableFuture<Void>> emailSends = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                emailSends.add(mail.sendAsync(message(i)));
+            }
+            CompletableFuture.allOf(emailSends.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500,
+                    "email sends should not wait for the slow sms provider");
+            assertEquals(500, email.messages.get());
+            assertTrue(email.calls.get() < 500, "email sends should be batched");
+
+            long rejected = smsSends.stream().filter(f -> {
+                try {
+                    f.get(0, TimeUnit.MILLISECONDS);
+                    return false;
+                } catch (ExecutionException e) {
+                    return e.getCause() instanceof NotificationDeliveryException;
+                } catch (Exception e) {
+                    return false;
+                }
+            }).count();
+            assertTrue(rejected >= 7, "sms bulkhead should reject sends beyond its queue, rejected " + rejected);
+        }
+    }
+
+    private static NotificationMessage message(long id) {
+        return new NotificationMessage(id, null, null, "TEST", "title", "body", null,
+                List.of("email"), List.of(), 1, 3);
+    }
+
+    private static class RecordingProvider implements NotificationProvider {
+        final int maxBatchSize;
+        final long latencyMs;
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger messages = new AtomicInteger();
+
+        RecordingProvider(int maxBatchSize, long latencyMs) {
+            this.maxBatchSize = maxBatchSize;
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        @Override
+        public Map<Long, NotificationDeliveryException> send(List<NotificationMessage> batch) {
+            if (latencyMs > 0) {
+                try {
+                    Thread.sleep(latencyMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            calls.incrementAndGet();
+            messages.addAndGet(batch.size());
+            return Map.of();
+        }
+    }
+}
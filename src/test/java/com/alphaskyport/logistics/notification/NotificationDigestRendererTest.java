@@ -0,0 +1,61 @@
+package com.alphaskyport.logistics.notification;
+
+import com.alphaskyport.logistics.notification.NotificationDigestRenderer.DigestEntry;
+import com.alphaskyport.logistics.notification.NotificationDigestRenderer.RenderedDigest;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotificationDigestRendererTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 1, 8, 0);
+
+    @Test
+    public void testRender_CollapsesUpdatesPerShipmentToLatest() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        List<DigestEntry> entries = List.of(
+                entry(1, first, "SHP-1 is in transit"),
+                entry(2, second, "SHP-2 was picked up"),
+                entry(3, first, "SHP-1 was delivered"));
+
+        RenderedDigest digest = new NotificationDigestRenderer(10).render(entries, "daily");
+
+        assertEquals("Daily shipment digest: 3 updates", digest.getTitle());
+        assertEquals("- SHP-1 was delivered (2 updates)\n- SHP-2 was picked up", digest.getMessage());
+    }
+
+    @Test
+    public void testRender_CapsLinesAndSummarizesRemainder() {
+        List<DigestEntry> entries = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            entries.add(entry(i, UUID.randomUUID(), "update " + i));
+        }
+
+        RenderedDigest digest = new NotificationDigestRenderer(2).render(entries, "hourly");
+
+        assertEquals("Hourly shipment digest: 5 updates", digest.getTitle());
+        assertEquals("- update 5\n- update 4\n...and 3 more", digest.getMessage());
+    }
+
+    @Test
+    public void testRender_KeepsEntriesWithoutShipmentSeparate() {
+        List<DigestEntry> entries = List.of(
+                entry(1, null, "invoice issued"),
+                entry(2, null, "payment received"));
+
+        RenderedDigest digest = new NotificationDigestRenderer(10).render(entries, "daily");
+
+        assertEquals("- payment received\n- invoice issued", digest.getMessage());
+    }
+
+    private DigestEntry entry(long id, UUID shipmentId, String message) {
+        return new DigestEntry(id, shipmentId, "SHIPMENT_STATUS_UPDATE", "Status update", message,
+                NOW.plusMinutes(id));
+    }
+}
@@ -0,0 +1,48 @@
+package com.alphaskyport.logistics.notification;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RetryBackoffTest {
+
+    private final RetryBackoff backoff = new RetryBackoff(Duration.ofSeconds(30), Duration.ofHours(1));
+
+    @Test
+    public void testCeiling_DoublesUntilCapped() {
+        assertEquals(30_000, backoff.ceilingMillis(1));
+        assertEquals(60_000, backoff.ceilingMillis(2));
+        assertEquals(240_000, backoff.ceilingMillis(4));
+        assertEquals(3_600_000, backoff.ceilingMillis(10));
+        assertEquals(3_600_000, backoff.ceilingMillis(500));
+    }
+
+    @Test
+    public void testDelay_StaysWithinJitterBounds() {
+        for (int attempt = 1; attempt <= 12; attempt++) {
+            long ceiling = backoff.ceilingMillis(attempt);
+            for (int i = 0; i < 200; i++) {
+                long delay = backoff.delayMillis(attempt);
+                assertTrue(delay >= ceiling / 2 && delay <= ceiling,
+                        "attempt " + attempt + " delay " + delay + " outside [" + ceiling / 2 + ", " + ceiling + "]");
+            }
+        }
+    }
+
+    @Test
+    public void testStubChannel_FailsRequestedNumberOfSends() {
+        StubNotificationChannel channel = new StubNotificationChannel("email");
+        channel.failNext(2, false);
+        NotificationMessage message = new NotificationMessage(1L, null, null, "TEST", "t", "m", null,
+                List.of("email"), List.of(), 1, 3);
+
+        NotificationDeliveryException e = assertThrows(NotificationDeliveryException.class, () -> channel.send(message));
+        assertFalse(e.isRetryable());
+        assertThrows(NotificationDeliveryException.class, () -> channel.send(message));
+        channel.send(message);
+        assertEquals(1, channel.getSent().size());
+    }
+}
@@ -0,0 +1,183 @@
+package com.alphaskyport.logistics.payment;
+
+import com.alphaskyport.logistics.payment.PaymentIdempotencyGuard.CachedPayment;
+import com.alphaskyport.logistics.payment.PaymentIdempotencyGuard.Lease;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Replay and conflict behaviour of the guard against a map standing in for
+ * Redis; the claim scripts are interpreted by their compare-and-set meaning.
+ */
+public class PaymentIdempotencyGuardTest {
+
+    private static final String KEY = "order-42";
+    private static final String REDIS_KEY = "payments:idempotency:" + KEY;
+
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+    private StringRedisTemplate redisTemplate;
+    private PaymentIdempotencyGuard guard;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenAnswer(inv -> redis.get(inv.<String>getArgument(0)));
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenAnswer(inv -> redis.putIfAbsent(inv.getArgument(0), inv.getArgument(1)) == null);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            String key = inv.<List<String>>getArgument(1).get(0);
+            Object[] args = inv.getArguments();
+            String token = (String) args[2];
+            if (args.length > 3) {
+                return redis.replace(key, token, (String) args[3]) ? 1L : 0L;
+            }
+            return redis.remove(key, token) ? 1L : 0L;
+        });
+
+        guard = new PaymentIdempotencyGuard(redisTemplate, new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(guard, "inFlightTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(guard, "resultTtl", Duration.ofHours(24));
+        ReflectionTestUtils.setField(guard, "waitTimeout", Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testAcquire_ReplaysPublishedResult() {
+        Lease first = guard.acquire(KEY);
+        assertTrue(first.getCompleted().isEmpty());
+        assertTrue(redis.get(REDIS_KEY).startsWith("in-flight:"));
+
+        guard.complete(first, result("completed"));
+
+        Lease retry = guard.acquire(KEY);
+        assertEquals("completed", retry.getCompleted().orElseThrow().getTransactionStatus());
+        assertEquals("completed", guard.findCompleted(KEY).orElseThrow().getTransactionStatus());
+    }
+
+    @Test
+    public void testAcquire_DuplicateWaitsForOwnerAndReplays() throws Exception {
+        Lease owner = guard.acquire(KEY);
+        CompletableFuture<Lease> duplicate = CompletableFuture.supplyAsync(() -> guard.acquire(KEY));
+
+        Thread.sleep(100);
+        assertFalse(duplicate.isDone());
+        assertTrue(guard.findCompleted(KEY).isEmpty());
+
+        guard.complete(owner, result("completed"));
+        Lease replayed = duplicate.get(2, TimeUnit.SECONDS);
+        assertEquals("completed", replayed.getCompleted().orElseThrow().getTransactionStatus());
+    }
+
+    @Test
+    public void testAcquire_ConflictsWhileOwnerStillProcessing() {
+        ReflectionTestUtils.setField(guard, "waitTimeout", Duration.ofMillis(100));
+        guard.acquire(KEY);
+
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class, () -> guard.acquire(KEY));
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+    }
+
+    @Test
+    public void testAcquire_TakesOverReleasedClaim() throws Exception {
+        Lease owner = guard.acquire(KEY);
+        String ownerToken = redis.get(REDIS_KEY);
+        CompletableFuture<Lease> duplicate = CompletableFuture.supplyAsync(() -> guard.acquire(KEY));
+
+        Thread.sleep(50);
+        guard.release(owner);
+        Lease takeover = duplicate.get(2, TimeUnit.SECONDS);
+        assertTrue(takeover.getCompleted().isEmpty());
+        assertNotEquals(ownerToken, redis.get(REDIS_KEY));
+
+        // The old owner can neither release nor overwrite the new claim
+        guard.release(owner);
+        guard.complete(owner, result("completed"));
+        assertTrue(redis.get(REDIS_KEY).startsWith("in-flight:"));
+    }
+
+    @Test
+    public void testComplete_RollbackReleasesClaim() {
+        TransactionSynchronizationManager.initSynchronization();
+        Lease lease = guard.acquire(KEY);
+        guard.complete(lease, result("completed"));
+        assertTrue(redis.get(REDIS_KEY).startsWith("in-flight:"));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertNull(redis.get(REDIS_KEY));
+        assertTrue(guard.acquire(KEY).getCompleted().isEmpty());
+    }
+
+    @Test
+    public void testAcquire_ReentrantWithinOwnTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        guard.acquire(KEY);
+
+        // A nested call in the same transaction must not wait on its own claim
+        Lease nested = guard.acquire(KEY);
+        assertTrue(nested.getCompleted().isEmpty());
+    }
+
+    @Test
+    public void testPublish_NeverOverwritesClaimOrResult() {
+        guard.acquire(KEY);
+        guard.publish(KEY, result("failed"));
+        assertTrue(redis.get(REDIS_KEY).startsWith("in-flight:"));
+
+        redis.clear();
+        guard.publish(KEY, result("completed"));
+        guard.publish(KEY, result("failed"));
+        assertEquals("completed", guard.findCompleted(KEY).orElseThrow().getTransactionStatus());
+    }
+
+    @Test
+    public void testAcquire_RunsUnguardedWhenRedisIsDown() {
+        when(redisTemplate.opsForValue()).thenThrow(new QueryTimeoutException("Redis down"));
+
+        assertTrue(guard.acquire(KEY).getCompleted().isEmpty());
+        assertTrue(guard.findCompleted(KEY).isEmpty());
+    }
+
+    private static CachedPayment result(String status) {
+        return new CachedPayment(UUID.randomUUID(), UUID.randomUUID(), KEY, new BigDecimal("100.00"), "EUR",
+                "payment", "card", status, null, LocalDateTime.now(), LocalDateTime.now());
+    }
+}
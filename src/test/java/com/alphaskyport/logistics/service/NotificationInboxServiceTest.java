@@ -0,0 +1,173 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.event.NotificationInboxChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unread counter seeding and deltas against an in-memory stand-in for the two
+ * Redis scripts. The database count is stubbed so deltas can be interleaved
+ * with a rebuild at the exact point a concurrent commit would land.
+ */
+public class NotificationInboxServiceTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final String counterKey = "notifications:unread:" + userId;
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+    private final AtomicLong unreadInDatabase = new AtomicLong();
+
+    private JdbcTemplate jdbcTemplate;
+    private NotificationInboxService inboxService;
+    private Runnable duringCount = () -> {
+    };
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenAnswer(inv -> inv.<List<String>>getArgument(0).stream()
+                .map(redis::get)
+                .toList());
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            RedisScript<Long> script = inv.getArgument(0);
+            List<String> keys = inv.getArgument(1);
+            Object[] args = inv.getArguments();
+            return script.getScriptAsString().contains("INCRBY")
+                    ? applyDelta(keys.get(0), keys.get(1), Long.parseLong((String) args[2]))
+                    : seedIfCurrent(keys.get(0), keys.get(1), (String) args[2], (String) args[3]);
+        });
+
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(Object[].class))).thenAnswer(inv -> {
+            long count = unreadInDatabase.get();
+            duringCount.run();
+            return count;
+        });
+
+        // Deltas are applied as they would be after commit
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        doAnswer(inv -> {
+            inboxService.onInboxChanged(inv.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(NotificationInboxChangedEvent.class));
+
+        inboxService = new NotificationInboxService(jdbcTemplate, redisTemplate, eventPublisher);
+        ReflectionTestUtils.setField(inboxService, "counterTtl", Duration.ofHours(1));
+    }
+
+    @Test
+    public void missSeedsCounterFromDatabase() {
+        unreadInDatabase.set(4);
+
+        assertEquals(4, inboxService.getUnreadCount(userId));
+        assertEquals("4", redis.get(counterKey));
+
+        // Served from Redis from now on
+        unreadInDatabase.set(99);
+        assertEquals(4, inboxService.getUnreadCount(userId));
+    }
+
+    @Test
+    public void deltaDuringRebuildIsNotLost() {
+        unreadInDatabase.set(4);
+        // A new notification commits after the count was taken but before the seed
+        duringCount = () -> {
+            unreadInDatabase.incrementAndGet();
+            inboxService.publishDelta(userId, 1);
+        };
+
+        assertEquals(4, inboxService.getUnreadCount(userId));
+        assertNull(redis.get(counterKey));
+
+        duringCount = () -> {
+        };
+        assertEquals(5, inboxService.getUnreadCount(userId));
+        assertEquals("5", redis.get(counterKey));
+    }
+
+    @Test
+    public void deltasAdjustSeededCounter() {
+        unreadInDatabase.set(2);
+        inboxService.getUnreadCount(userId);
+
+        inboxService.publishDelta(userId, 3);
+        assertEquals(5, inboxService.getUnreadCount(userId));
+
+        // A late decrement never drives the badge negative
+        inboxService.publishDelta(userId, -9);
+        assertEquals(0, inboxService.getUnreadCount(userId));
+    }
+
+    @Test
+    public void markReadPublishesNegativeDelta() {
+        unreadInDatabase.set(5);
+        inboxService.getUnreadCount(userId);
+        // One row newly marked in the live queue, one in history
+        when(jdbcTemplate.update(any(PreparedStatementCreator.class))).thenReturn(1);
+
+        assertEquals(2, inboxService.markRead(userId, List.of(11L, 12L, 13L)));
+        assertEquals(3, inboxService.getUnreadCount(userId));
+    }
+
+    @Test
+    public void markAllReadPublishesNegativeDelta() {
+        unreadInDatabase.set(5);
+        inboxService.getUnreadCount(userId);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(4, 1);
+
+        assertEquals(5, inboxService.markAllRead(userId));
+        assertEquals(0, inboxService.getUnreadCount(userId));
+    }
+
+    @Test
+    public void markReadWithNothingNewLeavesCounterAlone() {
+        unreadInDatabase.set(2);
+        inboxService.getUnreadCount(userId);
+        when(jdbcTemplate.update(any(PreparedStatementCreator.class))).thenReturn(0);
+
+        assertEquals(0, inboxService.markRead(userId, List.of(11L)));
+        assertEquals(2, inboxService.getUnreadCount(userId));
+        assertNull(redis.get("notifications:unread-generation:" + userId));
+    }
+
+    private long applyDelta(String key, String generationKey, long delta) {
+        redis.merge(generationKey, "1", (a, b) -> String.valueOf(Long.parseLong(a) + 1));
+        String current = redis.get(key);
+        if (current == null) {
+            return -1L;
+        }
+        long value = Math.max(0, Long.parseLong(current) + delta);
+        redis.put(key, String.valueOf(value));
+        return value;
+    }
+
+    private long seedIfCurrent(String key, String generationKey, String generation, String value) {
+        if (!redis.getOrDefault(generationKey, "0").equals(generation)) {
+            return 0L;
+        }
+        return redis.putIfAbsent(key, value) == null ? 1L : 0L;
+    }
+}
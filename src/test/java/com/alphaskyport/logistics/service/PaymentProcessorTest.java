@@ -0,0 +1,188 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.model.PaymentTransaction;
+import com.alphaskyport.logistics.model.Shipment;
+import com.alphaskyport.logistics.payment.GatewayRequest;
+import com.alphaskyport.logistics.payment.GatewayResult;
+import com.alphaskyport.logistics.payment.PaymentGateway;
+import com.alphaskyport.logistics.payment.PaymentGatewayException;
+import com.alphaskyport.logistics.payment.PaymentIdempotencyGuard;
+import com.alphaskyport.logistics.repository.PaymentTransactionRepository;
+import com.alphaskyport.logistics.repository.ShipmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Outcomes PaymentProcessor records for charges it cannot simply complete or
+ * fail: an approved charge the shipment can no longer take, and a gateway
+ * whose answer stays unknown.
+ */
+public class PaymentProcessorTest {
+
+    private static final UUID TRANSACTION_ID = UUID.randomUUID();
+
+    private PaymentTransactionRepository paymentTransactionRepository;
+    private ShipmentRepository shipmentRepository;
+    private PaymentGateway gateway;
+    private PaymentIdempotencyGuard idempotencyGuard;
+    private PaymentProcessor processor;
+    private PaymentTransaction transaction;
+    private Shipment shipment;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        paymentTransactionRepository = mock(PaymentTransactionRepository.class);
+        shipmentRepository = mock(ShipmentRepository.class);
+        gateway = mock(PaymentGateway.class);
+        idempotencyGuard = mock(PaymentIdempotencyGuard.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+        when(gateway.getName()).thenReturn("test");
+
+        shipment = new Shipment();
+        shipment.setShipmentId(UUID.randomUUID());
+        shipment.setTotalCost(new BigDecimal("100.00"));
+        shipment.setAmountPaid(new BigDecimal("80.00"));
+        shipment.setAmountDue(new BigDecimal("20.00"));
+
+        transaction = new PaymentTransaction();
+        transaction.setTransactionId(TRANSACTION_ID);
+        transaction.setShipment(shipment);
+        transaction.setIdempotencyKey("pay-1");
+        transaction.setAmount(new BigDecimal("50.00"));
+        transaction.setCurrency("EUR");
+        transaction.setPaymentMethod("credit_card");
+        transaction.setTransactionStatus("pending");
+
+        // The stored row is this one object, moved along by the compare-and-set transitions
+        when(paymentTransactionRepository.findById(TRANSACTION_ID)).thenAnswer(inv -> Optional.of(transaction));
+        when(paymentTransactionRepository.findByIdWithLock(TRANSACTION_ID))
+                .thenAnswer(inv -> Optional.of(transaction));
+        when(paymentTransactionRepository.save(any(PaymentTransaction.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(paymentTransactionRepository.startProcessing(TRANSACTION_ID)).thenAnswer(inv -> {
+            if (!"pending".equals(transaction.getTransactionStatus())) {
+                return 0;
+            }
+            transaction.setTransactionStatus("processing");
+            transaction.setGatewayAttempts(transaction.getGatewayAttempts() + 1);
+            return 1;
+        });
+        when(paymentTransactionRepository.transition(eq(TRANSACTION_ID), anyString(), anyString())).thenAnswer(inv -> {
+            if (!inv.getArgument(1).equals(transaction.getTransactionStatus())) {
+                return 0;
+            }
+            transaction.setTransactionStatus(inv.getArgument(2));
+            return 1;
+        });
+        when(shipmentRepository.findByIdWithLock(shipment.getShipmentId())).thenReturn(Optional.of(shipment));
+
+        processor = new PaymentProcessor(paymentTransactionRepository, shipmentRepository, gateway, idempotencyGuard,
+                transactionTemplate, mock(JdbcTemplate.class), 10);
+        ReflectionTestUtils.setField(processor, "maxAttempts", 2);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        processor.shutdown();
+    }
+
+    @Test
+    public void testProcess_ApprovedOverpaymentIsRefundedNotApplied() {
+        when(gateway.charge(any())).thenReturn(approved("ch_1"));
+        when(gateway.refund(any(), eq("ch_1"))).thenReturn(approved("re_1"));
+
+        PaymentTransaction finished = processor.process(TRANSACTION_ID);
+
+        assertEquals("refunded", finished.getTransactionStatus());
+        assertEquals("ch_1", finished.getExternalTransactionId());
+        ArgumentCaptor<GatewayRequest> refund = ArgumentCaptor.forClass(GatewayRequest.class);
+        verify(gateway).refund(refund.capture(), eq("ch_1"));
+        assertEquals("pay-1:refund", refund.getValue().getIdempotencyKey());
+        assertEquals(0, new BigDecimal("50.00").compareTo(refund.getValue().getAmount()));
+
+        // The shipment keeps the payments that did fit
+        verify(shipmentRepository, never()).save(any());
+        assertEquals(0, new BigDecimal("80.00").compareTo(shipment.getAmountPaid()));
+        verify(idempotencyGuard).publish(eq("pay-1"), any());
+    }
+
+    @Test
+    public void testRefund_UnknownOutcomeStaysPendingForTheSweeper() {
+        when(gateway.charge(any())).thenReturn(approved("ch_1"));
+        when(gateway.refund(any(), eq("ch_1")))
+                .thenThrow(new PaymentGatewayException("Timed out"))
+                .thenReturn(approved("re_1"));
+
+        PaymentTransaction parked = processor.process(TRANSACTION_ID);
+        assertEquals(PaymentProcessor.REFUND_PENDING, parked.getTransactionStatus());
+        verify(idempotencyGuard, never()).publish(anyString(), any());
+
+        // What the sweeper runs on its next pass
+        assertEquals("refunded", processor.refund(TRANSACTION_ID).getTransactionStatus());
+        verify(gateway, times(2)).refund(any(), eq("ch_1"));
+    }
+
+    @Test
+    public void testRefund_DeclinedRefundNeedsReconciliation() {
+        when(gateway.charge(any())).thenReturn(approved("ch_1"));
+        when(gateway.refund(any(), eq("ch_1")))
+                .thenReturn(new GatewayResult(false, null, "Charge already settled", Map.of()));
+
+        PaymentTransaction finished = processor.process(TRANSACTION_ID);
+
+        assertEquals(PaymentProcessor.NEEDS_RECONCILIATION, finished.getTransactionStatus());
+        assertTrue(finished.getFailedReason().contains("Charge already settled"));
+        verify(idempotencyGuard, never()).publish(anyString(), any());
+    }
+
+    @Test
+    public void testProcess_UnknownOutcomeRetriesThenNeedsReconciliation() {
+        when(gateway.charge(any())).thenThrow(new PaymentGatewayException("Gateway timeout"));
+
+        PaymentTransaction first = processor.process(TRANSACTION_ID);
+        assertEquals("pending", first.getTransactionStatus());
+
+        PaymentTransaction second = processor.process(TRANSACTION_ID);
+        assertEquals(PaymentProcessor.NEEDS_RECONCILIATION, second.getTransactionStatus());
+        assertEquals("Gateway outcome unknown: Gateway timeout", second.getFailedReason());
+        assertFalse(PaymentProcessor.isFinal(second));
+        verify(idempotencyGuard, never()).publish(anyString(), any());
+        verify(gateway, never()).refund(any(), any());
+    }
+
+    @Test
+    public void testProcess_ApprovedWithinAmountDueCompletes() {
+        transaction.setAmount(new BigDecimal("20.00"));
+        when(gateway.charge(any())).thenReturn(approved("ch_2"));
+
+        PaymentTransaction finished = processor.process(TRANSACTION_ID);
+
+        assertEquals("completed", finished.getTransactionStatus());
+        assertEquals("paid", shipment.getPaymentStatus());
+        assertEquals(0, BigDecimal.ZERO.compareTo(shipment.getAmountDue()));
+        verify(gateway, never()).refund(any(), any());
+    }
+
+    private static GatewayResult approved(String externalId) {
+        return new GatewayResult(true, externalId, null, Map.of("outcome", "approved"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.alphaskyport.logistics.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteSimplifierTest {
+
+    @Test
+    public void testSimplify_StraightLineKeepsEndpoints() {
+        int n = 1000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 10.0 + i * 0.001;
+            lon[i] = 20.0 + i * 0.001;
+        }
+
+        int[] kept = RouteSimplifier.simplify(lat, lon, n, 10);
+
+        assertArrayEquals(new int[] { 0, n - 1 }, kept);
+    }
+
+    @Test
+    public void testSimplify_KeepsCornerBeyondTolerance() {
+        // Roughly 1.1 km east, then 1.1 km north
+        double[] lat = { 0.0, 0.0, 0.0, 0.005, 0.01 };
+        double[] lon = { 0.0, 0.005, 0.01, 0.01, 0.01 };
+
+        int[] kept = RouteSimplifier.simplify(lat, lon, lat.length, 50);
+
+        assertArrayEquals(new int[] { 0, 2, 4 }, kept);
+    }
+
+    @Test
+    public void testSimplify_DropsJitterWithinTolerance() {
+        // ~11 m of sideways jitter against a 50 m tolerance
+        double[] lat = { 0.0, 0.0001, -0.0001, 0.0001, 0.0 };
+        double[] lon = { 0.0, 0.01, 0.02, 0.03, 0.04 };
+
+        int[] kept = RouteSimplifier.simplify(lat, lon, lat.length, 50);
+
+        assertArrayEquals(new int[] { 0, 4 }, kept);
+    }
+
+    @Test
+    public void testSimplify_AntimeridianCrossingIsContinuous() {
+        // Straight eastward track across 180 degrees
+        double[] lat = { 0.0, 0.0, 0.0, 0.0 };
+        double[] lon = { 179.8, 179.9, -179.9, -179.8 };
+
+        int[] kept = RouteSimplifier.simplify(lat, lon, lat.length, 10);
+
+        assertArrayEquals(new int[] { 0, 3 }, kept);
+    }
+
+    @Test
+    public void testSimplify_UsesOnlyCountPoints() {
+        double[] lat = { 0.0, 1.0, 2.0, 99.0 };
+        double[] lon = { 0.0, 1.0, 2.0, 99.0 };
+
+        assertArrayEquals(new int[] { 0, 1 }, RouteSimplifier.simplify(lat, lon, 2, 10));
+        assertEquals(0, RouteSimplifier.simplify(lat, lon, 0, 10).length);
+    }
+}
@@ -0,0 +1,114 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.admin.service.AdminActivityService;
+import com.alphaskyport.admin.service.AdminShipmentService;
+import com.alphaskyport.logistics.archive.ArchivedTrackingEvent;
+import com.alphaskyport.logistics.archive.TrackingArchiveWriter;
+import com.alphaskyport.logistics.model.ShipmentTrackingEvent;
+import com.alphaskyport.logistics.repository.ShipmentRepository;
+import com.alphaskyport.logistics.repository.ShipmentTrackingEventRepository;
+import com.alphaskyport.masterdata.repository.CountryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Archive lookups are skipped for shipments created after the retention
+ * cut-off, so recent tracking history never touches the catalogue or files.
+ */
+public class TrackingArchiveServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final UUID shipmentId = UUID.randomUUID();
+
+    private JdbcTemplate archiveJdbc;
+    private TrackingArchiveService archiveService;
+
+    @BeforeEach
+    public void setUp() {
+        archiveJdbc = mock(JdbcTemplate.class);
+        archiveService = new TrackingArchiveService(archiveJdbc, mock(TransactionTemplate.class),
+                mock(CountryRepository.class));
+        ReflectionTestUtils.setField(archiveService, "retentionMonths", 24);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        archiveService.closeReaders();
+    }
+
+    @Test
+    public void recentShipmentHistoryNeverReadsTheArchive() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        ShipmentTrackingEventRepository eventRepository = mock(ShipmentTrackingEventRepository.class);
+        AdminShipmentService shipmentService = new AdminShipmentService(mock(ShipmentRepository.class),
+                eventRepository, jdbcTemplate, mock(AdminActivityService.class),
+                mock(ApplicationEventPublisher.class), mock(RouteSimplificationService.class), archiveService,
+                mock(NotificationService.class));
+        ShipmentTrackingEvent live = ShipmentTrackingEvent.builder()
+                .eventId(1L)
+                .eventStatus("in_transit")
+                .eventTimestamp(LocalDateTime.now().minusHours(1))
+                .build();
+        when(eventRepository.findByShipment_ShipmentIdOrderByEventTimestampDesc(shipmentId)).thenReturn(List.of(live));
+        when(jdbcTemplate.queryForList(anyString(), eq(LocalDateTime.class), eq(shipmentId)))
+                .thenReturn(List.of(LocalDateTime.now().minusDays(3)));
+
+        List<ShipmentTrackingEvent> history = shipmentService.getTrackingHistory(shipmentId);
+
+        assertEquals(List.of(live), history);
+        verifyNoInteractions(archiveJdbc);
+    }
+
+    @Test
+    public void oldShipmentReadsMatchingArchiveFiles() throws Exception {
+        LocalDateTime createdAt = LocalDate.now().withDayOfMonth(1).minusMonths(30).atStartOfDay();
+        Path file = tempDir.resolve("shipment_tracking_events_archive.stea");
+        try (TrackingArchiveWriter writer = new TrackingArchiveWriter(file, 4)) {
+            for (int e = 0; e < 3; e++) {
+                writer.append(ArchivedTrackingEvent.builder()
+                        .eventId(e + 1L)
+                        .shipmentId(shipmentId)
+                        .eventStatus("in_transit")
+                        .eventTimestamp(createdAt.plusHours(e))
+                        .eventSource("gps")
+                        .build());
+            }
+            writer.finish();
+        }
+        when(archiveJdbc.queryForList(anyString(), eq(String.class), any(Object[].class)))
+                .thenReturn(List.of(file.toString()));
+
+        List<ShipmentTrackingEvent> events = archiveService.findArchivedEvents(shipmentId, createdAt);
+
+        assertEquals(List.of(3L, 2L, 1L), events.stream().map(ShipmentTrackingEvent::getEventId).toList());
+        verify(archiveJdbc).queryForList(anyString(), eq(String.class), eq(shipmentId), eq(createdAt));
+    }
+
+    @Test
+    public void shipmentAtTheCutoffSkipsTheArchive() {
+        LocalDateTime cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(24).atStartOfDay();
+
+        assertTrue(archiveService.findArchivedEvents(shipmentId, cutoff).isEmpty());
+        verifyNoInteractions(archiveJdbc);
+    }
+}
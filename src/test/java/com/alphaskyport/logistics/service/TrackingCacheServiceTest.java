@@ -0,0 +1,141 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.logistics.model.ShipmentTrackingSummary;
+import com.alphaskyport.logistics.service.TrackingCacheService.CachedTracking;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TrackingCacheServiceTest {
+
+    private static final String TRACKING_NUMBER = "ASP-1001";
+    private static final String ENTRY_KEY = "tracking:response:" + TRACKING_NUMBER;
+    private static final String GENERATION_KEY = "tracking:generation:" + TRACKING_NUMBER;
+
+    private StringRedisTemplate redisTemplate;
+    private HashOperations<String, Object, Object> hashOperations;
+    private ValueOperations<String, String> valueOperations;
+    private ShipmentService shipmentService;
+    private TrackingCacheService cacheService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        valueOperations = mock(ValueOperations.class);
+        shipmentService = mock(ShipmentService.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        cacheService = new TrackingCacheService(redisTemplate, shipmentService,
+                new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(cacheService, "ttlSeconds", 600L);
+    }
+
+    @Test
+    public void missLoadsSummaryAndWritesBackAtReadGeneration() {
+        when(hashOperations.multiGet(ENTRY_KEY, List.of("body", "etag"))).thenReturn(Arrays.asList(null, null));
+        when(valueOperations.get(GENERATION_KEY)).thenReturn("3");
+        when(shipmentService.getTrackingSummary(TRACKING_NUMBER)).thenReturn(Optional.of(summary("in_transit")));
+
+        CachedTracking tracking = cacheService.getTracking(TRACKING_NUMBER).orElseThrow();
+
+        assertTrue(tracking.getBody().contains("\"currentStatus\":\"in_transit\""));
+        assertFalse(tracking.getBody().contains("shipmentId"));
+        assertTrue(tracking.getEtag().startsWith("\"") && tracking.getEtag().endsWith("\""));
+        verify(redisTemplate).execute(anyScript(), eq(List.of(ENTRY_KEY, GENERATION_KEY)),
+                eq("3"), eq(tracking.getBody()), eq(tracking.getEtag()), eq("600"));
+    }
+
+    @Test
+    public void hitIsServedWithoutLoadingTheSummary() {
+        when(hashOperations.multiGet(ENTRY_KEY, List.of("body", "etag")))
+                .thenReturn(List.of("{\"currentStatus\":\"delivered\"}", "\"abc\""));
+
+        CachedTracking tracking = cacheService.getTracking(TRACKING_NUMBER).orElseThrow();
+
+        assertEquals("\"abc\"", tracking.getEtag());
+        verifyNoInteractions(shipmentService);
+    }
+
+    @Test
+    public void sameSummaryProducesSameEtag() {
+        when(hashOperations.multiGet(ENTRY_KEY, List.of("body", "etag"))).thenReturn(Arrays.asList(null, null));
+        when(shipmentService.getTrackingSummary(TRACKING_NUMBER))
+                .thenReturn(Optional.of(summary("in_transit")))
+                .thenReturn(Optional.of(summary("in_transit")))
+                .thenReturn(Optional.of(summary("delivered")));
+
+        String first = cacheService.getTracking(TRACKING_NUMBER).orElseThrow().getEtag();
+        String second = cacheService.getTracking(TRACKING_NUMBER).orElseThrow().getEtag();
+        String changed = cacheService.getTracking(TRACKING_NUMBER).orElseThrow().getEtag();
+
+        assertEquals(first, second);
+        assertNotEquals(first, changed);
+    }
+
+    @Test
+    public void unknownTrackingNumberIsNotCached() {
+        when(hashOperations.multiGet(ENTRY_KEY, List.of("body", "etag"))).thenReturn(Arrays.asList(null, null));
+        when(shipmentService.getTrackingSummary(TRACKING_NUMBER)).thenReturn(Optional.empty());
+
+        assertTrue(cacheService.getTracking(TRACKING_NUMBER).isEmpty());
+        verify(redisTemplate, never()).execute(anyScript(), anyList(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void redisFailureFallsBackToDatabaseWithoutWriteBack() {
+        when(hashOperations.multiGet(anyString(), anyList())).thenThrow(new QueryTimeoutException("down"));
+        when(shipmentService.getTrackingSummary(TRACKING_NUMBER)).thenReturn(Optional.of(summary("picked_up")));
+
+        CachedTracking tracking = cacheService.getTracking(TRACKING_NUMBER).orElseThrow();
+
+        assertTrue(tracking.getBody().contains("picked_up"));
+        verify(redisTemplate, never()).execute(anyScript(), anyList(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void ifNoneMatchUsesWeakComparison() {
+        CachedTracking tracking = new CachedTracking("{}", "\"abc\"");
+
+        assertTrue(tracking.matches("\"abc\""));
+        assertTrue(tracking.matches("W/\"abc\""));
+        assertTrue(tracking.matches("\"xyz\", \"abc\""));
+        assertTrue(tracking.matches("*"));
+        assertFalse(tracking.matches("\"xyz\""));
+        assertFalse(tracking.matches(null));
+    }
+
+    private static RedisScript<Long> anyScript() {
+        return any();
+    }
+
+    private static ShipmentTrackingSummary summary(String status) {
+        ShipmentTrackingSummary summary = new ShipmentTrackingSummary();
+        summary.setTrackingNumber(TRACKING_NUMBER);
+        summary.setCurrentStatus(status);
+        summary.setLastEventStatus(status);
+        summary.setLastLocation("Rotterdam");
+        summary.setLastEventAt(LocalDateTime.of(2026, 1, 15, 10, 30));
+        return summary;
+    }
+}
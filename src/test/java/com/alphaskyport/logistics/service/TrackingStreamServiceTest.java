@@ -0,0 +1,143 @@
+package com.alphaskyport.logistics.service;
+
+import com.alphaskyport.config.UserAccessGuard;
+import com.alphaskyport.logistics.controller.ShipmentController;
+import com.alphaskyport.logistics.service.TrackingCacheService.CachedTracking;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Streams opened through the shipment endpoints: a caller can only open a
+ * stream for their own user id, and relayed changes reach the open streams.
+ */
+public class TrackingStreamServiceTest {
+
+    private static final String TRACKING_NUMBER = "ASP-2001";
+
+    private final UUID userId = UUID.randomUUID();
+
+    private TrackingCacheService trackingCacheService;
+    private TrackingStreamService streamService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        trackingCacheService = mock(TrackingCacheService.class);
+        streamService = new TrackingStreamService(mock(StringRedisTemplate.class), trackingCacheService,
+                new ObjectMapper(), mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(streamService, "streamTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(streamService, "maxSubscriptions", 10);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new ShipmentController(mock(ShipmentService.class),
+                trackingCacheService, streamService, new UserAccessGuard())).build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userId.toString(), null, AuthorityUtils.NO_AUTHORITIES));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        streamService.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void rejectsStreamForAnotherUser() throws Exception {
+        mockMvc.perform(get("/api/shipments/user/{userId}/stream", UUID.randomUUID()))
+                .andExpect(status().isForbidden());
+
+        assertEquals(0, streamService.getOpenStreams());
+    }
+
+    @Test
+    public void relayedChangeReachesUserStream() throws Exception {
+        when(trackingCacheService.getTracking(TRACKING_NUMBER))
+                .thenReturn(Optional.of(new CachedTracking("{\"currentStatus\":\"out_for_delivery\"}", "\"e1\"")));
+
+        MvcResult result = mockMvc.perform(get("/api/shipments/user/{userId}/stream", userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1, streamService.getOpenStreams());
+
+        streamService.onMessage(message(TRACKING_NUMBER, userId), null);
+
+        waitFor(() -> content(result).contains("out_for_delivery"));
+        assertTrue(content(result).contains("event:tracking"));
+    }
+
+    @Test
+    public void shipmentStreamSendsSnapshotThenChanges() throws Exception {
+        when(trackingCacheService.getTracking(TRACKING_NUMBER))
+                .thenReturn(Optional.of(new CachedTracking("{\"currentStatus\":\"in_transit\"}", "\"e1\"")))
+                .thenReturn(Optional.of(new CachedTracking("{\"currentStatus\":\"delivered\"}", "\"e2\"")));
+
+        MvcResult result = mockMvc.perform(get("/api/shipments/tracking/{trackingNumber}/stream", TRACKING_NUMBER))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        waitFor(() -> content(result).contains("in_transit"));
+
+        // A change for a shipment nobody streams is neither read nor sent
+        streamService.onMessage(message("ASP-OTHER", null), null);
+        streamService.onMessage(message(TRACKING_NUMBER, null), null);
+
+        waitFor(() -> content(result).contains("delivered"));
+        verify(trackingCacheService, never()).getTracking("ASP-OTHER");
+    }
+
+    @Test
+    public void unknownTrackingNumberOpensNoStream() throws Exception {
+        when(trackingCacheService.getTracking("ASP-MISSING")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/shipments/tracking/{trackingNumber}/stream", "ASP-MISSING"))
+                .andExpect(status().isNotFound());
+
+        assertEquals(0, streamService.getOpenStreams());
+    }
+
+    private static DefaultMessage message(String trackingNumber, UUID userId) {
+        String body = "{\"trackingNumber\":\"" + trackingNumber + "\""
+                + (userId != null ? ",\"userId\":\"" + userId + "\"" : "") + ",\"status\":\"in_transit\"}";
+        return new DefaultMessage(TrackingStreamService.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String content(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition not met within 5s");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.alphaskyport.logistics.webhook;
+
+import com.alphaskyport.logistics.webhook.WebhookEndpointGuard.BlockedEndpointException;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebhookEndpointGuardTest {
+
+    private final Map<String, String> dns = new HashMap<>();
+
+    private final WebhookEndpointGuard guard = new WebhookEndpointGuard(false, host -> {
+        String address = dns.getOrDefault(host, host);
+        // Only literals resolve; unknown names fail like a missing DNS record
+        if (!address.matches("[0-9.]+|.*:.*")) {
+            throw new UnknownHostException(host);
+        }
+        return new InetAddress[] { InetAddress.getByName(address) };
+    });
+
+    @Test
+    public void testCheck_AcceptsPublicAddresses() throws Exception {
+        dns.put("hooks.example.com", "93.184.216.34");
+
+        guard.check(URI.create("https://hooks.example.com/webhooks"));
+        guard.check(URI.create("https://8.8.8.8/webhooks"));
+        guard.check(URI.create("https://[2606:4700::1111]/webhooks"));
+    }
+
+    @Test
+    public void testCheck_RejectsInternalAddresses() {
+        for (String address : new String[] { "127.0.0.1", "127.8.9.10", "169.254.169.254", "10.0.0.5",
+                "172.16.3.4", "192.168.1.1", "100.64.0.1", "0.0.0.0", "224.0.0.1",
+                "[::1]", "[::]", "[fe80::1]", "[fd00::1]", "[::ffff:127.0.0.1]", "[::10.0.0.1]",
+                "[64:ff9b::a9fe:a9fe]" }) {
+            assertThrows(BlockedEndpointException.class,
+                    () -> guard.check(URI.create("https://" + address + "/hook")), address);
+        }
+        assertThrows(BlockedEndpointException.class, () -> guard.check(URI.create("https://localhost/hook")));
+        assertThrows(BlockedEndpointException.class, () -> guard.check(URI.create("https://api.localhost/hook")));
+    }
+
+    @Test
+    public void testCheck_RejectsNameResolvingToInternalAddress() {
+        // A rebound record is caught because the name is resolved on every check
+        dns.put("rebind.example.com", "93.184.216.34");
+        assertDoesNotThrow(() -> guard.check(URI.create("https://rebind.example.com/hook")));
+
+        dns.put("rebind.example.com", "169.254.169.254");
+        assertThrows(BlockedEndpointException.class, () -> guard.check(URI.create("https://rebind.example.com/hook")));
+    }
+
+    @Test
+    public void testCheck_PropagatesUnresolvableHost() {
+        assertThrows(UnknownHostException.class, () -> guard.check(URI.create("https://missing.example.com/hook")));
+    }
+
+    @Test
+    public void testCheck_AllowPrivateSkipsResolution() throws Exception {
+        WebhookEndpointGuard permissive = new WebhookEndpointGuard(true, host -> {
+            throw new AssertionError("should not resolve");
+        });
+
+        permissive.check(URI.create("http://localhost:8080/api/public/webhooks/mock"));
+        assertThrows(BlockedEndpointException.class, () -> permissive.check(URI.create("mailto:ops@example.com")));
+    }
+}
@@ -0,0 +1,47 @@
+package com.alphaskyport.logistics.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebhookSignerTest {
+
+    private static final String SECRET = "whsec_test";
+    private static final String BODY = "{\"events\":[{\"id\":\"1\",\"type\":\"shipment.updated\"}]}";
+    private static final long NOW = 1_760_000_000L;
+
+    @Test
+    public void testVerify_AcceptsOwnSignature() {
+        String header = WebhookSigner.sign(SECRET, NOW, BODY);
+
+        assertTrue(header.startsWith("t=" + NOW + ",v1="));
+        assertTrue(WebhookSigner.verify(SECRET, header, BODY, NOW + 10, 300));
+    }
+
+    @Test
+    public void testVerify_RejectsTamperedBodyOrWrongSecret() {
+        String header = WebhookSigner.sign(SECRET, NOW, BODY);
+
+        assertFalse(WebhookSigner.verify(SECRET, header, BODY.replace("shipment", "invoice"), NOW, 300));
+        assertFalse(WebhookSigner.verify("whsec_other", header, BODY, NOW, 300));
+    }
+
+    @Test
+    public void testVerify_RejectsStaleOrMalformedHeaders() {
+        String header = WebhookSigner.sign(SECRET, NOW, BODY);
+
+        assertFalse(WebhookSigner.verify(SECRET, header, BODY, NOW + 301, 300));
+        assertFalse(WebhookSigner.verify(SECRET, null, BODY, NOW, 300));
+        assertFalse(WebhookSigner.verify(SECRET, "v1=abc", BODY, NOW, 300));
+        assertFalse(WebhookSigner.verify(SECRET, "t=soon,v1=abc", BODY, NOW, 300));
+    }
+
+    @Test
+    public void testNewSecret_IsRandom() {
+        String secret = WebhookSigner.newSecret();
+
+        assertTrue(secret.startsWith("whsec_"));
+        assertEquals(6 + 64, secret.length());
+        assertNotEquals(secret, WebhookSigner.newSecret());
+    }
+}